@@ -0,0 +1,173 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.service.AdaptiveConcurrencyHandler;
+import info.orestes.rest.service.AdaptiveLimit;
+import info.orestes.rest.service.RestResponse;
+import info.orestes.rest.service.RestRouter;
+import info.orestes.rest.service.RestServletHandler;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.log.StdErrLog;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overloads the {@link CapacityServlet} with a closed loop of concurrent clients, once without a limit and once with
+ * the {@link AdaptiveConcurrencyHandler}, and reports the throughput, the latency percentiles of the successful
+ * requests and the number of rejected requests.
+ * <p>
+ * Run it with: <code>./gradlew :restful-jetty-benchmarks:loadTest -PloadTestArgs="&lt;clients&gt; &lt;seconds&gt;"</code>
+ */
+public class AdaptiveLimitLoadTest {
+
+    private static final String REQUEST = "GET /capacity/42 HTTP/1.1\r\n"
+        + "Host: localhost\r\n"
+        + "Accept: text/plain\r\n"
+        + "\r\n";
+    private static final long REJECT_BACKOFF_MILLIS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        //each rejected request is logged as a warning
+        Logger logger = Log.getLogger(RestResponse.class);
+        if (logger instanceof StdErrLog) {
+            ((StdErrLog) logger).setLevel(StdErrLog.LEVEL_OFF);
+        }
+
+        System.out.println("Backend capacity " + CapacityServlet.CAPACITY + " x " + CapacityServlet.SERVICE_TIME_MICROS
+            + "us, " + clients + " clients, " + seconds + "s");
+        System.out.printf("%-10s %12s %10s %10s %10s %10s %8s%n", "mode", "ok/s", "p50 ms", "p99 ms", "p999 ms",
+            "rejected", "limit");
+
+        run("unlimited", clients, seconds, false);
+        run("adaptive", clients, seconds, true);
+    }
+
+    private static void run(String mode, int clients, int seconds, boolean adaptive) throws Exception {
+        QueuedThreadPool threadPool = new QueuedThreadPool(clients * 2 + 16);
+        Server server = new Server(threadPool);
+        LocalConnector connector = new LocalConnector(server);
+        server.addConnector(connector);
+
+        RestRouter router = new BenchmarkService().createRouter(0);
+        AdaptiveConcurrencyHandler limiter = new AdaptiveConcurrencyHandler();
+        if (adaptive) {
+            router.setHandler(limiter);
+            limiter.setHandler(new RestServletHandler());
+        } else {
+            router.setHandler(new RestServletHandler());
+        }
+        server.setHandler(router);
+        server.start();
+
+        try {
+            //warm up and let the limit settle
+            load(connector, clients, TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 3)));
+            Result result = load(connector, clients, TimeUnit.SECONDS.toNanos(seconds));
+
+            long[] latencies = result.latencies();
+            String limit = "-";
+            if (adaptive) {
+                limit = String.valueOf(limiter.getLimits().stream().mapToInt(AdaptiveLimit::getLimit).max().orElse(0));
+            }
+
+            System.out.printf("%-10s %12.0f %10.2f %10.2f %10.2f %10d %8s%n", mode,
+                latencies.length / (double) seconds,
+                percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                result.rejected(), limit);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static Result load(LocalConnector connector, int clients, long duration) throws InterruptedException {
+        long end = System.nanoTime() + duration;
+        List<Client> threads = new ArrayList<>();
+        for (int i = 0; i < clients; ++i) {
+            Client client = new Client(connector, end);
+            threads.add(client);
+            client.start();
+        }
+
+        Result result = new Result();
+        for (Client client : threads) {
+            client.join();
+            result.add(client);
+        }
+        return result;
+    }
+
+    private static double percentile(long[] latencies, double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(latencies.length - 1, Math.ceil(latencies.length * percentile) - 1);
+        return latencies[Math.max(0, index)] / 1e6;
+    }
+
+    private static class Client extends Thread {
+        private final LocalConnector connector;
+        private final long end;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long rejected;
+
+        Client(LocalConnector connector, long end) {
+            this.connector = connector;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (long start = System.nanoTime(); start < end; start = System.nanoTime()) {
+                    String response = connector.getResponse(REQUEST);
+                    long latency = System.nanoTime() - start;
+
+                    if (response != null && response.startsWith("HTTP/1.1 200")) {
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = latency;
+                    } else if (response != null && response.startsWith("HTTP/1.1 503")) {
+                        rejected++;
+                        //a rejected client backs off like a client which honors Retry-After on a smaller scale
+                        TimeUnit.MILLISECONDS.sleep(REJECT_BACKOFF_MILLIS);
+                    } else {
+                        throw new IllegalStateException("Unexpected response:\n" + response);
+                    }
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class Result {
+        private final List<long[]> latencies = new ArrayList<>();
+        private long rejected;
+
+        void add(Client client) {
+            latencies.add(Arrays.copyOf(client.latencies, client.count));
+            rejected += client.rejected;
+        }
+
+        long[] latencies() {
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).toArray();
+            Arrays.sort(all);
+            return all;
+        }
+
+        long rejected() {
+            return rejected;
+        }
+    }
+}
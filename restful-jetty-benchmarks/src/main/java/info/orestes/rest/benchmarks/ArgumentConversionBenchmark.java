@@ -0,0 +1,54 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.conversion.SimpleContext;
+import info.orestes.rest.error.RestException;
+import info.orestes.rest.service.ArgumentBinder;
+import info.orestes.rest.service.PathElement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of matched route arguments with and without precomputed binders
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgumentConversionBenchmark {
+
+    private ConverterService converterService;
+    private ArgumentBinder integerBinder;
+    private ArgumentBinder doubleBinder;
+    private final SimpleContext context = new SimpleContext();
+
+    @Setup
+    public void setUp() {
+        converterService = new BenchmarkService().getConverterService();
+        integerBinder = ArgumentBinder.create(PathElement.createVariable("id", "", Integer.class), converterService);
+        doubleBinder = ArgumentBinder.create(PathElement.createVariable("value", "", Double.class), converterService);
+    }
+
+    @Benchmark
+    public Object converterServiceInteger() {
+        return converterService.toObject(Integer.class, "123456");
+    }
+
+    @Benchmark
+    public Object binderInteger() throws RestException {
+        return integerBinder.bind(context, "123456");
+    }
+
+    @Benchmark
+    public Object converterServiceDouble() {
+        return converterService.toObject(Double.class, "1234.56");
+    }
+
+    @Benchmark
+    public Object binderDouble() throws RestException {
+        return doubleBinder.bind(context, "1234.56");
+    }
+}
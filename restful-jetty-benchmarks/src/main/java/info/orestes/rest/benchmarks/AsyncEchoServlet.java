@@ -0,0 +1,19 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Responds asynchronously from another thread with the bound arguments of the request
+ */
+@SuppressWarnings("serial")
+public class AsyncEchoServlet extends RestServlet {
+
+    @Override
+    public CompletableFuture<Void> doGetAsync(Request request, Response response) {
+        return CompletableFuture.runAsync(() -> response.sendEntity("Hello " + request.getArguments()));
+    }
+}
@@ -0,0 +1,137 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.service.MethodGroup;
+import info.orestes.rest.service.ParsedURI;
+import info.orestes.rest.service.RestRouter;
+import info.orestes.rest.service.ServiceDocumentParser;
+import info.orestes.rest.service.ServiceDocumentTypes;
+import info.orestes.rest.service.Spec;
+import info.orestes.rest.util.Module;
+
+import java.io.StringReader;
+import java.util.stream.Stream;
+
+/**
+ * Creates the services which are shared by the benchmarks. The service document is generated, so the benchmarks can
+ * be run against specs of different sizes.
+ */
+public class BenchmarkService {
+
+    private final Module module = new Module();
+    private final ConverterService converterService;
+
+    public BenchmarkService() {
+        module.bind(ConverterService.class, ConverterService.class);
+        converterService = module.moduleInstance(ConverterService.class);
+        converterService.addFormat(new LinesFormat());
+        converterService.add(new LinesStringConverter());
+    }
+
+    public Module getModule() {
+        return module;
+    }
+
+    public ConverterService getConverterService() {
+        return converterService;
+    }
+
+    /**
+     * Creates a service document with the end-to-end methods and two resource methods for each route
+     *
+     * @param routes The number of generated resources
+     * @return The service document
+     */
+    public static String createServiceDocument(int routes) {
+        StringBuilder doc = new StringBuilder();
+
+        doc.append("#endToEnd : End to end methods\n\n");
+        doc.append("##sync : Sync echo\n\n@id : Integer The id\n\n");
+        doc.append("GET /sync/:id info.orestes.rest.benchmarks.EchoServlet : String\n200 ok\n\n");
+        doc.append("##async : Async echo\n\n@id : Integer The id\n\n");
+        doc.append("GET /async/:id info.orestes.rest.benchmarks.AsyncEchoServlet : String\n200 ok\n\n");
+        doc.append("##stream : Stream\n\n@count : Integer The number of streamed entities\n\n");
+        doc.append("GET /stream/:count info.orestes.rest.benchmarks.StreamServlet : Stream[String]\n200 ok\n\n");
+        doc.append("##capacity : Backend with a fixed capacity\n\n@id : Integer The id\n\n");
+        doc.append("GET /capacity/:id info.orestes.rest.benchmarks.CapacityServlet : String\n200 ok\n\n");
+
+        for (int i = 0; i < routes; ++i) {
+            doc.append("#resource").append(i).append(" : Resource ").append(i).append("\n\n");
+
+            doc.append("##list").append(i).append(" : List resource ").append(i).append("\n\n");
+            doc.append("@limit : Integer The maximum number of results\n\n");
+            doc.append("GET /db/resource").append(i).append("?limit=10 info.orestes.rest.benchmarks.EchoServlet : String\n");
+            doc.append("200 ok\n\n");
+
+            doc.append("##get").append(i).append(" : Get resource ").append(i).append("\n\n");
+            doc.append("@id : Integer The resource id\n@fields : String The selected fields\n\n");
+            doc.append("GET /db/resource").append(i).append("/:id?fields= info.orestes.rest.benchmarks.EchoServlet : String\n");
+            doc.append("200 ok\n\n");
+        }
+
+        return doc.toString();
+    }
+
+    /**
+     * Parses the generated service document
+     *
+     * @param routes The number of generated resources
+     * @return The parsed spec
+     */
+    public Spec createSpec(int routes) {
+        ServiceDocumentTypes types = converterService.createServiceDocumentTypes();
+        ServiceDocumentParser parser = new ServiceDocumentParser(new ServiceDocumentTypes() {
+            @Override
+            public Class<?> getEntityClassForName(String name) {
+                return name.equals("Stream") ? Stream.class : types.getEntityClassForName(name);
+            }
+
+            @Override
+            public Class<?> getArgumentClassForName(String name) {
+                return types.getArgumentClassForName(name);
+            }
+        });
+
+        return parser.parse(new StringReader(createServiceDocument(routes)));
+    }
+
+    /**
+     * Creates a router for the generated spec, the router is not started
+     *
+     * @param routes The number of generated resources
+     * @return The new router
+     */
+    public Router createRouter(int routes) {
+        Router router = new Router(module);
+        for (MethodGroup group : createSpec(routes)) {
+            router.addAll(group);
+        }
+        return router;
+    }
+
+    /**
+     * Exposes the route lookup of the {@link RestRouter} without dispatching a request
+     */
+    public static class Router extends RestRouter {
+        public Router(Module module) {
+            super(module);
+        }
+
+        /**
+         * Finds the matching route of the request
+         *
+         * @param action The HTTP method
+         * @param uri    The parsed request URI
+         * @return The matched values of the route signature or <code>null</code> if no route matches
+         */
+        public String[] route(String action, ParsedURI uri) {
+            for (Route route : findRoutes(action, uri)) {
+                String[] matches = route.match(action, uri);
+                if (matches != null) {
+                    return matches;
+                }
+            }
+            return null;
+        }
+    }
+}
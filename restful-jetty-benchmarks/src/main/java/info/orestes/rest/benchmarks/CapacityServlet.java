@@ -0,0 +1,35 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a backend with a fixed capacity. Each request occupies one of the backend slots for a fixed service time,
+ * requests beyond the capacity wait for a free slot, so the latency grows with the concurrency.
+ */
+@SuppressWarnings("serial")
+public class CapacityServlet extends RestServlet {
+
+    public static final int CAPACITY = 8;
+    public static final long SERVICE_TIME_MICROS = 2000;
+
+    private static final Semaphore slots = new Semaphore(CAPACITY, true);
+
+    @Override
+    public void doGet(Request request, Response response) {
+        slots.acquireUninterruptibly();
+        try {
+            TimeUnit.MICROSECONDS.sleep(SERVICE_TIME_MICROS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            slots.release();
+        }
+
+        response.sendEntity("Hello " + request.getArguments());
+    }
+}
@@ -0,0 +1,17 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+
+/**
+ * Responds synchronously with the bound arguments of the request
+ */
+@SuppressWarnings("serial")
+public class EchoServlet extends RestServlet {
+
+    @Override
+    public void doGet(Request request, Response response) {
+        response.sendEntity("Hello " + request.getArguments());
+    }
+}
@@ -0,0 +1,89 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.service.RestRouter;
+import info.orestes.rest.service.RestServletHandler;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the complete request handling of an in-process server, including the HTTP parsing and generation of
+ * Jetty, without any network I/O
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    private static final String SYNC_REQUEST = request("/sync/42", "text/plain");
+    private static final String ASYNC_REQUEST = request("/async/42", "text/plain");
+    private static final String STREAM_REQUEST = request("/stream/100", "text/x-lines");
+    private static final String NOT_FOUND_REQUEST = request("/unknown/42", "text/plain");
+
+    @Param({"100"})
+    public int routes;
+
+    private Server server;
+    private LocalConnector connector;
+
+    private static String request(String path, String accept) {
+        return "GET " + path + " HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "Accept: " + accept + "\r\n"
+            + "\r\n";
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new Server();
+        connector = new LocalConnector(server);
+        server.addConnector(connector);
+
+        RestRouter router = new BenchmarkService().createRouter(routes);
+        router.setHandler(new RestServletHandler());
+        server.setHandler(router);
+        server.start();
+
+        check(SYNC_REQUEST, "HTTP/1.1 200", "Hello");
+        check(ASYNC_REQUEST, "HTTP/1.1 200", "Hello");
+        check(STREAM_REQUEST, "HTTP/1.1 200", "entity 99");
+        check(NOT_FOUND_REQUEST, "HTTP/1.1 404", "");
+    }
+
+    private void check(String request, String status, String content) throws Exception {
+        String response = connector.getResponse(request);
+        if (response == null || !response.startsWith(status) || !response.contains(content)) {
+            throw new IllegalStateException("Unexpected response:\n" + response);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    @Benchmark
+    public String sync() throws Exception {
+        return connector.getResponse(SYNC_REQUEST);
+    }
+
+    @Benchmark
+    public String async() throws Exception {
+        return connector.getResponse(ASYNC_REQUEST);
+    }
+
+    @Benchmark
+    public String stream() throws Exception {
+        return connector.getResponse(STREAM_REQUEST);
+    }
+
+    @Benchmark
+    public String notFound() throws Exception {
+        return connector.getResponse(NOT_FOUND_REQUEST);
+    }
+}
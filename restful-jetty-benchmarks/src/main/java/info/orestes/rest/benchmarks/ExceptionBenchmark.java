@@ -0,0 +1,39 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.error.NotFound;
+import info.orestes.rest.error.RestException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of {@link RestException}s, which happens for every rejected request
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionBenchmark {
+
+    @Benchmark
+    public RestException constructor() {
+        return new NotFound("The resource was not found.");
+    }
+
+    @Benchmark
+    public RestException createByStatus() {
+        return RestException.create(404, "The resource was not found.", null);
+    }
+
+    @Benchmark
+    public RestException createByClassName() {
+        return RestException.create("info.orestes.rest.error.NotFound", 404, "The resource was not found.", null);
+    }
+
+    @Benchmark
+    public RestException wrap() {
+        return RestException.of(new IllegalArgumentException("Invalid argument."));
+    }
+}
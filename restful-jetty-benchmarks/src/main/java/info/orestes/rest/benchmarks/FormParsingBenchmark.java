@@ -0,0 +1,48 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.forms.FormData;
+import info.orestes.rest.forms.FormDataParser;
+import info.orestes.rest.forms.FormDataSyntaxException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing of multipart form data bodies with different numbers of parts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormParsingBenchmark {
+
+    private static final String BOUNDARY = "----BenchmarkBoundary7MA4YWxkTrZu0gW";
+
+    @Param({"1", "10", "100"})
+    public int parts;
+
+    private String body;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < parts; ++i) {
+            builder.append("--").append(BOUNDARY).append("\r\n");
+            builder.append("Content-Disposition: form-data; name=\"field").append(i).append("\"\r\n");
+            builder.append("\r\n");
+            builder.append("value of field ").append(i).append("\r\n");
+        }
+        builder.append("--").append(BOUNDARY).append("--\r\n");
+        body = builder.toString();
+    }
+
+    @Benchmark
+    public FormData parse() throws FormDataSyntaxException {
+        FormData formData = new FormData();
+        new FormDataParser(new StringReader(body), BOUNDARY).parse(formData);
+        return formData;
+    }
+}
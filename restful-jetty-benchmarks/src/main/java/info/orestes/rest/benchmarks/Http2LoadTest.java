@@ -0,0 +1,145 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.client.EntityResponse;
+import info.orestes.rest.client.RestClient;
+import info.orestes.rest.service.RestRouter;
+import info.orestes.rest.service.RestServletHandler;
+import org.eclipse.jetty.client.HttpClientTransport;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a fixed number of concurrent requests from a {@link RestClient} to the async echo route of a local server,
+ * once over a pool of HTTP/1.1 connections and once multiplexed over a single h2c connection, and reports the
+ * throughput and the latency percentiles of both transports.
+ * <p>
+ * Run it with: <code>./gradlew :restful-jetty-benchmarks:http2LoadTest -PloadTestArgs="&lt;concurrency&gt;
+ * &lt;seconds&gt; &lt;connections&gt;"</code>
+ */
+public class Http2LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        BenchmarkService service = new BenchmarkService();
+        Server server = new Server(new QueuedThreadPool(256));
+        HttpConfiguration config = new HttpConfiguration();
+        HTTP2CServerConnectionFactory http2 = new HTTP2CServerConnectionFactory(config);
+        http2.setMaxConcurrentStreams(concurrency);
+        ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(config), http2);
+        server.addConnector(connector);
+
+        RestRouter router = service.createRouter(0);
+        router.setHandler(new RestServletHandler());
+        server.setHandler(router);
+        server.start();
+
+        String baseURI = "http://localhost:" + connector.getLocalPort();
+        System.out.println(concurrency + " concurrent requests, " + connections + " HTTP/1.1 connections, " + seconds
+            + "s");
+        System.out.printf("%-10s %12s %10s %10s %10s%n", "transport", "ok/s", "p50 ms", "p99 ms", "p999 ms");
+
+        try {
+            run("http/1.1", new HttpClientTransportOverHTTP(), connections, baseURI, service, concurrency, seconds);
+            run("h2c", RestClient.newHttp2Transport(concurrency, RestClient.DEFAULT_SESSION_RECV_WINDOW,
+                RestClient.DEFAULT_STREAM_RECV_WINDOW), 1, baseURI, service, concurrency, seconds);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void run(String transport, HttpClientTransport clientTransport, int connections, String baseURI,
+            BenchmarkService service, int concurrency, int seconds) throws Exception {
+        RestClient client = new RestClient(baseURI, service.getConverterService(), new SslContextFactory.Client(),
+            clientTransport);
+        client.setMaxConnectionsPerDestination(connections);
+        client.setMaxRequestsQueuedPerDestination(concurrency * 2);
+        client.start();
+
+        try {
+            //warm up the connections and the JIT
+            load(client, concurrency, TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 3)));
+            long[] latencies = load(client, concurrency, TimeUnit.SECONDS.toNanos(seconds));
+
+            System.out.printf("%-10s %12.0f %10.2f %10.2f %10.2f%n", transport, latencies.length / (double) seconds,
+                percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999));
+        } finally {
+            client.stop();
+        }
+    }
+
+    /**
+     * Keeps the given number of requests in flight until the duration has elapsed
+     *
+     * @return The sorted latencies of the successful requests
+     */
+    private static long[] load(RestClient client, int concurrency, long duration) throws InterruptedException {
+        long end = System.nanoTime() + duration;
+        Semaphore inFlight = new Semaphore(concurrency);
+        Latencies latencies = new Latencies();
+        AtomicInteger failures = new AtomicInteger();
+
+        for (int id = 0; System.nanoTime() < end; ++id) {
+            inFlight.acquire();
+            long start = System.nanoTime();
+            CompletableFuture<EntityResponse<String>> response =
+                client.newRequest("/async/" + (id & 1023)).send(String.class);
+
+            response.whenComplete((result, error) -> {
+                if (error == null && result.getStatus() == 200) {
+                    latencies.add(System.nanoTime() - start);
+                } else {
+                    failures.incrementAndGet();
+                }
+                inFlight.release();
+            });
+        }
+
+        //drain the requests which are still in flight
+        inFlight.acquire(concurrency);
+        if (failures.get() > 0) {
+            System.out.println(failures.get() + " failed requests");
+        }
+        return latencies.sorted();
+    }
+
+    private static double percentile(long[] latencies, double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(latencies.length - 1, Math.ceil(latencies.length * percentile) - 1);
+        return latencies[Math.max(0, index)] / 1e6;
+    }
+
+    private static class Latencies {
+        private long[] latencies = new long[1 << 16];
+        private int count;
+
+        synchronized void add(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+
+        synchronized long[] sorted() {
+            long[] all = Arrays.copyOf(latencies, count);
+            Arrays.sort(all);
+            return all;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.conversion.BinaryWritableContext;
+import info.orestes.rest.conversion.Converter;
+import info.orestes.rest.conversion.ConverterFormat;
+import info.orestes.rest.conversion.ReadableContext;
+import info.orestes.rest.conversion.WritableContext;
+import info.orestes.rest.error.RestException;
+import info.orestes.rest.service.EntityType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * A newline delimited text format, which is the simplest format that supports streamed entities.
+ */
+public class LinesFormat extends ConverterFormat<CharSequence> {
+
+    public static final String MEDIA_TYPE = "text/x-lines";
+
+    public LinesFormat() {
+        super(null);
+    }
+
+    @Override
+    public <T> EntityWriter<T> newEntityWriter(WritableContext context, EntityType<T> entityType, Converter<T, CharSequence> converter) {
+        return new EntityWriter<T>() {
+            @Override
+            public void write(T entity) throws IOException, RestException {
+                writeNext(entity);
+            }
+
+            @Override
+            public void writeNext(T entity) throws IOException, RestException {
+                String line = converter.toFormat(context, entity, entityType.getActualTypeArguments()) + "\n";
+                if (context instanceof BinaryWritableContext) {
+                    BinaryWritableContext binaryContext = (BinaryWritableContext) context;
+                    binaryContext.getOutputStream().write(line.getBytes(binaryContext.getCharset()));
+                } else {
+                    context.getWriter().append(line);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+            }
+        };
+    }
+
+    @Override
+    public <T> EntityReader<T> newEntityReader(ReadableContext context, EntityType<T> entityType, Converter<T, CharSequence> converter) {
+        return new EntityReader<T>() {
+            private BufferedReader reader;
+            private String line;
+
+            @Override
+            public T read() throws IOException, RestException {
+                return readNext();
+            }
+
+            @Override
+            public T readNext() throws IOException, RestException {
+                hasNext();
+                String next = line;
+                line = null;
+                return converter.toObject(context, next, entityType.getActualTypeArguments());
+            }
+
+            @Override
+            public boolean hasNext() throws IOException {
+                if (reader == null) {
+                    reader = new BufferedReader(context.getReader());
+                }
+                if (line == null) {
+                    line = reader.readLine();
+                }
+                return line != null;
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.conversion.Accept;
+import info.orestes.rest.conversion.Context;
+import info.orestes.rest.conversion.Converter;
+
+@Accept(LinesFormat.MEDIA_TYPE)
+public class LinesStringConverter extends Converter<String, CharSequence> {
+
+    @Override
+    public CharSequence toFormat(Context context, String source, Class<?>[] genericParams) {
+        return source;
+    }
+
+    @Override
+    public String toObject(Context context, CharSequence source, Class<?>[] genericParams) {
+        return source.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.conversion.MediaTypeNegotiation;
+import info.orestes.rest.service.EntityType;
+import org.apache.tika.mime.MediaType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Accept header negotiation with and without the negotiation cache
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NegotiationBenchmark {
+
+    @Param({
+        "text/plain",
+        "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8",
+        "application/json;q=0.9,text/x-lines;q=0.5,text/*;q=0.1"
+    })
+    public String accept;
+
+    private ConverterService converterService;
+    private final EntityType<String> type = new EntityType<>(String.class);
+
+    @Setup
+    public void setUp() {
+        converterService = new BenchmarkService().getConverterService();
+    }
+
+    @Benchmark
+    public Object parseAccept() {
+        return MediaTypeNegotiation.parseAccept(accept);
+    }
+
+    @Benchmark
+    public MediaType negotiate() {
+        return converterService.getPreferredMediaType(MediaTypeNegotiation.parseAccept(accept), type);
+    }
+
+    @Benchmark
+    public MediaType negotiateCached() {
+        return converterService.getPreferredMediaType(accept, type);
+    }
+}
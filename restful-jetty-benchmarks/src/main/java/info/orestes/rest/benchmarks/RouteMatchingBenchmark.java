@@ -0,0 +1,56 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.error.BadRequest;
+import info.orestes.rest.service.ParsedURI;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup and matching of routes for specs of different sizes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteMatchingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int routes;
+
+    private BenchmarkService.Router router;
+    private final ParsedURI uri = new ParsedURI();
+    private String lastResourcePath;
+
+    @Setup
+    public void setUp() throws Exception {
+        router = new BenchmarkService().createRouter(routes);
+        router.start();
+        lastResourcePath = "/db/resource" + (routes - 1) + "/42";
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        router.stop();
+    }
+
+    @Benchmark
+    public String[] matchStatic() throws BadRequest {
+        uri.parse("/db/resource0", 0, "limit=20");
+        return router.route("GET", uri);
+    }
+
+    @Benchmark
+    public String[] matchVariable() throws BadRequest {
+        uri.parse(lastResourcePath, 0, "fields=name");
+        return router.route("GET", uri);
+    }
+
+    @Benchmark
+    public String[] matchNone() throws BadRequest {
+        uri.parse("/db/unknown/42", 0, null);
+        return router.route("GET", uri);
+    }
+}
@@ -0,0 +1,57 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.service.MethodGroup;
+import info.orestes.rest.service.RestRouter;
+import info.orestes.rest.service.SpecSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the router startup from the text service document with the startup from a compiled snapshot
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterStartupBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int routes;
+
+    private BenchmarkService service;
+    private byte[] document;
+    private byte[] snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new BenchmarkService();
+        document = BenchmarkService.createServiceDocument(routes).getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SpecSnapshot.compile(service.createSpec(routes)).write(out, document);
+        snapshot = out.toByteArray();
+    }
+
+    @Benchmark
+    public RestRouter parse() {
+        RestRouter router = new RestRouter(service.getModule());
+        for (MethodGroup group : service.createSpec(routes)) {
+            router.addAll(group);
+        }
+        return router;
+    }
+
+    @Benchmark
+    public RestRouter snapshot() throws IOException {
+        RestRouter router = new RestRouter(service.getModule());
+        router.addAll(SpecSnapshot.read(new ByteArrayInputStream(snapshot), document, getClass().getClassLoader()));
+        return router;
+    }
+}
@@ -0,0 +1,20 @@
+package info.orestes.rest.benchmarks;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+
+import java.util.stream.IntStream;
+
+/**
+ * Streams the requested number of entities
+ */
+@SuppressWarnings("serial")
+public class StreamServlet extends RestServlet {
+
+    @Override
+    public void doGet(Request request, Response response) {
+        int count = request.getArgument("count");
+        response.sendEntity(IntStream.range(0, count).mapToObj(i -> "entity " + i));
+    }
+}
@@ -0,0 +1,23 @@
+package info.orestes.rest;
+
+import info.orestes.rest.service.RestServletHandler;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link RestServlet} whose handlers block, e.g. on synchronous I/O. The {@link RestServletHandler} runs the
+ * handlers of such servlets on its executor instead of a Jetty pool thread, if an executor is configured.
+ *
+ * @see RestServletHandler#setExecutor(java.util.concurrent.Executor)
+ */
+@Inherited
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Blocking {
+}
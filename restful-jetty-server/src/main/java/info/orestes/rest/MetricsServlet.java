@@ -0,0 +1,82 @@
+package info.orestes.rest;
+
+import info.orestes.rest.error.NotFound;
+import info.orestes.rest.error.RestException;
+import info.orestes.rest.service.Instrumentation;
+import info.orestes.rest.service.Instrumentation.Phase;
+import info.orestes.rest.service.LatencyHistogram;
+import info.orestes.rest.service.MetricsInstrumentation;
+import info.orestes.rest.service.RouteMetrics;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves a snapshot of the {@link MetricsInstrumentation} of the router in a line based text format, e.g.
+ * <pre>
+ * rest_requests_total{method="getUser",status="200"} 42
+ * rest_latency_seconds{method="getUser",phase="total",quantile="0.99"} 0.001234
+ * rest_bytes_total{method="getUser",direction="out"} 12345
+ * </pre>
+ * The servlet is declared in the service document like any other resource, with a <code>String</code> response:
+ * <pre>
+ * GET /metrics info.orestes.rest.MetricsServlet : String
+ * </pre>
+ */
+@SuppressWarnings("serial")
+public class MetricsServlet extends RestServlet {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    @Override
+    public void doGet(Request request, Response response) throws RestException {
+        Instrumentation instrumentation = request.getRoute().getRouter().getInstrumentation();
+        if (!(instrumentation instanceof MetricsInstrumentation)) {
+            throw new NotFound("The request metrics are not enabled.");
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, RouteMetrics> entry : ((MetricsInstrumentation) instrumentation).getMetrics().entrySet()) {
+            append(builder, entry.getKey(), entry.getValue());
+        }
+
+        response.sendEntity(builder.toString());
+    }
+
+    private void append(StringBuilder builder, String name, RouteMetrics metrics) {
+        for (Map.Entry<Integer, Long> entry : metrics.getStatusCounts().entrySet()) {
+            builder.append("rest_requests_total{method=\"").append(name).append("\",status=\"")
+                .append(entry.getKey()).append("\"} ").append(entry.getValue()).append('\n');
+        }
+
+        appendLatency(builder, name, "total", metrics.getLatency());
+        for (Phase phase : Phase.values()) {
+            appendLatency(builder, name, phase.name().toLowerCase(Locale.ROOT), metrics.getLatency(phase));
+        }
+
+        builder.append("rest_bytes_total{method=\"").append(name).append("\",direction=\"in\"} ")
+            .append(metrics.getBytesIn()).append('\n');
+        builder.append("rest_bytes_total{method=\"").append(name).append("\",direction=\"out\"} ")
+            .append(metrics.getBytesOut()).append('\n');
+    }
+
+    private void appendLatency(StringBuilder builder, String name, String phase, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+
+        String labels = "{method=\"" + name + "\",phase=\"" + phase + "\"";
+        for (double quantile : QUANTILES) {
+            builder.append("rest_latency_seconds").append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                .append(seconds(histogram.getValueAtPercentile(quantile * 100))).append('\n');
+        }
+        builder.append("rest_latency_seconds_max").append(labels).append("} ")
+            .append(seconds(histogram.getMax())).append('\n');
+        builder.append("rest_latency_seconds_count").append(labels).append("} ")
+            .append(histogram.getCount()).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+}
@@ -1,6 +1,6 @@
 package info.orestes.rest;
 
-import info.orestes.rest.conversion.ReadableContext;
+import info.orestes.rest.conversion.BinaryReadableContext;
 import info.orestes.rest.error.RestException;
 import info.orestes.rest.service.RestMethod;
 import info.orestes.rest.service.RestRouter;
@@ -9,7 +9,7 @@
 import javax.servlet.http.HttpServletRequest;
 import java.util.Map;
 
-public interface Request extends ReadableContext, HttpServletRequest {
+public interface Request extends BinaryReadableContext, HttpServletRequest {
 
     /**
      * Retruns the associated rest method which was selected by the {@link RestRouter}
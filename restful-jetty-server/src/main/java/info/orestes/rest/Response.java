@@ -1,7 +1,9 @@
 package info.orestes.rest;
 
 import info.orestes.rest.conversion.ConverterService;
-import info.orestes.rest.conversion.WritableContext;
+import info.orestes.rest.conversion.BinaryWritableContext;
+import info.orestes.rest.error.PreconditionFailed;
+import info.orestes.rest.error.PreconditionRequired;
 import info.orestes.rest.error.RestException;
 
 import javax.servlet.http.HttpServletResponse;
@@ -10,7 +12,7 @@
 /*
  * {@inheritDoc}
  */
-public interface Response extends WritableContext, HttpServletResponse {
+public interface Response extends BinaryWritableContext, HttpServletResponse {
 
     /**
      * Sends the response entity, which will be processed by the {@link ConverterService}. Setting the response entity
@@ -36,4 +38,38 @@ public interface Response extends WritableContext, HttpServletResponse {
      * @throws IOException If an io exception occurs
      */
     public void sendRedirect(int sc, String location) throws IOException;
-}
\ No newline at end of file
+
+    /**
+     * Evaluates the conditional request headers against the current version of the entity, before the entity is
+     * loaded or encoded. The entity tag and the modification date are sent with the response.
+     * <p>
+     * A GET or HEAD request which already has the current version is answered with 304 Not Modified, in this case
+     * the caller must not send an entity. A request whose If-Match or If-Unmodified-Since header does not match fails
+     * with {@link PreconditionFailed}.
+     *
+     * @param etag The entity tag or version of the current entity, or <code>null</code> if the entity does not exist
+     * @param lastModified The modification time of the entity in milliseconds or <code>-1</code> if it is unknown
+     * @return <code>true</code> if the response is answered with 304 Not Modified
+     * @throws RestException if a precondition fails
+     */
+    public default boolean checkPreconditions(String etag, long lastModified) throws RestException {
+        return checkPreconditions(etag, lastModified, false);
+    }
+
+    /**
+     * Evaluates the conditional request headers against the current version of the entity, before the entity is
+     * loaded or encoded. A response which does not support conditional requests ignores them and always answers
+     * with the entity.
+     *
+     * @param etag The entity tag or version of the current entity, or <code>null</code> if the entity does not exist
+     * @param lastModified The modification time of the entity in milliseconds or <code>-1</code> if it is unknown
+     * @param required <code>true</code> if a write must be conditional, unconditional writes fail with
+     *                 {@link PreconditionRequired}
+     * @return <code>true</code> if the response is answered with 304 Not Modified
+     * @throws RestException if a precondition fails or is missing
+     * @see #checkPreconditions(String, long)
+     */
+    public default boolean checkPreconditions(String etag, long lastModified, boolean required) throws RestException {
+        return false;
+    }
+}
@@ -1,7 +1,10 @@
 package info.orestes.rest;
 
 import info.orestes.rest.error.*;
+import info.orestes.rest.service.Instrumentation;
+import info.orestes.rest.service.Instrumentation.Phase;
 import info.orestes.rest.service.RestRouter;
+import info.orestes.rest.service.RestRouter.Route;
 import info.orestes.rest.service.RestServletHandler;
 import org.eclipse.jetty.http.HttpStatus;
 
@@ -39,19 +42,18 @@ public abstract class RestServlet extends GenericServlet {
 	 *             if the method can not be accessed
 	 */
 	public static boolean isDeclared(Class<? extends RestServlet> restServlet, String methodName) {
-		methodName = "do" + methodName.substring(0, 1).toUpperCase() + methodName.substring(1).toLowerCase();
-		
-		try {
-			restServlet.getMethod(methodName, Request.class, Response.class);
-		} catch (NoSuchMethodException e) {
-            try {
-                restServlet.getMethod(methodName + "Async", Request.class, Response.class);
-            } catch (NoSuchMethodException ex) {
-                return false;
-            }
-		}
+		return ServletCapabilities.of(restServlet).isDeclared(methodName);
+	}
+
+	private final transient ServletCapabilities capabilities = ServletCapabilities.of(getClass());
 
-        return true;
+	/**
+	 * Returns the HTTP methods which are implemented by this servlet, they are resolved when the servlet is created
+	 *
+	 * @return The capabilities of this servlet class
+	 */
+	public ServletCapabilities getCapabilities() {
+		return capabilities;
 	}
 	
 	/**
@@ -195,29 +197,8 @@ public CompletableFuture<Void> doHeadAsync(Request request, Response response) t
      *             if an I/O error occures
      */
     public void doOptions(Request request, Response response) throws RestException, IOException {
-        StringBuilder allow = new StringBuilder();
-
-        allow.append("OPTIONS");
-
-        if (isDeclared("GET")) {
-            allow.append(", GET");
-            allow.append(", HEAD");
-        }
-
-        if (isDeclared("POST")) {
-            allow.append(", POST");
-        }
-
-        if (isDeclared("PUT")) {
-            allow.append(", PUT");
-        }
-
-        if (isDeclared("DELETE")) {
-            allow.append(", DELETE");
-        }
-
         response.setStatus(HttpStatus.NO_CONTENT_204);
-        response.setHeader("Allow", allow.toString());
+        response.setHeader("Allow", capabilities.getAllow());
     }
 
 	/**
@@ -249,7 +230,7 @@ protected CompletableFuture<Void> doOptionsAsync(Request request, Response respo
 	 *         of the method
 	 */
 	protected boolean isDeclared(String methodName) {
-		return isDeclared(this.getClass(), methodName);
+		return capabilities.isDeclared(methodName);
 	}
 	
 	/**
@@ -346,29 +327,28 @@ protected CompletableFuture<Void> doPutAsync(Request request, Response response)
 	 *             if an I/O error occures
 	 */
 	public void service(Request request, Response response) throws RestException, IOException {
+        Route route = request.getRoute();
+        RestRouter router = route == null ? null : route.getRouter();
+        Instrumentation instrumentation = router == null ? null : router.getInstrumentation();
+
         CompletableFuture<Void> result;
-        switch (request.getMethod()) {
-            case "DELETE":
-                result = doDeleteAsync(request, response);
-                break;
-            case "GET":
-                result = doGetAsync(request, response);
-                break;
-            case "HEAD":
-                result = doHeadAsync(request, response);
-                break;
-            case "OPTIONS":
-                result = doOptionsAsync(request, response);
-                break;
-            case "POST":
-                result = doPostAsync(request, response);
-                break;
-            case "PUT":
-                result = doPutAsync(request, response);
-                break;
-            default:
-                notSupported(request, response);
-                result = null;
+        if (instrumentation == null) {
+            result = invoke(request, response);
+        } else {
+            long start = System.nanoTime();
+            try {
+                result = invoke(request, response);
+            } catch (RestException | IOException | RuntimeException e) {
+                instrumentation.recordPhase(route.getMethod(), Phase.HANDLER, System.nanoTime() - start);
+                throw e;
+            }
+
+            if (result == null || result.isDone()) {
+                instrumentation.recordPhase(route.getMethod(), Phase.HANDLER, System.nanoTime() - start);
+            } else {
+                result.whenComplete((empty, error) ->
+                    instrumentation.recordPhase(route.getMethod(), Phase.HANDLER, System.nanoTime() - start));
+            }
         }
 
         if (result != null) {
@@ -403,6 +383,34 @@ public void service(Request request, Response response) throws RestException, IO
             }
         }
 	}
+
+    private CompletableFuture<Void> invoke(Request request, Response response) throws RestException, IOException {
+        CompletableFuture<Void> result;
+        switch (request.getMethod()) {
+            case "DELETE":
+                result = doDeleteAsync(request, response);
+                break;
+            case "GET":
+                result = doGetAsync(request, response);
+                break;
+            case "HEAD":
+                result = doHeadAsync(request, response);
+                break;
+            case "OPTIONS":
+                result = doOptionsAsync(request, response);
+                break;
+            case "POST":
+                result = doPostAsync(request, response);
+                break;
+            case "PUT":
+                result = doPutAsync(request, response);
+                break;
+            default:
+                notSupported(request, response);
+                result = null;
+        }
+        return result;
+    }
 	
 	@Override
 	public final void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
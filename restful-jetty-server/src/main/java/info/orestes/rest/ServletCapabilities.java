@@ -0,0 +1,178 @@
+package info.orestes.rest;
+
+/**
+ * The HTTP methods which are implemented by a {@link RestServlet} class.
+ * <p>
+ * The capabilities are resolved once per servlet class by reflection and are kept as a bitmap, so checking a method
+ * and answering an OPTIONS request requires neither reflection nor exceptions.
+ */
+public final class ServletCapabilities {
+
+    public static final int GET = 1;
+    public static final int HEAD = 1 << 1;
+    public static final int POST = 1 << 2;
+    public static final int PUT = 1 << 3;
+    public static final int DELETE = 1 << 4;
+    public static final int OPTIONS = 1 << 5;
+
+    private static final ClassValue<ServletCapabilities> capabilities = new ClassValue<ServletCapabilities>() {
+        @Override
+        protected ServletCapabilities computeValue(Class<?> type) {
+            return new ServletCapabilities(type.asSubclass(RestServlet.class));
+        }
+    };
+
+    private final Class<? extends RestServlet> servletClass;
+    private final int methods;
+    private final String allow;
+    private final boolean blocking;
+
+    /**
+     * Returns the capabilities of the given servlet class
+     *
+     * @param servletClass The {@link RestServlet} class
+     * @return The cached capabilities of the class
+     */
+    public static ServletCapabilities of(Class<? extends RestServlet> servletClass) {
+        return capabilities.get(servletClass);
+    }
+
+    private ServletCapabilities(Class<? extends RestServlet> servletClass) {
+        this.servletClass = servletClass;
+
+        int methods = 0;
+        if (isImplemented(servletClass, "GET")) {
+            methods |= GET;
+        }
+        if (isImplemented(servletClass, "HEAD")) {
+            methods |= HEAD;
+        }
+        if (isImplemented(servletClass, "POST")) {
+            methods |= POST;
+        }
+        if (isImplemented(servletClass, "PUT")) {
+            methods |= PUT;
+        }
+        if (isImplemented(servletClass, "DELETE")) {
+            methods |= DELETE;
+        }
+        if (isImplemented(servletClass, "OPTIONS")) {
+            methods |= OPTIONS;
+        }
+        this.methods = methods;
+
+        StringBuilder allow = new StringBuilder("OPTIONS");
+        if ((methods & GET) != 0) {
+            allow.append(", GET, HEAD");
+        }
+        if ((methods & POST) != 0) {
+            allow.append(", POST");
+        }
+        if ((methods & PUT) != 0) {
+            allow.append(", PUT");
+        }
+        if ((methods & DELETE) != 0) {
+            allow.append(", DELETE");
+        }
+        this.allow = allow.toString();
+
+        this.blocking = servletClass.isAnnotationPresent(Blocking.class);
+    }
+
+    private static boolean isImplemented(Class<? extends RestServlet> servletClass, String methodName) {
+        methodName = "do" + methodName.substring(0, 1).toUpperCase() + methodName.substring(1).toLowerCase();
+
+        try {
+            servletClass.getMethod(methodName, Request.class, Response.class);
+        } catch (NoSuchMethodException e) {
+            try {
+                servletClass.getMethod(methodName + "Async", Request.class, Response.class);
+            } catch (NoSuchMethodException ex) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the bit of the given HTTP method
+     *
+     * @param method The HTTP method name in upper case
+     * @return The bit of the method or <code>0</code> if the method is not one of the dispatched methods
+     */
+    public static int bitOf(String method) {
+        switch (method) {
+            case "GET":
+                return GET;
+            case "HEAD":
+                return HEAD;
+            case "POST":
+                return POST;
+            case "PUT":
+                return PUT;
+            case "DELETE":
+                return DELETE;
+            case "OPTIONS":
+                return OPTIONS;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * The servlet class of these capabilities
+     *
+     * @return The {@link RestServlet} class
+     */
+    public Class<? extends RestServlet> getServletClass() {
+        return servletClass;
+    }
+
+    /**
+     * The bitmap of the implemented methods, composed of the method constants of this class
+     *
+     * @return The implemented methods
+     */
+    public int getMethods() {
+        return methods;
+    }
+
+    /**
+     * Indicates if the servlet class declares a public handler for the given HTTP method
+     *
+     * @param method The HTTP method name
+     * @return <code>true</code> if the servlet class implements the method
+     */
+    public boolean isDeclared(String method) {
+        int bit = bitOf(method);
+        if (bit == 0) {
+            bit = bitOf(method.toUpperCase());
+        }
+
+        if (bit == 0) {
+            //methods which are not dispatched are rare, they are not cached
+            return isImplemented(servletClass, method);
+        }
+
+        return (methods & bit) != 0;
+    }
+
+    /**
+     * The value of the Allow header for this servlet class
+     *
+     * @return A comma separated list of the allowed methods
+     */
+    public String getAllow() {
+        return allow;
+    }
+
+    /**
+     * Indicates if the servlet class is marked as {@link Blocking}
+     *
+     * @return <code>true</code> if the handlers of the servlet should not run on a Jetty pool thread
+     */
+    public boolean isBlocking() {
+        return blocking;
+    }
+}
@@ -0,0 +1,163 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.error.RestException;
+import info.orestes.rest.error.ServiceUnavailable;
+import org.eclipse.jetty.http.HttpHeader;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Limits the concurrency of each route by an {@link AdaptiveLimit}, which follows the observed latency of the route.
+ * <p>
+ * The handler is installed between the {@link RestRouter} and the {@link RestServletHandler}, so each request is
+ * accounted to its matched route before any servlet code runs. The latency is measured until the response is
+ * completed, which includes the completion of a future returned by an async handler. Requests exceeding the limit
+ * are rejected immediately with {@link ServiceUnavailable} instead of being queued.
+ */
+public class AdaptiveConcurrencyHandler extends RestHandler {
+
+    private final ConcurrentMap<RestMethod, AdaptiveLimit> limits = new ConcurrentHashMap<>();
+
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 1000;
+    private int windowSize = 100;
+    private double smoothing = 0.2;
+    private int retryAfter = ConcurrencyLimit.DEFAULT_RETRY_AFTER;
+
+    @Override
+    public void handle(RestRequest request, RestResponse response) throws IOException, ServletException, RestException {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            super.handle(request, response);
+            return;
+        }
+
+        AdaptiveLimit limit = getLimit(request.getRoute().getMethod());
+        if (!limit.tryAcquire()) {
+            response.setHeader(HttpHeader.RETRY_AFTER.asString(), String.valueOf(retryAfter));
+            response.sendError(new ServiceUnavailable("The concurrency limit of " + limit.getName() + " is exceeded."));
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            super.handle(request, response);
+        } catch (Throwable e) {
+            //failed requests are not sampled, they are usually much faster than handled ones
+            limit.release(-1);
+            throw e;
+        }
+
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new Sample(limit, start));
+        } else {
+            limit.release(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the limit of a method, which is created on its first request
+     *
+     * @param method The limited method
+     * @return The adaptive limit of the method
+     */
+    public AdaptiveLimit getLimit(RestMethod method) {
+        AdaptiveLimit limit = limits.get(method);
+        if (limit == null) {
+            limit = limits.computeIfAbsent(method, m ->
+                new AdaptiveLimit(m.getName(), initialLimit, minLimit, maxLimit, windowSize, smoothing));
+        }
+        return limit;
+    }
+
+    /**
+     * Returns the limits of all methods which have been requested so far
+     *
+     * @return The adaptive limits
+     */
+    public Collection<AdaptiveLimit> getLimits() {
+        return Collections.unmodifiableCollection(limits.values());
+    }
+
+    /**
+     * Sets the limit of a route until its first latency window is closed
+     *
+     * @param initialLimit The initial limit
+     */
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    /**
+     * Sets the bounds of the adaptive limits
+     *
+     * @param minLimit The lowest limit, which is always admitted
+     * @param maxLimit The highest limit
+     */
+    public void setLimitBounds(int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Sets the number of latency samples after which a limit is recomputed
+     *
+     * @param windowSize The number of samples
+     */
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Sets the weight of a recomputed limit, lower values adapt more slowly
+     *
+     * @param smoothing The weight in <code>(0, 1]</code>
+     */
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Sets the value of the Retry-After header of rejected requests
+     *
+     * @param retryAfter The delay in seconds
+     */
+    public void setRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    private static class Sample implements AsyncListener {
+        private final AdaptiveLimit limit;
+        private final long start;
+
+        Sample(AdaptiveLimit limit, long start) {
+            this.limit = limit;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release(System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
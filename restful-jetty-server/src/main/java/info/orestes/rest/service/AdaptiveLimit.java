@@ -0,0 +1,208 @@
+package info.orestes.rest.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrency limit which adapts to the observed latency of a route, following the gradient algorithm.
+ * <p>
+ * The latencies of the handled requests are averaged over windows of samples. At the end of each window, the
+ * average is compared with the lowest latency seen recently, which approximates the latency without load. The limit
+ * shrinks by the ratio of both once the latency exceeds twice the minimum, and grows by a small queue allowance
+ * otherwise. Requests are admitted by a lock-free counter. Each sample claims a slot of the current window, the
+ * thread which adds the last sample of a window recomputes the limit under a lock.
+ */
+public class AdaptiveLimit {
+
+    private static final double TOLERANCE = 2.0;
+    private static final int PROBE_INTERVAL = 1000;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final double smoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window());
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile double limit;
+    private volatile double minRtt;
+    private volatile double shortRtt;
+    //the number of closed windows, which is only accessed by the synchronized update
+    private long windows;
+
+    /**
+     * Creates an adaptive limit
+     *
+     * @param name The name of the limited route
+     * @param initialLimit The limit until the first window is closed
+     * @param minLimit The lower bound of the limit
+     * @param maxLimit The upper bound of the limit
+     * @param windowSize The number of latency samples of one window
+     * @param smoothing The weight of a new limit in <code>(0, 1]</code>, lower values adapt more slowly
+     */
+    public AdaptiveLimit(String name, int initialLimit, int minLimit, int maxLimit, int windowSize, double smoothing) {
+        if (minLimit < 1 || minLimit > maxLimit || windowSize < 1 || smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("Illegal adaptive limit configuration.");
+        }
+
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+        this.smoothing = smoothing;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Acquires a permit if the current limit is not reached
+     *
+     * @return <code>true</code> if the request is admitted and must be released by {@link #release(long)}
+     */
+    public boolean tryAcquire() {
+        int max = getLimit();
+        for (int current = inFlight.get(); current < max; current = inFlight.get()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Releases a permit and records the latency of the request
+     *
+     * @param rtt The latency of the request in nanoseconds, or a negative value to release the permit without a
+     *            sample, e.g. for failed requests
+     */
+    public void release(long rtt) {
+        //the concurrency is sampled before the release, to detect if the limit is actually used
+        int concurrency = inFlight.getAndDecrement();
+        if (rtt < 0) {
+            return;
+        }
+
+        Window current = window.get();
+        int slot = current.claimed.incrementAndGet();
+        while (slot > windowSize) {
+            //the window is full and is replaced by the thread which has claimed its last slot
+            Thread.onSpinWait();
+            current = window.get();
+            slot = current.claimed.incrementAndGet();
+        }
+
+        if (slot == windowSize) {
+            window.compareAndSet(current, new Window());
+        }
+
+        //the window is closed by the last added sample, which is not necessarily the one of the last slot
+        current.add(rtt, concurrency);
+        if (current.added.incrementAndGet() == windowSize) {
+            update(current);
+        }
+    }
+
+    private synchronized void update(Window closed) {
+        double rtt = closed.rttSum.doubleValue() / windowSize;
+        double limit = this.limit;
+
+        shortRtt = rtt;
+        double minRtt = this.minRtt;
+        double windowMinRtt = closed.minRtt.get();
+        //the minimum is reset periodically to follow a changed latency without load
+        if (minRtt == 0 || windowMinRtt < minRtt || ++windows % PROBE_INTERVAL == 0) {
+            minRtt = windowMinRtt;
+            this.minRtt = minRtt;
+        }
+
+        //don't grow the limit if the route did not use it
+        if (closed.maxConcurrency.get() < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * minRtt / rtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The current concurrency limit
+     *
+     * @return The maximum number of concurrently admitted requests
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * The number of requests which are currently handled
+     *
+     * @return The number of acquired permits
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The latency average of the last closed window
+     *
+     * @return The latency in nanoseconds
+     */
+    public long getRtt() {
+        return (long) shortRtt;
+    }
+
+    /**
+     * The lowest latency of the recent windows, which approximates the latency without load
+     *
+     * @return The latency in nanoseconds
+     */
+    public long getMinRtt() {
+        return (long) minRtt;
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveLimit " + name + " (limit: " + getLimit() + ", in flight: " + getInFlight() + ", rejected: "
+            + getRejected() + ")";
+    }
+
+    private static class Window {
+        private final LongAdder rttSum = new LongAdder();
+        private final AtomicInteger claimed = new AtomicInteger();
+        private final AtomicInteger added = new AtomicInteger();
+        private final AtomicInteger maxConcurrency = new AtomicInteger();
+        private final AtomicLong minRtt = new AtomicLong(Long.MAX_VALUE);
+
+        void add(long rtt, int concurrency) {
+            rttSum.add(rtt);
+            if (rtt < minRtt.get()) {
+                minRtt.accumulateAndGet(rtt, Math::min);
+            }
+            if (concurrency > maxConcurrency.get()) {
+                maxConcurrency.accumulateAndGet(concurrency, Math::max);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.conversion.Context;
+import info.orestes.rest.conversion.Converter;
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.error.RestException;
+
+import java.util.List;
+
+/**
+ * Converts the matched string value of a single route argument to the declared value type of the {@link PathElement}.
+ * <p>
+ * Binders are resolved once per route, so binding an argument does not require any converter lookup.
+ */
+public abstract class ArgumentBinder {
+
+    private final String name;
+
+    /**
+     * Creates the binders for all arguments of the given signature
+     *
+     * @param signature        The signature of a {@link RestMethod}
+     * @param converterService The converter service which provides the string converters
+     * @return An array of binders indexed like the signature, the entries of fixed path elements are <code>null</code>
+     */
+    public static ArgumentBinder[] create(List<PathElement> signature, ConverterService converterService) {
+        ArgumentBinder[] binders = new ArgumentBinder[signature.size()];
+
+        for (int i = 0; i < binders.length; ++i) {
+            PathElement element = signature.get(i);
+            if (element.getType() != PathElement.Type.PATH) {
+                binders[i] = create(element, converterService);
+            }
+        }
+
+        return binders;
+    }
+
+    /**
+     * Creates the binder for the given argument
+     *
+     * @param element          The argument element
+     * @param converterService The converter service which provides the string converters
+     * @return The binder of the argument
+     */
+    public static ArgumentBinder create(PathElement element, ConverterService converterService) {
+        String name = element.getName();
+        Class<?> type = element.getValueType();
+
+        Converter<?, String> converter;
+        try {
+            converter = converterService.getFormat(String.class).get(type, EntityType.EMPTY_GENERIC_ARRAY);
+        } catch (RuntimeException | RestException e) {
+            //the conversion fails when the argument is bound, as it was the case without a binder
+            return new ArgumentBinder(name) {
+                @Override
+                public Object bind(Context context, String value) {
+                    return converterService.toObject(type, value);
+                }
+            };
+        }
+
+        return new ArgumentBinder(name) {
+            @Override
+            public Object bind(Context context, String value) throws RestException {
+                return converter.toObject(context, value, EntityType.EMPTY_GENERIC_ARRAY);
+            }
+        };
+    }
+
+    protected ArgumentBinder(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The name of the bound argument
+     *
+     * @return The argument name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Converts the matched value of the argument
+     *
+     * @param context The context of the conversion
+     * @param value   The matched and decoded string value
+     * @return The converted argument value
+     * @throws RestException if the value can not be converted
+     */
+    public abstract Object bind(Context context, String value) throws RestException;
+}
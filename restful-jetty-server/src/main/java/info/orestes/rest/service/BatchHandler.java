@@ -0,0 +1,591 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.util.MultipartReader;
+import info.orestes.rest.util.MultipartReader.Part;
+import info.orestes.rest.util.MultipartWriter;
+import info.orestes.rest.util.PartTooLargeException;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.LocalConnector.LocalEndPoint;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves a batch resource, which accepts a <code>multipart/mixed</code> body of <code>application/http</code>
+ * sub-requests and responds with a <code>multipart/mixed</code> body of their <code>application/http</code>
+ * responses.
+ * <p>
+ * The body is streamed, each sub-request is dispatched as soon as its part has been read and each sub-response is
+ * written as soon as it completes, so the sub-responses are in the order of their completion and are correlated by the
+ * <code>Content-ID</code> header of the request parts, which defaults to the index of the part. If the body can't be
+ * read to its end, a <code>400 Bad Request</code> or <code>413 Payload Too Large</code> part without a
+ * <code>Content-ID</code> answers all sub-requests which have not been read. Sub-requests are
+ * dispatched through an in-memory connector of the server, so they pass the {@link RestRouter} and all other handlers
+ * without a network round-trip. They inherit the scheme, the remote address, the host and the TLS attributes of the
+ * batch request, as they have been customized by the connector the batch was received on, e.g. from
+ * <code>X-Forwarded</code> headers. Consecutive GET, HEAD and OPTIONS sub-requests run in parallel, any other sub-request
+ * waits for its predecessors and is awaited by its successors.
+ * <p>
+ * The handler is installed in front of the {@link RestRouter}, all other requests are passed to the wrapped handler.
+ */
+public class BatchHandler extends HandlerWrapper {
+
+    public static final String DEFAULT_PATH = "/batch";
+    public static final int DEFAULT_MAXIMUM_PARTS = 100;
+    public static final int DEFAULT_MAXIMUM_PART_SIZE = 1024 * 1024;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+    public static final String MULTIPART_MIXED = "multipart/mixed";
+    public static final String APPLICATION_HTTP = "application/http";
+    public static final String CONTENT_ID = "Content-ID";
+
+    private static final Logger LOG = Log.getLogger(BatchHandler.class);
+    //the prefix of the TLS attributes, e.g. the client certificate
+    private static final String SERVLET_REQUEST_ATTRIBUTES = "javax.servlet.request.";
+    private static final String[] REPLACED_HEADERS = {
+        HttpHeader.CONTENT_LENGTH.asString(), HttpHeader.TRANSFER_ENCODING.asString(),
+        HttpHeader.CONNECTION.asString()
+    };
+
+    private final ConcurrentMap<EndPoint, Exchange> exchanges = new ConcurrentHashMap<>();
+    private String path = DEFAULT_PATH;
+    private int maximumParts = DEFAULT_MAXIMUM_PARTS;
+    private int maximumPartSize = DEFAULT_MAXIMUM_PART_SIZE;
+    private long timeout = DEFAULT_TIMEOUT_MILLIS;
+    private LocalConnector connector;
+
+    @Override
+    protected void doStart() throws Exception {
+        connector = new LocalConnector(getServer());
+        connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration()
+            .addCustomizer(this::customize);
+        connector.addBean(new HttpChannel.Listener() {
+            @Override
+            public void onComplete(Request request) {
+                EndPoint endPoint = request.getHttpChannel().getEndPoint();
+                Exchange exchange = exchanges.remove(endPoint);
+                if (exchange != null) {
+                    exchange.complete(((ByteArrayEndPoint) endPoint).takeOutput());
+                    //closes the in-memory connection
+                    ((ByteArrayEndPoint) endPoint).addInputEOF();
+                }
+            }
+        });
+        getServer().addConnector(connector);
+
+        super.doStart();
+        connector.start();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+        connector.stop();
+        getServer().removeConnector(connector);
+        connector = null;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if (!path.equals(target) || !HttpMethod.POST.is(request.getMethod())
+            || request.getDispatcherType() != DispatcherType.REQUEST) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+
+        baseRequest.setHandled(true);
+        if (baseRequest.getHttpChannel().getConnector() == connector) {
+            response.sendError(HttpStatus.BAD_REQUEST_400, "Batch requests can't be nested.");
+            return;
+        }
+
+        String boundary = getBoundary(request.getContentType());
+        if (boundary == null) {
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE_415, "The batch request must be " + MULTIPART_MIXED + ".");
+            return;
+        }
+
+        new Batch(baseRequest, request, response, boundary).run();
+    }
+
+    private static String getBoundary(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        String[] parameters = contentType.split(";");
+        if (!parameters[0].trim().equalsIgnoreCase(MULTIPART_MIXED)) {
+            return null;
+        }
+
+        for (int i = 1; i < parameters.length; ++i) {
+            String[] parameter = parameters[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("boundary")) {
+                String boundary = parameter[1].trim();
+                if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary.isEmpty() ? null : boundary;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends a raw sub-request through the in-memory connector
+     *
+     * @param batch The batch request, whose connection the sub-request inherits
+     * @param request The raw sub-request
+     * @return The raw response, which completes exceptionally with a {@link TimeoutException} after the timeout
+     */
+    private CompletableFuture<ByteBuffer> exchange(Request batch, byte[] request) {
+        Exchange exchange = new Exchange(batch);
+        LocalEndPoint endPoint = connector.connect();
+        exchanges.put(endPoint, exchange);
+
+        Scheduler.Task task = connector.getScheduler().schedule(() -> {
+            if (exchanges.remove(endPoint, exchange)) {
+                exchange.completeExceptionally(new TimeoutException("The sub-request has timed out."));
+                endPoint.close();
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        exchange.whenComplete((response, error) -> task.cancel());
+
+        endPoint.addInputAndExecute(ByteBuffer.wrap(request));
+        return exchange;
+    }
+
+    /**
+     * Gives a sub-request the connection of its batch request, which has already been customized by the connector
+     * the batch has been received on, so the sub-request has its scheme, remote address and TLS attributes
+     */
+    private void customize(Connector connector, HttpConfiguration configuration, Request request) {
+        Exchange exchange = exchanges.get(request.getHttpChannel().getEndPoint());
+        if (exchange == null) {
+            return;
+        }
+
+        Request batch = exchange.batch;
+        request.setScheme(batch.getScheme());
+        request.setSecure(batch.isSecure());
+        request.setRemoteAddr(batch.getRemoteInetSocketAddress());
+        //the sub-requests without an own host have the host of the batch
+        String host = HttpHeader.HOST.asString();
+        if (Objects.equals(request.getHeader(host), batch.getHeader(host))) {
+            request.setAuthority(batch.getServerName(), batch.getServerPort());
+        }
+
+        for (String name : Collections.list(batch.getAttributeNames())) {
+            if (name.startsWith(SERVLET_REQUEST_ATTRIBUTES)) {
+                request.setAttribute(name, batch.getAttribute(name));
+            }
+        }
+    }
+
+    private static byte[] statusResponse(int status) {
+        return ("HTTP/1.1 " + status + " " + HttpStatus.getMessage(status) + "\r\nContent-Length: 0\r\n\r\n")
+            .getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Sets the path of the batch resource
+     *
+     * @param path The path, {@value #DEFAULT_PATH} by default
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Sets the maximum number of sub-requests of a batch, the exceeding sub-requests are answered with
+     * <code>413 Payload Too Large</code>
+     *
+     * @param maximumParts The maximum number of sub-requests
+     */
+    public void setMaximumParts(int maximumParts) {
+        this.maximumParts = maximumParts;
+    }
+
+    public int getMaximumParts() {
+        return maximumParts;
+    }
+
+    /**
+     * Sets the maximum size of a single sub-request, a larger sub-request aborts the reading of the batch and is
+     * answered with a final <code>413 Payload Too Large</code> part without a <code>Content-ID</code>
+     *
+     * @param maximumPartSize The maximum size in bytes
+     */
+    public void setMaximumPartSize(int maximumPartSize) {
+        this.maximumPartSize = maximumPartSize;
+    }
+
+    public int getMaximumPartSize() {
+        return maximumPartSize;
+    }
+
+    /**
+     * Sets the time after which a sub-request is answered with <code>504 Gateway Timeout</code>
+     *
+     * @param timeout The timeout in milliseconds
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * The pending response of a sub-request
+     */
+    private static class Exchange extends CompletableFuture<ByteBuffer> {
+        private final Request batch;
+
+        Exchange(Request batch) {
+            this.batch = batch;
+        }
+    }
+
+    /**
+     * A batch request which is read, dispatched and answered concurrently
+     */
+    private class Batch implements WriteListener {
+        private final Request baseRequest;
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final String boundary;
+        //the reading of the body counts as pending, too
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final List<CompletableFuture<?>> concurrent = new ArrayList<>();
+        private CompletableFuture<?> barrier = CompletableFuture.completedFuture(null);
+        //the parts are encoded in memory and queued until the output is ready
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final MultipartWriter writer = new MultipartWriter(buffer);
+        private final Deque<byte[]> queue = new ArrayDeque<>();
+        private AsyncContext context;
+        private ServletOutputStream out;
+        private boolean listening;
+        private boolean draining;
+        private boolean unflushed;
+        private boolean closed;
+        private boolean completed;
+
+        Batch(Request baseRequest, HttpServletRequest request, HttpServletResponse response, String boundary) {
+            this.baseRequest = baseRequest;
+            this.request = request;
+            this.response = response;
+            this.boundary = boundary;
+        }
+
+        void run() throws IOException {
+            context = request.startAsync();
+            //the sub-requests have their own timeouts
+            context.setTimeout(0);
+
+            out = response.getOutputStream();
+            response.setContentType(writer.getContentType());
+
+            MultipartReader reader = new MultipartReader(new BufferedInputStream(request.getInputStream()), boundary,
+                maximumPartSize);
+            int index = 0;
+            try {
+                for (Part part = reader.next(); part != null; ++index, part = reader.next()) {
+                    String id = part.getHeader(CONTENT_ID);
+                    if (id == null) {
+                        id = String.valueOf(index);
+                    }
+
+                    if (index < maximumParts) {
+                        dispatch(id, part);
+                    } else {
+                        write(id, statusResponse(HttpStatus.PAYLOAD_TOO_LARGE_413));
+                    }
+                }
+            } catch (IOException e) {
+                LOG.debug(e);
+                int status = e instanceof PartTooLargeException ? HttpStatus.PAYLOAD_TOO_LARGE_413
+                    : HttpStatus.BAD_REQUEST_400;
+                if (index == 0) {
+                    response.sendError(status, e.getMessage());
+                    context.complete();
+                    return;
+                }
+                //the dispatched sub-requests are answered, a final part without a Content-ID tells the client that
+                //the remaining sub-requests have not been read
+                write(null, statusResponse(status));
+            }
+
+            done();
+        }
+
+        private void dispatch(String id, Part part) {
+            String contentType = part.getHeader(HttpHeader.CONTENT_TYPE.asString());
+            String method = getMethod(part.getBody());
+            byte[] subRequest = null;
+            if (method != null && (contentType == null || contentType.toLowerCase().startsWith(APPLICATION_HTTP))) {
+                subRequest = toRequest(part.getBody());
+            }
+
+            if (subRequest == null) {
+                write(id, statusResponse(HttpStatus.BAD_REQUEST_400));
+                return;
+            }
+
+            pending.incrementAndGet();
+            byte[] raw = subRequest;
+            if (HttpMethod.GET.is(method) || HttpMethod.HEAD.is(method) || HttpMethod.OPTIONS.is(method)) {
+                concurrent.add(barrier.thenCompose(v -> exchange(baseRequest, raw)).handle((result, error) -> complete(id, result, error)));
+            } else {
+                concurrent.add(barrier);
+                barrier = CompletableFuture.allOf(concurrent.toArray(new CompletableFuture<?>[0]))
+                    .thenCompose(v -> exchange(baseRequest, raw))
+                    .handle((result, error) -> complete(id, result, error));
+                concurrent.clear();
+            }
+        }
+
+        private Void complete(String id, ByteBuffer result, Throwable error) {
+            try {
+                if (error != null) {
+                    LOG.debug(error);
+                    boolean timeout = error instanceof TimeoutException || error.getCause() instanceof TimeoutException;
+                    write(id, statusResponse(timeout ? HttpStatus.GATEWAY_TIMEOUT_504 : HttpStatus.BAD_GATEWAY_502));
+                } else {
+                    write(id, BufferUtil.toArray(result));
+                }
+            } finally {
+                done();
+            }
+            return null;
+        }
+
+        private void write(String id, byte[] subResponse) {
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put(HttpHeader.CONTENT_TYPE.asString(), APPLICATION_HTTP);
+            if (id != null) {
+                headers.put(CONTENT_ID, id);
+            }
+
+            synchronized (this) {
+                try {
+                    writer.writePart(headers, subResponse, 0, subResponse.length);
+                } catch (IOException e) {
+                    //the writer writes to memory
+                    throw new IllegalStateException(e);
+                }
+                enqueue();
+            }
+            drain();
+        }
+
+        private void done() {
+            if (pending.decrementAndGet() > 0) {
+                return;
+            }
+
+            synchronized (this) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                enqueue();
+                closed = true;
+            }
+            drain();
+        }
+
+        private void enqueue() {
+            if (!completed) {
+                queue.add(buffer.toByteArray());
+            }
+            buffer.reset();
+
+            if (!listening) {
+                listening = true;
+                out.setWriteListener(this);
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            drain();
+        }
+
+        /**
+         * Writes the queued parts without blocking, the thread which finds the output not ready leaves the remaining
+         * parts to the next {@link #onWritePossible()} callback
+         */
+        private void drain() {
+            synchronized (this) {
+                if (draining || !listening) {
+                    return;
+                }
+                draining = true;
+            }
+
+            try {
+                while (true) {
+                    byte[] part;
+                    synchronized (this) {
+                        if (completed || !out.isReady()) {
+                            draining = false;
+                            return;
+                        }
+
+                        part = queue.poll();
+                        if (part == null && !unflushed) {
+                            draining = false;
+                            if (closed) {
+                                completed = true;
+                                context.complete();
+                            }
+                            return;
+                        }
+                    }
+
+                    if (part != null) {
+                        out.write(part);
+                        unflushed = true;
+                    } else {
+                        //streams the sub-responses to the client right away
+                        out.flush();
+                        unflushed = false;
+                    }
+                }
+            } catch (IOException e) {
+                onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            LOG.debug(t);
+            synchronized (this) {
+                draining = false;
+                queue.clear();
+                if (!completed) {
+                    completed = true;
+                    context.complete();
+                }
+            }
+        }
+
+        private String getMethod(byte[] body) {
+            int end = 0;
+            while (end < body.length && body[end] != ' ' && body[end] != '\r' && body[end] != '\n') {
+                end++;
+            }
+            String method = new String(body, 0, end, StandardCharsets.ISO_8859_1);
+            return HttpMethod.fromString(method) != null ? method : null;
+        }
+
+        /**
+         * Creates the raw sub-request, which is closed after its response and uses the host of the batch
+         *
+         * @return The raw request or <code>null</code> if the request line is invalid
+         */
+        private byte[] toRequest(byte[] body) {
+            int headEnd = indexOf(body, "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            int contentStart = headEnd < 0 ? body.length : headEnd + 4;
+            String head = new String(body, 0, headEnd < 0 ? body.length : headEnd, StandardCharsets.ISO_8859_1).trim();
+
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length < 2 || requestLine.length > 3 || !requestLine[1].startsWith("/")) {
+                return null;
+            }
+
+            StringBuilder raw = new StringBuilder();
+            raw.append(requestLine[0]).append(' ').append(requestLine[1]).append(" HTTP/1.1\r\n");
+            boolean host = false;
+            for (int i = 1; i < lines.length; ++i) {
+                String name = lines[i].substring(0, Math.max(0, lines[i].indexOf(':'))).trim();
+                boolean replaced = name.isEmpty();
+                for (String header : REPLACED_HEADERS) {
+                    replaced |= header.equalsIgnoreCase(name);
+                }
+
+                if (!replaced) {
+                    host |= HttpHeader.HOST.is(name);
+                    raw.append(lines[i]).append("\r\n");
+                }
+            }
+
+            if (!host) {
+                String batchHost = request.getHeader(HttpHeader.HOST.asString());
+                raw.append("Host: ").append(batchHost != null ? batchHost : "localhost").append("\r\n");
+            }
+
+            int contentLength = body.length - contentStart;
+            if (contentLength > 0) {
+                raw.append("Content-Length: ").append(contentLength).append("\r\n");
+            }
+            raw.append("Connection: close\r\n\r\n");
+
+            byte[] rawHead = raw.toString().getBytes(StandardCharsets.ISO_8859_1);
+            byte[] rawRequest = new byte[rawHead.length + contentLength];
+            System.arraycopy(rawHead, 0, rawRequest, 0, rawHead.length);
+            System.arraycopy(body, contentStart, rawRequest, rawHead.length, contentLength);
+            return rawRequest;
+        }
+
+        private int indexOf(byte[] data, byte[] pattern) {
+            outer:
+            for (int i = 0; i <= data.length - pattern.length; ++i) {
+                for (int j = 0; j < pattern.length; ++j) {
+                    if (data[i + j] != pattern[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package info.orestes.rest.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrently handled requests of one or more methods.
+ * <p>
+ * The permits are counted by a lock-free counter. When all permits are in use, requests may wait in a bounded queue
+ * and are admitted by the request which releases its permit. Requests which neither get a permit nor a queue slot are
+ * rejected.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final ConcurrencyLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a bulkhead
+     *
+     * @param name The name of the limited method or method group
+     * @param limit The limit of the bulkhead
+     */
+    public Bulkhead(String name, ConcurrencyLimit limit) {
+        this.name = name;
+        this.limit = limit;
+    }
+
+    /**
+     * Acquires a permit if one is available
+     *
+     * @return <code>true</code> if a permit was acquired, which must be released by {@link #release()}
+     */
+    public boolean tryAcquire() {
+        int max = limit.getMaxConcurrent();
+        for (int current = inFlight.get(); current < max; current = inFlight.get()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Enqueues a task which is run as soon as a permit is available. The task holds the permit and is responsible to
+     * release it. If the queue is full, the request is counted as rejected.
+     *
+     * @param task The task which is run by the thread which acquires the permit for it
+     * @return <code>true</code> if the task was enqueued or run, <code>false</code> if the queue is full
+     */
+    public boolean offer(Runnable task) {
+        int max = limit.getMaxQueued();
+        int current;
+        do {
+            current = queued.get();
+            if (current >= max) {
+                rejected.increment();
+                return false;
+            }
+        } while (!queued.compareAndSet(current, current + 1));
+
+        waiting.add(task);
+        //a permit may have been released before the task was added
+        drain();
+        return true;
+    }
+
+    /**
+     * Removes a waiting task from the queue
+     *
+     * @param task The enqueued task
+     * @return <code>true</code> if the task was removed, <code>false</code> if it has already been admitted
+     */
+    public boolean cancel(Runnable task) {
+        if (waiting.remove(task)) {
+            queued.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Releases a permit and hands it over to a waiting task
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    /**
+     * Counts a request which was rejected without consulting the queue, or which has timed out in the queue
+     */
+    public void reject() {
+        rejected.increment();
+    }
+
+    private void drain() {
+        while (!waiting.isEmpty() && tryAcquire()) {
+            Runnable task = waiting.poll();
+            if (task == null) {
+                //another thread has taken the task in the meantime
+                admitted.decrement();
+                inFlight.decrementAndGet();
+            } else {
+                queued.decrementAndGet();
+                task.run();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ConcurrencyLimit getLimit() {
+        return limit;
+    }
+
+    /**
+     * The number of requests which are currently handled
+     *
+     * @return The number of acquired permits
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The number of requests which are currently waiting for a permit
+     *
+     * @return The queue length
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * The total number of admitted requests
+     *
+     * @return The number of acquired permits since the bulkhead was created
+     */
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * The total number of rejected requests
+     *
+     * @return The number of requests which got neither a permit nor a queue slot
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead " + name + " (in flight: " + getInFlight() + ", queued: " + getQueued() + ", rejected: "
+            + getRejected() + ")";
+    }
+}
@@ -0,0 +1,112 @@
+package info.orestes.rest.service;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An encoded response of a cacheable method, which is kept by the {@link ResponseCache}.
+ */
+public final class CachedResponse {
+
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final int status;
+    private final String contentType;
+    private final List<String[]> headers;
+    private final byte[] body;
+    private final long expires;
+    private final int weight;
+
+    /**
+     * Creates a cached response
+     *
+     * @param status The status code of the response
+     * @param contentType The content type of the body
+     * @param headers The name and value pairs of the additional response headers
+     * @param body The encoded body
+     * @param expires The {@link System#nanoTime()} at which the response expires
+     */
+    public CachedResponse(int status, String contentType, List<String[]> headers, byte[] body, long expires) {
+        this.status = status;
+        this.contentType = contentType;
+        this.headers = Collections.unmodifiableList(headers);
+        this.body = body;
+        this.expires = expires;
+
+        int weight = ENTRY_OVERHEAD + body.length;
+        for (String[] header : headers) {
+            weight += header[0].length() + header[1].length();
+        }
+        this.weight = weight;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public List<String[]> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Returns the first value of a header
+     *
+     * @param name The case insensitive name of the header
+     * @return The value or <code>null</code> if the header was not sent
+     */
+    public String getHeader(String name) {
+        for (String[] header : headers) {
+            if (header[0].equalsIgnoreCase(name)) {
+                return header[1];
+            }
+        }
+        return null;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * The approximated memory usage of this response
+     *
+     * @return The weight in bytes
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Indicates if this response is expired
+     *
+     * @param now The current {@link System#nanoTime()}
+     * @return <code>true</code> if the response may not be served anymore
+     */
+    public boolean isExpired(long now) {
+        return now - expires >= 0;
+    }
+
+    /**
+     * Sends this response
+     *
+     * @param response The response to send this response with
+     * @throws IOException if the body can't be written
+     */
+    public void writeTo(HttpServletResponse response) throws IOException {
+        response.setStatus(status);
+        for (String[] header : headers) {
+            response.addHeader(header[0], header[1]);
+        }
+        if (contentType != null) {
+            response.setContentType(contentType);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,282 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.RestServlet.AsyncTimeoutListener;
+import info.orestes.rest.error.GatewayTimeOut;
+import info.orestes.rest.error.NotAcceptable;
+import info.orestes.rest.error.RestException;
+import org.apache.tika.mime.MediaType;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Coalesces concurrent identical GET requests of single-flight methods into one invocation of the servlet.
+ * <p>
+ * Requests are identical if they have the same method, the same bound arguments and the same negotiated media type.
+ * The first request runs the servlet and its response is captured while it is sent, the requests which arrive before
+ * it is completed are suspended and receive the same encoded response afterwards. This includes error responses and
+ * the timeout of the first request, so all coalesced requests see the same {@link RestException}. Coalesced requests
+ * don't hold a Jetty thread while they wait.
+ * <p>
+ * Conditional requests and requests with credentials, i.e. an <code>Authorization</code> or a <code>Cookie</code>
+ * header, neither start nor join a flight, since their response depends on these headers. A response which sets a
+ * cookie, is marked as <code>private</code> or <code>no-store</code>, or varies by other headers than
+ * <code>Accept</code> is private to the first request, the attached requests run the servlet themselves instead. The
+ * same holds for responses exceeding the {@link #setMaximumResponseSize(int) maximum size}, which are not copied.
+ * <p>
+ * The handler is installed between the {@link RestRouter} and the {@link RestServletHandler}, single-flight methods
+ * are enabled with {@link #setCoalesced(RestMethod, boolean)}. Streamed responses are never coalesced.
+ */
+public class CoalescingHandler extends RestHandler {
+
+    public static final int DEFAULT_MAXIMUM_RESPONSE_SIZE = 1024 * 1024;
+
+    private static final Logger LOG = Log.getLogger(CoalescingHandler.class);
+
+    private final Set<RestMethod> coalescedMethods = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<ResponseKey, Flight> flights = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+    private int maximumResponseSize = DEFAULT_MAXIMUM_RESPONSE_SIZE;
+
+    @Override
+    public void handle(RestRequest request, RestResponse response) throws IOException, ServletException, RestException {
+        RestMethod method = request.getRestMethod();
+        if (!isCoalesced(request, method)) {
+            super.handle(request, response);
+            return;
+        }
+
+        MediaType mediaType;
+        try {
+            mediaType = response.getPreferredContentType(method.getResponseType());
+        } catch (NotAcceptable e) {
+            super.handle(request, response);
+            return;
+        }
+
+        ResponseKey key = new ResponseKey(method, request.getArguments(), mediaType);
+        Flight flight = new Flight(key);
+        Flight inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            coalesced.increment();
+            await(inFlight, request, response);
+            return;
+        }
+
+        flight.capture = new ResponseCapture((HttpServletResponse) response.getResponse(), maximumResponseSize);
+        try {
+            super.handle(request, response.wrap(flight.capture));
+        } catch (Throwable e) {
+            flight.fail(RestException.of(e));
+            throw e;
+        }
+
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(flight);
+        } else {
+            flight.land();
+        }
+    }
+
+    private boolean isCoalesced(RestRequest request, RestMethod method) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !"GET".equals(request.getMethod())
+            || !coalescedMethods.contains(method)) {
+            return false;
+        }
+
+        if (request.getHeader(HttpHeader.IF_NONE_MATCH.asString()) != null
+            || request.getHeader(HttpHeader.IF_MODIFIED_SINCE.asString()) != null
+            || request.getHeader(HttpHeader.AUTHORIZATION.asString()) != null
+            || request.getHeader(HttpHeader.COOKIE.asString()) != null) {
+            return false;
+        }
+
+        EntityType<?> responseType = method.getResponseType();
+        return responseType != null && !Stream.class.equals(responseType.getRawType());
+    }
+
+    /**
+     * Suspends a request until the flight it is attached to is completed
+     */
+    private void await(Flight flight, RestRequest request, RestResponse response) {
+        AsyncContext context = request.startAsync(request, response);
+        AtomicBoolean completed = new AtomicBoolean();
+
+        context.addListener((AsyncTimeoutListener) event -> {
+            if (!request.isAsyncHandled() && completed.compareAndSet(false, true)) {
+                response.sendError(new GatewayTimeOut("The request has timed out."));
+                context.complete();
+            }
+        });
+
+        flight.whenComplete((result, error) -> {
+            if (completed.get()) {
+                return;
+            }
+
+            //don't block the thread which completes the flight by the writes of all attached requests
+            if (error == null && result == null) {
+                request.setDispatchContext(context);
+                execute(() -> handle(context, completed, request, response));
+            } else if (completed.compareAndSet(false, true)) {
+                execute(() -> send(context, response, result, error));
+            }
+        });
+    }
+
+    private void execute(Runnable task) {
+        Executor executor = getServer().getThreadPool();
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Runs the servlet for an attached request, whose flight has a private response
+     */
+    private void handle(AsyncContext context, AtomicBoolean completed, RestRequest request, RestResponse response) {
+        try {
+            super.handle(request, response);
+        } catch (Exception e) {
+            if (!completed.get()) {
+                response.sendError(RestException.of(e));
+            }
+        } finally {
+            if (!request.isAsyncHandled() && completed.compareAndSet(false, true)) {
+                context.complete();
+            }
+        }
+    }
+
+    private void send(AsyncContext context, RestResponse response, CachedResponse result, Throwable error) {
+        try {
+            if (error != null) {
+                response.sendError(RestException.of(error));
+            } else {
+                result.writeTo(response);
+            }
+        } catch (IOException e) {
+            LOG.debug(e);
+        } finally {
+            context.complete();
+        }
+    }
+
+    /**
+     * Enables the single-flight mode of a method
+     *
+     * @param method The method of the specification
+     * @param coalesced <code>true</code> to coalesce concurrent identical GET requests of the method
+     */
+    public void setCoalesced(RestMethod method, boolean coalesced) {
+        if (coalesced) {
+            coalescedMethods.add(method);
+        } else {
+            coalescedMethods.remove(method);
+        }
+    }
+
+    /**
+     * Indicates if a method runs in the single-flight mode
+     *
+     * @param method The method of the specification
+     * @return <code>true</code> if concurrent identical GET requests of the method are coalesced
+     */
+    public boolean isCoalesced(RestMethod method) {
+        return coalescedMethods.contains(method);
+    }
+
+    /**
+     * Sets the size of the largest response body which is shared with the attached requests. The body of a larger
+     * response is not copied, the attached requests run the servlet themselves instead.
+     *
+     * @param maximumResponseSize The size in bytes
+     */
+    public void setMaximumResponseSize(int maximumResponseSize) {
+        this.maximumResponseSize = maximumResponseSize;
+    }
+
+    /**
+     * The number of requests which have been attached to an in-flight request instead of running the servlet
+     *
+     * @return The number of coalesced requests
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * The number of in-flight requests which other requests may be attached to
+     *
+     * @return The number of in-flight requests
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    /**
+     * The in-flight invocation of a servlet, which is completed with the captured response or with <code>null</code>
+     * if the response is private to the first request or exceeds the maximum size
+     */
+    private class Flight extends CompletableFuture<CachedResponse> implements AsyncListener {
+        private final ResponseKey key;
+        private ResponseCapture capture;
+
+        Flight(ResponseKey key) {
+            this.key = key;
+        }
+
+        void land() {
+            //requests which arrive from now on start a new flight
+            flights.remove(key, this);
+            complete(isShared() ? capture.toCachedResponse(0) : null);
+        }
+
+        private boolean isShared() {
+            return capture.getStatus() != HttpStatus.NOT_MODIFIED_304 && capture.isShareable(false);
+        }
+
+        void fail(RestException error) {
+            flights.remove(key, this);
+            completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            land();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            //the timeout is answered by the servlet and is shared when the request is completed
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            fail(RestException.of(event.getThrowable()));
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
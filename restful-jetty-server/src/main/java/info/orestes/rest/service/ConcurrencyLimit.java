@@ -0,0 +1,74 @@
+package info.orestes.rest.service;
+
+/**
+ * The concurrency limit of a method or a method group.
+ * <p>
+ * A limit is declared in the service document by a <code>%limit &lt;concurrent&gt; [&lt;queued&gt;]</code> line,
+ * either directly after the group definition or within a method definition. The {@link RestRouter} creates one
+ * {@link Bulkhead} per limit instance, therefore all methods which share a limit instance share one bulkhead. The
+ * bulkhead of a group limit is named after the group, any other shared bulkhead after the methods which share it.
+ */
+public final class ConcurrencyLimit {
+
+    public static final int DEFAULT_RETRY_AFTER = 1;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int retryAfter;
+
+    /**
+     * Creates a limit which rejects requests immediately when all permits are in use
+     *
+     * @param maxConcurrent The maximum number of concurrently handled requests
+     */
+    public ConcurrencyLimit(int maxConcurrent) {
+        this(maxConcurrent, 0);
+    }
+
+    /**
+     * Creates a limit with a bounded wait queue
+     *
+     * @param maxConcurrent The maximum number of concurrently handled requests
+     * @param maxQueued The maximum number of requests which wait for a permit
+     */
+    public ConcurrencyLimit(int maxConcurrent, int maxQueued) {
+        this(maxConcurrent, maxQueued, DEFAULT_RETRY_AFTER);
+    }
+
+    /**
+     * Creates a limit with a bounded wait queue
+     *
+     * @param maxConcurrent The maximum number of concurrently handled requests
+     * @param maxQueued The maximum number of requests which wait for a permit
+     * @param retryAfter The value of the Retry-After header of rejected requests in seconds
+     */
+    public ConcurrencyLimit(int maxConcurrent, int maxQueued, int retryAfter) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("The concurrency limit must be at least 1.");
+        }
+        if (maxQueued < 0 || retryAfter < 0) {
+            throw new IllegalArgumentException("The queue limit and the retry delay must not be negative.");
+        }
+
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "%limit " + maxConcurrent + " " + maxQueued;
+    }
+}
@@ -0,0 +1,77 @@
+package info.orestes.rest.service;
+
+import java.util.Base64;
+
+/**
+ * Creates and compares entity tags as defined by RFC 7232.
+ */
+final class EntityTags {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private EntityTags() {
+    }
+
+    /**
+     * Creates a strong entity tag of a digest of the representation
+     *
+     * @param digest The digest of the encoded representation
+     * @return The quoted entity tag
+     */
+    static String of(byte[] digest) {
+        return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + '"';
+    }
+
+    /**
+     * Quotes a version, unless it is already a quoted or weak entity tag
+     *
+     * @param version The version or entity tag
+     * @return The entity tag
+     */
+    static String quote(String version) {
+        if (version.startsWith("\"") || version.startsWith(WEAK_PREFIX)) {
+            return version;
+        }
+        return '"' + version + '"';
+    }
+
+    /**
+     * Indicates if an entity tag is listed in the value of an If-Match or If-None-Match header
+     *
+     * @param header The header value, which is a comma separated list of entity tags or <code>*</code>
+     * @param etag The current entity tag or <code>null</code> if the entity does not exist
+     * @param weak <code>true</code> to use the weak comparison of If-None-Match, otherwise weak tags never match
+     * @return <code>true</code> if the entity tag is listed
+     */
+    static boolean matches(String header, String etag, boolean weak) {
+        if (etag == null) {
+            return false;
+        }
+
+        if (header.trim().equals("*")) {
+            return true;
+        }
+
+        if (etag.startsWith(WEAK_PREFIX)) {
+            if (!weak) {
+                return false;
+            }
+            etag = etag.substring(WEAK_PREFIX.length());
+        }
+
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith(WEAK_PREFIX)) {
+                if (!weak) {
+                    continue;
+                }
+                candidate = candidate.substring(WEAK_PREFIX.length());
+            }
+
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,98 @@
+package info.orestes.rest.service;
+
+/**
+ * A count-min sketch of 4-bit counters which estimates the recent access frequency of the keys of a cache.
+ * <p>
+ * Each key is counted in four counters, the estimate is the lowest of them. All counters are halved after a sample
+ * period of ten times the table size, so the estimate follows the recent popularity of the keys. The sketch is not
+ * thread safe.
+ */
+final class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Creates a sketch for the given number of keys
+     *
+     * @param maximumSize The expected maximum number of cached keys
+     */
+    FrequencySketch(int maximumSize) {
+        int size = Integer.highestOneBit(Math.max(16, Math.min(maximumSize, 1 << 24)) - 1) << 1;
+        table = new long[size];
+        mask = size - 1;
+        sampleSize = 10 * size;
+    }
+
+    /**
+     * Returns the estimated frequency of a key
+     *
+     * @param hash The hash code of the key
+     * @return The estimated frequency in the range of <code>0</code> to <code>15</code>
+     */
+    int frequency(int hash) {
+        int spread = spread(hash);
+        int start = (spread & 3) << 2;
+
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; ++i) {
+            int index = indexOf(spread, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Counts an access of a key, the counters are aged when the sample period is over
+     *
+     * @param hash The hash code of the key
+     */
+    void increment(int hash) {
+        int spread = spread(hash);
+        int start = (spread & 3) << 2;
+
+        boolean added = false;
+        for (int i = 0; i < 4; ++i) {
+            int index = indexOf(spread, i);
+            int offset = (start + i) << 2;
+            if (((table[index] >>> offset) & 0xF) != MAX_COUNT) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; ++i) {
+            odd += Long.bitCount(table[i] & 0x1111111111111111L);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = (additions - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int spread, int i) {
+        long hash = (spread + SEEDS[i]) * SEEDS[i];
+        hash += hash >>> 32;
+        return ((int) hash) & mask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,59 @@
+package info.orestes.rest.service;
+
+/**
+ * Receives the timings and sizes of the handled requests.
+ * <p>
+ * An instrumentation is set on the {@link RestRouter} and is called by the router, the {@link RestRequest}, the
+ * {@link RestResponse} and the {@link info.orestes.rest.RestServlet} of a matched route. Requests which don't match
+ * any route are not recorded. Implementations are called concurrently from the request threads and should not block.
+ */
+public interface Instrumentation {
+
+    /**
+     * The phases of the request handling
+     */
+    enum Phase {
+        /**
+         * Parsing the request URI and matching the routes
+         */
+        ROUTING,
+        /**
+         * Converting the path and query arguments of the matched route
+         */
+        BINDING,
+        /**
+         * Decoding the request entity, streamed entities are decoded while the handler reads them
+         */
+        DECODING,
+        /**
+         * Running the servlet handler until it returns or its future completes, which includes the decoding and
+         * encoding of the entities done by the handler
+         */
+        HANDLER,
+        /**
+         * Encoding the response entity, for streamed responses the encoding time of all entities
+         */
+        ENCODING
+    }
+
+    /**
+     * Records the duration of a request phase
+     *
+     * @param method The method of the matched route
+     * @param phase The request phase
+     * @param nanos The duration of the phase in nanoseconds
+     */
+    void recordPhase(RestMethod method, Phase phase, long nanos);
+
+    /**
+     * Records a completed request
+     *
+     * @param method The method of the matched route
+     * @param status The status code of the response
+     * @param bytesIn The number of bytes of the request content
+     * @param bytesOut The number of bytes of the response content
+     * @param nanos The time from the routing of the request until the handler has returned, or until the async
+     *              processing has completed, in nanoseconds
+     */
+    void recordRequest(RestMethod method, int status, long bytesIn, long bytesOut, long nanos);
+}
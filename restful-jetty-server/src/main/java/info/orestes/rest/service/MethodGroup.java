@@ -7,6 +7,8 @@ public class MethodGroup extends LinkedList<RestMethod> {
 	
 	private final String name;
 	private final String description;
+	private ConcurrencyLimit concurrencyLimit;
+	private int cacheTtl;
 	
 	public MethodGroup(String name, String description) {
 		this.name = name;
@@ -20,4 +22,30 @@ public String getDescription() {
 	public String getName() {
 		return name;
 	}
+
+	/**
+	 * The concurrency limit which is shared by all methods of this group
+	 *
+	 * @return The limit or <code>null</code> if the group is not limited
+	 */
+	public ConcurrencyLimit getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+
+	public void setConcurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+		this.concurrencyLimit = concurrencyLimit;
+	}
+
+	/**
+	 * The time the responses of all methods of this group may be cached by the server
+	 *
+	 * @return The time to live in seconds or <code>0</code> if the responses are not cacheable
+	 */
+	public int getCacheTtl() {
+		return cacheTtl;
+	}
+
+	public void setCacheTtl(int cacheTtl) {
+		this.cacheTtl = cacheTtl;
+	}
 }
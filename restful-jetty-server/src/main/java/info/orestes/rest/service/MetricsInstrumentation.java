@@ -0,0 +1,60 @@
+package info.orestes.rest.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The default {@link Instrumentation}, which keeps lock-free latency histograms, status code counters and the
+ * transferred bytes per {@link RestMethod} name
+ */
+public class MetricsInstrumentation implements Instrumentation {
+
+    private final ConcurrentMap<String, RouteMetrics> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordPhase(RestMethod method, Phase phase, long nanos) {
+        getOrCreate(method).recordPhase(phase, nanos);
+    }
+
+    @Override
+    public void recordRequest(RestMethod method, int status, long bytesIn, long bytesOut, long nanos) {
+        getOrCreate(method).recordRequest(status, bytesIn, bytesOut, nanos);
+    }
+
+    private RouteMetrics getOrCreate(RestMethod method) {
+        RouteMetrics routeMetrics = metrics.get(method.getName());
+        if (routeMetrics == null) {
+            routeMetrics = metrics.computeIfAbsent(method.getName(), RouteMetrics::new);
+        }
+        return routeMetrics;
+    }
+
+    /**
+     * Returns the metrics of a method
+     *
+     * @param name The name of the method
+     * @return The metrics or <code>null</code> if no request of the method was recorded
+     */
+    public RouteMetrics getMetrics(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Returns the metrics of all methods which have been requested so far
+     *
+     * @return The metrics ordered by the method name
+     */
+    public Map<String, RouteMetrics> getMetrics() {
+        return Collections.unmodifiableMap(new TreeMap<>(metrics));
+    }
+
+    /**
+     * Drops all recorded metrics
+     */
+    public void reset() {
+        metrics.clear();
+    }
+}
@@ -0,0 +1,312 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.error.BadRequest;
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.UrlEncoded;
+
+import java.util.Arrays;
+
+/**
+ * A reusable view on the path, matrix and query part of a request URI which is used by the {@link RestRouter} to
+ * match the routes.
+ * <p>
+ * The path segments are kept as offsets into the raw path and are only decoded when they are accessed, except
+ * segments which contain percent escapes. They are decoded while parsing to reject invalid encodings early. Matrix and
+ * query parameters are looked up by scanning the raw URI parts, so no intermediate maps are created.
+ * <p>
+ * Instances are not thread safe, they are intended to be reused by the same thread for subsequent requests.
+ */
+public class ParsedURI {
+
+    private String path;
+    private int pathStart;
+    private int pathEnd;
+    private int[] bounds = new int[16];
+    private String[] segments = new String[8];
+    private int segmentCount;
+
+    private int matrixStart;
+    private int matrixEnd;
+    private int matrixCount;
+
+    private String query;
+
+    /**
+     * Parses the given URI parts and resets all state of a previous parse
+     *
+     * @param path   The raw path of the request URI
+     * @param offset The offset of the path in the raw path, i.e. the length of the context path
+     * @param query  The raw query of the request URI, or <code>null</code> if the URI has no query
+     * @throws BadRequest if a path segment contains an invalid encoding
+     */
+    public void parse(String path, int offset, String query) throws BadRequest {
+        Arrays.fill(segments, 0, segmentCount, null);
+
+        this.path = path;
+        this.query = query;
+
+        pathStart = offset;
+        pathEnd = path.indexOf(';', offset);
+        if (pathEnd == -1) {
+            pathEnd = path.length();
+            matrixStart = -1;
+            matrixEnd = -1;
+            matrixCount = 0;
+        } else {
+            matrixStart = pathEnd + 1;
+            matrixEnd = path.length();
+            matrixCount = countKeys(path, matrixStart, matrixEnd, ';');
+        }
+
+        segmentCount = 0;
+        int start = Math.min(offset + 1, pathEnd);
+        int next;
+        while ((next = path.indexOf('/', start)) != -1 && next < pathEnd) {
+            addSegment(start, next);
+            start = next + 1;
+        }
+        addSegment(start, pathEnd);
+    }
+
+    private void addSegment(int start, int end) throws BadRequest {
+        if (bounds.length <= segmentCount * 2 + 1) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+
+        bounds[segmentCount * 2] = start;
+        bounds[segmentCount * 2 + 1] = end;
+
+        int escape = path.indexOf('%', start);
+        if (escape != -1 && escape < end) {
+            try {
+                segments[segmentCount] = URIUtil.decodePath(path, start, end - start);
+            } catch (Exception e) {
+                throw new BadRequest("Unsupported URI encoding", e);
+            }
+        }
+
+        segmentCount++;
+    }
+
+    /**
+     * Returns the raw path without the context path and the matrix parameters
+     *
+     * @return The raw path
+     */
+    public String getPath() {
+        return path.substring(pathStart, pathEnd);
+    }
+
+    /**
+     * Returns the number of path segments
+     *
+     * @return The number of path segments
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Returns the decoded path segment at the given index
+     *
+     * @param index The index of the path segment
+     * @return The decoded path segment
+     */
+    public String getSegment(int index) {
+        String segment = segments[index];
+        if (segment == null) {
+            segment = path.substring(bounds[index * 2], bounds[index * 2 + 1]);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * Indicates if the decoded path segment at the given index is equal to the given value
+     *
+     * @param index The index of the path segment
+     * @param value The value to compare with
+     * @return <code>true</code> if the decoded path segment is equal to the value
+     */
+    public boolean segmentEquals(int index, String value) {
+        String segment = segments[index];
+        if (segment != null) {
+            return segment.equals(value);
+        }
+
+        int start = bounds[index * 2];
+        int length = bounds[index * 2 + 1] - start;
+        return value.length() == length && path.regionMatches(start, value, 0, length);
+    }
+
+    /**
+     * Returns all decoded path segments beginning with the given index joined by a slash
+     *
+     * @param index The index of the first path segment
+     * @return The joined remaining path segments
+     */
+    public String joinSegments(int index) {
+        int start = bounds[index * 2];
+        int end = bounds[segmentCount * 2 - 1];
+
+        int escape = path.indexOf('%', start);
+        if (escape != -1 && escape < end) {
+            //at least one segment is encoded, so the raw path can't be used
+            StringBuilder builder = new StringBuilder(getSegment(index));
+            for (int i = index + 1; i < segmentCount; ++i) {
+                builder.append('/').append(getSegment(i));
+            }
+            return builder.toString();
+        }
+
+        return path.substring(start, end);
+    }
+
+    /**
+     * Returns the number of distinct matrix parameters
+     *
+     * @return The number of distinct matrix parameters
+     */
+    public int getMatrixCount() {
+        return matrixCount;
+    }
+
+    /**
+     * Indicates if the URI contains the matrix parameter
+     *
+     * @param name The decoded name of the matrix parameter
+     * @return <code>true</code> if the parameter is declared, even without a value
+     */
+    public boolean hasMatrixParameter(String name) {
+        return matrixStart != -1 && find(path, matrixStart, matrixEnd, ';', name) != -1;
+    }
+
+    /**
+     * Returns the decoded value of the matrix parameter
+     *
+     * @param name The decoded name of the matrix parameter
+     * @return The decoded value or <code>null</code> if the parameter is absent or declared without a value
+     */
+    public String getMatrixParameter(String name) {
+        return matrixStart == -1 ? null : value(path, matrixEnd, ';', find(path, matrixStart, matrixEnd, ';', name));
+    }
+
+    /**
+     * Indicates if the URI contains the query parameter
+     *
+     * @param name The decoded name of the query parameter
+     * @return <code>true</code> if the parameter is declared, even without a value
+     */
+    public boolean hasQueryParameter(String name) {
+        return query != null && find(query, 0, query.length(), '&', name) != -1;
+    }
+
+    /**
+     * Returns the decoded value of the query parameter
+     *
+     * @param name The decoded name of the query parameter
+     * @return The decoded value or <code>null</code> if the parameter is absent or declared without a value
+     */
+    public String getQueryParameter(String name) {
+        return query == null ? null : value(query, query.length(), '&', find(query, 0, query.length(), '&', name));
+    }
+
+    /**
+     * Returns the end of the parameter section without trailing separators, to behave like {@link String#split}
+     */
+    private static int trimEnd(String source, int start, int end, char separator) {
+        if (start == end) {
+            //an empty section declares one empty parameter
+            return end;
+        }
+
+        while (end > start && source.charAt(end - 1) == separator) {
+            end--;
+        }
+
+        return end == start ? -1 : end;
+    }
+
+    /**
+     * Finds the start of the last parameter with the given name, later parameters override earlier ones
+     */
+    private static int find(String source, int start, int end, char separator, String name) {
+        end = trimEnd(source, start, end, separator);
+
+        int found = -1;
+        int pos = start;
+        while (end != -1 && pos <= end) {
+            int next = nextSeparator(source, pos, end, separator);
+            if (keyEquals(source, pos, keyEnd(source, pos, next), name)) {
+                found = pos;
+            }
+            pos = next + 1;
+        }
+
+        return found;
+    }
+
+    private static int countKeys(String source, int start, int end, char separator) {
+        end = trimEnd(source, start, end, separator);
+
+        int count = 0;
+        int pos = start;
+        while (end != -1 && pos <= end) {
+            int next = nextSeparator(source, pos, end, separator);
+            int keyEnd = keyEnd(source, pos, next);
+
+            boolean duplicate = false;
+            int other = start;
+            while (other < pos && !duplicate) {
+                int otherNext = nextSeparator(source, other, end, separator);
+                int otherKeyEnd = keyEnd(source, other, otherNext);
+                duplicate = keyEnd - pos == otherKeyEnd - other
+                    && source.regionMatches(pos, source, other, keyEnd - pos);
+                other = otherNext + 1;
+            }
+
+            if (!duplicate) {
+                count++;
+            }
+            pos = next + 1;
+        }
+
+        return count;
+    }
+
+    private static String value(String source, int end, char separator, int pos) {
+        if (pos == -1) {
+            return null;
+        }
+
+        int next = nextSeparator(source, pos, end, separator);
+        int keyEnd = keyEnd(source, pos, next);
+        if (keyEnd == next) {
+            return null;
+        }
+
+        return UrlEncoded.decodeString(source, keyEnd + 1, next - keyEnd - 1, null);
+    }
+
+    private static int nextSeparator(String source, int pos, int end, char separator) {
+        int next = source.indexOf(separator, pos);
+        return next == -1 || next > end ? end : next;
+    }
+
+    private static int keyEnd(String source, int pos, int next) {
+        int assign = source.indexOf('=', pos);
+        return assign == -1 || assign > next ? next : assign;
+    }
+
+    private static boolean keyEquals(String source, int start, int end, String name) {
+        for (int i = start; i < end; ++i) {
+            char c = source.charAt(i);
+            if (c == '%' || c == '+') {
+                return UrlEncoded.decodeString(source, start, end - start, null).equals(name);
+            }
+        }
+
+        return name.length() == end - start && source.regionMatches(start, name, 0, end - start);
+    }
+}
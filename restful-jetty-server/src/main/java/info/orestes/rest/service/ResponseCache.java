@@ -0,0 +1,312 @@
+package info.orestes.rest.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * A size bounded cache of encoded responses with a W-TinyLFU eviction policy.
+ * <p>
+ * New responses enter a small LRU window. Responses which are evicted from the window are only admitted to the main
+ * space if they were accessed more frequently than the response they would replace, the frequencies are estimated by
+ * a {@link FrequencySketch}. The main space is a segmented LRU, responses which are accessed again are promoted from
+ * the probation to the protected segment. This keeps popular responses in the cache, while one-time requests only
+ * pass through the window.
+ * <p>
+ * Lookups are lock free. The policy is updated under a lock, which is skipped by lookups if it is contended, so a
+ * few accesses may not be recorded under high load.
+ */
+public class ResponseCache {
+
+    private static final int AVERAGE_WEIGHT = 1024;
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private enum Segment {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+
+    private final LinkedHashMap<Object, Node> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Node> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Node> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long mainMaximum;
+    private final long protectedMaximum;
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache
+     *
+     * @param maximumWeight The maximum memory usage of all cached responses in bytes
+     */
+    public ResponseCache(long maximumWeight) {
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("The maximum weight must be positive, but was " + maximumWeight);
+        }
+
+        this.maximumWeight = maximumWeight;
+        windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+        mainMaximum = maximumWeight - windowMaximum;
+        protectedMaximum = mainMaximum * PROTECTED_PERCENT / 100;
+        sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maximumWeight / AVERAGE_WEIGHT));
+    }
+
+    /**
+     * Returns a cached response and records the access
+     *
+     * @param key The key of the response
+     * @param now The current {@link System#nanoTime()}
+     * @return The response or <code>null</code> if no unexpired response is cached
+     */
+    public CachedResponse get(Object key, long now) {
+        Node node = data.get(key);
+        if (node != null && node.value.isExpired(now)) {
+            lock.lock();
+            try {
+                remove(node);
+            } finally {
+                lock.unlock();
+            }
+            node = null;
+        }
+
+        if (node == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        if (lock.tryLock()) {
+            try {
+                onAccess(key, node);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Caches a response, which replaces a cached response of the same key. Responses which are larger than the main
+     * space of the cache are not cached.
+     *
+     * @param key The key of the response
+     * @param value The response
+     */
+    public void put(Object key, CachedResponse value) {
+        lock.lock();
+        try {
+            Node old = data.get(key);
+            if (old != null) {
+                remove(old);
+            }
+
+            if (value.getWeight() > mainMaximum) {
+                return;
+            }
+
+            Node node = new Node(key, value);
+            data.put(key, node);
+            window.put(key, node);
+            windowWeight += node.weight;
+
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the response of a key
+     *
+     * @param key The key of the response
+     */
+    public void invalidate(Object key) {
+        invalidateIf(key::equals);
+    }
+
+    /**
+     * Removes the responses of all matching keys
+     *
+     * @param predicate Matches the keys of the responses to remove
+     */
+    public void invalidateIf(Predicate<Object> predicate) {
+        lock.lock();
+        try {
+            for (Node node : data.values()) {
+                if (predicate.test(node.key)) {
+                    remove(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all responses
+     */
+    public void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    /**
+     * The number of cached responses
+     *
+     * @return The number of responses
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * The memory usage of all cached responses
+     *
+     * @return The weight of all responses in bytes
+     */
+    public long getWeight() {
+        lock.lock();
+        try {
+            return windowWeight + probationWeight + protectedWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void onAccess(Object key, Node node) {
+        sketch.increment(key.hashCode());
+        if (node == null || data.get(key) != node) {
+            return;
+        }
+
+        switch (node.segment) {
+            case WINDOW:
+                window.get(key);
+                break;
+            case PROBATION:
+                probation.remove(key);
+                probationWeight -= node.weight;
+                node.segment = Segment.PROTECTED;
+                protectedSegment.put(key, node);
+                protectedWeight += node.weight;
+
+                //demote the least recently used protected responses
+                while (protectedWeight > protectedMaximum) {
+                    Node demoted = removeEldest(protectedSegment);
+                    protectedWeight -= demoted.weight;
+                    demoted.segment = Segment.PROBATION;
+                    probation.put(demoted.key, demoted);
+                    probationWeight += demoted.weight;
+                }
+                break;
+            case PROTECTED:
+                protectedSegment.get(key);
+                break;
+        }
+    }
+
+    private void evict() {
+        while (windowWeight > windowMaximum) {
+            Node candidate = removeEldest(window);
+            windowWeight -= candidate.weight;
+            admit(candidate);
+        }
+    }
+
+    private void admit(Node candidate) {
+        int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+        while (probationWeight + protectedWeight + candidate.weight > mainMaximum) {
+            Node victim = eldest(probation.isEmpty() ? protectedSegment : probation);
+            if (candidateFrequency <= sketch.frequency(victim.key.hashCode())) {
+                data.remove(candidate.key, candidate);
+                evictions.increment();
+                return;
+            }
+
+            remove(victim);
+            evictions.increment();
+        }
+
+        candidate.segment = Segment.PROBATION;
+        probation.put(candidate.key, candidate);
+        probationWeight += candidate.weight;
+    }
+
+    private void remove(Node node) {
+        if (!data.remove(node.key, node)) {
+            return;
+        }
+
+        switch (node.segment) {
+            case WINDOW:
+                window.remove(node.key);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node.key);
+                probationWeight -= node.weight;
+                break;
+            case PROTECTED:
+                protectedSegment.remove(node.key);
+                protectedWeight -= node.weight;
+                break;
+        }
+    }
+
+    private static Node eldest(Map<Object, Node> segment) {
+        return segment.values().iterator().next();
+    }
+
+    private static Node removeEldest(Map<Object, Node> segment) {
+        Iterator<Node> iterator = segment.values().iterator();
+        Node node = iterator.next();
+        iterator.remove();
+        return node;
+    }
+
+    private static class Node {
+        private final Object key;
+        private final CachedResponse value;
+        private final int weight;
+        private Segment segment = Segment.WINDOW;
+
+        Node(Object key, CachedResponse value) {
+            this.key = key;
+            this.value = value;
+            this.weight = value.getWeight();
+        }
+    }
+}
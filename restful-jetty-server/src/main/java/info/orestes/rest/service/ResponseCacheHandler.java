@@ -0,0 +1,198 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.error.NotAcceptable;
+import info.orestes.rest.error.RestException;
+import org.apache.tika.mime.MediaType;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Serves the responses of cacheable GET methods from a {@link ResponseCache}.
+ * <p>
+ * A method is cacheable if a time to live is declared with <code>%cache &lt;seconds&gt;</code> in the service
+ * document. The responses are cached by the method, the bound arguments and the negotiated media type, so a cache
+ * hit is sent without invoking the servlet or any converter. Only successful responses without cookies are cached,
+ * which are neither <code>private</code> nor <code>no-store</code> and vary at most by the <code>Accept</code>
+ * header. Streamed responses are never cached. Like a shared cache of RFC 7234, requests with an
+ * <code>Authorization</code> header are only served from and stored in the cache if the response is marked as
+ * <code>public</code>.
+ * <p>
+ * The handler is installed between the {@link RestRouter} and the {@link RestServletHandler}. Methods which change
+ * cached resources should call one of the <code>invalidate</code> methods, responses which are computed concurrently
+ * to an invalidation are not cached.
+ */
+public class ResponseCacheHandler extends RestHandler {
+
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAXIMUM_ENTRY_SIZE = 1024 * 1024;
+
+    private final ResponseCache cache;
+    private final AtomicLong generation = new AtomicLong();
+    private int maximumEntrySize = DEFAULT_MAXIMUM_ENTRY_SIZE;
+
+    public ResponseCacheHandler() {
+        this(DEFAULT_MAXIMUM_WEIGHT);
+    }
+
+    /**
+     * Creates a response cache handler
+     *
+     * @param maximumWeight The maximum memory usage of all cached responses in bytes
+     */
+    public ResponseCacheHandler(long maximumWeight) {
+        cache = new ResponseCache(maximumWeight);
+    }
+
+    @Override
+    public void handle(RestRequest request, RestResponse response) throws IOException, ServletException, RestException {
+        RestMethod method = request.getRestMethod();
+        if (!isCacheable(request, method)) {
+            super.handle(request, response);
+            return;
+        }
+
+        MediaType mediaType;
+        try {
+            mediaType = response.getPreferredContentType(method.getResponseType());
+        } catch (NotAcceptable e) {
+            super.handle(request, response);
+            return;
+        }
+
+        boolean authorized = request.getHeader(HttpHeader.AUTHORIZATION.asString()) != null;
+        ResponseKey key = new ResponseKey(method, request.getArguments(), mediaType);
+        CachedResponse cached = cache.get(key, System.nanoTime());
+        if (cached != null && (!authorized || ResponseCapture.hasDirective(
+            cached.getHeader(HttpHeader.CACHE_CONTROL.asString()), "public"))) {
+            String etag = cached.getHeader(HttpHeader.ETAG.asString());
+            String ifNoneMatch = request.getHeader(HttpHeader.IF_NONE_MATCH.asString());
+            if (etag != null && ifNoneMatch != null && EntityTags.matches(ifNoneMatch, etag, true)) {
+                response.setHeader(HttpHeader.ETAG.asString(), etag);
+                response.setStatus(HttpStatus.NOT_MODIFIED_304);
+            } else {
+                cached.writeTo(response);
+            }
+            return;
+        }
+
+        long expectedGeneration = generation.get();
+        ResponseCapture capture = new ResponseCapture((HttpServletResponse) response.getResponse(), maximumEntrySize);
+        super.handle(request, response.wrap(capture));
+
+        Store store = new Store(key, capture, expectedGeneration, authorized);
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(store);
+        } else {
+            store.run();
+        }
+    }
+
+    private boolean isCacheable(RestRequest request, RestMethod method) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || method.getCacheTtl() <= 0
+            || !"GET".equals(request.getMethod())) {
+            return false;
+        }
+
+        EntityType<?> responseType = method.getResponseType();
+        return responseType != null && !Stream.class.equals(responseType.getRawType());
+    }
+
+    /**
+     * Removes all cached responses of a method
+     *
+     * @param method The method
+     */
+    public void invalidate(RestMethod method) {
+        generation.incrementAndGet();
+        cache.invalidateIf(key -> ((ResponseKey) key).getMethod().equals(method));
+    }
+
+    /**
+     * Removes the cached responses of a method for the given arguments in all media types
+     *
+     * @param method The method
+     * @param arguments The bound arguments of the request
+     */
+    public void invalidate(RestMethod method, Map<String, Object> arguments) {
+        generation.incrementAndGet();
+        cache.invalidateIf(key -> ((ResponseKey) key).getMethod().equals(method)
+            && ((ResponseKey) key).getArguments().equals(arguments));
+    }
+
+    /**
+     * Removes all cached responses
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the size of the largest response body which is cached
+     *
+     * @param maximumEntrySize The size in bytes
+     */
+    public void setMaximumEntrySize(int maximumEntrySize) {
+        this.maximumEntrySize = maximumEntrySize;
+    }
+
+    private class Store implements AsyncListener {
+        private final ResponseKey key;
+        private final ResponseCapture capture;
+        private final long expectedGeneration;
+        private final boolean authorized;
+
+        Store(ResponseKey key, ResponseCapture capture, long expectedGeneration, boolean authorized) {
+            this.key = key;
+            this.capture = capture;
+            this.expectedGeneration = expectedGeneration;
+            this.authorized = authorized;
+        }
+
+        void run() {
+            if (capture.getStatus() != HttpStatus.OK_200 || !capture.isShareable(authorized)) {
+                return;
+            }
+
+            long expires = System.nanoTime() + TimeUnit.SECONDS.toNanos(key.getMethod().getCacheTtl());
+            CachedResponse response = capture.toCachedResponse(expires);
+
+            //a response which was computed while the cache was invalidated may be stale
+            if (response != null && generation.get() == expectedGeneration) {
+                cache.put(key, response);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package info.orestes.rest.service;
+
+import org.eclipse.jetty.http.HttpHeader;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a response through to the client and keeps a copy of its body, which is used to fill the
+ * {@link ResponseCache} or is shared with coalesced requests. The copy is dropped when the body exceeds the maximum
+ * size.
+ */
+class ResponseCapture extends HttpServletResponseWrapper {
+
+    private static final String[] UNCAPTURED_HEADERS = {
+        HttpHeader.CONTENT_TYPE.asString(), HttpHeader.CONTENT_LENGTH.asString(),
+        HttpHeader.TRANSFER_ENCODING.asString(), HttpHeader.DATE.asString(),
+        //hop-by-hop headers only apply to the connection of the captured response
+        HttpHeader.CONNECTION.asString(), HttpHeader.KEEP_ALIVE.asString(),
+        HttpHeader.PROXY_AUTHENTICATE.asString(), HttpHeader.PROXY_AUTHORIZATION.asString(),
+        HttpHeader.TE.asString(), HttpHeader.TRAILER.asString(), HttpHeader.UPGRADE.asString()
+    };
+
+    private final int maxSize;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private boolean overflowed;
+    private TeeOutputStream outputStream;
+    private PrintWriter writer;
+
+    ResponseCapture(HttpServletResponse response, int maxSize) {
+        super(response);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new TeeOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        body.reset();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        body.reset();
+        overflowed = false;
+    }
+
+    /**
+     * Returns the captured body
+     *
+     * @return The written bytes or <code>null</code> if the body exceeded the maximum size
+     */
+    byte[] getBody() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return overflowed ? null : body.toByteArray();
+    }
+
+    /**
+     * Creates a copy of the captured response
+     *
+     * @param expires The {@link System#nanoTime()} at which the copy expires
+     * @return The copy or <code>null</code> if the body exceeded the maximum size
+     */
+    CachedResponse toCachedResponse(long expires) {
+        byte[] body = getBody();
+        if (body == null) {
+            return null;
+        }
+
+        List<String[]> headers = new ArrayList<>();
+        for (String name : getHeaderNames()) {
+            boolean captured = true;
+            for (String uncaptured : UNCAPTURED_HEADERS) {
+                captured &= !uncaptured.equalsIgnoreCase(name);
+            }
+
+            if (captured) {
+                for (String value : getHeaders(name)) {
+                    headers.add(new String[] {name, value});
+                }
+            }
+        }
+        return new CachedResponse(getStatus(), getContentType(), headers, body, expires);
+    }
+
+    /**
+     * Checks if the next bytes still fit into the captured body, which is dropped otherwise
+     *
+     * @param len The number of bytes which will be written
+     * @return <code>true</code> if the bytes should be captured
+     */
+    /**
+     * Indicates if the captured response may be served to other clients. A response is private to its request if it
+     * sets a cookie, is marked as <code>private</code>, is a successful response marked as <code>no-store</code>, or
+     * varies by other request headers than the negotiated <code>Accept</code> header.
+     *
+     * @param authorized <code>true</code> if the request carried credentials, its response must then be explicitly
+     *                   marked as <code>public</code>
+     * @return <code>true</code> if the response can be shared
+     */
+    boolean isShareable(boolean authorized) {
+        if (containsHeader(HttpHeader.SET_COOKIE.asString())) {
+            return false;
+        }
+
+        String cacheControl = getHeader(HttpHeader.CACHE_CONTROL.asString());
+        //errors are marked as no-store by RestResponse.sendError to keep them out of caches, that doesn't make them
+        //private
+        boolean noStore = getStatus() < 400 && hasDirective(cacheControl, "no-store");
+        if (hasDirective(cacheControl, "private") || noStore
+            || authorized && !hasDirective(cacheControl, "public")) {
+            return false;
+        }
+
+        for (String vary : getHeaders(HttpHeader.VARY.asString())) {
+            for (String name : vary.split(",")) {
+                if (!name.trim().isEmpty() && !name.trim().equalsIgnoreCase(HttpHeader.ACCEPT.asString())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates if a <code>Cache-Control</code> header contains a directive
+     *
+     * @param cacheControl The header value or <code>null</code>
+     * @param directive The case-insensitive directive name
+     * @return <code>true</code> if the directive is present, with or without a value
+     */
+    static boolean hasDirective(String cacheControl, String directive) {
+        if (cacheControl == null) {
+            return false;
+        }
+
+        for (String part : cacheControl.split(",")) {
+            int index = part.indexOf('=');
+            String name = index < 0 ? part : part.substring(0, index);
+            if (name.trim().equalsIgnoreCase(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean capture(int len) {
+        if (overflowed) {
+            return false;
+        }
+
+        if (body.size() + len > maxSize) {
+            overflowed = true;
+            body.reset();
+            return false;
+        }
+        return true;
+    }
+
+    private class TeeOutputStream extends ServletOutputStream {
+        private final ServletOutputStream out;
+
+        TeeOutputStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (capture(1)) {
+                body.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (capture(len)) {
+                body.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            out.setWriteListener(writeListener);
+        }
+    }
+}
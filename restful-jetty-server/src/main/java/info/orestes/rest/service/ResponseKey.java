@@ -0,0 +1,58 @@
+package info.orestes.rest.service;
+
+import org.apache.tika.mime.MediaType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Identifies the response of a GET request by its method, its bound arguments and its negotiated media type.
+ */
+final class ResponseKey {
+    private final RestMethod method;
+    private final Map<String, Object> arguments;
+    private final MediaType mediaType;
+    private final int hash;
+
+    /**
+     * Creates the key of a request
+     *
+     * @param method The method of the request
+     * @param arguments The bound arguments of the request, which are copied
+     * @param mediaType The negotiated media type of the response
+     */
+    ResponseKey(RestMethod method, Map<String, Object> arguments, MediaType mediaType) {
+        this.method = method;
+        this.arguments = new HashMap<>(arguments);
+        this.mediaType = mediaType;
+        this.hash = Objects.hash(method, this.arguments, mediaType);
+    }
+
+    RestMethod getMethod() {
+        return method;
+    }
+
+    Map<String, Object> getArguments() {
+        return arguments;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ResponseKey)) {
+            return false;
+        }
+
+        ResponseKey key = (ResponseKey) o;
+        return hash == key.hash && method.equals(key.method) && arguments.equals(key.arguments)
+            && mediaType.equals(key.mediaType);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
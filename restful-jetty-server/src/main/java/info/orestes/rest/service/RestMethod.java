@@ -31,6 +31,8 @@ public class RestMethod {
 	private final Map<String, HeaderElement> responseHeader;
     private final EntityType<?> requestType;
     private final EntityType<?> responseType;
+    private final ConcurrencyLimit concurrencyLimit;
+    private final int cacheTtl;
 
 	/**
 	 * A rest method represents a single routable path plus its dynamic components like required and optional query and matrix parameters
@@ -51,6 +53,56 @@ public RestMethod(String name, String description, String[] longDescription, Str
 		Class<? extends RestServlet> target, Map<String, HeaderElement> requestHeader, Map<String,
         HeaderElement> responseHeader, Map<Integer, String> expectedResults, EntityType<?> requestType,
 		EntityType<?> responseType, boolean forceSSL) {
+		this(name, description, longDescription, action, signature, target, requestHeader, responseHeader,
+			expectedResults, requestType, responseType, forceSSL, null);
+	}
+
+	/**
+	 * A rest method with a concurrency limit
+	 * @param name The unique name of the method
+	 * @param description A short description of the method
+	 * @param longDescription A detailed multiline description of the method
+	 * @param action The HTTP action of the method, i.e. GET, POST, PUT, DELETE etc.
+	 * @param signature The signature of the methods described by one or more path elements
+	 * @param target The target RestServlet which handle the method
+	 * @param requestHeader Optional request headers which can be applied to the method
+	 * @param responseHeader Optional Response headers which the method will return
+	 * @param expectedResults The expected status codes which will be returned by this method
+	 * @param requestType The entity type of the request body, or null if the method does not expect any request body
+	 * @param responseType The entity type of the response body, or null if the method does not expect any response body
+	 * @param forceSSL A flag, that indicates that the method should only be invoked over a secure encrypted connection
+	 * @param concurrencyLimit The concurrency limit of the method, or null if the method is not limited
+	 */
+	public RestMethod(String name, String description, String[] longDescription, String action, List<PathElement> signature,
+		Class<? extends RestServlet> target, Map<String, HeaderElement> requestHeader, Map<String,
+		HeaderElement> responseHeader, Map<Integer, String> expectedResults, EntityType<?> requestType,
+		EntityType<?> responseType, boolean forceSSL, ConcurrencyLimit concurrencyLimit) {
+		this(name, description, longDescription, action, signature, target, requestHeader, responseHeader,
+			expectedResults, requestType, responseType, forceSSL, concurrencyLimit, 0);
+	}
+
+	/**
+	 * A rest method with a concurrency limit and cacheable responses
+	 * @param name The unique name of the method
+	 * @param description A short description of the method
+	 * @param longDescription A detailed multiline description of the method
+	 * @param action The HTTP action of the method, i.e. GET, POST, PUT, DELETE etc.
+	 * @param signature The signature of the methods described by one or more path elements
+	 * @param target The target RestServlet which handle the method
+	 * @param requestHeader Optional request headers which can be applied to the method
+	 * @param responseHeader Optional Response headers which the method will return
+	 * @param expectedResults The expected status codes which will be returned by this method
+	 * @param requestType The entity type of the request body, or null if the method does not expect any request body
+	 * @param responseType The entity type of the response body, or null if the method does not expect any response body
+	 * @param forceSSL A flag, that indicates that the method should only be invoked over a secure encrypted connection
+	 * @param concurrencyLimit The concurrency limit of the method, or null if the method is not limited
+	 * @param cacheTtl The time in seconds the responses of the method may be cached by the server, or 0 if the
+	 *                 responses are not cacheable
+	 */
+	public RestMethod(String name, String description, String[] longDescription, String action, List<PathElement> signature,
+		Class<? extends RestServlet> target, Map<String, HeaderElement> requestHeader, Map<String,
+		HeaderElement> responseHeader, Map<Integer, String> expectedResults, EntityType<?> requestType,
+		EntityType<?> responseType, boolean forceSSL, ConcurrencyLimit concurrencyLimit, int cacheTtl) {
 		this.name = name;
 		this.action = action;
 		this.description = description;
@@ -63,6 +115,8 @@ public RestMethod(String name, String description, String[] longDescription, Str
 		this.requestType = requestType;
 		this.responseType = responseType;
         this.forceSSL = forceSSL;
+        this.concurrencyLimit = concurrencyLimit;
+        this.cacheTtl = cacheTtl;
 
 		int required = 0;
 		int dynamicIndex = 0;
@@ -217,6 +271,25 @@ public Map<String, HeaderElement> getResponseHeader() {
 
     public boolean isForceSSL() { return forceSSL; }
 
+	/**
+	 * The concurrency limit which is declared for this method or its method group
+	 *
+	 * @return The limit or <code>null</code> if the method is not limited
+	 */
+	public ConcurrencyLimit getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+
+	/**
+	 * The time the responses of this method may be cached by the server, which is declared for this method or its
+	 * method group
+	 *
+	 * @return The time to live in seconds or <code>0</code> if the responses are not cacheable
+	 */
+	public int getCacheTtl() {
+		return cacheTtl;
+	}
+
 	public String getSignatureAsString() {
 		String result = "";
 
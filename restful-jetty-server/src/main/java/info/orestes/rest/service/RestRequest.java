@@ -6,12 +6,18 @@
 import info.orestes.rest.error.BadRequest;
 import info.orestes.rest.error.RestException;
 import info.orestes.rest.error.UnsupportedMediaType;
+import info.orestes.rest.service.Instrumentation.Phase;
 import info.orestes.rest.service.RestRouter.Route;
 import org.apache.tika.mime.MediaType;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Spliterator;
@@ -26,6 +32,8 @@ public class RestRequest extends HttpServletRequestWrapper implements Request {
     private final Route route;
     private Object entity;
     private ConverterService converterService;
+    private volatile AsyncContext dispatchContext;
+    private volatile boolean asyncHandled;
 
     @SuppressWarnings("unchecked")
     public RestRequest(org.eclipse.jetty.server.Request baseRequest, HttpServletRequest request, Route route, ConverterService converterService) {
@@ -36,19 +44,69 @@ public RestRequest(org.eclipse.jetty.server.Request baseRequest, HttpServletRequ
         this.converterService = converterService;
     }
 
-    void setMatches(Map<String, String> matches) throws BadRequest {
-        for (Map.Entry<String, String> entry : matches.entrySet()) {
-            Class<?> argType = route.getMethod().getArguments().get(entry.getKey()).getValueType();
-            try {
-                if (entry.getValue() != null) {
-                    arguments.put(entry.getKey(), converterService.toObject(argType, (String) entry.getValue()));
+    void setMatches(String[] matches) throws BadRequest {
+        ArgumentBinder[] binders = route.getBinders();
+        for (int i = 0; i < matches.length; ++i) {
+            String value = matches[i];
+            ArgumentBinder binder = binders[i];
+            if (value != null && binder != null) {
+                try {
+                    arguments.put(binder.getName(), binder.bind(this, value));
+                } catch (Exception e) {
+                    throw new BadRequest("The argument " + binder.getName() + " can not be parsed.", e);
                 }
-            } catch (Exception e) {
-                throw new BadRequest("The argument " + entry.getKey() + " can not be parsed.", e);
             }
         }
     }
 
+    /**
+     * Sets the async context which was started to run the handler on another thread. Any further
+     * {@link #startAsync()} call returns this context and hands the completion over to the caller.
+     *
+     * @param dispatchContext The started async context
+     */
+    void setDispatchContext(AsyncContext dispatchContext) {
+        this.dispatchContext = dispatchContext;
+    }
+
+    /**
+     * Indicates if the request is already handled within a started async context
+     *
+     * @return <code>true</code> if a dispatch context is set
+     */
+    boolean isDispatched() {
+        return dispatchContext != null;
+    }
+
+    /**
+     * Indicates if the handler has taken over the async context of the dispatch
+     *
+     * @return <code>true</code> if the handler has called {@link #startAsync()}
+     */
+    boolean isAsyncHandled() {
+        return asyncHandled;
+    }
+
+    @Override
+    public AsyncContext startAsync() throws IllegalStateException {
+        AsyncContext context = dispatchContext;
+        if (context != null) {
+            asyncHandled = true;
+            return context;
+        }
+        return super.startAsync();
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) throws IllegalStateException {
+        AsyncContext context = dispatchContext;
+        if (context != null) {
+            asyncHandled = true;
+            return context;
+        }
+        return super.startAsync(servletRequest, servletResponse);
+    }
+
     public org.eclipse.jetty.server.Request getBaseRequest() {
         return baseRequest;
     }
@@ -91,6 +149,8 @@ public <E> E readEntity() throws RestException {
             return null;
         }
 
+        Instrumentation instrumentation = getInstrumentation();
+        long start = instrumentation == null ? 0 : System.nanoTime();
         try {
             MediaType contentType = MediaType.parse(getContentType());
 
@@ -104,14 +164,35 @@ public <E> E readEntity() throws RestException {
             throw e;
         } catch (Exception e) {
             throw new BadRequest("The requested entity is not valid.", e);
+        } finally {
+            if (instrumentation != null) {
+                instrumentation.recordPhase(getRestMethod(), Phase.DECODING, System.nanoTime() - start);
+            }
         }
     }
 
+    /**
+     * Returns the instrumentation of the router which has matched this request
+     *
+     * @return The instrumentation or <code>null</code> if the request is not instrumented
+     */
+    Instrumentation getInstrumentation() {
+        RestRouter router = route == null ? null : route.getRouter();
+        return router == null ? null : router.getInstrumentation();
+    }
+
     @Override
     public MediaType getMediaType() {
         return MediaType.parse(getContentType());
     }
 
+    @Override
+    public Charset getCharset() {
+        // the same default as the servlet request reader uses
+        String encoding = getCharacterEncoding();
+        return encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+    }
+
     /**
      * Reads a single entity from the underlying inputstream.
      *
@@ -1,42 +1,65 @@
 package info.orestes.rest.service;
 
 import info.orestes.rest.Response;
+import info.orestes.rest.conversion.BinaryWritableContext;
 import info.orestes.rest.conversion.ConverterFormat.EntityWriter;
 import info.orestes.rest.conversion.ConverterService;
 import info.orestes.rest.conversion.MediaTypeNegotiation;
 import info.orestes.rest.conversion.WritableContext;
 import info.orestes.rest.error.InternalServerError;
 import info.orestes.rest.error.NotAcceptable;
+import info.orestes.rest.error.PreconditionFailed;
+import info.orestes.rest.error.PreconditionRequired;
 import info.orestes.rest.error.RestException;
 import info.orestes.rest.error.ServiceUnavailable;
+import info.orestes.rest.service.Instrumentation.Phase;
+import info.orestes.rest.util.ByteBufferOutputStream;
 import org.apache.tika.mime.MediaType;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Scheduler;
 
 import javax.servlet.AsyncContext;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 public class RestResponse extends HttpServletResponseWrapper implements Response {
 
     private final Logger LOG = Log.getLogger(RestResponse.class);
-    private static final List<MediaType> ANY = Arrays.asList(MediaTypeNegotiation.ALL);
+    private static final List<MediaType> ANY = MediaTypeNegotiation.ANY;
+    private static final ByteBufferPool FALLBACK_BUFFER_POOL = new ArrayByteBufferPool();
+
+    public static final int DEFAULT_STREAM_FLUSH_THRESHOLD = 16 * 1024;
+    public static final long DEFAULT_STREAM_FLUSH_LATENCY = 50;
+    public static final int DEFAULT_ENTITY_TAG_LIMIT = 1024 * 1024;
+
     private final RestRequest request;
     private MediaType mediaType;
+    private boolean outputStreamUsed;
+    private int streamFlushThreshold = DEFAULT_STREAM_FLUSH_THRESHOLD;
+    private long streamFlushLatency = TimeUnit.MILLISECONDS.toNanos(DEFAULT_STREAM_FLUSH_LATENCY);
+    private int entityTagLimit = DEFAULT_ENTITY_TAG_LIMIT;
 
     /**
      * Parse the Accept header and extract the contained list of media types
@@ -45,19 +68,7 @@ public class RestResponse extends HttpServletResponseWrapper implements Response
      * @return a list of all declared media types as they occurred
      */
     public static List<MediaType> parseMediaTypes(String acceptHeader) {
-        if (acceptHeader != null) {
-            List<MediaType> mediaTypes = new ArrayList<>();
-            for (String part : acceptHeader.split(",")) {
-                MediaType mediaType = MediaType.parse(part);
-                if (mediaType != null)
-                    mediaTypes.add(mediaType);
-            }
-
-            if (!mediaTypes.isEmpty())
-                return mediaTypes;
-        }
-
-        return ANY;
+        return MediaTypeNegotiation.parseAccept(acceptHeader);
     }
 
     public RestResponse(RestRequest request, HttpServletResponse response) {
@@ -66,6 +77,20 @@ public RestResponse(RestRequest request, HttpServletResponse response) {
         this.request = request;
     }
 
+    /**
+     * Creates a response of the same request with the settings of this response, which writes to the given response
+     *
+     * @param response The response to write to
+     * @return The new response
+     */
+    RestResponse wrap(HttpServletResponse response) {
+        RestResponse wrapped = new RestResponse(request, response);
+        wrapped.streamFlushThreshold = streamFlushThreshold;
+        wrapped.streamFlushLatency = streamFlushLatency;
+        wrapped.entityTagLimit = entityTagLimit;
+        return wrapped;
+    }
+
     public void setMediaType(MediaType mediaType) {
         this.mediaType = mediaType;
         setContentType(mediaType.toString());
@@ -74,6 +99,11 @@ public void setMediaType(MediaType mediaType) {
     @Override
     @SuppressWarnings("unchecked")
     public void sendEntity(Object entity) {
+        if (getStatus() == HttpStatus.NOT_MODIFIED_304) {
+            //the client already has the current version of the entity
+            return;
+        }
+
         if (entity == null) {
             if (getStatus() == HttpStatus.OK_200) {
                 setStatus(HttpStatus.NO_CONTENT_204);
@@ -111,13 +141,17 @@ public void sendEntity(Object entity) {
      * @throws NotAcceptable when there does not exists any acceptable media type that is supported for the response type
      */
     public MediaType getPreferredContentType(EntityType<?> responseType) throws NotAcceptable {
-        return getContentType(parseMediaTypes(request.getHeader(HttpHeader.ACCEPT.asString())), responseType);
+        ConverterService converterService = request.getConverterService();
+        String acceptHeader = request.getHeader(HttpHeader.ACCEPT.asString());
+        return withCharset(converterService.getPreferredMediaType(acceptHeader, responseType));
     }
 
     private MediaType getContentType(List<MediaType> preferredMediaTypes, EntityType<?> responseType) throws NotAcceptable {
         ConverterService converterService = request.getConverterService();
-        MediaType mediaType = converterService.getPreferredMediaType(preferredMediaTypes, responseType);
+        return withCharset(converterService.getPreferredMediaType(preferredMediaTypes, responseType));
+    }
 
+    private MediaType withCharset(MediaType mediaType) throws NotAcceptable {
         if (mediaType == null) {
             throw new NotAcceptable("The requested response media types are not supported.");
         }
@@ -181,8 +215,10 @@ public void sendError(RestException error) {
                 contentType = getContentType(ANY, type);
             }
 
-            try (PrintWriter writer = getWriter()) {
+            try {
                 sendBody(error, type, contentType);
+            } finally {
+                closeOutput();
             }
         } catch (IOException e) {
             LOG.debug(e);
@@ -197,8 +233,30 @@ public MediaType getMediaType() {
         return mediaType;
     }
 
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        ServletOutputStream outputStream = super.getOutputStream();
+        outputStreamUsed = true;
+        return outputStream;
+    }
+
+    /**
+     * Closes the output stream if the body was written in binary, otherwise the writer
+     */
+    private void closeOutput() throws IOException {
+        if (outputStreamUsed) {
+            getOutputStream().close();
+        } else {
+            getWriter().close();
+        }
+    }
+
     /**
      * Sends the given stream using the underlying outputstream.
+     * <p>
+     * The entities are encoded into a pooled buffer which is handed to the output stream without copying it. Small
+     * entities are coalesced until the buffer reaches the {@link #setStreamFlushThreshold(int) flush threshold} or the
+     * first buffered entity is older than the {@link #setStreamFlushLatency(long) flush latency}.
      *
      * @param objectStream The entities to stream / send.
      * @param entityType   The type of the entities.
@@ -214,56 +272,335 @@ public <T> void sendStream(Stream<T> objectStream, EntityType<T> entityType) thr
 
         AsyncContext context = request.startAsync(request, this);
         ServletOutputStream outputStream = getOutputStream();
-        ServletWriteContext writeContext = new ServletWriteContext();
+        StreamWriteContext writeContext = new StreamWriteContext();
         EntityWriter<T> entityWriter = request.getConverterService()
             .newEntityWriter(writeContext, entityType, contentType);
 
+        Instrumentation instrumentation = request.getInstrumentation();
+        Scheduler scheduler = getScheduler();
         outputStream.setWriteListener(new WriteListener() {
+            private final Object lock = new Object();
+            private boolean completed;
+            private boolean written;
+            private boolean waiting;
+            private Scheduler.Task flushTask;
+            private long encodingTime;
+
             @Override
             public void onWritePossible() throws IOException {
                 while (outputStream.isReady()) {
-                    if (iterator.hasNext()) {
-                        T elem = iterator.next();
+                    synchronized (lock) {
+                        //the last write is done, so the buffer can be reused
+                        if (written) {
+                            writeContext.getBuffer().reset();
+                            written = false;
+                        }
+                    }
 
-                        try {
-                            entityWriter.writeNext(elem);
+                    if (completed) {
+                        finish();
+                        return;
+                    }
 
-                            writeToJetty();
+                    long begin = System.nanoTime();
+                    long deadline = begin + streamFlushLatency;
+                    boolean flushed = false;
+                    while (true) {
+                        Boolean hasNext = hasNext(deadline);
+                        if (hasNext == null) {
+                            //the buffered entities have been written while the source was blocked
+                            flushed = true;
+                            break;
+                        }
+
+                        if (!hasNext) {
+                            entityWriter.close();
+                            writeContext.flush();
+                            completed = true;
+                            break;
+                        }
+
+                        try {
+                            entityWriter.writeNext(iterator.next());
                         } catch (RestException e) {
+                            synchronized (lock) {
+                                cancelFlush();
+                                written = true;
+                            }
+                            writeContext.getBuffer().release();
                             sendError(e);
+                            context.complete();
+                            objectStream.close();
+                            return;
+                        }
+
+                        writeContext.flush();
+                        if (writeContext.getBuffer().size() >= streamFlushThreshold || System.nanoTime() - deadline >= 0) {
+                            break;
+                        }
+                    }
+                    encodingTime += System.nanoTime() - begin;
+
+                    if (!flushed) {
+                        synchronized (lock) {
+                            cancelFlush();
+                            written = true;
+                            writeToJetty();
                         }
-                    } else {
-                        entityWriter.close();
+                    }
+                }
+            }
+
+            /**
+             * Asks the source for the next entity. While a slow source blocks, the entities which are already
+             * buffered are written by a timer once the flush latency has elapsed.
+             *
+             * @return <code>null</code> if the timer has written the buffer in the meantime
+             */
+            private Boolean hasNext(long deadline) {
+                writeContext.flush();
+                if (scheduler == null || writeContext.getBuffer().size() == 0) {
+                    return iterator.hasNext();
+                }
+
+                synchronized (lock) {
+                    waiting = true;
+                    if (flushTask == null) {
+                        long delay = Math.max(0, deadline - System.nanoTime());
+                        flushTask = scheduler.schedule(this::flushBuffered, delay, TimeUnit.NANOSECONDS);
+                    }
+                }
+
+                boolean hasNext = iterator.hasNext();
+                synchronized (lock) {
+                    waiting = false;
+                    return written ? null : hasNext;
+                }
+            }
+
+            private void flushBuffered() {
+                synchronized (lock) {
+                    flushTask = null;
+                    if (!waiting || written) {
+                        return;
+                    }
+
+                    written = true;
+                    try {
                         writeToJetty();
-                        context.complete();
-                        objectStream.close();
-                        break;
+                    } catch (IOException e) {
+                        //the failed write is reported to onError
+                        LOG.debug(e);
                     }
                 }
             }
 
+            private void cancelFlush() {
+                if (flushTask != null) {
+                    flushTask.cancel();
+                    flushTask = null;
+                }
+            }
+
             private void writeToJetty() throws IOException {
-                writeContext.getWriter().flush();
-                writeContext.getBuffer().writeTo(outputStream);
-                writeContext.getBuffer().reset();
+                ByteBuffer buffer = writeContext.getBuffer().getByteBuffer();
+                if (outputStream instanceof HttpOutput) {
+                    //jetty writes the buffer without copying it, it may not be modified until the output is ready again
+                    ((HttpOutput) outputStream).write(buffer);
+                } else {
+                    BufferUtil.writeTo(buffer, outputStream);
+                }
+            }
+
+            private void finish() {
+                if (instrumentation != null) {
+                    instrumentation.recordPhase(request.getRestMethod(), Phase.ENCODING, encodingTime);
+                }
+                writeContext.getBuffer().release();
+                context.complete();
+                objectStream.close();
             }
 
             @Override
             public void onError(Throwable t) {
+                synchronized (lock) {
+                    cancelFlush();
+                    written = true;
+                }
+                writeContext.getBuffer().release();
                 objectStream.close();
                 sendError(RestException.of(t));
             }
         });
     }
 
+    /**
+     * Sets the size of the buffered stream entities after which they are sent to the client
+     *
+     * @param streamFlushThreshold The threshold in bytes
+     */
+    public void setStreamFlushThreshold(int streamFlushThreshold) {
+        this.streamFlushThreshold = streamFlushThreshold;
+    }
+
+    /**
+     * Sets the maximum time a stream entity is buffered before it is sent to the client. The time is checked after
+     * each encoded entity and by a timer while the stream blocks for its next entity.
+     *
+     * @param streamFlushLatency The latency in milliseconds
+     */
+    public void setStreamFlushLatency(long streamFlushLatency) {
+        this.streamFlushLatency = TimeUnit.MILLISECONDS.toNanos(streamFlushLatency);
+    }
+
+    /**
+     * Sets the size up to which response entities are buffered to generate a strong entity tag. Larger entities are
+     * sent without an entity tag.
+     *
+     * @param entityTagLimit The limit in bytes or <code>0</code> to disable the generated entity tags
+     */
+    public void setEntityTagLimit(int entityTagLimit) {
+        this.entityTagLimit = entityTagLimit;
+    }
+
+    private ByteBufferPool getByteBufferPool() {
+        org.eclipse.jetty.server.Request baseRequest = request.getBaseRequest();
+        HttpChannel channel = baseRequest == null ? null : baseRequest.getHttpChannel();
+        return channel == null ? FALLBACK_BUFFER_POOL : channel.getByteBufferPool();
+    }
+
+    private Scheduler getScheduler() {
+        org.eclipse.jetty.server.Request baseRequest = request.getBaseRequest();
+        HttpChannel channel = baseRequest == null ? null : baseRequest.getHttpChannel();
+        return channel == null ? null : channel.getConnector().getScheduler();
+    }
+
+    @Override
+    public boolean checkPreconditions(String etag, long lastModified, boolean required) throws RestException {
+        String method = request.getMethod();
+        boolean read = method.equals("GET") || method.equals("HEAD");
+        if (etag != null) {
+            etag = EntityTags.quote(etag);
+        }
+
+        String ifMatch = request.getHeader(HttpHeader.IF_MATCH.asString());
+        String ifNoneMatch = request.getHeader(HttpHeader.IF_NONE_MATCH.asString());
+        long ifUnmodifiedSince = getDateHeader(HttpHeader.IF_UNMODIFIED_SINCE);
+        if (required && !read && ifMatch == null && ifNoneMatch == null && ifUnmodifiedSince == -1) {
+            throw new PreconditionRequired("The request must be conditional, If-Match is missing.");
+        }
+
+        if (ifMatch != null) {
+            if (!EntityTags.matches(ifMatch, etag, false)) {
+                throw new PreconditionFailed("The entity tag does not match the current version.");
+            }
+        } else if (ifUnmodifiedSince != -1 && lastModified != -1 && lastModified / 1000 > ifUnmodifiedSince / 1000) {
+            throw new PreconditionFailed("The entity has been modified since " + request.getHeader(
+                HttpHeader.IF_UNMODIFIED_SINCE.asString()) + ".");
+        }
+
+        if (etag != null) {
+            setHeader(HttpHeader.ETAG.asString(), etag);
+        }
+        if (lastModified != -1) {
+            setDateHeader(HttpHeader.LAST_MODIFIED.asString(), lastModified);
+        }
+
+        boolean notModified;
+        if (ifNoneMatch != null) {
+            notModified = EntityTags.matches(ifNoneMatch, etag, true);
+            if (notModified && !read) {
+                throw new PreconditionFailed("The entity already exists in the current version.");
+            }
+        } else {
+            long ifModifiedSince = read ? getDateHeader(HttpHeader.IF_MODIFIED_SINCE) : -1;
+            notModified = ifModifiedSince != -1 && lastModified != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+
+        if (notModified) {
+            setStatus(HttpStatus.NOT_MODIFIED_304);
+        }
+        return notModified;
+    }
+
+    private long getDateHeader(HttpHeader header) {
+        try {
+            return request.getDateHeader(header.asString());
+        } catch (IllegalArgumentException e) {
+            //an invalid date is ignored
+            return -1;
+        }
+    }
+
     private void sendBody(Object entity, EntityType<?> type) throws IOException, RestException {
         MediaType contentType = getPreferredContentType(type);
-        sendBody(entity, type, contentType);
+        if (isTaggable()) {
+            sendTaggedBody(entity, type, contentType);
+        } else {
+            sendBody(entity, type, contentType);
+        }
     }
 
     private void sendBody(Object entity, EntityType<?> type, MediaType contentType) throws IOException, RestException {
         setMediaType(contentType);
-        request.getConverterService().toRepresentation(this, type, entity);
+        encode(this, type, entity);
+    }
+
+    /**
+     * Indicates if a strong entity tag is generated for the response entity, which is the case for successful GET
+     * and HEAD requests without a version based entity tag
+     */
+    private boolean isTaggable() {
+        String method = request.getMethod();
+        return entityTagLimit > 0 && getStatus() == HttpStatus.OK_200 && !containsHeader(HttpHeader.ETAG.asString())
+            && (method.equals("GET") || method.equals("HEAD"));
+    }
+
+    /**
+     * Encodes the entity into a buffer while it is hashed, and sends it with the resulting entity tag. The body is
+     * not sent if the client has the entity tag already.
+     */
+    private void sendTaggedBody(Object entity, EntityType<?> type, MediaType contentType) throws IOException,
+        RestException {
+        setMediaType(contentType);
+
+        TaggedWriteContext context = new TaggedWriteContext();
+        try {
+            encode(context, type, entity);
+
+            String etag = context.finish();
+            if (etag == null) {
+                //the body exceeds the limit and is already sent without an entity tag
+                return;
+            }
+
+            setHeader(HttpHeader.ETAG.asString(), etag);
+            String ifNoneMatch = request.getHeader(HttpHeader.IF_NONE_MATCH.asString());
+            if (ifNoneMatch != null && EntityTags.matches(ifNoneMatch, etag, true)) {
+                setStatus(HttpStatus.NOT_MODIFIED_304);
+                return;
+            }
+
+            ByteBuffer body = context.getBuffer().getByteBuffer();
+            setContentLength(body.remaining());
+            BufferUtil.writeTo(body, getOutputStream());
+        } finally {
+            context.getBuffer().release();
+        }
+    }
+
+    private void encode(WritableContext context, EntityType<?> type, Object entity) throws IOException, RestException {
+        Instrumentation instrumentation = request.getInstrumentation();
+        if (instrumentation == null) {
+            request.getConverterService().toRepresentation(context, type, entity);
+        } else {
+            long start = System.nanoTime();
+            try {
+                request.getConverterService().toRepresentation(context, type, entity);
+            } finally {
+                instrumentation.recordPhase(request.getRestMethod(), Phase.ENCODING, System.nanoTime() - start);
+            }
+        }
     }
 
     @Override
@@ -285,21 +622,128 @@ public void sendRedirect(int sc, String location) throws IOException {
         getOutputStream().close();
     }
 
-    private class ServletWriteContext implements WritableContext {
-        private final ByteArrayOutputStream buffer;
-        private final PrintWriter writer;
+    private class StreamWriteContext implements BinaryWritableContext {
+        private final ByteBufferOutputStream buffer;
+        private PrintWriter writer;
+
+        public StreamWriteContext() {
+            this.buffer = new ByteBufferOutputStream(getByteBufferPool(), streamFlushThreshold, true);
+        }
+
+        public ByteBufferOutputStream getBuffer() {
+            return buffer;
+        }
 
-        public ServletWriteContext() {
-            this.buffer = new ByteArrayOutputStream(8 * 1024);
-            this.writer = new PrintWriter(new OutputStreamWriter(this.buffer, StandardCharsets.UTF_8));
+        public void flush() {
+            if (writer != null) {
+                writer.flush();
+            }
         }
 
-        public ByteArrayOutputStream getBuffer() {
+        @Override
+        public OutputStream getOutputStream() {
             return buffer;
         }
 
         @Override
         public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setArgument(String name, Object value) {
+            RestResponse.this.setArgument(name, value);
+        }
+
+        @Override
+        public <T> T getArgument(String name) {
+            return RestResponse.this.getArgument(name);
+        }
+
+        @Override
+        public MediaType getMediaType() {
+            return RestResponse.this.mediaType;
+        }
+    }
+
+    /**
+     * Collects the encoded entity and its digest. The entity is written through to the client without a digest as
+     * soon as it exceeds the {@link #setEntityTagLimit(int) entity tag limit}.
+     */
+    private class TaggedWriteContext extends OutputStream implements BinaryWritableContext {
+        private final ByteBufferOutputStream buffer;
+        private final MessageDigest digest;
+        private OutputStream passThrough;
+        private PrintWriter writer;
+
+        TaggedWriteContext() {
+            buffer = new ByteBufferOutputStream(getByteBufferPool(), Math.min(entityTagLimit, 4096), false);
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        ByteBufferOutputStream getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Completes the encoding
+         *
+         * @return The entity tag or <code>null</code> if the entity exceeded the limit
+         */
+        String finish() {
+            if (writer != null) {
+                writer.flush();
+            }
+            return passThrough == null ? EntityTags.of(digest.digest()) : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (passThrough != null) {
+                passThrough.write(b);
+            } else {
+                digest.update((byte) b);
+                buffer.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (passThrough != null) {
+                passThrough.write(b, off, len);
+            } else {
+                digest.update(b, off, len);
+                buffer.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        private void checkLimit() throws IOException {
+            if (buffer.size() > entityTagLimit) {
+                passThrough = RestResponse.this.getOutputStream();
+                BufferUtil.writeTo(buffer.getByteBuffer(), passThrough);
+                buffer.reset();
+            }
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return this;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(this, getCharset()));
+            }
             return writer;
         }
 
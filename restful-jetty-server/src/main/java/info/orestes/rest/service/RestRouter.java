@@ -1,35 +1,61 @@
 package info.orestes.rest.service;
 
 import info.orestes.rest.RestServlet;
+import info.orestes.rest.ServletCapabilities;
 import info.orestes.rest.conversion.ConverterService;
 import info.orestes.rest.error.BadRequest;
+import info.orestes.rest.error.GatewayTimeOut;
 import info.orestes.rest.error.RestException;
+import info.orestes.rest.error.ServiceUnavailable;
+import info.orestes.rest.service.Instrumentation.Phase;
 import info.orestes.rest.service.PathElement.Type;
 import info.orestes.rest.util.Inject;
 import info.orestes.rest.util.Module;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpURI;
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
 import org.eclipse.jetty.server.handler.HandlerWrapper;
 import org.eclipse.jetty.util.MultiMap;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.util.UrlEncoded;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 public class RestRouter extends HandlerWrapper {
 
     public static final String REST_REQUEST = RestRequest.class.getName();
     public static final String REST_RESPONSE = RestResponse.class.getName();
 
+    private static final String[] NO_MATCHES = new String[0];
+    private static final Set<Type> COMPARE_TYPES = EnumSet.of(Type.PATH, Type.REGEX, Type.VARIABLE, Type.WILDCARD);
+    private static final ThreadLocal<ParsedURI> PARSED_URI = ThreadLocal.withInitial(ParsedURI::new);
+
 	private final Module module;
 	private final ConverterService converterService;
 	private final List<RestMethod> methods = new ArrayList<>();
 	private final ArrayList<ArrayList<Route>> routeLists = new ArrayList<>(10);
     private final List<Route> dynamicRoutes = new ArrayList<>(0);
+    private final Map<RestMethod, ConcurrencyLimit> concurrencyLimits = new HashMap<>();
+    private final Map<ConcurrencyLimit, String> limitGroups = new IdentityHashMap<>();
+    private final List<Bulkhead> bulkheads = new ArrayList<>();
+    private RouteIndex routeIndex;
+    private int streamFlushThreshold = RestResponse.DEFAULT_STREAM_FLUSH_THRESHOLD;
+    private long streamFlushLatency = RestResponse.DEFAULT_STREAM_FLUSH_LATENCY;
+    private int entityTagLimit = RestResponse.DEFAULT_ENTITY_TAG_LIMIT;
+    private long queueTimeout;
+    private Instrumentation instrumentation;
 
 	@Inject
 	public RestRouter(Module module) {
@@ -42,48 +68,59 @@ public void handle(String path, Request request, HttpServletRequest req, HttpSer
 			throws IOException, ServletException {
         RestRequest restRequest = (RestRequest) request.getAttribute(REST_REQUEST);
         RestResponse restResponse = (RestResponse) request.getAttribute(REST_RESPONSE);
+        Instrumentation instrumentation = this.instrumentation;
+        long start = 0;
+        boolean instrumented = false;
 
         if (restRequest == null) {
+			if (instrumentation != null) {
+				start = System.nanoTime();
+			}
+
 			HttpURI uri = request.getHttpURI();
 
 			// jetty decodes the path param
 			path = uri.getPath();
 
-            String contextPath = request.getContextPath();
+			int offset = 0;
+			String contextPath = request.getContextPath();
 			if (contextPath != null) {
-				if (contextPath.endsWith("/"))
-					contextPath = contextPath.substring(0, contextPath.length() - 1);
-
-				path = path.substring(contextPath.length());
+				offset = contextPath.endsWith("/") ? contextPath.length() - 1 : contextPath.length();
 			}
 
-			Map<String, String> matrix = null;
-			int paramsIndex = path.indexOf(";");
-			if (paramsIndex != -1) {
-				matrix = createMap(path.substring(paramsIndex + 1).split(";"));
-				path = path.substring(0, paramsIndex);
-			}
-
-			Map<String, String> query = uri.getQuery() == null ? null : createMap(uri.getQuery().split("&"));
-			List<String> pathParts = null;
+			ParsedURI parsedURI = PARSED_URI.get();
 			try {
-				pathParts = decodePath(path);
+				parsedURI.parse(path, offset, uri.getQuery());
 			} catch (BadRequest e) {
 				res.sendError(400);
 				request.setHandled(true);
 				return;
 			}
 
-			for (Route route : getRoutes(pathParts.size())) {
-				String method = request.getMethod();
-
-				Map<String, String> matches = route.match(method, pathParts, matrix, query);
+			String method = request.getMethod();
+			for (Route route : findRoutes(method, parsedURI)) {
+				String[] matches = route.match(method, parsedURI);
 				if (matches != null) {
-					if (!matches.isEmpty()) {
+					long matched = 0;
+					if (instrumentation != null) {
+						matched = System.nanoTime();
+						instrumentation.recordPhase(route.getMethod(), Phase.ROUTING, matched - start);
+					}
+
+					path = parsedURI.getPath();
+
+					if (matches.length != 0) {
 						//jetty use a constant Map in some cases therefore lets create always a new map
 						MultiMap<String> params = request.getQueryParameters();
 						params = params == null ? new MultiMap<>() : new MultiMap<>(params);
-						params.putAllValues(matches);
+
+						List<PathElement> signature = route.getMethod().getSignature();
+						for (int i = 0; i < matches.length; ++i) {
+							PathElement element = signature.get(i);
+							if (element.getType() != Type.PATH) {
+								params.put(element.getName(), matches[i]);
+							}
+						}
 						request.setQueryParameters(params);
 					}
 
@@ -94,10 +131,17 @@ public void handle(String path, Request request, HttpServletRequest req, HttpSer
 					request.setAttribute(REST_RESPONSE, restResponse);
 					try {
 						restRequest.setMatches(matches);
+						if (instrumentation != null) {
+							instrumentation.recordPhase(route.getMethod(), Phase.BINDING, System.nanoTime() - matched);
+							instrumented = true;
+						}
 						break;
 					} catch (RestException e) {
 						restResponse.sendError(e);
 						request.setHandled(true);
+						if (instrumentation != null) {
+							record(instrumentation, request, restRequest, start);
+						}
 						return;
 					}
 				}
@@ -105,11 +149,104 @@ public void handle(String path, Request request, HttpServletRequest req, HttpSer
 		}
 
 		if (restRequest != null) {
-			super.handle(path, request, restRequest, restResponse);
+			Bulkhead bulkhead = restRequest.getRoute().getBulkhead();
+			if (bulkhead != null && request.getDispatcherType() == DispatcherType.REQUEST) {
+				handleLimited(bulkhead, path, request, restRequest, restResponse);
+			} else {
+				super.handle(path, request, restRequest, restResponse);
+			}
 			request.setHandled(true);
+
+			//only the dispatch which has matched the route records the request
+			if (instrumented) {
+				if (request.isAsyncStarted()) {
+					request.getAsyncContext().addListener(new Recorder(instrumentation, request, restRequest, start));
+				} else {
+					record(instrumentation, request, restRequest, start);
+				}
+			}
+		}
+	}
+
+	private static void record(Instrumentation instrumentation, Request request, RestRequest restRequest, long start) {
+		Response response = request.getResponse();
+		instrumentation.recordRequest(restRequest.getRestMethod(), response.getStatus(),
+			request.getHttpInput().getContentConsumed(), response.getHttpOutput().getWritten(),
+			System.nanoTime() - start);
+	}
+
+	private void handleLimited(Bulkhead bulkhead, String path, Request request, RestRequest restRequest,
+			RestResponse restResponse) throws IOException, ServletException {
+		if (bulkhead.tryAcquire()) {
+			boolean release = true;
+			try {
+				super.handle(path, request, restRequest, restResponse);
+				if (request.isAsyncStarted()) {
+					request.getAsyncContext().addListener(new ReleaseListener(bulkhead));
+					release = false;
+				}
+			} finally {
+				if (release) {
+					bulkhead.release();
+				}
+			}
+		} else if (bulkhead.getLimit().getMaxQueued() == 0) {
+			bulkhead.reject();
+			reject(bulkhead, restResponse);
+		} else {
+			QueuedRequest queued = new QueuedRequest(bulkhead, path, request, restRequest, restResponse);
+			if (!bulkhead.offer(queued)) {
+				queued.reject();
+			}
 		}
 	}
 
+	private void reject(Bulkhead bulkhead, RestResponse response) {
+		response.setHeader(HttpHeader.RETRY_AFTER.asString(), String.valueOf(bulkhead.getLimit().getRetryAfter()));
+		response.sendError(new ServiceUnavailable("The concurrency limit of " + bulkhead.getName() + " is exceeded."));
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		//a shared limit is named after its group, or after all methods which share it
+		Map<ConcurrencyLimit, StringJoiner> names = new IdentityHashMap<>();
+		for (RestMethod method : methods) {
+			ConcurrencyLimit limit = getConcurrencyLimit(method);
+			if (limit != null) {
+				names.computeIfAbsent(limit, l -> new StringJoiner(",")).add(method.getName());
+			}
+		}
+
+		Map<ConcurrencyLimit, Bulkhead> limited = new IdentityHashMap<>();
+		names.forEach((limit, name) ->
+			limited.put(limit, new Bulkhead(limitGroups.getOrDefault(limit, name.toString()), limit)));
+
+		for (List<Route> routes : routeLists) {
+			for (Route route : routes) {
+				route.getBinders();
+				ConcurrencyLimit limit = getConcurrencyLimit(route.getMethod());
+				route.bulkhead = limit == null ? null : limited.get(limit);
+			}
+		}
+		bulkheads.clear();
+		bulkheads.addAll(limited.values());
+
+		routeIndex = RouteIndex.build(routeLists, dynamicRoutes);
+		super.doStart();
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		super.doStop();
+		routeIndex = null;
+	}
+
+	/**
+	 * Splits a path into its decoded segments
+	 *
+	 * @deprecated The router parses the request URI into a reusable {@link ParsedURI} instead
+	 */
+	@Deprecated
 	protected List<String> decodePath(String path) throws BadRequest {
 		try {
 			List<String> pathParts = new ArrayList<>();
@@ -126,14 +263,12 @@ protected List<String> decodePath(String path) throws BadRequest {
 		}
 	}
 
-	protected RestRequest creatRequest(Request baseRequest, HttpServletRequest req, Route route) {
-		return new RestRequest(baseRequest, req, route, converterService);
-	}
-
-	protected RestResponse createResponse(Request baseRequest, RestRequest request, HttpServletResponse response) {
-		return new RestResponse(request, response);
-	}
-
+	/**
+	 * Decodes matrix or query parameters into a map
+	 *
+	 * @deprecated The router looks up the parameters in the {@link ParsedURI} instead
+	 */
+	@Deprecated
 	protected Map<String, String> createMap(String[] params) {
 		Map<String, String> map = new HashMap<>();
 
@@ -150,6 +285,121 @@ protected Map<String, String> createMap(String[] params) {
 		return map;
 	}
 
+	protected RestRequest creatRequest(Request baseRequest, HttpServletRequest req, Route route) {
+		return new RestRequest(baseRequest, req, route, converterService);
+	}
+
+	protected RestResponse createResponse(Request baseRequest, RestRequest request, HttpServletResponse response) {
+		RestResponse restResponse = new RestResponse(request, response);
+		restResponse.setStreamFlushThreshold(streamFlushThreshold);
+		restResponse.setStreamFlushLatency(streamFlushLatency);
+		restResponse.setEntityTagLimit(entityTagLimit);
+		return restResponse;
+	}
+
+	/**
+	 * Sets the size of the buffered entities of a streamed response after which they are sent to the client
+	 *
+	 * @param streamFlushThreshold The threshold in bytes
+	 */
+	public void setStreamFlushThreshold(int streamFlushThreshold) {
+		this.streamFlushThreshold = streamFlushThreshold;
+	}
+
+	/**
+	 * Sets the maximum time an entity of a streamed response is buffered before it is sent to the client
+	 *
+	 * @param streamFlushLatency The latency in milliseconds
+	 */
+	public void setStreamFlushLatency(long streamFlushLatency) {
+		this.streamFlushLatency = streamFlushLatency;
+	}
+
+	/**
+	 * Sets the size up to which response entities are buffered to generate a strong entity tag
+	 *
+	 * @param entityTagLimit The limit in bytes or <code>0</code> to disable the generated entity tags
+	 */
+	public void setEntityTagLimit(int entityTagLimit) {
+		this.entityTagLimit = entityTagLimit;
+	}
+
+	private ConcurrencyLimit getConcurrencyLimit(RestMethod method) {
+		return concurrencyLimits.getOrDefault(method, method.getConcurrencyLimit());
+	}
+
+	/**
+	 * Sets the async timeout of requests which wait in the queue of a bulkhead. A request which times out in the
+	 * queue is rejected with 503, the timeout also covers the handling once the request is admitted.
+	 *
+	 * @param queueTimeout The timeout in milliseconds or <code>0</code> to use the default timeout of the container
+	 */
+	public void setQueueTimeout(long queueTimeout) {
+		this.queueTimeout = queueTimeout;
+	}
+
+	/**
+	 * Sets the concurrency limit of a method, which overrides the limit declared in the service document
+	 *
+	 * @param method The limited method
+	 * @param limit The limit or <code>null</code> to use the declared limit of the method
+	 */
+	public void setConcurrencyLimit(RestMethod method, ConcurrencyLimit limit) {
+		if (isStarted()) {
+			throw new IllegalStateException("The router can not be modified while it is running");
+		}
+
+		if (limit == null) {
+			concurrencyLimits.remove(method);
+		} else {
+			concurrencyLimits.put(method, limit);
+		}
+	}
+
+	/**
+	 * Sets one concurrency limit which is shared by all methods of a group
+	 *
+	 * @param methods The methods of the group, e.g. a {@link MethodGroup}
+	 * @param limit The shared limit or <code>null</code> to use the declared limits of the methods
+	 */
+	public void setConcurrencyLimit(Collection<RestMethod> methods, ConcurrencyLimit limit) {
+		for (RestMethod method : methods) {
+			setConcurrencyLimit(method, limit);
+		}
+
+		if (limit != null && methods instanceof MethodGroup) {
+			limitGroups.put(limit, ((MethodGroup) methods).getName());
+		}
+	}
+
+	/**
+	 * Returns the bulkheads of the limited methods, which expose the in-flight and rejection metrics
+	 *
+	 * @return The bulkheads of the running router
+	 */
+	public List<Bulkhead> getBulkheads() {
+		return Collections.unmodifiableList(bulkheads);
+	}
+
+	/**
+	 * Returns the instrumentation which records the request timings
+	 *
+	 * @return The instrumentation or <code>null</code> if the requests are not instrumented
+	 */
+	public Instrumentation getInstrumentation() {
+		return instrumentation;
+	}
+
+	/**
+	 * Sets the instrumentation which records the request timings, which should be set before the router is started.
+	 * Without an instrumentation, no timings are taken at all.
+	 *
+	 * @param instrumentation The instrumentation, e.g. a {@link MetricsInstrumentation}, or <code>null</code>
+	 */
+	public void setInstrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+	}
+
 	public List<RestMethod> getMethods() {
 		return Collections.unmodifiableList(methods);
 	}
@@ -160,39 +410,97 @@ public void add(RestMethod method) {
 			throw new IllegalStateException("The router can not be modified while it is running");
 		}
 
+		insert(routeLists, dynamicRoutes, new Route(method), Route::getMethod);
+		methods.add(method);
+	}
+
+	/**
+	 * Inserts a route into the routing tables, which are indexed by the number of fixed path parts, and keeps the
+	 * tables in the order of the route precedence
+	 *
+	 * @param routeLists The routing tables
+	 * @param dynamicRoutes The routes which match paths of any larger size
+	 * @param route The route to insert
+	 * @param method Returns the method of a route
+	 * @param <T> The type of the routes
+	 */
+	static <T> void insert(List<ArrayList<T>> routeLists, List<T> dynamicRoutes, T route, Function<T, RestMethod> method) {
+		Comparator<T> order = (a, b) -> compare(method.apply(a), method.apply(b));
+		RestMethod restMethod = method.apply(route);
+
         //expand the routes table to the required path size
-        int index = method.getFixedSignature().size() - 1;
+        int index = restMethod.getFixedSignature().size() - 1;
         while (routeLists.size() <= index) {
             //copy all dynamic routes to all new routes since dynamic routes matches all paths of this size
             routeLists.add(new ArrayList<>(dynamicRoutes));
         }
 
-        Route route = new Route(method);
-
-        List<Route> routes = routeLists.get(index);
+        List<T> routes = routeLists.get(index);
         routes.add(route);
-        Collections.sort(routes);
+        routes.sort(order);
 
-        if (route.isDynamic()) {
+        if (restMethod.hasDynamicPath()) {
             dynamicRoutes.add(route);
-            Collections.sort(dynamicRoutes);
+            dynamicRoutes.sort(order);
 
             //dynamic routes match all larger paths than this one,
             //therefore add this route to all larger path routing tables
             for (int i = index + 1; i < routeLists.size(); ++i) {
-                ArrayList<Route> largerRoutes = routeLists.get(i);
+                ArrayList<T> largerRoutes = routeLists.get(i);
                 largerRoutes.add(route);
-                Collections.sort(largerRoutes);
+                largerRoutes.sort(order);
             }
         }
+	}
 
-		methods.add(method);
+	/**
+	 * Adds the methods of a compiled snapshot to this router, the routing tables are taken from the snapshot without
+	 * sorting them again. If the router already contains methods, the methods are added one by one.
+	 *
+	 * @param snapshot The compiled service document
+	 */
+	public void addAll(SpecSnapshot snapshot) {
+		if (isStarted()) {
+			throw new IllegalStateException("The router can not be modified while it is running");
+		}
+
+		List<RestMethod> snapshotMethods = snapshot.getMethods();
+		if (!methods.isEmpty()) {
+			addAll(snapshotMethods);
+			return;
+		}
+
+		Route[] routes = new Route[snapshotMethods.size()];
+		for (int i = 0; i < routes.length; ++i) {
+			routes[i] = new Route(snapshotMethods.get(i));
+		}
+
+		for (int[] table : snapshot.getRouteTables()) {
+			ArrayList<Route> routeList = new ArrayList<>(table.length);
+			for (int index : table) {
+				routeList.add(routes[index]);
+			}
+			routeLists.add(routeList);
+		}
+
+		for (int index : snapshot.getDynamicRoutes()) {
+			dynamicRoutes.add(routes[index]);
+		}
+
+		methods.addAll(snapshotMethods);
 	}
 
 	public void addAll(Collection<RestMethod> methods) {
 		for (RestMethod method : methods) {
 			add(method);
 		}
+
+		if (methods instanceof MethodGroup) {
+			MethodGroup group = (MethodGroup) methods;
+			if (group.getConcurrencyLimit() != null) {
+				limitGroups.put(group.getConcurrencyLimit(), group.getName());
+			}
+		}
 	}
 
 	public void remove(RestMethod method) {
@@ -240,7 +548,15 @@ public void clear() {
 		methods.clear();
 	}
 
-	protected List<Route> getRoutes(int parts) {
+	/**
+	 * Returns the sorted route table of a path length. The running router looks up its routes in the
+	 * {@link RouteIndex} instead, therefore {@link #findRoutes(String, ParsedURI)} is the extension point of the route
+	 * lookup.
+	 *
+	 * @param parts The number of path parts
+	 * @return All routes which can match a path of the given length
+	 */
+	protected final List<Route> getRoutes(int parts) {
 		int index = parts - 1;
 
         if (routeLists.size() <= index) {
@@ -250,14 +566,65 @@ protected List<Route> getRoutes(int parts) {
 		}
 	}
 
+	/**
+	 * Compares the precedence of the routes of two methods
+	 *
+	 * @param method The method of the first route
+	 * @param o The method of the second route
+	 * @return A negative value if the first route is matched before the second one
+	 */
+	static int compare(RestMethod method, RestMethod o) {
+		List<PathElement> self = method.getSignature();
+		List<PathElement> other = o.getSignature();
+
+		int len = Math.min(self.size(), other.size());
+		for (int i = 0; i < len; ++i) {
+			Type selfType = self.get(i).getType();
+			Type otherType = other.get(i).getType();
+
+			if (selfType != otherType) {
+				// check type order
+				if (COMPARE_TYPES.contains(selfType) || COMPARE_TYPES.contains(otherType))
+					return selfType.compareTo(otherType);
+				else
+					break;
+			}
+		}
+
+		// if the path structure is identical the route with more required
+		// parameters wins e.g. will be matched first
+		return o.getRequiredParamaters() - method.getRequiredParamaters();
+	}
+
+	/**
+	 * Returns all routes which may match the given action and path in the order of their precedence
+	 *
+	 * @param action The HTTP action of the request
+	 * @param uri The parsed request URI
+	 * @return The candidate routes, which are the indexed routes when the router is running. The list of the index is
+	 *         only valid until the next lookup of the calling thread.
+	 */
+	protected List<Route> findRoutes(String action, ParsedURI uri) {
+		RouteIndex index = routeIndex;
+		if (index != null) {
+			return index.lookup(action, uri);
+		} else {
+			return getRoutes(uri.getSegmentCount());
+		}
+	}
+
 	public class Route implements Comparable<Route> {
 
 		private final RestMethod method;
 		private final RestServlet servlet;
+		private final ServletCapabilities capabilities;
+		private volatile ArgumentBinder[] binders;
+		private volatile Bulkhead bulkhead;
 
 		public Route(RestMethod method) {
 			this.method = method;
             this.servlet = module.inject(method.getTarget());
+            this.capabilities = servlet.getCapabilities();
 		}
 
         public boolean isDynamic() {
@@ -272,37 +639,48 @@ public RestServlet getServlet() {
             return servlet;
         }
 
+        /**
+         * Returns the HTTP methods which are implemented by the servlet of this route
+         *
+         * @return The capabilities of the servlet, which are resolved when the servlet is injected
+         */
+        public ServletCapabilities getCapabilities() {
+            return capabilities;
+        }
+
+        /**
+         * Returns the binders of the route arguments, which are resolved on the first access
+         *
+         * @return The binders indexed like the method signature, the entries of fixed path elements are <code>null</code>
+         */
+        public ArgumentBinder[] getBinders() {
+            ArgumentBinder[] binders = this.binders;
+            if (binders == null) {
+                binders = ArgumentBinder.create(method.getSignature(), converterService);
+                this.binders = binders;
+            }
+            return binders;
+        }
+
+        /**
+         * Returns the bulkhead which limits the concurrency of this route
+         *
+         * @return The bulkhead or <code>null</code> if the route is not limited
+         */
+        public Bulkhead getBulkhead() {
+            return bulkhead;
+        }
+
         public RestRouter getRouter() {
 			return RestRouter.this;
 		}
 
 		@Override
 		public int compareTo(Route o) {
-			final List<Type> compareTypes = Arrays.asList(Type.PATH, Type.REGEX, Type.VARIABLE, Type.WILDCARD);
-			List<PathElement> self = getMethod().getSignature();
-			List<PathElement> other = o.getMethod().getSignature();
-
-			int len = Math.min(self.size(), other.size());
-			for (int i = 0; i < len; ++i) {
-				Type selfType = self.get(i).getType();
-				Type otherType = other.get(i).getType();
-
-				if (selfType != otherType) {
-					// check type order
-					if (compareTypes.contains(selfType) || compareTypes.contains(otherType))
-						return selfType.compareTo(otherType);
-					else
-						break;
-				}
-			}
-
-			// if the path structure is identical the route with more required
-			// parameters wins e.g. will be matched first
-			return o.getMethod().getRequiredParamaters() - getMethod().getRequiredParamaters();
+			return compare(getMethod(), o.getMethod());
 		}
 
-		public Map<String, String> match(String action, List<String> pathParts, Map<String, String> matrix,
-				Map<String, String> query) {
+		public String[] match(String action, ParsedURI uri) {
 			switch (action) {
 				case "OPTIONS":
 					break;
@@ -314,68 +692,70 @@ public Map<String, String> match(String action, List<String> pathParts, Map<Stri
 					}
 			}
 
-			Map<String, String> matches = new HashMap<>();
+			List<PathElement> signature = getMethod().getSignature();
+			String[] matches = null;
 
-			int matrixCounter = matrix == null ? 0 : matrix.size();
+			int matrixCounter = uri.getMatrixCount();
 
+			int pathParts = uri.getSegmentCount();
 			int parts = 0;
-			for (PathElement el : getMethod().getSignature()) {
+			for (int i = 0; i < signature.size(); ++i) {
+				PathElement el = signature.get(i);
 				switch (el.getType()) {
 					case PATH: {
 						// The matching path is longer or not equal to the
 						// requested path
-						if (pathParts.size() <= parts || !el.getName().equals(pathParts.get(parts++))) {
+						if (pathParts <= parts || !uri.segmentEquals(parts++, el.getName())) {
 							return null;
 						}
 						break;
 					}
 					case VARIABLE: {
 						// The matching path is longer than the requested path
-						if (pathParts.size() <= parts) {
+						if (pathParts <= parts) {
 							return null;
 						}
 
-						String value = pathParts.get(parts++);
+						String value = uri.getSegment(parts++);
 						if (value.isEmpty()) {
 							return null;
 						}
 
-						matches.put(el.getName(), value);
+						matches = put(matches, signature.size(), i, value);
 						break;
 					}
 					case REGEX: {
 						// The matching path is longer than the requested path
-						if (pathParts.size() <= parts) {
+						if (pathParts <= parts) {
 							return null;
 						}
 
-						String value = pathParts.get(parts++);
+						String value = uri.getSegment(parts++);
 						if (!el.getRegex().matcher(value).find()) {
 							return null;
 						}
 
-						matches.put(el.getName(), value);
+						matches = put(matches, signature.size(), i, value);
 						break;
 					}
 					case WILDCARD: {
 						// The matching path is longer than the requested path
-						if (pathParts.size() <= parts) {
+						if (pathParts <= parts) {
 							return null;
 						}
 
 						//consume all remaining parts
-						List<String> remainingParts = pathParts.subList(parts, pathParts.size());
-						parts = pathParts.size();
-						String value = String.join("/", remainingParts);
-						matches.put(el.getName(), value);
+						String value = uri.joinSegments(parts);
+						parts = pathParts;
+						matches = put(matches, signature.size(), i, value);
 						break;
 					}
                     case MATRIX: {
-						if (matrix != null && matrix.containsKey(el.getName())) {
-							matches.put(el.getName(), matrix.get(el.getName()));
+						if (uri.hasMatrixParameter(el.getName())) {
+							matches = put(matches, signature.size(), i, uri.getMatrixParameter(el.getName()));
 							matrixCounter--;
 						} else if (el.isOptional()) {
-							matches.put(el.getName(), el.getDefaultValue());
+							matches = put(matches, signature.size(), i, el.getDefaultValue());
 						} else {
 							return null;
 						}
@@ -386,10 +766,10 @@ public Map<String, String> match(String action, List<String> pathParts, Map<Stri
 							return null;
 						}
 
-						if (query != null && query.containsKey(el.getName())) {
-							matches.put(el.getName(), query.get(el.getName()));
+						if (uri.hasQueryParameter(el.getName())) {
+							matches = put(matches, signature.size(), i, uri.getQueryParameter(el.getName()));
 						} else if (el.isOptional()) {
-							matches.put(el.getName(), el.getDefaultValue());
+							matches = put(matches, signature.size(), i, el.getDefaultValue());
 						} else {
 							return null;
 						}
@@ -398,6 +778,78 @@ public Map<String, String> match(String action, List<String> pathParts, Map<Stri
 				}
 			}
 
+			return matches == null ? NO_MATCHES : matches;
+		}
+
+		/**
+		 * Matches the decoded parts of a request
+		 *
+		 * @param action The HTTP action of the request
+		 * @param pathParts The decoded path segments
+		 * @param matrix The decoded matrix parameters or <code>null</code>
+		 * @param query The decoded query parameters or <code>null</code>
+		 * @return The matched arguments by their names or <code>null</code> if the route doesn't match
+		 * @deprecated Use {@link #match(String, ParsedURI)}, the parts are encoded again to be matched by it
+		 */
+		@Deprecated
+		public Map<String, String> match(String action, List<String> pathParts, Map<String, String> matrix,
+				Map<String, String> query) {
+			StringBuilder path = new StringBuilder();
+			for (String part : pathParts) {
+				path.append('/').append(URIUtil.encodePath(part).replace("/", "%2F"));
+			}
+			if (matrix != null) {
+				for (Map.Entry<String, String> param : matrix.entrySet()) {
+					path.append(';');
+					appendParameter(path, param);
+				}
+			}
+
+			StringBuilder rawQuery = null;
+			if (query != null) {
+				rawQuery = new StringBuilder();
+				for (Map.Entry<String, String> param : query.entrySet()) {
+					if (rawQuery.length() != 0) {
+						rawQuery.append('&');
+					}
+					appendParameter(rawQuery, param);
+				}
+			}
+
+			ParsedURI uri = new ParsedURI();
+			try {
+				uri.parse(path.toString(), 0, rawQuery == null ? null : rawQuery.toString());
+			} catch (BadRequest e) {
+				return null;
+			}
+
+			String[] matches = match(action, uri);
+			if (matches == null) {
+				return null;
+			}
+
+			Map<String, String> arguments = new HashMap<>();
+			List<PathElement> signature = getMethod().getSignature();
+			for (int i = 0; i < matches.length; ++i) {
+				if (signature.get(i).getType() != Type.PATH) {
+					arguments.put(signature.get(i).getName(), matches[i]);
+				}
+			}
+			return arguments;
+		}
+
+		private void appendParameter(StringBuilder builder, Map.Entry<String, String> param) {
+			builder.append(UrlEncoded.encodeString(param.getKey()));
+			if (param.getValue() != null) {
+				builder.append('=').append(UrlEncoded.encodeString(param.getValue()));
+			}
+		}
+
+		private String[] put(String[] matches, int size, int index, String value) {
+			if (matches == null) {
+				matches = new String[size];
+			}
+			matches[index] = value;
 			return matches;
 		}
 
@@ -406,4 +858,159 @@ public String toString() {
             return method.toString();
         }
     }
+
+	private static class ReleaseListener implements AsyncListener {
+		private final Bulkhead bulkhead;
+
+		ReleaseListener(Bulkhead bulkhead) {
+			this.bulkhead = bulkhead;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			bulkhead.release();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+	}
+
+	private static class Recorder implements AsyncListener {
+		private final Instrumentation instrumentation;
+		private final Request request;
+		private final RestRequest restRequest;
+		private final long start;
+
+		Recorder(Instrumentation instrumentation, Request request, RestRequest restRequest, long start) {
+			this.instrumentation = instrumentation;
+			this.request = request;
+			this.restRequest = restRequest;
+			this.start = start;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			record(instrumentation, request, restRequest, start);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+	}
+
+	/**
+	 * A request which waits for a permit of its bulkhead. The request is suspended while it waits and is handled on
+	 * the server thread pool when it is admitted.
+	 */
+	private class QueuedRequest implements Runnable, AsyncListener {
+		private final Bulkhead bulkhead;
+		private final String path;
+		private final Request request;
+		private final RestRequest restRequest;
+		private final RestResponse restResponse;
+		private final AsyncContext context;
+		private final AtomicBoolean admitted = new AtomicBoolean();
+		private final AtomicBoolean completed = new AtomicBoolean();
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		QueuedRequest(Bulkhead bulkhead, String path, Request request, RestRequest restRequest, RestResponse restResponse) {
+			this.bulkhead = bulkhead;
+			this.path = path;
+			this.request = request;
+			this.restRequest = restRequest;
+			this.restResponse = restResponse;
+
+			context = restRequest.startAsync(restRequest, restResponse);
+			if (queueTimeout > 0) {
+				context.setTimeout(queueTimeout);
+			}
+			context.addListener(this);
+			restRequest.setDispatchContext(context);
+		}
+
+		void reject() {
+			if (completed.compareAndSet(false, true)) {
+				RestRouter.this.reject(bulkhead, restResponse);
+				context.complete();
+			}
+		}
+
+		@Override
+		public void run() {
+			admitted.set(true);
+			if (completed.get()) {
+				//the request has timed out while the permit was handed over
+				release();
+				return;
+			}
+
+			Executor executor = getServer().getThreadPool();
+			try {
+				executor.execute(this::handle);
+			} catch (RuntimeException e) {
+				reject();
+			}
+		}
+
+		private void handle() {
+			try {
+				RestRouter.super.handle(path, request, restRequest, restResponse);
+			} catch (Exception e) {
+				if (!completed.get()) {
+					restResponse.sendError(RestException.of(e));
+				}
+			} finally {
+				if (!restRequest.isAsyncHandled() && completed.compareAndSet(false, true)) {
+					context.complete();
+				}
+			}
+		}
+
+		private void release() {
+			if (admitted.get() && released.compareAndSet(false, true)) {
+				bulkhead.release();
+			}
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			release();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			if (bulkhead.cancel(this)) {
+				bulkhead.reject();
+				reject();
+			} else if (!restRequest.isAsyncHandled() && completed.compareAndSet(false, true)) {
+				restResponse.sendError(new GatewayTimeOut("The request has timed out."));
+				context.complete();
+			}
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+	}
 }
@@ -1,22 +1,130 @@
 package info.orestes.rest.service;
 
+import info.orestes.rest.Blocking;
 import info.orestes.rest.RestServlet;
+import info.orestes.rest.RestServlet.AsyncTimeoutListener;
+import info.orestes.rest.error.GatewayTimeOut;
 import info.orestes.rest.error.RestException;
+import info.orestes.rest.error.ServiceUnavailable;
+import info.orestes.rest.service.RestRouter.Route;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class RestServletHandler extends RestHandler {
+
+	private final Set<RestMethod> blockingMethods = ConcurrentHashMap.newKeySet();
+	private volatile Executor executor;
 	
 	@Override
 	public void handle(RestRequest request, RestResponse response) throws ServletException, RestException, IOException {
-		RestServlet servlet = request.getRoute().getServlet();
-		
+		Route route = request.getRoute();
+		RestServlet servlet = route.getServlet();
+
+		Executor executor = this.executor;
+		if (executor != null && request.getDispatcherType() == DispatcherType.REQUEST && !request.isDispatched()
+				&& isBlocking(route)) {
+			dispatch(executor, servlet, request, response);
+		} else {
+			service(servlet, request, response);
+		}
+	}
+
+	private void service(RestServlet servlet, RestRequest request, RestResponse response) throws RestException, IOException {
 		try {
 			servlet.service(request, response);
 		} catch (RuntimeException e) {
 			servlet.doCatch(request, e);
 		}
 	}
-	
+
+	/**
+	 * Runs the handler on the executor within an async context, which is completed when the handler returns. Handlers
+	 * which start an async processing themselves take over the completion of the context.
+	 */
+	private void dispatch(Executor executor, RestServlet servlet, RestRequest request, RestResponse response) {
+		AsyncContext context = request.startAsync(request, response);
+		AtomicBoolean completed = new AtomicBoolean();
+
+		context.addListener((AsyncTimeoutListener) event -> {
+			if (!request.isAsyncHandled() && completed.compareAndSet(false, true)) {
+				response.sendError(new GatewayTimeOut("The request has timed out."));
+				context.complete();
+			}
+		});
+
+		request.setDispatchContext(context);
+
+		try {
+			executor.execute(() -> {
+				try {
+					service(servlet, request, response);
+				} catch (Exception e) {
+					if (!completed.get()) {
+						response.sendError(RestException.of(e));
+					}
+				} finally {
+					if (!request.isAsyncHandled() && completed.compareAndSet(false, true)) {
+						context.complete();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			if (completed.compareAndSet(false, true)) {
+				response.sendError(new ServiceUnavailable("The request can not be handled.", e));
+				context.complete();
+			}
+		}
+	}
+
+	/**
+	 * Returns the executor which runs the blocking handlers
+	 *
+	 * @return The executor or <code>null</code> if all handlers run on the Jetty pool thread
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets the executor which runs the handlers of {@link Blocking} servlets and blocking methods. The request is
+	 * processed asynchronously, so the Jetty pool thread is released while the handler runs. On a Java runtime with
+	 * virtual threads, a virtual thread per task executor is the natural choice.
+	 *
+	 * @param executor The executor or <code>null</code> to run all handlers on the Jetty pool thread
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Marks the handler of a single method as blocking, regardless of the {@link Blocking} annotation of its servlet
+	 *
+	 * @param method The method of the specification
+	 * @param blocking <code>true</code> to run the handler of the method on the executor
+	 */
+	public void setBlocking(RestMethod method, boolean blocking) {
+		if (blocking) {
+			blockingMethods.add(method);
+		} else {
+			blockingMethods.remove(method);
+		}
+	}
+
+	/**
+	 * Indicates if the handler of the route runs on the executor
+	 *
+	 * @param route The route of the request
+	 * @return <code>true</code> if the servlet is marked as {@link Blocking} or the method is marked as blocking
+	 */
+	public boolean isBlocking(Route route) {
+		return route.getCapabilities().isBlocking() || blockingMethods.contains(route.getMethod());
+	}
 }
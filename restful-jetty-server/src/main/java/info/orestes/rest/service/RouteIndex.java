@@ -0,0 +1,185 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.service.RestRouter.Route;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A prefix tree over the fixed path signatures of all routes of a {@link RestRouter}, bucketed by the HTTP action.
+ * <p>
+ * The index is built once when the router is started. A lookup walks the tree segment by segment and only collects
+ * the routes whose path structure can match the requested path, so its cost depends on the depth of the path rather
+ * than the number of registered routes. The collected routes are returned in the same order as the router's route
+ * tables, which keeps the precedence defined by {@link Route#compareTo(Route)}. The candidates are collected into a
+ * list which is reused by the lookups of the same thread, so a lookup doesn't allocate.
+ */
+public class RouteIndex {
+
+    private static final String ANY_ACTION = "OPTIONS";
+    private static final Comparator<Entry> RANK_COMPARATOR = Comparator.comparingInt(entry -> entry.rank);
+    private static final ThreadLocal<Candidates> CANDIDATES = ThreadLocal.withInitial(Candidates::new);
+
+    private final List<Map<String, Node>> tables;
+    private final Map<String, Node> dynamicTable;
+
+    /**
+     * Builds a new index for the given route tables
+     *
+     * @param routeLists    The sorted routes for each path length, the route list at index <code>i</code> contains all
+     *                      routes which can match a path with <code>i + 1</code> parts
+     * @param dynamicRoutes The sorted routes which can match a path longer than all route tables
+     * @return The index of the given route tables
+     */
+    public static RouteIndex build(List<? extends List<Route>> routeLists, List<Route> dynamicRoutes) {
+        List<Map<String, Node>> tables = new ArrayList<>(routeLists.size());
+        for (List<Route> routes : routeLists) {
+            tables.add(createTable(routes));
+        }
+
+        return new RouteIndex(tables, createTable(dynamicRoutes));
+    }
+
+    private static Map<String, Node> createTable(List<Route> routes) {
+        Map<String, Node> table = new HashMap<>();
+
+        int rank = 0;
+        for (Route route : routes) {
+            Entry entry = new Entry(rank++, route);
+            String action = route.getMethod().getAction();
+
+            table.computeIfAbsent(action, key -> new Node()).insert(entry);
+            if (!action.equals(ANY_ACTION)) {
+                table.computeIfAbsent(ANY_ACTION, key -> new Node()).insert(entry);
+            }
+        }
+
+        return table;
+    }
+
+    private RouteIndex(List<Map<String, Node>> tables, Map<String, Node> dynamicTable) {
+        this.tables = tables;
+        this.dynamicTable = dynamicTable;
+    }
+
+    /**
+     * Returns all routes which may match the requested action and path in the order of their precedence. The returned
+     * routes must still be checked by {@link Route#match(String, ParsedURI)}, since regex, matrix and query arguments
+     * are not covered by the index. The returned list is only valid until the next lookup of the calling thread.
+     *
+     * @param action The HTTP action of the request
+     * @param uri    The parsed request URI
+     * @return The candidate routes ordered by their precedence
+     */
+    public List<Route> lookup(String action, ParsedURI uri) {
+        int index = uri.getSegmentCount() - 1;
+        Map<String, Node> table = index < tables.size() ? tables.get(index) : dynamicTable;
+
+        Node root = table.get(action.equals("HEAD") ? "GET" : action);
+        if (root == null) {
+            return Collections.emptyList();
+        }
+
+        Candidates candidates = CANDIDATES.get();
+        candidates.entries.clear();
+        root.collect(uri, 0, candidates.entries);
+
+        //the entries of each node are in the order of their rank, only the entries of several nodes are merged
+        if (candidates.entries.size() > 1) {
+            candidates.entries.sort(RANK_COMPARATOR);
+        }
+        return candidates;
+    }
+
+    /**
+     * The routes of the collected entries
+     */
+    private static class Candidates extends AbstractList<Route> implements RandomAccess {
+        private final ArrayList<Entry> entries = new ArrayList<>();
+
+        @Override
+        public Route get(int index) {
+            return entries.get(index).route;
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+    }
+
+    private static class Entry {
+        private final int rank;
+        private final Route route;
+
+        private Entry(int rank, Route route) {
+            this.rank = rank;
+            this.route = route;
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node variable;
+        private List<Entry> wildcards;
+        private List<Entry> routes;
+
+        private void insert(Entry entry) {
+            Node node = this;
+            for (PathElement element : entry.route.getMethod().getFixedSignature()) {
+                switch (element.getType()) {
+                    case PATH:
+                        node = node.literals.computeIfAbsent(element.getName(), key -> new Node());
+                        break;
+                    case VARIABLE:
+                    case REGEX:
+                        if (node.variable == null) {
+                            node.variable = new Node();
+                        }
+                        node = node.variable;
+                        break;
+                    case WILDCARD:
+                        //a wildcard consumes all remaining parts and is always the last fixed element
+                        if (node.wildcards == null) {
+                            node.wildcards = new ArrayList<>();
+                        }
+                        node.wildcards.add(entry);
+                        return;
+                }
+            }
+
+            if (node.routes == null) {
+                node.routes = new ArrayList<>();
+            }
+            node.routes.add(entry);
+        }
+
+        private void collect(ParsedURI uri, int index, List<Entry> result) {
+            if (index == uri.getSegmentCount()) {
+                if (routes != null) {
+                    result.addAll(routes);
+                }
+                return;
+            }
+
+            if (wildcards != null) {
+                result.addAll(wildcards);
+            }
+
+            Node literal = literals.get(uri.getSegment(index));
+            if (literal != null) {
+                literal.collect(uri, index + 1, result);
+            }
+
+            if (variable != null) {
+                variable.collect(uri, index + 1, result);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.service.Instrumentation.Phase;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The recorded metrics of a single {@link RestMethod}
+ */
+public class RouteMetrics {
+
+    private static final int MAX_STATUS = 600;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+    private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS);
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    public RouteMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < phases.length; ++i) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    void recordPhase(Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    void recordRequest(int status, long bytesIn, long bytesOut, long nanos) {
+        latency.record(nanos);
+        if (status > 0 && status < MAX_STATUS) {
+            statusCounts.incrementAndGet(status);
+        }
+        this.bytesIn.add(bytesIn);
+        this.bytesOut.add(bytesOut);
+    }
+
+    /**
+     * The name of the method
+     *
+     * @return The method name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The latencies of the completed requests
+     *
+     * @return The histogram of the request latencies
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * The durations of a request phase
+     *
+     * @param phase The request phase
+     * @return The histogram of the phase durations
+     */
+    public LatencyHistogram getLatency(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * The number of completed requests
+     *
+     * @return The request count
+     */
+    public long getRequests() {
+        return latency.getCount();
+    }
+
+    /**
+     * The number of responses with the given status code
+     *
+     * @param status The status code
+     * @return The number of responses
+     */
+    public long getStatusCount(int status) {
+        return status > 0 && status < MAX_STATUS ? statusCounts.get(status) : 0;
+    }
+
+    /**
+     * The number of responses of all status codes which occurred
+     *
+     * @return The response counts ordered by the status code
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (int status = 0; status < MAX_STATUS; ++status) {
+            long count = statusCounts.get(status);
+            if (count != 0) {
+                counts.put(status, count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * The total size of the request contents
+     *
+     * @return The number of received bytes
+     */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * The total size of the responses
+     *
+     * @return The number of sent bytes
+     */
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+}
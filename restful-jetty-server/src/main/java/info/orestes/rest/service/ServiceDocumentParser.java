@@ -24,6 +24,8 @@ public static enum State {
 	private static final Pattern ENTITY_TYPE_PATTERN = Pattern
 		.compile("\\s*(\\w+)\\s*(\\[\\s*(\\w+\\s*(,\\s*\\w+\\s*)*)\\])?");
     private static final Pattern HEADER_PATTERN = Pattern.compile("([\\w_-]+):\\s*(\\S+)\\s+(.*)");
+    private static final Pattern LIMIT_PATTERN = Pattern.compile("%limit\\s+(\\d+)(\\s+(\\d+))?");
+    private static final Pattern CACHE_PATTERN = Pattern.compile("%cache\\s+(\\d+)");
 
 
     private final ServiceDocumentTypes types;
@@ -45,6 +47,8 @@ public static enum State {
     private EntityType<?> methodRequestType;
     private EntityType<?> methodResponseType;
     private Boolean methodForceSSL;
+    private ConcurrencyLimit currentLimit;
+    private Integer currentCacheTtl;
 
     public ServiceDocumentParser(ServiceDocumentTypes types) {
 		this(types, ServiceDocumentParser.class.getClassLoader());
@@ -133,6 +137,10 @@ public Spec parse(Reader reader) {
 	}
 	
 	private void parseLine(String line) throws IOException {
+		if (parseLimit(line) || parseCache(line)) {
+			return;
+		}
+
 		switch (state) {
 			case GROUP:
 				if (parseGroup(line)) {
@@ -221,12 +229,71 @@ private boolean parseName(String line) throws IOException {
 			currentResults = new TreeMap<>();
             currentRequestHeader = new HashMap<>();
             currentResponseHeader = new HashMap<>();
+			currentLimit = null;
+			currentCacheTtl = null;
 			return true;
 		} else {
 			return false;
 		}
 	}
 	
+	private boolean parseLimit(String line) throws IOException {
+		if (line.startsWith("%limit")) {
+			Matcher matcher = LIMIT_PATTERN.matcher(line);
+			if (!matcher.matches()) {
+				throw new IOException("Illegal limit definition " + line);
+			}
+
+			ConcurrencyLimit limit;
+			try {
+				int queued = matcher.group(3) == null ? 0 : Integer.parseInt(matcher.group(3));
+				limit = new ConcurrencyLimit(Integer.parseInt(matcher.group(1)), queued);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Illegal limit definition " + line, e);
+			}
+
+			if (state == State.NAME) {
+				//directly after the group definition
+				currentGroup.setConcurrencyLimit(limit);
+			} else if (state != State.GROUP) {
+				currentLimit = limit;
+			} else {
+				throw new IOException("No method group definition found.");
+			}
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private boolean parseCache(String line) throws IOException {
+		if (line.startsWith("%cache")) {
+			Matcher matcher = CACHE_PATTERN.matcher(line);
+			if (!matcher.matches()) {
+				throw new IOException("Illegal cache definition " + line);
+			}
+
+			int ttl;
+			try {
+				ttl = Integer.parseInt(matcher.group(1));
+			} catch (NumberFormatException e) {
+				throw new IOException("Illegal cache definition " + line, e);
+			}
+
+			if (state == State.NAME) {
+				//directly after the group definition
+				currentGroup.setCacheTtl(ttl);
+			} else if (state != State.GROUP) {
+				currentCacheTtl = ttl;
+			} else {
+				throw new IOException("No method group definition found.");
+			}
+			return true;
+		} else {
+			return false;
+		}
+	}
+
 	private boolean parseDescription(String line) {
 		currentLongDescription.add(line);
 		return true;
@@ -316,7 +383,9 @@ private void endMethod() throws IOException {
         RestMethod method = new RestMethod(
                 currentName, currentDescription, currentLongDescription.toArray(new String[currentLongDescription.size()]),
                 methodAction, methodPathElements, methodServletClass, currentRequestHeader, currentResponseHeader,
-                currentResults,methodRequestType, methodResponseType, methodForceSSL);
+                currentResults,methodRequestType, methodResponseType, methodForceSSL,
+                currentLimit != null ? currentLimit : currentGroup.getConcurrencyLimit(),
+                currentCacheTtl != null ? currentCacheTtl : currentGroup.getCacheTtl());
 
         currentGroup.add(method);
     }
@@ -0,0 +1,549 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.RestServlet;
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.util.Module;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * A compiled service document, which contains the parsed {@link Spec} and the sorted routing tables of its methods.
+ * <p>
+ * The snapshot is written at build time next to the service document and can be loaded at startup without parsing the
+ * document and without sorting the routes again, see {@link RestRouter#addAll(SpecSnapshot)}. A snapshot records a
+ * fingerprint of the document it was compiled from, so a stale snapshot is detected and the document is parsed
+ * instead.
+ */
+public class SpecSnapshot {
+
+    /**
+     * The file extension of a snapshot, which is appended to the name of the service document
+     */
+    public static final String EXTENSION = ".snapshot";
+
+    private static final int MAGIC = 0x4F52534E;
+    private static final int VERSION = 2;
+    private static final Logger LOG = Log.getLogger(SpecSnapshot.class);
+
+    private final Spec spec;
+    private final List<RestMethod> methods;
+    private final int[][] routeTables;
+    private final int[] dynamicRoutes;
+
+    private SpecSnapshot(Spec spec, List<RestMethod> methods, int[][] routeTables, int[] dynamicRoutes) {
+        this.spec = spec;
+        this.methods = Collections.unmodifiableList(methods);
+        this.routeTables = routeTables;
+        this.dynamicRoutes = dynamicRoutes;
+    }
+
+    /**
+     * Compiles the routing tables of a parsed spec
+     *
+     * @param spec The parsed spec
+     * @return The compiled snapshot of the spec
+     */
+    public static SpecSnapshot compile(Spec spec) {
+        List<RestMethod> methods = new ArrayList<>();
+        for (MethodGroup group : spec) {
+            methods.addAll(group);
+        }
+
+        //the tables are built in the same order as the router would add the methods one by one
+        List<ArrayList<Integer>> routeLists = new ArrayList<>();
+        List<Integer> dynamicRoutes = new ArrayList<>();
+        for (int i = 0; i < methods.size(); ++i) {
+            RestRouter.insert(routeLists, dynamicRoutes, i, methods::get);
+        }
+
+        int[][] routeTables = new int[routeLists.size()][];
+        for (int i = 0; i < routeTables.length; ++i) {
+            routeTables[i] = toArray(routeLists.get(i));
+        }
+
+        return new SpecSnapshot(spec, methods, routeTables, toArray(dynamicRoutes));
+    }
+
+    /**
+     * Loads the snapshot of a service document resource. If the snapshot resource does not exist, is stale or can't be
+     * loaded, the service document is parsed instead.
+     *
+     * @param fileName The resource name of the service document, the snapshot is expected at the same name with the
+     *                 {@link #EXTENSION}
+     * @param parser The parser which is used if the snapshot can't be used, its class loader loads the snapshot classes
+     * @return The loaded or compiled snapshot
+     * @throws IOException if the service document can't be read
+     */
+    public static SpecSnapshot load(String fileName, ServiceDocumentParser parser) throws IOException {
+        byte[] document;
+        try (InputStream in = parser.getClass().getResourceAsStream(fileName)) {
+            if (in == null) {
+                throw new IOException("The service document " + fileName + " was not found");
+            }
+            document = readAll(in);
+        }
+
+        try (InputStream in = parser.getClass().getResourceAsStream(fileName + EXTENSION)) {
+            if (in != null) {
+                SpecSnapshot snapshot = read(in, document, parser.getClassLoader());
+                if (snapshot != null) {
+                    return snapshot;
+                }
+                LOG.info("The snapshot {} is stale, the service document is parsed instead. Rebuild the snapshot to "
+                    + "update it.", fileName + EXTENSION);
+            }
+        } catch (IOException | RuntimeException e) {
+            //a broken snapshot is handled like a stale one, e.g. a corrupt table or a renamed class
+            LOG.warn("The snapshot " + fileName + EXTENSION + " can't be loaded, the service document is parsed "
+                + "instead. Rebuild the snapshot to update it.", e);
+        }
+
+        return compile(parser.parse(new ByteArrayInputStream(document)));
+    }
+
+    /**
+     * Reads a snapshot
+     *
+     * @param in The stream of the snapshot
+     * @param document The service document the snapshot is expected to be compiled from
+     * @param classLoader The class loader of the servlet and entity classes
+     * @return The snapshot or <code>null</code> if the snapshot was compiled from another document or version
+     * @throws IOException if the snapshot can't be read or a class of it can't be loaded
+     */
+    public static SpecSnapshot read(InputStream in, byte[] document, ClassLoader classLoader) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION || data.readLong() != fingerprint(document)) {
+            return null;
+        }
+
+        return new Reader(data, classLoader).read();
+    }
+
+    /**
+     * Writes this snapshot
+     *
+     * @param out The stream the snapshot is written to
+     * @param document The service document this snapshot was compiled from
+     * @throws IOException if the snapshot can't be written
+     */
+    public void write(OutputStream out, byte[] document) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(fingerprint(document));
+
+        //shared limits are written once, since the router creates one bulkhead per limit instance
+        Map<ConcurrencyLimit, Integer> limits = new IdentityHashMap<>();
+        for (MethodGroup group : spec) {
+            addLimit(limits, group.getConcurrencyLimit());
+            for (RestMethod method : group) {
+                addLimit(limits, method.getConcurrencyLimit());
+            }
+        }
+
+        ConcurrencyLimit[] limitTable = new ConcurrencyLimit[limits.size()];
+        limits.forEach((limit, index) -> limitTable[index] = limit);
+        data.writeInt(limitTable.length);
+        for (ConcurrencyLimit limit : limitTable) {
+            data.writeInt(limit.getMaxConcurrent());
+            data.writeInt(limit.getMaxQueued());
+            data.writeInt(limit.getRetryAfter());
+        }
+
+        data.writeInt(spec.size());
+        for (MethodGroup group : spec) {
+            writeString(data, group.getName());
+            writeString(data, group.getDescription());
+            writeLimit(data, limits, group.getConcurrencyLimit());
+            data.writeInt(group.getCacheTtl());
+
+            data.writeInt(group.size());
+            for (RestMethod method : group) {
+                writeMethod(data, limits, method);
+            }
+        }
+
+        data.writeInt(routeTables.length);
+        for (int[] table : routeTables) {
+            writeInts(data, table);
+        }
+        writeInts(data, dynamicRoutes);
+
+        data.flush();
+    }
+
+    /**
+     * The parsed spec
+     *
+     * @return The spec of this snapshot
+     */
+    public Spec getSpec() {
+        return spec;
+    }
+
+    /**
+     * All methods of the spec in the order of the document
+     *
+     * @return The methods of all groups
+     */
+    public List<RestMethod> getMethods() {
+        return methods;
+    }
+
+    /**
+     * The sorted routing tables indexed by the number of fixed path parts
+     *
+     * @return The indices of the {@link #getMethods() methods} for each table
+     */
+    int[][] getRouteTables() {
+        return routeTables;
+    }
+
+    /**
+     * The sorted routes which match paths of any larger size
+     *
+     * @return The indices of the {@link #getMethods() methods} with a dynamic path
+     */
+    int[] getDynamicRoutes() {
+        return dynamicRoutes;
+    }
+
+    /**
+     * Compiles a service document to a snapshot, the entity types are resolved by a default {@link ConverterService}
+     *
+     * @param args The path of the service document and the path of the snapshot file
+     * @throws IOException if the document can't be read or the snapshot can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: SpecSnapshot <service document> [<snapshot file>]");
+            System.exit(1);
+        }
+
+        Module module = new Module();
+        module.bind(ConverterService.class, ConverterService.class);
+        ConverterService converterService = module.moduleInstance(ConverterService.class);
+
+        byte[] document = Files.readAllBytes(Paths.get(args[0]));
+        Spec spec = new ServiceDocumentParser(converterService.createServiceDocumentTypes())
+            .parse(new ByteArrayInputStream(document));
+
+        String snapshotFile = args.length > 1 ? args[1] : args[0] + EXTENSION;
+        try (OutputStream out = Files.newOutputStream(Paths.get(snapshotFile))) {
+            compile(spec).write(out, document);
+        }
+    }
+
+    private static long fingerprint(byte[] document) {
+        CRC32 crc = new CRC32();
+        crc.update(document);
+        return ((long) document.length << 32) | crc.getValue();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static void addLimit(Map<ConcurrencyLimit, Integer> limits, ConcurrencyLimit limit) {
+        if (limit != null && !limits.containsKey(limit)) {
+            limits.put(limit, limits.size());
+        }
+    }
+
+    private static void writeMethod(DataOutputStream data, Map<ConcurrencyLimit, Integer> limits, RestMethod method)
+        throws IOException {
+        writeString(data, method.getName());
+        writeString(data, method.getDescription());
+
+        String[] longDescription = method.getLongDescription();
+        data.writeInt(longDescription.length);
+        for (String line : longDescription) {
+            writeString(data, line);
+        }
+
+        writeString(data, method.getAction());
+        data.writeBoolean(method.isForceSSL());
+        writeString(data, method.getTarget().getName());
+
+        data.writeInt(method.getSignature().size());
+        for (PathElement element : method.getSignature()) {
+            data.writeByte(element.getType().ordinal());
+            writeString(data, element.getName());
+            writeString(data, element.getDescription());
+            writeClass(data, element.getValueType());
+            data.writeBoolean(element.isOptional());
+            writeString(data, element.getDefaultValue());
+            writeString(data, element.getRegex() == null ? null : element.getRegex().pattern());
+        }
+
+        writeHeaders(data, method.getRequestHeader());
+        writeHeaders(data, method.getResponseHeader());
+
+        data.writeInt(method.getExpectedResults().size());
+        for (Map.Entry<Integer, String> result : method.getExpectedResults().entrySet()) {
+            data.writeInt(result.getKey());
+            writeString(data, result.getValue());
+        }
+
+        writeEntityType(data, method.getRequestType());
+        writeEntityType(data, method.getResponseType());
+        writeLimit(data, limits, method.getConcurrencyLimit());
+        data.writeInt(method.getCacheTtl());
+    }
+
+    private static void writeHeaders(DataOutputStream data, Map<String, HeaderElement> headers) throws IOException {
+        data.writeInt(headers.size());
+        for (HeaderElement header : headers.values()) {
+            writeString(data, header.getName());
+            writeString(data, header.getDescription());
+            writeClass(data, header.getType());
+        }
+    }
+
+    private static void writeEntityType(DataOutputStream data, EntityType<?> type) throws IOException {
+        data.writeBoolean(type != null);
+        if (type != null) {
+            writeClass(data, type.getRawType());
+            data.writeInt(type.getActualTypeArguments().length);
+            for (Class<?> argument : type.getActualTypeArguments()) {
+                writeClass(data, argument);
+            }
+        }
+    }
+
+    private static void writeLimit(DataOutputStream data, Map<ConcurrencyLimit, Integer> limits,
+        ConcurrencyLimit limit) throws IOException {
+        data.writeInt(limit == null ? -1 : limits.get(limit));
+    }
+
+    private static void writeClass(DataOutputStream data, Class<?> type) throws IOException {
+        writeString(data, type == null ? null : type.getName());
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    private static void writeInts(DataOutputStream data, int[] values) throws IOException {
+        data.writeInt(values.length);
+        for (int value : values) {
+            data.writeInt(value);
+        }
+    }
+
+    private static class Reader {
+        private final DataInputStream data;
+        private final ClassLoader classLoader;
+        private final Map<String, Class<?>> classes = new HashMap<>();
+        private ConcurrencyLimit[] limits;
+
+        Reader(DataInputStream data, ClassLoader classLoader) {
+            this.data = data;
+            this.classLoader = classLoader;
+        }
+
+        SpecSnapshot read() throws IOException {
+            limits = new ConcurrencyLimit[data.readInt()];
+            for (int i = 0; i < limits.length; ++i) {
+                limits[i] = new ConcurrencyLimit(data.readInt(), data.readInt(), data.readInt());
+            }
+
+            Spec spec = new Spec();
+            List<RestMethod> methods = new ArrayList<>();
+            int groups = data.readInt();
+            for (int i = 0; i < groups; ++i) {
+                MethodGroup group = new MethodGroup(readString(), readString());
+                group.setConcurrencyLimit(readLimit());
+                group.setCacheTtl(data.readInt());
+
+                int size = data.readInt();
+                for (int j = 0; j < size; ++j) {
+                    RestMethod method = readMethod();
+                    group.add(method);
+                    methods.add(method);
+                }
+                spec.add(group);
+            }
+
+            int[][] routeTables = new int[data.readInt()][];
+            for (int i = 0; i < routeTables.length; ++i) {
+                routeTables[i] = readInts(methods.size());
+            }
+
+            return new SpecSnapshot(spec, methods, routeTables, readInts(methods.size()));
+        }
+
+        private RestMethod readMethod() throws IOException {
+            String name = readString();
+            String description = readString();
+
+            String[] longDescription = new String[data.readInt()];
+            for (int i = 0; i < longDescription.length; ++i) {
+                longDescription[i] = readString();
+            }
+
+            String action = readString();
+            boolean forceSSL = data.readBoolean();
+
+            Class<? extends RestServlet> target;
+            try {
+                target = readClass().asSubclass(RestServlet.class);
+            } catch (ClassCastException e) {
+                throw new IOException("The target class of " + name + " is not a RestServlet class", e);
+            }
+
+            int size = data.readInt();
+            List<PathElement> signature = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                signature.add(readPathElement());
+            }
+
+            Map<String, HeaderElement> requestHeader = readHeaders();
+            Map<String, HeaderElement> responseHeader = readHeaders();
+
+            Map<Integer, String> expectedResults = new TreeMap<>();
+            size = data.readInt();
+            for (int i = 0; i < size; ++i) {
+                expectedResults.put(data.readInt(), readString());
+            }
+
+            EntityType<?> requestType = readEntityType();
+            EntityType<?> responseType = readEntityType();
+
+            return new RestMethod(name, description, longDescription, action, signature, target, requestHeader,
+                responseHeader, expectedResults, requestType, responseType, forceSSL, readLimit(), data.readInt());
+        }
+
+        private PathElement readPathElement() throws IOException {
+            PathElement.Type[] types = PathElement.Type.values();
+            int ordinal = data.readUnsignedByte();
+            if (ordinal >= types.length) {
+                throw new IOException("Invalid path element type " + ordinal);
+            }
+
+            String name = readString();
+            String description = readString();
+            Class<?> valueType = readClass();
+            boolean optional = data.readBoolean();
+            String defaultValue = readString();
+            String regex = readString();
+
+            switch (types[ordinal]) {
+                case PATH:
+                    return PathElement.createPath(name);
+                case REGEX:
+                    return PathElement.createRegex(name, description, valueType, Pattern.compile(regex));
+                case VARIABLE:
+                    return PathElement.createVariable(name, description, valueType);
+                case WILDCARD:
+                    return PathElement.createWildcard(name, description);
+                case MATRIX:
+                    return PathElement.createMatrix(name, description, optional, valueType, defaultValue);
+                default:
+                    return PathElement.createQuery(name, description, optional, valueType, defaultValue);
+            }
+        }
+
+        private Map<String, HeaderElement> readHeaders() throws IOException {
+            Map<String, HeaderElement> headers = new HashMap<>();
+            int size = data.readInt();
+            for (int i = 0; i < size; ++i) {
+                HeaderElement header = new HeaderElement(readString(), readString(), readClass());
+                headers.put(header.getName(), header);
+            }
+            return headers;
+        }
+
+        private EntityType<?> readEntityType() throws IOException {
+            if (!data.readBoolean()) {
+                return null;
+            }
+
+            Class<?> rawType = readClass();
+            Class<?>[] arguments = new Class<?>[data.readInt()];
+            for (int i = 0; i < arguments.length; ++i) {
+                arguments[i] = readClass();
+            }
+            return new EntityType<>(rawType, arguments);
+        }
+
+        private ConcurrencyLimit readLimit() throws IOException {
+            int index = data.readInt();
+            if (index < -1 || index >= limits.length) {
+                throw new IOException("Invalid concurrency limit " + index);
+            }
+            return index == -1 ? null : limits[index];
+        }
+
+        private Class<?> readClass() throws IOException {
+            String name = readString();
+            if (name == null) {
+                return null;
+            }
+
+            Class<?> type = classes.get(name);
+            if (type == null) {
+                try {
+                    type = Class.forName(name, false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("The class " + name + " was not found", e);
+                }
+                classes.put(name, type);
+            }
+            return type;
+        }
+
+        private String readString() throws IOException {
+            return data.readBoolean() ? data.readUTF() : null;
+        }
+
+        private int[] readInts(int bound) throws IOException {
+            int[] values = new int[data.readInt()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = data.readInt();
+                if (values[i] < 0 || values[i] >= bound) {
+                    throw new IOException("Invalid route index " + values[i]);
+                }
+            }
+            return values;
+        }
+    }
+}
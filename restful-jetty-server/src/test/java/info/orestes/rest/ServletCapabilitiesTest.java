@@ -0,0 +1,41 @@
+package info.orestes.rest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ServletCapabilitiesTest {
+
+    @Test
+    public void testPublicHandlers() {
+        ServletCapabilities capabilities = ServletCapabilities.of(Testing1.class);
+
+        assertTrue(capabilities.isDeclared("GET"));
+        assertTrue(capabilities.isDeclared("delete"));
+        // protected handlers are not exposed
+        assertFalse(capabilities.isDeclared("POST"));
+        assertFalse(capabilities.isDeclared("PUT"));
+        assertFalse(capabilities.isDeclared("PATCH"));
+        // implemented by the RestServlet itself
+        assertTrue(capabilities.isDeclared("HEAD"));
+        assertTrue(capabilities.isDeclared("OPTIONS"));
+
+        assertEquals("OPTIONS, GET, HEAD, DELETE", capabilities.getAllow());
+        assertEquals(ServletCapabilities.GET | ServletCapabilities.HEAD | ServletCapabilities.DELETE
+            | ServletCapabilities.OPTIONS, capabilities.getMethods());
+    }
+
+    @Test
+    public void testAllow() {
+        assertEquals("OPTIONS, GET, HEAD", ServletCapabilities.of(Testing2.class).getAllow());
+        assertEquals("OPTIONS, GET, HEAD, POST, PUT", ServletCapabilities.of(Testing3.class).getAllow());
+    }
+
+    @Test
+    public void testCached() {
+        assertSame(ServletCapabilities.of(Testing3.class), ServletCapabilities.of(Testing3.class));
+        assertSame(ServletCapabilities.of(Testing3.class), new Testing3().getCapabilities());
+        assertTrue(RestServlet.isDeclared(Testing3.class, "PUT"));
+        assertFalse(RestServlet.isDeclared(Testing2.class, "PUT"));
+    }
+}
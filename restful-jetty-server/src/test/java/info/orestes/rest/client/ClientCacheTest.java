@@ -0,0 +1,206 @@
+package info.orestes.rest.client;
+
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.util.Module;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ClientCacheTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private Server server;
+    private RestClient client;
+    private ClientCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new Server(0);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                    HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                int call = calls.incrementAndGet();
+                if (!request.getMethod().equals("GET")) {
+                    response.setStatus(204);
+                    return;
+                }
+
+                switch (target) {
+                    case "/fresh":
+                        response.setHeader("Cache-Control", "max-age=60");
+                        break;
+                    case "/validated":
+                        response.setHeader("Cache-Control", "no-cache");
+                        response.setHeader("ETag", ETAG);
+                        if (ETAG.equals(request.getHeader("If-None-Match"))) {
+                            response.setStatus(304);
+                            return;
+                        }
+                        break;
+                    case "/uncached":
+                        response.setHeader("Cache-Control", "no-store");
+                        break;
+                    case "/public":
+                        response.setHeader("Cache-Control", "public, max-age=60");
+                        break;
+                    case "/fresh-validated":
+                        response.setHeader("Cache-Control", "max-age=60");
+                        response.setHeader("ETag", ETAG);
+                        if (ETAG.equals(request.getHeader("If-None-Match"))) {
+                            response.setStatus(304);
+                            return;
+                        }
+                        break;
+                    case "/vary":
+                        response.setHeader("Cache-Control", "max-age=60");
+                        response.setHeader("Vary", "X-Language");
+                        target += request.getHeader("X-Language");
+                        break;
+                }
+
+                response.setContentType("text/plain");
+                response.getWriter().print(target + call);
+            }
+        });
+        server.start();
+
+        Module module = new Module();
+        module.bind(ConverterService.class, ConverterService.class);
+        int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+        client = new RestClient("http://localhost:" + port, module.moduleInstance(ConverterService.class));
+        cache = new ClientCache(2);
+        client.setCache(cache);
+        client.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testFreshHit() throws Exception {
+        EntityResponse<String> first = get("/fresh");
+        EntityResponse<String> second = get("/fresh");
+
+        assertEquals("/fresh1", first.getEntity());
+        assertSame(first.getEntity(), second.getEntity());
+        assertEquals(200, second.getStatus());
+        assertEquals("max-age=60", second.getHeaders().get("Cache-Control"));
+
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio(), 0);
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        EntityResponse<String> first = get("/validated");
+        EntityResponse<String> second = get("/validated");
+
+        assertEquals("/validated1", first.getEntity());
+        assertSame(first.getEntity(), second.getEntity());
+        assertEquals(200, second.getStatus());
+        assertEquals(ETAG, second.getHeaders().get("ETag"));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getRevalidations());
+    }
+
+    @Test
+    public void testNoStore() throws Exception {
+        assertEquals("/uncached1", get("/uncached").getEntity());
+        assertEquals("/uncached2", get("/uncached").getEntity());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        assertEquals("/fresh1", get("/fresh").getEntity());
+        RestRequest post = client.newRequest("/fresh");
+        post.method("POST");
+        assertEquals(204, post.send(Void.class).get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(0, cache.size());
+        assertEquals("/fresh3", get("/fresh").getEntity());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        get("/fresh");
+        get("/validated");
+        get("/fresh");
+        get("/fresh?page=2");
+
+        //the least recently used entry is evicted
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        get("/fresh");
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testAuthorization() throws Exception {
+        //a private response is neither stored nor taken from the cache
+        get("/fresh");
+        assertEquals("/fresh2", get("/fresh", "Authorization", "Basic dXNlcjE=").getEntity());
+        assertEquals("/fresh3", get("/fresh", "Authorization", "Basic dXNlcjI=").getEntity());
+        assertEquals("/fresh1", get("/fresh").getEntity());
+
+        assertEquals("/public4", get("/public", "Authorization", "Basic dXNlcjE=").getEntity());
+        assertEquals("/public4", get("/public", "Authorization", "Basic dXNlcjI=").getEntity());
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void testVary() throws Exception {
+        assertEquals("/varyen1", get("/vary", "X-Language", "en").getEntity());
+        assertEquals("/varyde2", get("/vary", "X-Language", "de").getEntity());
+        assertEquals("/varyen1", get("/vary", "X-Language", "en").getEntity());
+        assertEquals("/varyde2", get("/vary", "X-Language", "de").getEntity());
+        assertEquals(2, calls.get());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testRequestNoCache() throws Exception {
+        get("/fresh-validated");
+        assertEquals("/fresh-validated1", get("/fresh-validated", "Cache-Control", "no-cache").getEntity());
+        assertEquals("/fresh-validated1", get("/fresh-validated", "Cache-Control", "max-age=0").getEntity());
+        assertEquals(3, calls.get());
+        assertEquals(2, cache.getRevalidations());
+
+        //an entity without validators is loaded again
+        get("/fresh");
+        assertEquals("/fresh5", get("/fresh", "Cache-Control", "no-cache").getEntity());
+        assertEquals(0, cache.getHits());
+    }
+
+    private EntityResponse<String> get(String path) throws Exception {
+        return client.newRequest(path).send(String.class).get(5, TimeUnit.SECONDS);
+    }
+
+    private EntityResponse<String> get(String path, String header, String value) throws Exception {
+        RestRequest request = client.newRequest(path);
+        request.header(header, value);
+        return request.send(String.class).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,222 @@
+package info.orestes.rest.client;
+
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.service.EntityType;
+import info.orestes.rest.service.StreamResponseTest.LineConverter;
+import info.orestes.rest.service.StreamResponseTest.LinesFormat;
+import info.orestes.rest.util.Module;
+import org.apache.tika.mime.MediaType;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.Callback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class EntityStreamContentTest {
+
+    private static final MediaType LINES = MediaType.parse("text/x-lines");
+    private static final int ENTITIES = 2000;
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private volatile CompletableFuture<Upload> upload = new CompletableFuture<>();
+    private Server server;
+    private RestClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new Server(0);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                    HttpServletResponse response) {
+                baseRequest.setHandled(true);
+                Upload received = new Upload(request.getHeader("Content-Length"),
+                    request.getHeader("Transfer-Encoding"));
+                try {
+                    InputStream in = request.getInputStream();
+                    received.body.write(in.read());
+                    started.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+
+                    byte[] buffer = new byte[8192];
+                    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                        received.body.write(buffer, 0, read);
+                    }
+                    upload.complete(received);
+                } catch (IOException | InterruptedException e) {
+                    upload.completeExceptionally(e);
+                }
+                response.setStatus(204);
+            }
+        });
+        server.start();
+
+        Module module = new Module();
+        module.bind(ConverterService.class, ConverterService.class);
+        ConverterService converterService = module.moduleInstance(ConverterService.class);
+        converterService.addFormat(new LinesFormat(), false);
+        converterService.add(new LineConverter());
+
+        int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+        client = new RestClient("http://localhost:" + port, converterService);
+        client.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testChunks() {
+        EntityStreamContent<String> content = content(entities(ENTITIES));
+        client.newRequest("/").content(content);
+
+        int chunks = 0;
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (Iterator<ByteBuffer> iterator = content.iterator(); iterator.hasNext(); ++chunks) {
+            ByteBuffer chunk = iterator.next();
+            //a chunk is flushed once it exceeds the buffer size
+            assertTrue(chunk.remaining() < 4096 + 16);
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            body.write(bytes, 0, bytes.length);
+            ((Callback) iterator).succeeded();
+        }
+
+        assertTrue(chunks > 1);
+        assertEquals(expected(ENTITIES), body.toString(StandardCharsets.UTF_8));
+        assertEquals(-1, content.getLength());
+    }
+
+    @Test
+    public void testChunked() throws Exception {
+        assertEquals(204, send(content(entities(ENTITIES))).get(5, TimeUnit.SECONDS).getStatus());
+
+        Upload received = upload.get(5, TimeUnit.SECONDS);
+        assertNull(received.contentLength);
+        assertEquals("chunked", received.transferEncoding);
+        assertEquals(expected(ENTITIES), received.body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testBackPressure() throws Exception {
+        release = new CountDownLatch(1);
+        int entities = 64 * 1024;
+        String payload = String.join("", Collections.nCopies(1024, "x"));
+        AtomicInteger converted = new AtomicInteger();
+        Stream<String> stream = IntStream.range(0, entities).mapToObj(i -> payload)
+            .peek(entity -> converted.incrementAndGet());
+
+        CompletableFuture<EntityResponse<Void>> response = send(content(stream));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        //the entities are only converted as far as the network accepts the chunks
+        int previous;
+        do {
+            previous = converted.get();
+            Thread.sleep(200);
+        } while (previous != converted.get());
+        assertTrue(converted.get() < entities / 2);
+
+        release.countDown();
+        assertEquals(204, response.get(10, TimeUnit.SECONDS).getStatus());
+        assertEquals(entities, converted.get());
+        assertEquals(entities * (payload.length() + 1) + 2, upload.get(5, TimeUnit.SECONDS).body.size());
+    }
+
+    @Test
+    public void testError() throws Exception {
+        Stream<String> stream = IntStream.range(0, ENTITIES).mapToObj(i -> {
+            if (i == ENTITIES / 2) {
+                throw new IllegalStateException("The source has failed.");
+            }
+            return "entity-" + i;
+        });
+
+        try {
+            send(content(stream)).get(5, TimeUnit.SECONDS);
+            fail("The request must fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        //the server doesn't mistake the partial body for a complete one
+        try {
+            upload.get(5, TimeUnit.SECONDS);
+            fail("The upload must fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testContentLength() throws Exception {
+        EntityStreamContent<String> content = content(entities(ENTITIES));
+        content.setContentLengthRequired(true);
+        assertEquals(204, send(content).get(5, TimeUnit.SECONDS).getStatus());
+
+        Upload received = upload.get(5, TimeUnit.SECONDS);
+        String expected = expected(ENTITIES);
+        assertEquals(String.valueOf(expected.length()), received.contentLength);
+        assertNull(received.transferEncoding);
+        assertEquals(expected, received.body.toString(StandardCharsets.UTF_8));
+        assertEquals(expected.length(), content.getLength());
+    }
+
+    private CompletableFuture<EntityResponse<Void>> send(EntityStreamContent<String> content) {
+        RestRequest request = client.newRequest("/");
+        request.method("POST");
+        request.content(content);
+        return request.send(Void.class);
+    }
+
+    private EntityStreamContent<String> content(Stream<String> entities) {
+        return new EntityStreamContent<>(new EntityType<>(String.class), entities, LINES);
+    }
+
+    private Stream<String> entities(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "entity-" + i);
+    }
+
+    private String expected(int count) {
+        return entities(count).collect(Collectors.joining("\n", "[", "\n]"));
+    }
+
+    private static class Upload {
+        final String contentLength;
+        final String transferEncoding;
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        Upload(String contentLength, String transferEncoding) {
+            this.contentLength = contentLength;
+            this.transferEncoding = transferEncoding;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package info.orestes.rest.client;
+
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.util.Module;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class Http2ClientTest {
+
+    private static final int REQUESTS = 16;
+    private static final int CLIENT_STREAMS = 4;
+
+    private Server server;
+    private ConverterService converterService;
+    private String baseURI;
+    private CountDownLatch arrived;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new Server();
+        HttpConfiguration config = new HttpConfiguration();
+        HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(config);
+        h2c.setMaxConcurrentStreams(REQUESTS);
+        ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(config), h2c);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                    HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                if (target.equals("/concurrent")) {
+                    //answers once all requests are in flight at the same time
+                    arrived.countDown();
+                    try {
+                        arrived.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else if (target.equals("/tracked")) {
+                    //records the concurrency which the server sees
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                }
+
+                response.setContentType("text/plain");
+                response.getWriter().print(request.getProtocol());
+            }
+        });
+        server.start();
+
+        Module module = new Module();
+        module.bind(ConverterService.class, ConverterService.class);
+        converterService = module.moduleInstance(ConverterService.class);
+        baseURI = "http://localhost:" + connector.getLocalPort();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testHttp2() throws Exception {
+        RestClient client = new RestClient(baseURI, converterService, true);
+        client.start();
+        try {
+            EntityResponse<String> response = client.newRequest("/").send(String.class).get(5, TimeUnit.SECONDS);
+            assertEquals(HttpVersion.HTTP_2, response.getVersion());
+            assertEquals("HTTP/2.0", response.getEntity());
+        } finally {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void testHttp1() throws Exception {
+        RestClient client = new RestClient(baseURI, converterService, false);
+        client.start();
+        try {
+            EntityResponse<String> response = client.newRequest("/").send(String.class).get(5, TimeUnit.SECONDS);
+            assertEquals(HttpVersion.HTTP_1_1, response.getVersion());
+            assertEquals("HTTP/1.1", response.getEntity());
+        } finally {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void testMultiplexing() throws Exception {
+        arrived = new CountDownLatch(REQUESTS);
+        RestClient client = new RestClient(baseURI, converterService, new SslContextFactory.Client(),
+            RestClient.newHttp2Transport(REQUESTS, RestClient.DEFAULT_SESSION_RECV_WINDOW, 64 * 1024));
+        client.setMaxConnectionsPerDestination(1);
+        client.start();
+        try {
+            List<CompletableFuture<EntityResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; ++i) {
+                responses.add(client.newRequest("/concurrent").send(String.class));
+            }
+
+            //all requests share the single connection
+            for (CompletableFuture<EntityResponse<String>> response : responses) {
+                assertEquals("HTTP/2.0", response.get(10, TimeUnit.SECONDS).getEntity());
+            }
+            assertEquals(0, arrived.getCount());
+        } finally {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void testClientStreamLimit() throws Exception {
+        //the server allows more streams than the client, the lower client limit must not be raised by the settings
+        RestClient client = new RestClient(baseURI, converterService, new SslContextFactory.Client(),
+            RestClient.newHttp2Transport(CLIENT_STREAMS, RestClient.DEFAULT_SESSION_RECV_WINDOW, 64 * 1024));
+        client.setMaxConnectionsPerDestination(1);
+        client.start();
+        try {
+            List<CompletableFuture<EntityResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; ++i) {
+                responses.add(client.newRequest("/tracked").send(String.class));
+            }
+
+            for (CompletableFuture<EntityResponse<String>> response : responses) {
+                assertEquals("HTTP/2.0", response.get(10, TimeUnit.SECONDS).getEntity());
+            }
+            assertEquals(CLIENT_STREAMS, maxActive.get());
+        } finally {
+            client.stop();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package info.orestes.rest.client;
+
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.error.RestException;
+import info.orestes.rest.service.BatchHandler;
+import info.orestes.rest.util.Module;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RequestBatcherTest {
+
+    private final Map<String, String> items = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private Server server;
+    private RestClient client;
+    private RequestBatcher batcher;
+
+    @Before
+    public void setUp() throws Exception {
+        items.put("/item/a", "A");
+        items.put("/item/b", "B");
+
+        BatchHandler batchHandler = new BatchHandler();
+        batchHandler.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                    HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                if (target.equals("/slow")) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                if (request.getMethod().equals("PUT")) {
+                    items.put(target, request.getReader().readLine());
+                    response.setStatus(204);
+                    return;
+                }
+
+                String item = items.get(target);
+                if (item == null) {
+                    response.sendError(404);
+                    return;
+                }
+
+                response.setContentType("text/plain");
+                response.getWriter().print(item);
+            }
+        });
+
+        //counts the requests which are received over the network
+        HandlerWrapper counter = new HandlerWrapper() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                    HttpServletResponse response) throws IOException, ServletException {
+                if (baseRequest.getHttpChannel().getConnector() instanceof ServerConnector) {
+                    connections.incrementAndGet();
+                }
+                super.handle(target, baseRequest, request, response);
+            }
+        };
+        counter.setHandler(batchHandler);
+
+        server = new Server(0);
+        server.setHandler(counter);
+        server.start();
+
+        Module module = new Module();
+        module.bind(ConverterService.class, ConverterService.class);
+        int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+        client = new RestClient("http://localhost:" + port, module.moduleInstance(ConverterService.class));
+        batcher = new RequestBatcher(RequestBatcher.DEFAULT_PATH, 100, TimeUnit.MILLISECONDS, 4);
+        client.setBatcher(batcher);
+        client.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        CompletableFuture<EntityResponse<String>> a = client.newRequest("/item/a").send(String.class);
+        CompletableFuture<EntityResponse<String>> b = client.newRequest("/item/b?v=1").send(String.class);
+        RestRequest request = client.newRequest("/item/c");
+        request.method(HttpMethod.PUT);
+        request.content(new EntityContent<>(String.class, "C"));
+        CompletableFuture<EntityResponse<Void>> put = request.send(Void.class);
+
+        assertEquals("A", a.get(5, TimeUnit.SECONDS).getEntity());
+        assertEquals(200, a.get().getStatus());
+        assertTrue(a.get().getHeaders().get("Content-Type").startsWith("text/plain"));
+        assertEquals("B", b.get(5, TimeUnit.SECONDS).getEntity());
+        assertEquals(204, put.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals("C", items.get("/item/c"));
+
+        assertEquals(1, connections.get());
+        assertEquals(1, batcher.getBatches());
+        assertEquals(3, batcher.getBatchedRequests());
+    }
+
+    @Test
+    public void testSingleRequest() throws Exception {
+        assertEquals("A", client.newRequest("/item/a").send(String.class).get(5, TimeUnit.SECONDS).getEntity());
+
+        assertEquals(1, connections.get());
+        assertEquals(0, batcher.getBatches());
+    }
+
+    @Test
+    public void testError() throws Exception {
+        CompletableFuture<EntityResponse<String>> a = client.newRequest("/item/a").send(String.class);
+        CompletableFuture<EntityResponse<String>> missing = client.newRequest("/item/x").send(String.class);
+
+        assertEquals("A", a.get(5, TimeUnit.SECONDS).getEntity());
+        try {
+            missing.get(5, TimeUnit.SECONDS);
+            fail("The missing item must fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RestException);
+            assertEquals(404, ((RestException) e.getCause()).getStatusCode());
+        }
+        assertEquals(1, batcher.getBatches());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        items.put("/slow", "S");
+        RestRequest slow = client.newRequest("/slow");
+        slow.timeout(200, TimeUnit.MILLISECONDS);
+        CompletableFuture<EntityResponse<String>> timedOut = slow.send(String.class);
+        CompletableFuture<EntityResponse<String>> a = client.newRequest("/item/a").send(String.class);
+
+        //the response of a is parsed while the slow request is still pending
+        assertEquals("A", a.get(5, TimeUnit.SECONDS).getEntity());
+        try {
+            timedOut.get(5, TimeUnit.SECONDS);
+            fail("The slow request must time out.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(1, batcher.getBatches());
+    }
+
+    @Test
+    public void testMaximumSize() throws Exception {
+        RequestBatcher full = new RequestBatcher(RequestBatcher.DEFAULT_PATH, 1, TimeUnit.MINUTES, 2);
+        client.setBatcher(full);
+
+        //a full batch doesn't wait for the window
+        CompletableFuture<EntityResponse<String>> a = client.newRequest("/item/a").send(String.class);
+        CompletableFuture<EntityResponse<String>> b = client.newRequest("/item/b").send(String.class);
+        assertEquals("A", a.get(5, TimeUnit.SECONDS).getEntity());
+        assertEquals("B", b.get(5, TimeUnit.SECONDS).getEntity());
+        assertEquals(1, full.getBatches());
+    }
+}
@@ -19,9 +19,14 @@
 import org.mockito.MockitoAnnotations;
 
 import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -54,6 +59,7 @@ public void setUp() throws IOException {
 		MockitoAnnotations.initMocks(this);
 
 		doReturn("text/*").when(request).getHeader("Accept");
+		doReturn(null).when(request).getHeader("If-None-Match");
 		doReturn(false).when(request).isAsyncStarted();
 
         response.setStatus(HttpStatus.OK_200);
@@ -390,13 +396,20 @@ private <I, O> O handle(RestMethod method, Map<String, Object> arguments, I requ
 
 		request.getWriter().close();
 
+		List<PathElement> signature = method.getSignature();
+		String[] matches = new String[signature.size()];
+		for (int i = 0; i < matches.length; ++i) {
+			matches[i] = (String) arguments.get(signature.get(i).getName());
+		}
+
 		Route route = mock(Route.class);
 		doReturn(method).when(route).getMethod();
-		doReturn(arguments).when(route).match(any(), any(), any(), any());
+		doReturn(ArgumentBinder.create(signature, converterService)).when(route).getBinders();
+		doReturn(matches).when(route).match(any(), any());
 
         RestRouter handler = new RestRouter(module) {
             @Override
-            protected List<Route> getRoutes(int parts) {
+            protected List<Route> findRoutes(String action, ParsedURI uri) {
                 return Collections.singletonList(route);
             }
 		};
@@ -486,6 +499,40 @@ public BufferedReader getReader() throws IOException {
 			return new BufferedReader(out);
 		}
 
+		@Override
+		public String getCharacterEncoding() {
+			return StandardCharsets.UTF_8.name();
+		}
+
+		@Override
+		public ServletInputStream getInputStream() throws IOException {
+			StringWriter content = new StringWriter();
+			getReader().transferTo(content);
+
+			ByteArrayInputStream bytes = new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8));
+			return new ServletInputStream() {
+				@Override
+				public int read() {
+					return bytes.read();
+				}
+
+				@Override
+				public boolean isFinished() {
+					return bytes.available() == 0;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setReadListener(ReadListener readListener) {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
 		private void init() {
 			if (out == null) {
 				try {
@@ -502,6 +549,7 @@ public abstract class TestResponse implements ReadableContext, HttpServletRespon
 		// do not init here will never called
 		private PipedReader out;
 		private PipedWriter in;
+		private ByteArrayOutputStream bytes;
 		private MediaType mediaType;
 		private String characterEncoding;
         private int status;
@@ -533,6 +581,16 @@ public void setHeader(String name, String value) {
 
         }
 
+        @Override
+        public boolean containsHeader(String name) {
+            return false;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+
+        }
+
         @Override
 		public String getContentType() {
         	if (mediaType == null) {
@@ -555,6 +613,11 @@ public void setContentType(String contentType) {
 		@Override
 		public PrintWriter getWriter() throws IOException {
 			init();
+
+			// pass the binary written content to the reader
+			in.write(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+			bytes.reset();
+
 			return new PrintWriter(in);
 		}
 
@@ -564,6 +627,28 @@ public BufferedReader getReader() throws IOException {
 			return new BufferedReader(out);
 		}
 
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			init();
+
+			return new ServletOutputStream() {
+				@Override
+				public void write(int b) {
+					bytes.write(b);
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
 		@Override
 		public boolean isCommitted() {
 			return false;
@@ -579,6 +664,7 @@ private void init() {
 				try {
 					out = new PipedReader(8096);
 					in = new PipedWriter(out);
+					bytes = new ByteArrayOutputStream();
 				} catch (IOException e) {
 					throw new RuntimeException(e);
 				}
@@ -0,0 +1,124 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+import info.orestes.rest.error.NotFound;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static info.orestes.rest.service.RouterFixture.await;
+import static info.orestes.rest.service.RouterFixture.header;
+import static info.orestes.rest.service.RouterFixture.status;
+import static org.junit.Assert.*;
+
+public class AdaptiveConcurrencyHandlerTest {
+
+    private static final long DELAY = 50;
+    private static volatile CompletableFuture<String> result;
+
+    private RouterFixture fixture;
+    private AdaptiveConcurrencyHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        result = new CompletableFuture<>();
+
+        String doc = "#test : Test\n" +
+            "##pending : Async item\n" +
+            "GET /pending info.orestes.rest.service.AdaptiveConcurrencyHandlerTest$PendingServlet : String\n" +
+            "200 ok\n" +
+            "##delayed : Delayed async item\n" +
+            "GET /delayed info.orestes.rest.service.AdaptiveConcurrencyHandlerTest$DelayedServlet : String\n" +
+            "200 ok\n";
+
+        fixture = new RouterFixture(doc);
+        handler = new AdaptiveConcurrencyHandler();
+        handler.setInitialLimit(2);
+        handler.setLimitBounds(1, 2);
+        handler.setWindowSize(4);
+        handler.setRetryAfter(3);
+        handler.setHandler(new RestServletHandler());
+        fixture.getRouter().setHandler(handler);
+        fixture.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        result.complete("done");
+        fixture.stop();
+    }
+
+    @Test
+    public void testAsyncRequestsHoldPermits() throws Exception {
+        AdaptiveLimit limit = handler.getLimit(fixture.getMethod("pending"));
+        List<CompletableFuture<String>> responses = fixture.getAsync("/pending", "", 2);
+        //the permits are held until the futures of the servlet complete
+        await(() -> limit.getInFlight() == 2);
+
+        String rejected = fixture.get("/pending");
+        assertEquals(503, status(rejected));
+        assertEquals("3", header(rejected, "Retry-After"));
+
+        result.complete("value");
+        for (CompletableFuture<String> response : responses) {
+            String body = response.get(10, TimeUnit.SECONDS);
+            assertEquals(200, status(body));
+            assertTrue(body.endsWith("value"));
+        }
+        await(() -> limit.getInFlight() == 0);
+        assertEquals(2, limit.getAdmitted());
+        assertEquals(1, limit.getRejected());
+
+        assertEquals(200, status(fixture.get("/pending")));
+    }
+
+    @Test
+    public void testAsyncLatency() throws Exception {
+        AdaptiveLimit limit = handler.getLimit(fixture.getMethod("delayed"));
+        for (int i = 0; i < 4; ++i) {
+            assertEquals(200, status(fixture.get("/delayed")));
+        }
+
+        //the samples include the time until the future has completed the response
+        await(() -> limit.getRtt() > 0);
+        assertTrue(limit.getRtt() >= TimeUnit.MILLISECONDS.toNanos(DELAY));
+        assertTrue(limit.getMinRtt() >= TimeUnit.MILLISECONDS.toNanos(DELAY));
+    }
+
+    @Test
+    public void testAsyncFailure() throws Exception {
+        AdaptiveLimit limit = handler.getLimit(fixture.getMethod("pending"));
+        List<CompletableFuture<String>> responses = fixture.getAsync("/pending", "", 2);
+        await(() -> limit.getInFlight() == 2);
+
+        result.completeExceptionally(new NotFound("The item was deleted."));
+        for (CompletableFuture<String> response : responses) {
+            assertEquals(404, status(response.get(10, TimeUnit.SECONDS)));
+        }
+
+        //failed futures release their permits as well
+        await(() -> limit.getInFlight() == 0);
+        assertEquals(0, limit.getRejected());
+    }
+
+    public static class PendingServlet extends RestServlet {
+        @Override
+        public CompletableFuture<Void> doGetAsync(Request request, Response response) {
+            return result.thenAccept(response::sendEntity);
+        }
+    }
+
+    public static class DelayedServlet extends RestServlet {
+        @Override
+        public CompletableFuture<Void> doGetAsync(Request request, Response response) {
+            return CompletableFuture.runAsync(() -> response.sendEntity("delayed"),
+                CompletableFuture.delayedExecutor(DELAY, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package info.orestes.rest.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveLimitTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testRejectAboveLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit("test", 2, 1, 10, 10, 1.0);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+        assertEquals(1, limit.getRejected());
+
+        limit.release(RTT);
+        assertEquals(1, limit.getInFlight());
+        assertTrue(limit.tryAcquire());
+        assertEquals(3, limit.getAdmitted());
+    }
+
+    @Test
+    public void testGrowWithStableLatency() {
+        AdaptiveLimit limit = new AdaptiveLimit("test", 10, 1, 100, 10, 1.0);
+
+        window(limit, RTT);
+        assertEquals(RTT, limit.getRtt());
+        assertEquals(13, limit.getLimit());
+
+        window(limit, RTT);
+        assertTrue(limit.getLimit() > 13);
+    }
+
+    @Test
+    public void testShrinkWithRisingLatency() {
+        AdaptiveLimit limit = new AdaptiveLimit("test", 40, 1, 100, 10, 1.0);
+
+        window(limit, RTT);
+        int stable = limit.getLimit();
+
+        for (int i = 0; i < 5; ++i) {
+            window(limit, 10 * RTT);
+        }
+        int shrunk = limit.getLimit();
+        assertTrue(shrunk < stable / 2);
+
+        //the limit grows again when the latency recovers
+        for (int i = 0; i < 3; ++i) {
+            window(limit, RTT);
+        }
+        assertEquals(RTT, limit.getRtt());
+        assertTrue(limit.getLimit() > shrunk);
+    }
+
+    @Test
+    public void testNoGrowthWhenUnused() {
+        AdaptiveLimit limit = new AdaptiveLimit("test", 10, 1, 100, 10, 1.0);
+
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(limit.tryAcquire());
+            limit.release(RTT);
+        }
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    public void testFailuresAreNotSampled() {
+        AdaptiveLimit limit = new AdaptiveLimit("test", 10, 1, 100, 10, 1.0);
+
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(limit.tryAcquire());
+        }
+        for (int i = 0; i < 10; ++i) {
+            limit.release(-1);
+        }
+        assertEquals(0, limit.getInFlight());
+        assertEquals(0, limit.getRtt());
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    public void testConcurrentWindows() throws Exception {
+        AdaptiveLimit limit = new AdaptiveLimit("test", 20, 1, 100, 10, 1.0);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; ++t) {
+            tasks.add(() -> {
+                for (int i = 0; i < 10000; ++i) {
+                    if (limit.tryAcquire()) {
+                        limit.release(RTT);
+                    }
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            for (Future<Void> task : executor.invokeAll(tasks)) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        //each window is averaged over exactly its own samples
+        assertEquals(RTT, limit.getRtt());
+        assertEquals(RTT, limit.getMinRtt());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    /**
+     * Runs a window of samples which all use the complete limit
+     */
+    private void window(AdaptiveLimit limit, long rtt) {
+        int concurrency = limit.getLimit();
+        int samples = 0;
+        while (samples < 10) {
+            int acquired = 0;
+            while (acquired < concurrency && limit.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; ++i) {
+                limit.release(rtt);
+            }
+            samples += acquired;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+import info.orestes.rest.error.NotFound;
+import info.orestes.rest.error.RestException;
+import info.orestes.rest.util.MultipartReader;
+import org.eclipse.jetty.server.ForwardedRequestCustomizer;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BatchHandlerTest {
+
+    private static final String BOUNDARY = "batch-boundary";
+    private static final Map<String, String> items = new ConcurrentHashMap<>();
+    private static volatile CountDownLatch parallel;
+
+    private RouterFixture fixture;
+    private BatchHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        items.clear();
+        items.put("a", "A");
+        items.put("b", "B");
+
+        String doc = "#test : Test\n" +
+            "##item : Item\n" +
+            "@id : String The id\n" +
+            "GET /item/:id info.orestes.rest.service.BatchHandlerTest$ItemServlet : String\n" +
+            "200 ok\n" +
+            "##update : Update an item\n" +
+            "@id : String The id\n" +
+            "PUT /item/:id info.orestes.rest.service.BatchHandlerTest$ItemServlet(String)\n" +
+            "204 updated\n" +
+            "##parallel : Waits for a parallel request\n" +
+            "@id : String The id\n" +
+            "GET /parallel/:id info.orestes.rest.service.BatchHandlerTest$ParallelServlet : String\n" +
+            "200 ok\n" +
+            "##origin : The connection of the request\n" +
+            "GET /origin info.orestes.rest.service.BatchHandlerTest$OriginServlet : String\n" +
+            "200 ok\n";
+
+        fixture = new RouterFixture(doc);
+        handler = new BatchHandler();
+        fixture.wrap(handler);
+        fixture.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fixture.stop();
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        String response = batch(
+            part(null, "GET /item/a HTTP/1.1\r\nAccept: text/plain\r\n\r\n"),
+            part("b", "GET /item/b HTTP/1.1\r\nAccept: text/plain\r\n\r\n"),
+            part(null, "GET /item/c HTTP/1.1\r\nAccept: text/plain\r\n\r\n"));
+        assertTrue(response.startsWith("HTTP/1.1 200"));
+
+        Map<String, String> parts = parts(response);
+        assertEquals(3, parts.size());
+        assertTrue(parts.get("0").startsWith("HTTP/1.1 200"));
+        assertTrue(parts.get("0").endsWith("\r\n\r\nA"));
+        assertTrue(parts.get("b").endsWith("\r\n\r\nB"));
+        assertTrue(parts.get("2").startsWith("HTTP/1.1 404"));
+
+        //the batch resource doesn't hide the other resources
+        assertTrue(fixture.get("/item/a").endsWith("A"));
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        //each request waits for the other one
+        parallel = new CountDownLatch(2);
+        Map<String, String> parts = parts(batch(
+            part(null, "GET /parallel/1 HTTP/1.1\r\n\r\n"),
+            part(null, "GET /parallel/2 HTTP/1.1\r\n\r\n")));
+
+        assertTrue(parts.get("0").endsWith("\r\n\r\n1"));
+        assertTrue(parts.get("1").endsWith("\r\n\r\n2"));
+    }
+
+    @Test
+    public void testSequential() throws Exception {
+        Map<String, String> parts = parts(batch(
+            part(null, "GET /item/a HTTP/1.1\r\n\r\n"),
+            part(null, "PUT /item/a HTTP/1.1\r\nContent-Type: text/plain\r\n\r\nchanged"),
+            part(null, "GET /item/a HTTP/1.1\r\n\r\n")));
+
+        assertTrue(parts.get("0").endsWith("\r\n\r\nA"));
+        assertTrue(parts.get("1").startsWith("HTTP/1.1 204"));
+        assertTrue(parts.get("2").endsWith("\r\n\r\nchanged"));
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        Map<String, String> parts = parts(batch(
+            part(null, "invalid"),
+            part(null, "GET /item/a HTTP/1.1\r\n\r\n")));
+        assertTrue(parts.get("0").startsWith("HTTP/1.1 400"));
+        assertTrue(parts.get("1").endsWith("A"));
+
+        handler.setMaximumParts(1);
+        parts = parts(batch(
+            part(null, "GET /item/a HTTP/1.1\r\n\r\n"),
+            part(null, "GET /item/b HTTP/1.1\r\n\r\n")));
+        assertTrue(parts.get("1").startsWith("HTTP/1.1 413"));
+
+        String response = fixture.request("POST /batch HTTP/1.1\r\nHost: localhost\r\n"
+            + "Content-Type: text/plain\r\nContent-Length: 2\r\nConnection: close\r\n\r\nab");
+        assertTrue(response.startsWith("HTTP/1.1 415"));
+
+        response = fixture.request("POST /batch HTTP/1.1\r\nHost: localhost\r\nContent-Type: multipart/mixed; "
+            + "boundary=" + BOUNDARY + "\r\nContent-Length: 2\r\nConnection: close\r\n\r\nab");
+        assertTrue(response.startsWith("HTTP/1.1 400"));
+
+        //nested batches are rejected
+        String nested = "POST /batch HTTP/1.1\r\nContent-Type: multipart/mixed; boundary=nested\r\n\r\n--nested--";
+        assertTrue(parts(batch(part(null, nested))).get("0").startsWith("HTTP/1.1 400"));
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        handler.setMaximumPartSize(128);
+        String large = String.join("", Collections.nCopies(20, "too large"));
+        Map<String, String> parts = parts(batch(
+            part(null, "GET /item/a HTTP/1.1\r\n\r\n"),
+            part(null, "PUT /item/b HTTP/1.1\r\nContent-Type: text/plain\r\n\r\n" + large),
+            part(null, "GET /item/b HTTP/1.1\r\n\r\n")));
+        assertEquals(2, parts.size());
+        assertTrue(parts.get("0").endsWith("\r\n\r\nA"));
+        //the final part answers the unread requests
+        assertTrue(parts.get(null).startsWith("HTTP/1.1 413"));
+        assertEquals("B", items.get("b"));
+
+        String body = part(null, "GET /item/a HTTP/1.1\r\n\r\n") + "--" + BOUNDARY + "\r\ninvalid";
+        parts = parts(fixture.request("POST /batch HTTP/1.1\r\nHost: localhost\r\nContent-Type: multipart/mixed; "
+            + "boundary=" + BOUNDARY + "\r\nContent-Length: " + body.length() + "\r\nConnection: close\r\n\r\n"
+            + body));
+        assertEquals(2, parts.size());
+        assertTrue(parts.get("0").endsWith("\r\n\r\nA"));
+        assertTrue(parts.get(null).startsWith("HTTP/1.1 400"));
+    }
+
+    @Test
+    public void testConnection() throws Exception {
+        fixture.getConnector().getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration()
+            .addCustomizer(new ForwardedRequestCustomizer());
+
+        String body = part(null, "GET /origin HTTP/1.1\r\n\r\n") + part(null, "GET /origin HTTP/1.1\r\n\r\n")
+            + "--" + BOUNDARY + "--\r\n";
+        Map<String, String> parts = parts(fixture.request("POST /batch HTTP/1.1\r\nHost: localhost\r\n"
+            + "X-Forwarded-Proto: https\r\nX-Forwarded-For: 10.0.0.1\r\nX-Forwarded-Host: example.com\r\n"
+            + "Content-Type: multipart/mixed; boundary=" + BOUNDARY + "\r\nContent-Length: " + body.length()
+            + "\r\nConnection: close\r\n\r\n" + body));
+
+        assertTrue(parts.get("0").endsWith("\r\n\r\nhttps true 10.0.0.1 example.com"));
+        assertTrue(parts.get("1").endsWith("\r\n\r\nhttps true 10.0.0.1 example.com"));
+    }
+
+    private String part(String id, String request) {
+        return "--" + BOUNDARY + "\r\nContent-Type: application/http\r\n"
+            + (id != null ? "Content-ID: " + id + "\r\n" : "") + "\r\n" + request + "\r\n";
+    }
+
+    private String batch(String... parts) throws Exception {
+        String body = String.join("", parts) + "--" + BOUNDARY + "--\r\n";
+        return fixture.request("POST /batch HTTP/1.1\r\nHost: localhost\r\nContent-Type: multipart/mixed; "
+            + "boundary=" + BOUNDARY + "\r\nContent-Length: " + body.getBytes(StandardCharsets.UTF_8).length
+            + "\r\nConnection: close\r\n\r\n" + body);
+    }
+
+    private Map<String, String> parts(String response) throws Exception {
+        String contentType = RouterFixture.header(response, "Content-Type");
+        assertTrue(contentType.startsWith("multipart/mixed; boundary="));
+
+        //the response is closed, so it is not chunked
+        String body = RouterFixture.content(response);
+        MultipartReader reader = new MultipartReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+            contentType.substring(contentType.indexOf('=') + 1), 1024 * 1024);
+
+        Map<String, String> parts = new LinkedHashMap<>();
+        for (MultipartReader.Part part = reader.next(); part != null; part = reader.next()) {
+            assertEquals("application/http", part.getHeader("content-type"));
+            parts.put(part.getHeader("Content-ID"), new String(part.getBody(), StandardCharsets.UTF_8));
+        }
+        return parts;
+    }
+
+    public static class ItemServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) throws RestException {
+            String item = items.get(request.<String>getArgument("id"));
+            if (item == null) {
+                throw new NotFound("The item doesn't exist.");
+            }
+            response.sendEntity(item);
+        }
+
+        @Override
+        public void doPut(Request request, Response response) throws RestException {
+            items.put(request.getArgument("id"), request.readEntity());
+            response.setStatus(204);
+        }
+    }
+
+    public static class OriginServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) throws RestException {
+            response.sendEntity(request.getScheme() + " " + request.isSecure() + " " + request.getRemoteAddr() + " "
+                + request.getServerName());
+        }
+    }
+
+    public static class ParallelServlet extends RestServlet {
+        @Override
+        public CompletableFuture<Void> doGetAsync(Request request, Response response) {
+            return CompletableFuture.runAsync(() -> {
+                parallel.countDown();
+                try {
+                    parallel.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                response.sendEntity(String.valueOf(parallel.getCount() == 0 ? request.getArgument("id") : "timeout"));
+            });
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static info.orestes.rest.service.RouterFixture.await;
+import static org.junit.Assert.*;
+
+public class BulkheadTest {
+
+    private static volatile CountDownLatch latch;
+
+    private RouterFixture fixture;
+    private RestRouter router;
+
+    @After
+    public void tearDown() throws Exception {
+        if (latch != null) {
+            latch.countDown();
+        }
+        if (fixture != null) {
+            fixture.stop();
+        }
+    }
+
+    @Test
+    public void testAcquireAndRelease() {
+        Bulkhead bulkhead = new Bulkhead("test", new ConcurrencyLimit(2));
+
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+        assertEquals(2, bulkhead.getInFlight());
+
+        assertFalse(bulkhead.offer(() -> fail()));
+        assertEquals(1, bulkhead.getRejected());
+
+        bulkhead.release();
+        assertEquals(1, bulkhead.getInFlight());
+        assertTrue(bulkhead.tryAcquire());
+        assertEquals(3, bulkhead.getAdmitted());
+    }
+
+    @Test
+    public void testQueue() {
+        Bulkhead bulkhead = new Bulkhead("test", new ConcurrencyLimit(1, 2));
+        List<Integer> admitted = new ArrayList<>();
+
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.offer(() -> admitted.add(1)));
+        Runnable cancelled = () -> admitted.add(2);
+        assertTrue(bulkhead.offer(cancelled));
+        assertFalse(bulkhead.offer(() -> admitted.add(3)));
+        assertEquals(2, bulkhead.getQueued());
+
+        assertTrue(bulkhead.cancel(cancelled));
+        assertEquals(1, bulkhead.getQueued());
+
+        //the permit is handed over to the waiting task
+        bulkhead.release();
+        assertEquals(1, admitted.size());
+        assertEquals(1, bulkhead.getInFlight());
+        assertEquals(0, bulkhead.getQueued());
+
+        bulkhead.release();
+        assertEquals(0, bulkhead.getInFlight());
+        assertTrue(bulkhead.offer(() -> admitted.add(4)));
+        assertEquals(2, admitted.size());
+        assertEquals(1, bulkhead.getInFlight());
+    }
+
+    @Test
+    public void testShedding() throws Exception {
+        start("%limit 1 1");
+        latch = new CountDownLatch(1);
+
+        CompletableFuture<String> first = fixture.getAsync("/limited");
+        Bulkhead bulkhead = router.getBulkheads().get(0);
+        await(() -> bulkhead.getInFlight() == 1);
+
+        CompletableFuture<String> second = fixture.getAsync("/limited");
+        await(() -> bulkhead.getQueued() == 1);
+
+        String rejected = fixture.get("/limited");
+        assertTrue(rejected.startsWith("HTTP/1.1 503"));
+        assertTrue(rejected.contains("Retry-After: 1"));
+        assertEquals(1, bulkhead.getRejected());
+
+        latch.countDown();
+        assertTrue(first.get(10, TimeUnit.SECONDS).startsWith("HTTP/1.1 200"));
+        assertTrue(second.get(10, TimeUnit.SECONDS).startsWith("HTTP/1.1 200"));
+
+        await(() -> bulkhead.getInFlight() == 0);
+        assertEquals(2, bulkhead.getAdmitted());
+    }
+
+    @Test
+    public void testRouterLimit() throws Exception {
+        start("");
+        assertTrue(router.getBulkheads().isEmpty());
+        fixture.stop();
+
+        RestMethod method = router.getMethods().get(0);
+        router.setConcurrencyLimit(method, new ConcurrencyLimit(1));
+        fixture.start();
+
+        latch = new CountDownLatch(1);
+        CompletableFuture<String> first = fixture.getAsync("/limited");
+        Bulkhead bulkhead = router.getBulkheads().get(0);
+        assertEquals("limited", bulkhead.getName());
+        await(() -> bulkhead.getInFlight() == 1);
+
+        assertTrue(fixture.get("/limited").startsWith("HTTP/1.1 503"));
+
+        latch.countDown();
+        assertTrue(first.get(10, TimeUnit.SECONDS).startsWith("HTTP/1.1 200"));
+    }
+
+    @Test
+    public void testQueueTimeout() throws Exception {
+        fixture = new RouterFixture(document("%limit 1 1"));
+        router = fixture.getRouter();
+        router.setQueueTimeout(200);
+        fixture.start();
+        latch = new CountDownLatch(1);
+
+        CompletableFuture<String> first = fixture.getAsync("/limited");
+        Bulkhead bulkhead = router.getBulkheads().get(0);
+        await(() -> bulkhead.getInFlight() == 1);
+
+        //the queued request times out before the permit is released
+        String timedOut = fixture.get("/limited");
+        assertTrue(timedOut.startsWith("HTTP/1.1 503"));
+        assertTrue(timedOut.contains("Retry-After: 1"));
+        assertEquals(0, bulkhead.getQueued());
+
+        latch.countDown();
+        assertTrue(first.get(10, TimeUnit.SECONDS).startsWith("HTTP/1.1 200"));
+        await(() -> bulkhead.getInFlight() == 0);
+        assertEquals(1, bulkhead.getAdmitted());
+        assertEquals(1, bulkhead.getRejected());
+
+        //the released permit is not handed over to the timed out request
+        assertTrue(fixture.get("/limited").startsWith("HTTP/1.1 200"));
+        assertEquals(2, bulkhead.getAdmitted());
+    }
+
+    @Test
+    public void testNames() throws Exception {
+        String doc = document("%limit 1") +
+            "##other : Other method\n" +
+            "GET /other info.orestes.rest.service.BulkheadTest$BlockingServlet\n" +
+            "200 ok\n" +
+            "#free : Free group\n" +
+            "##a : Method a\n" +
+            "GET /a info.orestes.rest.service.BulkheadTest$BlockingServlet\n" +
+            "200 ok\n" +
+            "##b : Method b\n" +
+            "GET /b info.orestes.rest.service.BulkheadTest$BlockingServlet\n" +
+            "200 ok\n";
+        fixture = new RouterFixture(doc);
+        router = fixture.getRouter();
+        router.setConcurrencyLimit(Arrays.asList(fixture.getMethod("a"), fixture.getMethod("b")),
+            new ConcurrencyLimit(2));
+        fixture.start();
+
+        //the group limit is named after the group instead of its first method
+        Set<String> names = router.getBulkheads().stream().map(Bulkhead::getName).collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("test", "a,b")), names);
+    }
+
+    private void start(String limit) throws Exception {
+        fixture = new RouterFixture(document(limit));
+        router = fixture.getRouter();
+        fixture.start();
+    }
+
+    private static String document(String limit) {
+        return "#test : Test\n" + limit + "\n" +
+            "##limited : Limited method\n" +
+            "GET /limited info.orestes.rest.service.BulkheadTest$BlockingServlet\n" +
+            "200 ok\n";
+    }
+
+    public static class BlockingServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) throws IOException {
+            try {
+                latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
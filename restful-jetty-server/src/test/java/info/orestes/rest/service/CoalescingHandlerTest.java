@@ -0,0 +1,261 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+import info.orestes.rest.error.NotFound;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static info.orestes.rest.service.RouterFixture.await;
+import static org.junit.Assert.*;
+
+public class CoalescingHandlerTest {
+
+    private static final int REQUESTS = 10;
+    private static final AtomicInteger calls = new AtomicInteger();
+    private static volatile CompletableFuture<String> result;
+
+    private RouterFixture fixture;
+    private CoalescingHandler handler;
+    private RestMethod method;
+
+    @Before
+    public void setUp() throws Exception {
+        calls.set(0);
+        result = new CompletableFuture<>();
+
+        String doc = "#test : Test\n" +
+            "##item : Item\n" +
+            "@id : String The id\n" +
+            "GET /item/:id info.orestes.rest.service.CoalescingHandlerTest$AsyncServlet : String\n" +
+            "200 ok\n" +
+            "##session : Item with a session cookie\n" +
+            "@id : String The id\n" +
+            "GET /session/:id info.orestes.rest.service.CoalescingHandlerTest$SessionServlet : String\n" +
+            "200 ok\n" +
+            "##private : Item with a private response\n" +
+            "@id : String The id\n" +
+            "GET /private/:id info.orestes.rest.service.CoalescingHandlerTest$PrivateServlet : String\n" +
+            "200 ok\n" +
+            "##user : Item of the authorized user\n" +
+            "@id : String The id\n" +
+            "GET /user/:id info.orestes.rest.service.CoalescingHandlerTest$UserServlet : String\n" +
+            "200 ok\n";
+
+        fixture = new RouterFixture(doc);
+        method = fixture.getMethod("item");
+
+        handler = new CoalescingHandler();
+        handler.setHandler(new RestServletHandler());
+        fixture.getRouter().setHandler(handler);
+        fixture.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        result.complete("done");
+        fixture.stop();
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        handler.setCoalesced(method, true);
+
+        List<CompletableFuture<String>> responses = fixture.getAsync("/item/a", "", REQUESTS);
+        await(() -> handler.getCoalesced() == REQUESTS - 1);
+        CompletableFuture<String> other = fixture.getAsync("/item/b");
+        await(() -> calls.get() == 2);
+
+        result.complete("value");
+        for (CompletableFuture<String> response : responses) {
+            String body = response.get(10, TimeUnit.SECONDS);
+            assertTrue(body.startsWith("HTTP/1.1 200"));
+            assertTrue(body.endsWith("value"));
+        }
+        assertTrue(other.get(10, TimeUnit.SECONDS).endsWith("value"));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, handler.getInFlight());
+
+        //a completed flight is not reused
+        result = CompletableFuture.completedFuture("next");
+        assertTrue(fixture.getAsync("/item/a").get(10, TimeUnit.SECONDS).endsWith("next"));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        handler.setCoalesced(method, true);
+
+        List<CompletableFuture<String>> responses = fixture.getAsync("/item/a", "", REQUESTS);
+        await(() -> handler.getCoalesced() == REQUESTS - 1);
+
+        result.completeExceptionally(new NotFound("The item was deleted."));
+        for (CompletableFuture<String> response : responses) {
+            String body = response.get(10, TimeUnit.SECONDS);
+            assertTrue(body.startsWith("HTTP/1.1 404"));
+            assertTrue(body.contains("The item was deleted."));
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(0, handler.getInFlight());
+    }
+
+    @Test
+    public void testConditional() throws Exception {
+        handler.setCoalesced(method, true);
+        result = CompletableFuture.completedFuture("value");
+        String etag = RouterFixture.header(fixture.get("/item/a"), "ETag");
+        assertNotNull(etag);
+
+        //a conditional request neither starts nor joins a flight
+        result = new CompletableFuture<>();
+        String ifNoneMatch = "If-None-Match: " + etag + "\r\n";
+        CompletableFuture<String> conditional = fixture.getAsync("/item/a", ifNoneMatch, 1).get(0);
+        await(() -> calls.get() == 2);
+        CompletableFuture<String> plain = fixture.getAsync("/item/a");
+        await(() -> calls.get() == 3);
+        CompletableFuture<String> attached = fixture.getAsync("/item/a");
+        await(() -> handler.getCoalesced() == 1);
+
+        result.complete("value");
+        assertTrue(conditional.get(10, TimeUnit.SECONDS).startsWith("HTTP/1.1 304"));
+        for (CompletableFuture<String> response : Arrays.asList(plain, attached)) {
+            String body = response.get(10, TimeUnit.SECONDS);
+            assertTrue(body.startsWith("HTTP/1.1 200"));
+            assertTrue(body.endsWith("value"));
+        }
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testPrivateResponse() throws Exception {
+        handler.setCoalesced(fixture.getMethod("session"), true);
+
+        List<CompletableFuture<String>> responses = fixture.getAsync("/session/a", "", REQUESTS);
+        await(() -> handler.getCoalesced() == REQUESTS - 1);
+
+        //the cookie of the first request is not shared, each attached request runs the servlet itself
+        result.complete("value");
+        Set<String> cookies = new HashSet<>();
+        for (CompletableFuture<String> response : responses) {
+            String body = response.get(10, TimeUnit.SECONDS);
+            assertTrue(body.startsWith("HTTP/1.1 200"));
+            assertTrue(body.endsWith("value"));
+            cookies.add(RouterFixture.header(body, "Set-Cookie"));
+        }
+
+        assertEquals(REQUESTS, calls.get());
+        assertEquals(REQUESTS, cookies.size());
+        assertEquals(0, handler.getInFlight());
+    }
+
+    @Test
+    public void testPrivateCacheControl() throws Exception {
+        handler.setCoalesced(fixture.getMethod("private"), true);
+
+        List<CompletableFuture<String>> responses = fixture.getAsync("/private/a", "", REQUESTS);
+        await(() -> handler.getCoalesced() == REQUESTS - 1);
+
+        result.complete("value");
+        for (CompletableFuture<String> response : responses) {
+            assertTrue(response.get(10, TimeUnit.SECONDS).endsWith("value"));
+        }
+        assertEquals(REQUESTS, calls.get());
+    }
+
+    @Test
+    public void testAuthorization() throws Exception {
+        handler.setCoalesced(fixture.getMethod("user"), true);
+
+        //requests with credentials neither start nor join a flight
+        CompletableFuture<String> alice = fixture.getAsync("/user/a", "Authorization: Basic YWxpY2U6\r\n", 1).get(0);
+        await(() -> calls.get() == 1);
+        CompletableFuture<String> bob = fixture.getAsync("/user/a", "Authorization: Basic Ym9iOg==\r\n", 1).get(0);
+        CompletableFuture<String> cookie = fixture.getAsync("/user/a", "Cookie: session=1\r\n", 1).get(0);
+        await(() -> calls.get() == 3);
+
+        result.complete("value");
+        assertTrue(alice.get(10, TimeUnit.SECONDS).endsWith("value Basic YWxpY2U6"));
+        assertTrue(bob.get(10, TimeUnit.SECONDS).endsWith("value Basic Ym9iOg=="));
+        assertTrue(cookie.get(10, TimeUnit.SECONDS).endsWith("value null"));
+        assertEquals(0, handler.getCoalesced());
+    }
+
+    @Test
+    public void testMaximumResponseSize() throws Exception {
+        handler.setCoalesced(method, true);
+        handler.setMaximumResponseSize(2);
+
+        List<CompletableFuture<String>> responses = fixture.getAsync("/item/a", "", REQUESTS);
+        await(() -> handler.getCoalesced() == REQUESTS - 1);
+
+        //the body is not copied, the attached requests run the servlet themselves
+        result.complete("value");
+        for (CompletableFuture<String> response : responses) {
+            assertTrue(response.get(10, TimeUnit.SECONDS).endsWith("value"));
+        }
+        assertEquals(REQUESTS, calls.get());
+    }
+
+    @Test
+    public void testNotCoalesced() throws Exception {
+        List<CompletableFuture<String>> responses = fixture.getAsync("/item/a", "", REQUESTS);
+        await(() -> calls.get() == REQUESTS);
+
+        result.complete("value");
+        for (CompletableFuture<String> response : responses) {
+            assertTrue(response.get(10, TimeUnit.SECONDS).endsWith("value"));
+        }
+        assertEquals(0, handler.getCoalesced());
+    }
+
+    public static class AsyncServlet extends RestServlet {
+        @Override
+        public CompletableFuture<Void> doGetAsync(Request request, Response response) {
+            calls.incrementAndGet();
+            return result.thenAccept(response::sendEntity);
+        }
+    }
+
+    public static class PrivateServlet extends RestServlet {
+        @Override
+        public CompletableFuture<Void> doGetAsync(Request request, Response response) {
+            calls.incrementAndGet();
+            return result.thenAccept(value -> {
+                response.setHeader("Cache-Control", "max-age=60, private");
+                response.sendEntity(value);
+            });
+        }
+    }
+
+    public static class UserServlet extends RestServlet {
+        @Override
+        public CompletableFuture<Void> doGetAsync(Request request, Response response) {
+            calls.incrementAndGet();
+            String authorization = request.getHeader("Authorization");
+            return result.thenAccept(value -> response.sendEntity(value + " " + authorization));
+        }
+    }
+
+    public static class SessionServlet extends RestServlet {
+        @Override
+        public CompletableFuture<Void> doGetAsync(Request request, Response response) {
+            int call = calls.incrementAndGet();
+            return result.thenAccept(value -> {
+                response.addHeader("Set-Cookie", "session=" + call);
+                response.sendEntity(value);
+            });
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+import info.orestes.rest.error.RestException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static info.orestes.rest.service.RouterFixture.content;
+import static info.orestes.rest.service.RouterFixture.header;
+import static info.orestes.rest.service.RouterFixture.status;
+import static org.junit.Assert.*;
+
+public class EntityTagTest {
+
+    private static final String VERSION = "v1";
+    private static final long LAST_MODIFIED = 1500000000000L;
+    private static final AtomicInteger encoded = new AtomicInteger();
+
+    private RouterFixture fixture;
+
+    @Before
+    public void setUp() throws Exception {
+        encoded.set(0);
+
+        String doc = "#test : Test\n" +
+            "##entity : Entity with a generated tag\n" +
+            "GET /entity info.orestes.rest.service.EntityTagTest$EntityServlet : String\n" +
+            "200 ok\n" +
+            "##versioned : Entity with a version\n" +
+            "GET /versioned info.orestes.rest.service.EntityTagTest$VersionedServlet : String\n" +
+            "200 ok\n" +
+            "##update : Conditional update\n" +
+            "PUT /versioned info.orestes.rest.service.EntityTagTest$VersionedServlet\n" +
+            "204 updated\n";
+
+        fixture = new RouterFixture(doc);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fixture.stop();
+    }
+
+    @Test
+    public void testGeneratedTag() throws Exception {
+        fixture.start();
+
+        String response = fixture.send("GET", "/entity", "");
+        assertEquals(200, status(response));
+        assertEquals("entity", content(response));
+        assertEquals("6", header(response, "Content-Length"));
+
+        String etag = header(response, "ETag");
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, header(fixture.send("GET", "/entity", ""), "ETag"));
+
+        String notModified = fixture.send("GET", "/entity", "If-None-Match: \"other\", W/" + etag + "\r\n");
+        assertEquals(304, status(notModified));
+        assertEquals(etag, header(notModified, "ETag"));
+        assertEquals("", content(notModified));
+
+        assertEquals(200, status(fixture.send("GET", "/entity", "If-None-Match: \"other\"\r\n")));
+    }
+
+    @Test
+    public void testEntityTagLimit() throws Exception {
+        fixture.getRouter().setEntityTagLimit(4);
+        fixture.start();
+
+        String response = fixture.send("GET", "/entity", "");
+        assertEquals(200, status(response));
+        assertEquals("entity", content(response));
+        assertNull(header(response, "ETag"));
+    }
+
+    @Test
+    public void testVersionTag() throws Exception {
+        fixture.start();
+
+        String response = fixture.send("GET", "/versioned", "");
+        assertEquals(200, status(response));
+        assertEquals("\"" + VERSION + "\"", header(response, "ETag"));
+        assertNotNull(header(response, "Last-Modified"));
+        assertEquals(1, encoded.get());
+
+        //answered before the entity is encoded
+        assertEquals(304, status(fixture.send("GET", "/versioned", "If-None-Match: \"" + VERSION + "\"\r\n")));
+        String ifModifiedSince = "If-Modified-Since: " + header(response, "Last-Modified") + "\r\n";
+        assertEquals(304, status(fixture.send("GET", "/versioned", ifModifiedSince)));
+        assertEquals(1, encoded.get());
+    }
+
+    @Test
+    public void testConditionalUpdate() throws Exception {
+        fixture.start();
+
+        assertEquals(428, status(fixture.send("PUT", "/versioned", "")));
+        assertEquals(412, status(fixture.send("PUT", "/versioned", "If-Match: \"v0\"\r\n")));
+        assertEquals(412, status(fixture.send("PUT", "/versioned", "If-None-Match: *\r\n")));
+        assertEquals(204, status(fixture.send("PUT", "/versioned", "If-Match: \"" + VERSION + "\"\r\n")));
+        assertEquals(204, status(fixture.send("PUT", "/versioned", "If-Match: *\r\n")));
+    }
+
+    public static class EntityServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) {
+            response.sendEntity("entity");
+        }
+    }
+
+    public static class VersionedServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) throws RestException {
+            if (response.checkPreconditions(VERSION, LAST_MODIFIED)) {
+                return;
+            }
+
+            encoded.incrementAndGet();
+            response.sendEntity("versioned");
+        }
+
+        @Override
+        public void doPut(Request request, Response response) throws RestException {
+            response.checkPreconditions(VERSION, LAST_MODIFIED, true);
+            response.setStatus(204);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package info.orestes.rest.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value : new long[] {0, 1, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE}) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 16);
+        }
+
+        assertTrue(LatencyHistogram.indexOf(1000) < LatencyHistogram.indexOf(1100));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean(), 0.1);
+
+        assertEquals(500000, histogram.getValueAtPercentile(50), 500000 / 16);
+        assertEquals(990000, histogram.getValueAtPercentile(99), 990000 / 16);
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+        assertEquals(1000, histogram.getValueAtPercentile(0), 1000 / 16);
+    }
+
+    @Test
+    public void testNegativeValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+}
@@ -0,0 +1,77 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.service.Instrumentation.Phase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricsInstrumentationTest {
+
+    private RouterFixture fixture;
+    private RestRouter router;
+    private MetricsInstrumentation metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        String doc = "#test : Test\n" +
+            "##get : Get\n" +
+            "GET /test info.orestes.rest.Testing2\n" +
+            "200 ok\n" +
+            "##metrics : Metrics\n" +
+            "GET /metrics info.orestes.rest.MetricsServlet : String\n" +
+            "200 ok\n";
+
+        fixture = new RouterFixture(doc);
+        router = fixture.getRouter();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fixture.stop();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        fixture.start();
+
+        assertNull(router.getInstrumentation());
+        assertTrue(fixture.get("/test").startsWith("HTTP/1.1 200"));
+        assertTrue(fixture.get("/metrics").startsWith("HTTP/1.1 404"));
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        metrics = new MetricsInstrumentation();
+        router.setInstrumentation(metrics);
+        fixture.start();
+
+        assertTrue(fixture.get("/test").startsWith("HTTP/1.1 200"));
+        assertTrue(fixture.get("/test").startsWith("HTTP/1.1 200"));
+        assertTrue(fixture.get("/unknown").startsWith("HTTP/1.1 404"));
+
+        RouteMetrics route = metrics.getMetrics("get");
+        assertEquals(2, route.getRequests());
+        assertEquals(2, route.getStatusCount(200));
+        assertEquals(2, route.getLatency(Phase.ROUTING).getCount());
+        assertEquals(2, route.getLatency(Phase.BINDING).getCount());
+        assertEquals(2, route.getLatency(Phase.HANDLER).getCount());
+        assertEquals(0, route.getLatency(Phase.ENCODING).getCount());
+        assertEquals(0, route.getBytesIn());
+        assertEquals(0, route.getBytesOut());
+        assertEquals(1, metrics.getMetrics().size());
+
+        String response = fixture.get("/metrics");
+        assertTrue(response.startsWith("HTTP/1.1 200"));
+        assertTrue(response.contains("rest_requests_total{method=\"get\",status=\"200\"} 2"));
+        assertTrue(response.contains("rest_latency_seconds{method=\"get\",phase=\"handler\",quantile=\"0.99\"}"));
+        assertTrue(response.contains("rest_latency_seconds_count{method=\"get\",phase=\"total\"} 2"));
+
+        //the metrics request itself is recorded after its response is sent
+        RouterFixture.await(() -> metrics.getMetrics("metrics").getRequests() > 0);
+        assertEquals(1, metrics.getMetrics("metrics").getLatency(Phase.ENCODING).getCount());
+        assertEquals(1, metrics.getMetrics("metrics").getRequests());
+        assertTrue(metrics.getMetrics("metrics").getBytesOut() > 0);
+    }
+}
@@ -0,0 +1,213 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static info.orestes.rest.service.RouterFixture.await;
+import static org.junit.Assert.*;
+
+public class ResponseCacheHandlerTest {
+
+    private static final AtomicInteger calls = new AtomicInteger();
+
+    private RouterFixture fixture;
+    private ResponseCacheHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        calls.set(0);
+
+        String doc = "#cached : Cached group\n" +
+            "%cache 60\n" +
+            "##item : Cached item\n" +
+            "@id : String The id\n" +
+            "GET /item/:id info.orestes.rest.service.ResponseCacheHandlerTest$CountingServlet : String\n" +
+            "200 ok\n" +
+            "##cookie : Item with a cookie\n" +
+            "@id : String The id\n" +
+            "GET /cookie/:id info.orestes.rest.service.ResponseCacheHandlerTest$CookieServlet : String\n" +
+            "200 ok\n" +
+            "##public : Public item\n" +
+            "@id : String The id\n" +
+            "GET /public/:id info.orestes.rest.service.ResponseCacheHandlerTest$PublicServlet : String\n" +
+            "200 ok\n" +
+            "##vary : Item which varies by the language\n" +
+            "@id : String The id\n" +
+            "GET /vary/:id info.orestes.rest.service.ResponseCacheHandlerTest$VaryServlet : String\n" +
+            "200 ok\n" +
+            "#uncached : Uncached group\n" +
+            "##plain : Uncached item\n" +
+            "@id : String The id\n" +
+            "GET /plain/:id info.orestes.rest.service.ResponseCacheHandlerTest$CountingServlet : String\n" +
+            "200 ok\n";
+
+        fixture = new RouterFixture(doc);
+        handler = new ResponseCacheHandler();
+        handler.setHandler(new RestServletHandler());
+        fixture.getRouter().setHandler(handler);
+        fixture.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fixture.stop();
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        String first = get("/item/a", "text/plain");
+        assertTrue(first.startsWith("HTTP/1.1 200"));
+        assertTrue(first.endsWith("a1"));
+        assertTrue(first.contains("Keep-Alive: timeout=5"));
+        awaitCached(1);
+
+        String second = get("/item/a", "text/plain");
+        assertTrue(second.startsWith("HTTP/1.1 200"));
+        assertTrue(second.contains("X-Item: a"));
+        assertTrue(second.contains("Content-Type: text/plain"));
+        assertTrue(second.contains("Content-Length: 2"));
+        assertTrue(second.endsWith("a1"));
+        //hop-by-hop headers are not replayed
+        assertFalse(second.contains("Keep-Alive"));
+
+        //the servlet is only called once
+        assertEquals(1, calls.get());
+        assertEquals(1, handler.getCache().getHits());
+
+        String etag = RouterFixture.header(second, "ETag");
+        String notModified = fixture.get("/item/a", "Accept: text/plain\r\nIf-None-Match: " + etag + "\r\n");
+        assertTrue(notModified.startsWith("HTTP/1.1 304"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testKey() throws Exception {
+        assertTrue(get("/item/a", "text/plain").endsWith("a1"));
+        awaitCached(1);
+        assertTrue(get("/item/b", "text/plain").endsWith("b2"));
+        awaitCached(2);
+        //negotiates the same media type
+        assertTrue(get("/item/a", "*/*").endsWith("a1"));
+        assertEquals(2, handler.getCache().size());
+
+        //not acceptable responses are passed through
+        assertTrue(get("/item/a", "image/png").startsWith("HTTP/1.1 406"));
+        assertEquals(2, handler.getCache().size());
+    }
+
+    @Test
+    public void testUncached() throws Exception {
+        assertTrue(get("/plain/a", "text/plain").endsWith("a1"));
+        assertTrue(get("/plain/a", "text/plain").endsWith("a2"));
+
+        assertTrue(get("/cookie/a", "text/plain").startsWith("HTTP/1.1 200"));
+        assertTrue(get("/cookie/a", "text/plain").startsWith("HTTP/1.1 200"));
+        assertEquals(4, calls.get());
+        assertEquals(0, handler.getCache().size());
+    }
+
+    @Test
+    public void testAuthorization() throws Exception {
+        String authorization = "Authorization: Basic YWxpY2U6\r\n";
+        assertTrue(get("/item/a", "text/plain").endsWith("a1"));
+        awaitCached(1);
+
+        //an authorized request is neither served from the cache nor stored
+        assertTrue(fixture.get("/item/a", "Accept: text/plain\r\n" + authorization).endsWith("a2"));
+        assertTrue(get("/item/a", "text/plain").endsWith("a1"));
+        assertEquals(1, handler.getCache().size());
+
+        //unless the response is public
+        assertTrue(fixture.get("/public/a", "Accept: text/plain\r\n" + authorization).endsWith("a3"));
+        awaitCached(2);
+        assertTrue(fixture.get("/public/a", "Accept: text/plain\r\n" + authorization).endsWith("a3"));
+        assertTrue(get("/public/a", "text/plain").endsWith("a3"));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testVary() throws Exception {
+        assertTrue(fixture.get("/vary/a", "Accept: text/plain\r\nAccept-Language: de\r\n").endsWith("de1"));
+        assertTrue(fixture.get("/vary/a", "Accept: text/plain\r\nAccept-Language: en\r\n").endsWith("en2"));
+        assertEquals(0, handler.getCache().size());
+
+        //a variation by the negotiated media type is part of the key
+        assertTrue(get("/public/a", "text/plain").endsWith("a3"));
+        awaitCached(1);
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        RestMethod method = fixture.getMethod("item");
+
+        assertTrue(get("/item/a", "text/plain").endsWith("a1"));
+        assertTrue(get("/item/b", "text/plain").endsWith("b2"));
+        awaitCached(2);
+
+        handler.invalidate(method, Collections.singletonMap("id", "a"));
+        assertTrue(get("/item/a", "text/plain").endsWith("a3"));
+        awaitCached(2);
+        assertTrue(get("/item/b", "text/plain").endsWith("b2"));
+
+        handler.invalidate(method);
+        assertEquals(0, handler.getCache().size());
+        assertTrue(get("/item/b", "text/plain").endsWith("b4"));
+        awaitCached(1);
+
+        handler.invalidateAll();
+        assertTrue(get("/item/b", "text/plain").endsWith("b5"));
+    }
+
+    private void awaitCached(int size) throws InterruptedException {
+        //the response is cached after it is sent
+        await(() -> handler.getCache().size() == size);
+    }
+
+    private String get(String path, String accept) throws Exception {
+        return fixture.get(path, "Accept: " + accept + "\r\n");
+    }
+
+    public static class CountingServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) {
+            String id = request.getArgument("id");
+            response.setHeader("X-Item", id);
+            response.setHeader("Keep-Alive", "timeout=5");
+            response.sendEntity(id + calls.incrementAndGet());
+        }
+    }
+
+    public static class PublicServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) {
+            String id = request.getArgument("id");
+            response.setHeader("Cache-Control", "public, max-age=60");
+            response.setHeader("Vary", "Accept");
+            response.sendEntity(id + calls.incrementAndGet());
+        }
+    }
+
+    public static class VaryServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) {
+            response.setHeader("Vary", "Accept, Accept-Language");
+            response.sendEntity(request.getHeader("Accept-Language") + calls.incrementAndGet());
+        }
+    }
+
+    public static class CookieServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) {
+            calls.incrementAndGet();
+            response.addHeader("Set-Cookie", "session=1");
+            response.sendEntity(request.getArgument("id"));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package info.orestes.rest.service;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest {
+
+    private static final long NOW = System.nanoTime();
+    private static final long TTL = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    public void testGetAndPut() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        CachedResponse response = response(100, NOW + TTL);
+
+        assertNull(cache.get("a", NOW));
+        cache.put("a", response);
+        assertSame(response, cache.get("a", NOW));
+        assertEquals(1, cache.size());
+        assertEquals(response.getWeight(), cache.getWeight());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testExpiry() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        cache.put("a", response(100, NOW + TTL));
+
+        assertNotNull(cache.get("a", NOW + TTL - 1));
+        assertNull(cache.get("a", NOW + TTL));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testReplace() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        cache.put("a", response(100, NOW + TTL));
+        CachedResponse response = response(200, NOW + TTL);
+        cache.put("a", response);
+
+        assertSame(response, cache.get("a", NOW));
+        assertEquals(1, cache.size());
+        assertEquals(response.getWeight(), cache.getWeight());
+    }
+
+    @Test
+    public void testInvalidate() {
+        ResponseCache cache = new ResponseCache(1024 * 1024);
+        cache.put("a1", response(100, NOW + TTL));
+        cache.put("a2", response(100, NOW + TTL));
+        cache.put("b", response(100, NOW + TTL));
+
+        cache.invalidate("b");
+        assertNull(cache.get("b", NOW));
+        assertEquals(2, cache.size());
+
+        cache.invalidateIf(key -> ((String) key).startsWith("a"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+
+        cache.put("c", response(100, NOW + TTL));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testWeightBound() {
+        ResponseCache cache = new ResponseCache(100 * 1024);
+        for (int i = 0; i < 1000; ++i) {
+            cache.put(i, response(1024, NOW + TTL));
+            assertTrue(cache.getWeight() <= cache.getMaximumWeight());
+        }
+
+        assertTrue(cache.getEvictions() > 0);
+        assertEquals(1000, cache.size() + cache.getEvictions());
+    }
+
+    @Test
+    public void testOversizedEntry() {
+        ResponseCache cache = new ResponseCache(1024);
+        cache.put("a", response(2048, NOW + TTL));
+
+        assertNull(cache.get("a", NOW));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFrequentEntriesAreRetained() {
+        ResponseCache cache = new ResponseCache(100 * 1024);
+        for (int i = 0; i < 10; ++i) {
+            cache.put("hot" + i, response(1024, NOW + TTL));
+        }
+
+        //a scan of one-time keys must not flush the frequently requested ones
+        for (int i = 0; i < 1000; ++i) {
+            for (int j = 0; j < 10; ++j) {
+                assertNotNull(cache.get("hot" + j, NOW));
+            }
+            cache.get(i, NOW);
+            cache.put(i, response(1024, NOW + TTL));
+        }
+
+        for (int i = 0; i < 10; ++i) {
+            assertNotNull(cache.get("hot" + i, NOW));
+        }
+    }
+
+    private static CachedResponse response(int size, long expires) {
+        return new CachedResponse(200, "text/plain", Collections.emptyList(), new byte[size], expires);
+    }
+}
@@ -255,6 +255,110 @@ public void testDynamicRouteIsAddedToAllDepths() throws Exception {
         }
     }
 
+    @Test
+    public void testIndexedRoutesKeepPrecedence() throws Exception {
+        ParsedURI path = new ParsedURI();
+        path.parse("/hello/world.txt", 0, null);
+
+        router.start();
+        List<RestRouter.Route> candidates = router.findRoutes("GET", path);
+        router.stop();
+
+        List<RestRouter.Route> all = router.getRoutes(path.getSegmentCount());
+        assertFalse(candidates.isEmpty());
+        assertTrue(candidates.size() < all.size());
+        assertEquals("I1", candidates.get(0).getMethod().getName());
+
+        int last = -1;
+        for (RestRouter.Route route : candidates) {
+            assertEquals("GET", route.getMethod().getAction());
+            assertTrue(all.indexOf(route) > last);
+            last = all.indexOf(route);
+        }
+
+        for (RestRouter.Route route : all) {
+            if (!candidates.contains(route) && route.getMethod().getAction().equals("GET")) {
+                assertNull(route.match("GET", path));
+            }
+        }
+    }
+
+    @Test
+    public void testParsedURI() throws Exception {
+        ParsedURI uri = new ParsedURI();
+        uri.parse("/ctx/db/te%20st/a+b;from=0;limit;from=2", 4, "name=Franz+Kafka&x&name=Max%20M");
+
+        assertEquals("/db/te%20st/a+b", uri.getPath());
+        assertEquals(3, uri.getSegmentCount());
+        assertTrue(uri.segmentEquals(0, "db"));
+        assertTrue(uri.segmentEquals(1, "te st"));
+        assertEquals("a+b", uri.getSegment(2));
+        assertEquals("te st/a+b", uri.joinSegments(1));
+
+        assertEquals(2, uri.getMatrixCount());
+        assertEquals("2", uri.getMatrixParameter("from"));
+        assertTrue(uri.hasMatrixParameter("limit"));
+        assertNull(uri.getMatrixParameter("limit"));
+        assertFalse(uri.hasMatrixParameter("name"));
+
+        assertEquals("Max M", uri.getQueryParameter("name"));
+        assertTrue(uri.hasQueryParameter("x"));
+        assertNull(uri.getQueryParameter("x"));
+        assertFalse(uri.hasQueryParameter("from"));
+
+        uri.parse("/", 0, null);
+        assertEquals(1, uri.getSegmentCount());
+        assertEquals("", uri.getSegment(0));
+        assertEquals(0, uri.getMatrixCount());
+        assertFalse(uri.hasQueryParameter("name"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedMatch() throws Exception {
+        ParsedURI uri = new ParsedURI();
+        uri.parse("/db/my%2Fns/db_all;limit=5", 0, "name=Max+Frisch");
+        List<String> pathParts = Arrays.asList("db", "my/ns", "db_all");
+
+        int matched = 0;
+        for (RestRouter.Route route : router.getRoutes(3)) {
+            String[] expected = route.match("GET", uri);
+            Map<String, String> matches = route.match("GET", pathParts, singletonMap("limit", "5"),
+                singletonMap("name", "Max Frisch"));
+            assertEquals(expected == null, matches == null);
+
+            if (matches != null) {
+                matched++;
+                assertEquals("my/ns", matches.get("ns"));
+                assertEquals("5", matches.get("limit"));
+                assertEquals("Max Frisch", matches.get("name"));
+            }
+        }
+        assertEquals(1, matched);
+    }
+
+    @Test
+    public void testArgumentBinders() throws Exception {
+        ConverterService converterService = new ConverterService(new Module());
+
+        ArgumentBinder intBinder = ArgumentBinder.create(PathElement.createVariable("id", "", Integer.class), converterService);
+        assertEquals("id", intBinder.getName());
+        assertEquals(42, intBinder.bind(null, "42"));
+
+        ArgumentBinder boolBinder = ArgumentBinder.create(PathElement.createQuery("flag", "", true, Boolean.class, null), converterService);
+        assertEquals(true, boolBinder.bind(null, "true"));
+
+        ArgumentBinder stringBinder = ArgumentBinder.create(PathElement.createMatrix("name", "", true, String.class, null), converterService);
+        assertEquals("value", stringBinder.bind(null, "value"));
+
+        try {
+            intBinder.bind(null, "no number");
+            fail("The value is not a number");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
     protected void assertMethod(final RestMethod expected, final String action, final String path,
                                 final Map<String, String[]> params) {
 
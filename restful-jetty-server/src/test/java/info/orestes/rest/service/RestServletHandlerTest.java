@@ -0,0 +1,71 @@
+package info.orestes.rest.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RestServletHandlerTest {
+
+    private RouterFixture fixture;
+    private RestServletHandler handler;
+    private RestMethod method;
+
+    @Before
+    public void setUp() throws Exception {
+        fixture = new RouterFixture(new ServiceDocumentParser(new ServiceDocumentTestTypes()).parse("/service.test"));
+        method = fixture.getMethod("A2");
+
+        handler = new RestServletHandler();
+        fixture.getRouter().setHandler(handler);
+        fixture.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        fixture.stop();
+    }
+
+    @Test
+    public void testInline() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        handler.setExecutor(task -> {
+            executed.incrementAndGet();
+            task.run();
+        });
+
+        assertTrue(fixture.get("/test").startsWith("HTTP/1.1 200"));
+        assertEquals(0, executed.get());
+    }
+
+    @Test
+    public void testBlockingMethod() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        handler.setExecutor(task -> {
+            executed.incrementAndGet();
+            new Thread(task).start();
+        });
+        handler.setBlocking(method, true);
+
+        assertTrue(fixture.get("/test").startsWith("HTTP/1.1 200"));
+        assertEquals(1, executed.get());
+
+        handler.setBlocking(method, false);
+        assertTrue(fixture.get("/test").startsWith("HTTP/1.1 200"));
+        assertEquals(1, executed.get());
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        handler.setExecutor(task -> {
+            throw new RejectedExecutionException();
+        });
+        handler.setBlocking(method, true);
+
+        assertTrue(fixture.get("/test").startsWith("HTTP/1.1 503"));
+    }
+}
@@ -0,0 +1,191 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.util.Module;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A server with a {@link RestRouter} of a service document, which is called through a local connector with raw HTTP
+ * requests. The router dispatches to a {@link RestServletHandler} unless the test sets another handler before the
+ * fixture is started.
+ */
+public class RouterFixture {
+
+    private final Server server = new Server();
+    private final LocalConnector connector = new LocalConnector(server);
+    private final RestRouter router;
+    private final ConverterService converterService;
+
+    /**
+     * Creates a fixture of an inline service document
+     *
+     * @param doc The service document
+     */
+    public RouterFixture(String doc) {
+        this(new ServiceDocumentParser(new ServiceDocumentTestTypes()).parse(new StringReader(doc)));
+    }
+
+    public RouterFixture(Spec spec) {
+        Module module = new Module();
+        module.bind(ConverterService.class, ConverterService.class);
+
+        converterService = module.moduleInstance(ConverterService.class);
+        router = new RestRouter(module);
+        for (MethodGroup group : spec) {
+            router.addAll(group);
+        }
+        router.setHandler(new RestServletHandler());
+
+        server.addConnector(connector);
+        server.setHandler(router);
+    }
+
+    /**
+     * Installs a handler in front of the router
+     *
+     * @param handler The handler which wraps the router
+     */
+    public void wrap(HandlerWrapper handler) {
+        handler.setHandler(router);
+        server.setHandler(handler);
+    }
+
+    public void start() throws Exception {
+        server.start();
+    }
+
+    public void stop() throws Exception {
+        server.stop();
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
+    public LocalConnector getConnector() {
+        return connector;
+    }
+
+    public RestRouter getRouter() {
+        return router;
+    }
+
+    public ConverterService getConverterService() {
+        return converterService;
+    }
+
+    public RestMethod getMethod(String name) {
+        return router.getMethods().stream().filter(method -> method.getName().equals(name)).findFirst().get();
+    }
+
+    /**
+     * Sends a GET request
+     *
+     * @param path The request target
+     * @param headers Additional header lines, each terminated by CRLF
+     * @return The raw response
+     */
+    public String get(String path, String headers) throws Exception {
+        return send("GET", path, headers);
+    }
+
+    public String get(String path) throws Exception {
+        return get(path, "");
+    }
+
+    /**
+     * Sends a request without a body
+     *
+     * @param method The request method
+     * @param path The request target
+     * @param headers Additional header lines, each terminated by CRLF
+     * @return The raw response
+     */
+    public String send(String method, String path, String headers) throws Exception {
+        String length = method.equals("GET") ? "" : "Content-Length: 0\r\n";
+        return request(method + " " + path + " HTTP/1.1\r\nHost: localhost\r\n" + headers + length
+            + "Connection: close\r\n\r\n");
+    }
+
+    /**
+     * Sends a raw request
+     *
+     * @param request The complete request
+     * @return The raw response
+     */
+    public String request(String request) throws Exception {
+        return connector.getResponse(request, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sends GET requests concurrently
+     *
+     * @param path The request target
+     * @param headers Additional header lines, each terminated by CRLF
+     * @param count The number of requests
+     * @return The raw responses
+     */
+    public List<CompletableFuture<String>> getAsync(String path, String headers, int count) {
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            responses.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return get(path, headers);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        return responses;
+    }
+
+    public CompletableFuture<String> getAsync(String path) {
+        return getAsync(path, "", 1).get(0);
+    }
+
+    /**
+     * Waits up to 10 seconds until the condition holds
+     *
+     * @param condition The condition
+     */
+    public static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 1000 && !condition.getAsBoolean(); ++i) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    public static int status(String response) {
+        return Integer.parseInt(response.substring(9, 12));
+    }
+
+    /**
+     * Returns the first value of a response header
+     *
+     * @param response The raw response
+     * @param name The case-insensitive header name
+     * @return The value or <code>null</code> if the header is missing
+     */
+    public static String header(String response, String name) {
+        String head = response.substring(0, Math.max(0, response.indexOf("\r\n\r\n")));
+        Matcher matcher = Pattern.compile("(?im)^" + name + ": ([^\r\n]*)").matcher(head);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    public static String content(String response) {
+        return response.substring(response.indexOf("\r\n\r\n") + 4);
+    }
+}
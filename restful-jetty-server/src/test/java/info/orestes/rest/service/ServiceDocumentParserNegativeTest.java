@@ -5,7 +5,7 @@
 import java.io.StringReader;
 import java.util.List;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class ServiceDocumentParserNegativeTest {
 	
@@ -23,6 +23,81 @@ public final void testInlineParsing() {
 		assertEquals(1, groups.get(0).size());
 	}
 
+	@Test
+	public final void testLimits() {
+		List<MethodGroup> groups = parse(
+			"#test : Test",
+			"%limit 10 20",
+			"##shared : Shared limit",
+			"GET / info.orestes.rest.Testing1(String)",
+			"200 everything ok",
+			"##own : Own limit",
+			"%limit 2",
+			"GET /own info.orestes.rest.Testing1(String)",
+			"200 everything ok",
+			"##other : Shared limit",
+			"GET /other info.orestes.rest.Testing1(String)",
+			"200 everything ok",
+			"#unlimited : Test",
+			"##none : No limit",
+			"GET /none info.orestes.rest.Testing1(String)",
+			"200 everything ok");
+
+		MethodGroup group = groups.get(0);
+		assertEquals(10, group.getConcurrencyLimit().getMaxConcurrent());
+		assertEquals(20, group.getConcurrencyLimit().getMaxQueued());
+		assertSame(group.getConcurrencyLimit(), group.get(0).getConcurrencyLimit());
+		assertSame(group.getConcurrencyLimit(), group.get(2).getConcurrencyLimit());
+		assertEquals(2, group.get(1).getConcurrencyLimit().getMaxConcurrent());
+		assertEquals(0, group.get(1).getConcurrencyLimit().getMaxQueued());
+		assertNull(groups.get(1).getConcurrencyLimit());
+		assertNull(groups.get(1).get(0).getConcurrencyLimit());
+	}
+
+	@Test(expected = ServiceDocumentParserException.class)
+	public final void testIllegalLimit() {
+		parse(
+			"#test : Test",
+			"##test : Test method",
+			"%limit 0",
+			"GET / info.orestes.rest.Testing1(String)",
+			"200 everything ok");
+	}
+
+	@Test
+	public final void testCache() {
+		List<MethodGroup> groups = parse(
+			"#test : Test",
+			"%cache 60",
+			"##shared : Group ttl",
+			"GET / info.orestes.rest.Testing1(String)",
+			"200 everything ok",
+			"##own : Own ttl",
+			"%cache 5",
+			"GET /own info.orestes.rest.Testing1(String)",
+			"200 everything ok",
+			"#uncached : Test",
+			"##none : Not cached",
+			"GET /none info.orestes.rest.Testing1(String)",
+			"200 everything ok");
+
+		assertEquals(60, groups.get(0).getCacheTtl());
+		assertEquals(60, groups.get(0).get(0).getCacheTtl());
+		assertEquals(5, groups.get(0).get(1).getCacheTtl());
+		assertEquals(0, groups.get(1).getCacheTtl());
+		assertEquals(0, groups.get(1).get(0).getCacheTtl());
+	}
+
+	@Test(expected = ServiceDocumentParserException.class)
+	public final void testIllegalCache() {
+		parse(
+			"#test : Test",
+			"##test : Test method",
+			"%cache forever",
+			"GET / info.orestes.rest.Testing1(String)",
+			"200 everything ok");
+	}
+
     @Test(expected = ServiceDocumentParserException.class)
 	public final void testMissingResult() {
 		parse(
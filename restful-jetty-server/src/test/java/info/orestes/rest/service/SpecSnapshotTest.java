@@ -0,0 +1,172 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.conversion.ConverterService;
+import info.orestes.rest.service.RestRouter.Route;
+import info.orestes.rest.util.Module;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class SpecSnapshotTest {
+
+    private static final String DOCUMENT = "#limited : Limited group\n"
+        + "%limit 2 4\n"
+        + "%cache 30\n"
+        + "##L1 : Method L.1\n"
+        + "@id : Integer The id\n"
+        + "GET /limited/:id info.orestes.rest.Testing1 : Object\n"
+        + "200 ok\n"
+        + "##L2 : Method L.2\n"
+        + "@path : String The path\n"
+        + "@regex : String The regex\n"
+        + "@q : Integer The query\n"
+        + "GET /limited/$regex<[a-z]+>/*path?q=3 info.orestes.rest.Testing2 : List[String]\n"
+        + "Cache-Control: String The cache control header\n"
+        + "200 ok\n"
+        + "404 not found\n"
+        + "##L3 : Method L.3\n"
+        + "%limit 1\n"
+        + "%cache 0\n"
+        + "SPUT /limited/put info.orestes.rest.Testing3(Map[String,Integer])\n"
+        + "200 ok\n";
+
+    private final Module module = new Module();
+    private ServiceDocumentParser parser;
+
+    @Before
+    public void setUp() {
+        module.bind(ConverterService.class, ConverterService.class);
+        parser = new ServiceDocumentParser(new ServiceDocumentTestTypes());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[] document = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+        Spec spec = parser.parse(new ByteArrayInputStream(document));
+        SpecSnapshot snapshot = read(SpecSnapshot.compile(spec), document);
+
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.getSpec().size());
+
+        MethodGroup group = snapshot.getSpec().get(0);
+        assertEquals("limited", group.getName());
+        assertEquals("Limited group", group.getDescription());
+        assertEquals(2, group.getConcurrencyLimit().getMaxConcurrent());
+        assertEquals(4, group.getConcurrencyLimit().getMaxQueued());
+        assertEquals(30, group.getCacheTtl());
+
+        for (int i = 0; i < spec.get(0).size(); ++i) {
+            RestMethod expected = spec.get(0).get(i);
+            RestMethod method = group.get(i);
+
+            assertEquals(expected.toString(), method.toString());
+            assertEquals(expected.getAction(), method.getAction());
+            assertEquals(expected.isForceSSL(), method.isForceSSL());
+            assertSame(expected.getTarget(), method.getTarget());
+            assertEquals(expected.getSignatureAsString(), method.getSignatureAsString());
+            assertEquals(expected.getExpectedResults(), method.getExpectedResults());
+            assertEquals(expected.getRequestType(), method.getRequestType());
+            assertEquals(expected.getResponseType(), method.getResponseType());
+            assertEquals(expected.getRequestHeader().keySet(), method.getRequestHeader().keySet());
+            assertEquals(expected.getRequiredParamaters(), method.getRequiredParamaters());
+            assertEquals(expected.getCacheTtl(), method.getCacheTtl());
+        }
+
+        // the group limit stays shared, so the methods share one bulkhead
+        assertSame(group.getConcurrencyLimit(), group.get(0).getConcurrencyLimit());
+        assertSame(group.getConcurrencyLimit(), group.get(1).getConcurrencyLimit());
+        assertEquals(1, group.get(2).getConcurrencyLimit().getMaxConcurrent());
+        assertEquals(30, group.get(0).getCacheTtl());
+        assertEquals(0, group.get(2).getCacheTtl());
+
+        PathElement regex = group.get(1).getArguments().get("regex");
+        assertEquals(PathElement.Type.REGEX, regex.getType());
+        assertTrue(regex.getRegex().matcher("abc").matches());
+        assertEquals("3", group.get(1).getArguments().get("q").getDefaultValue());
+        assertTrue(group.get(1).hasDynamicPath());
+    }
+
+    @Test
+    public void testRouteTables() throws IOException {
+        byte[] document = getClass().getResourceAsStream("/service.test").readAllBytes();
+        Spec spec = parser.parse(new ByteArrayInputStream(document));
+
+        RestRouter parsed = new RestRouter(module);
+        for (MethodGroup group : spec) {
+            parsed.addAll(group);
+        }
+
+        RestRouter loaded = new RestRouter(module);
+        loaded.addAll(read(SpecSnapshot.compile(spec), document));
+
+        assertEquals(names(parsed.getMethods()), names(loaded.getMethods()));
+        for (int size = 1; size <= 6; ++size) {
+            assertEquals(routes(parsed, size), routes(loaded, size));
+        }
+    }
+
+    @Test
+    public void testStale() throws IOException {
+        byte[] document = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+        SpecSnapshot snapshot = SpecSnapshot.compile(parser.parse(new ByteArrayInputStream(document)));
+
+        byte[] changed = DOCUMENT.replace("/limited/put", "/limited/update").getBytes(StandardCharsets.UTF_8);
+        assertNull(read(snapshot, document, changed));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingClass() throws IOException {
+        byte[] document = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+        SpecSnapshot snapshot = SpecSnapshot.compile(parser.parse(new ByteArrayInputStream(document)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out, document);
+
+        // a class loader which can't load the servlets
+        SpecSnapshot.read(new ByteArrayInputStream(out.toByteArray()), document, new ClassLoader(null) {});
+    }
+
+    @Test
+    public void testLoadWithoutSnapshot() throws IOException {
+        SpecSnapshot snapshot = SpecSnapshot.load("/service.test", parser);
+
+        assertEquals(names(parser.parse("/service.test").stream().flatMap(List::stream).collect(Collectors.toList())),
+            names(snapshot.getMethods()));
+    }
+
+    @Test
+    public void testLoadBrokenSnapshot() throws IOException {
+        //the snapshot matches the document, but its limit table has a negative size
+        SpecSnapshot snapshot = SpecSnapshot.load("/broken.test", parser);
+
+        assertEquals("B1", snapshot.getMethods().get(0).getName());
+    }
+
+    private static SpecSnapshot read(SpecSnapshot snapshot, byte[] document) throws IOException {
+        return read(snapshot, document, document);
+    }
+
+    private static SpecSnapshot read(SpecSnapshot snapshot, byte[] written, byte[] document) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out, written);
+        return SpecSnapshot.read(new ByteArrayInputStream(out.toByteArray()), document,
+            SpecSnapshotTest.class.getClassLoader());
+    }
+
+    private static List<String> names(List<RestMethod> methods) {
+        return methods.stream().map(RestMethod::getName).collect(Collectors.toList());
+    }
+
+    private static List<String> routes(RestRouter router, int size) {
+        return router.getRoutes(size).stream().map(Route::getMethod).map(RestMethod::getName)
+            .collect(Collectors.toList());
+    }
+}
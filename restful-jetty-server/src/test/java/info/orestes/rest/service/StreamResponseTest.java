@@ -0,0 +1,193 @@
+package info.orestes.rest.service;
+
+import info.orestes.rest.Request;
+import info.orestes.rest.Response;
+import info.orestes.rest.RestServlet;
+import info.orestes.rest.conversion.Accept;
+import info.orestes.rest.conversion.BinaryWritableContext;
+import info.orestes.rest.conversion.Context;
+import info.orestes.rest.conversion.Converter;
+import info.orestes.rest.conversion.ConverterFormat;
+import info.orestes.rest.conversion.ReadableContext;
+import info.orestes.rest.conversion.WritableContext;
+import info.orestes.rest.error.RestException;
+import org.eclipse.jetty.server.LocalConnector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static info.orestes.rest.service.RouterFixture.await;
+import static org.junit.Assert.*;
+
+public class StreamResponseTest {
+
+    private static final String END = "";
+    private static final String LINES = "text/x-lines";
+    private static final BlockingQueue<String> source = new LinkedBlockingQueue<>();
+
+    private RouterFixture fixture;
+
+    @Before
+    public void setUp() throws Exception {
+        source.clear();
+
+        String doc = "#test : Test\n" +
+            "##stream : Stream\n" +
+            "GET /stream info.orestes.rest.service.StreamResponseTest$StreamServlet : Stream[String]\n" +
+            "200 ok\n";
+
+        ServiceDocumentParser parser = new ServiceDocumentParser(new ServiceDocumentTestTypes() {
+            @Override
+            public Class<?> getEntityClassForName(String name) {
+                return name.equals("Stream") ? Stream.class : super.getEntityClassForName(name);
+            }
+        });
+        fixture = new RouterFixture(parser.parse(new StringReader(doc)));
+        fixture.getConverterService().addFormat(new LinesFormat(), false);
+        fixture.getConverterService().add(new LineConverter());
+        fixture.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        source.offer(END);
+        fixture.stop();
+    }
+
+    @Test
+    public void testPrefix() throws Exception {
+        source.add("a");
+        source.add("b");
+        source.add(END);
+
+        //the prefix written while the writer is created is kept
+        String response = fixture.request("GET /stream HTTP/1.0\r\nAccept: " + LINES + "\r\n\r\n");
+        assertTrue(response.startsWith("HTTP/1.1 200"));
+        assertEquals("[a\nb\n]", RouterFixture.content(response));
+    }
+
+    @Test
+    public void testSlowStream() throws Exception {
+        fixture.getRouter().setStreamFlushLatency(20);
+        source.add("a");
+
+        LocalConnector.LocalEndPoint endPoint = fixture.getConnector()
+            .executeRequest("GET /stream HTTP/1.0\r\nAccept: " + LINES + "\r\n\r\n");
+
+        //the first entity is sent although the stream blocks for the second one
+        StringBuilder output = new StringBuilder();
+        await(() -> output.append(endPoint.takeOutputString()).toString().endsWith("[a\n"));
+
+        source.add("b");
+        source.add(END);
+        endPoint.waitUntilClosedOrIdleFor(10, TimeUnit.SECONDS);
+        output.append(endPoint.takeOutputString());
+        assertEquals("[a\nb\n]", RouterFixture.content(output.toString()));
+    }
+
+    public static class StreamServlet extends RestServlet {
+        @Override
+        public void doGet(Request request, Response response) {
+            Iterator<String> iterator = new Iterator<String>() {
+                private String next;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null) {
+                        try {
+                            next = source.poll(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return next != null && !next.equals(END);
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    String value = next;
+                    next = null;
+                    return value;
+                }
+            };
+
+            response.sendEntity(StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false));
+        }
+    }
+
+    /**
+     * A streaming format, which writes the entities as lines in brackets
+     */
+    public static class LinesFormat extends ConverterFormat<StringBuilder> {
+        public LinesFormat() {
+            super(null);
+        }
+
+        @Override
+        public <T> EntityWriter<T> newEntityWriter(WritableContext context, EntityType<T> entityType,
+                Converter<T, StringBuilder> converter) {
+            OutputStream out;
+            try {
+                out = ((BinaryWritableContext) context).getOutputStream();
+                out.write('[');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new EntityWriter<T>() {
+                @Override
+                public void write(T entity) throws IOException {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void writeNext(T entity) throws IOException, RestException {
+                    String line = converter.toFormat(context, entity, entityType.getActualTypeArguments()) + "\n";
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.write(']');
+                }
+            };
+        }
+
+        @Override
+        public <T> EntityReader<T> newEntityReader(ReadableContext context, EntityType<T> entityType,
+                Converter<T, StringBuilder> converter) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Accept(LINES)
+    public static class LineConverter extends Converter<String, StringBuilder> {
+        @Override
+        public StringBuilder toFormat(Context context, String source, Class<?>[] genericParams) {
+            return new StringBuilder(source);
+        }
+
+        @Override
+        public String toObject(Context context, StringBuilder source, Class<?>[] genericParams) {
+            return source.toString();
+        }
+    }
+}
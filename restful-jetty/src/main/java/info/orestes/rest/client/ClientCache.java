@@ -0,0 +1,432 @@
+package info.orestes.rest.client;
+
+import info.orestes.rest.service.EntityType;
+import org.eclipse.jetty.client.HttpResponse;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.HttpVersion;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-memory cache of decoded response entities, which is used by {@link RestRequest#send(EntityType)} when it is
+ * set on the {@link RestClient}.
+ * <p>
+ * Entities are stored per URI and {@link EntityType}, so fresh hits skip the network round-trip and the conversion.
+ * The freshness is taken from the <code>max-age</code> of the <code>Cache-Control</code> header, responses with
+ * <code>no-store</code> are not stored and stale entries are revalidated with their <code>ETag</code> and
+ * <code>Last-Modified</code> validators, as are all entries requested with <code>no-cache</code> or
+ * <code>max-age=0</code>. The request headers named by the <code>Vary</code> header of a response are part of the key
+ * of its entity. Requests with an <code>Authorization</code> header only use and store responses which are marked as
+ * <code>public</code>. Requests with other methods than GET, HEAD and OPTIONS invalidate the entries of their URI.
+ * <p>
+ * Hits share the same entity instance, which therefore must not be modified by the caller. The least recently used
+ * entries are evicted when the maximum size is exceeded.
+ */
+public class ClientCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private static final String[] UPDATED_HEADERS = {
+        HttpHeader.CACHE_CONTROL.asString(), HttpHeader.ETAG.asString(), HttpHeader.LAST_MODIFIED.asString(),
+        HttpHeader.EXPIRES.asString(), HttpHeader.DATE.asString()
+    };
+
+    private final int maximumSize;
+    private final Map<Key, Entry> entries;
+    //the names of the request headers which select the entity of a URI and entity type
+    private final Map<Key, List<String>> variations;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ClientCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a client cache
+     *
+     * @param maximumSize The maximum number of stored entities
+     */
+    public ClientCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive.");
+        }
+
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ClientCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.variations = new LinkedHashMap<Key, List<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<String>> eldest) {
+                return size() > ClientCache.this.maximumSize;
+            }
+        };
+    }
+
+    <T> CompletableFuture<EntityResponse<T>> send(RestRequest request, EntityType<T> entityType) {
+        String method = request.getMethod();
+        if (!HttpMethod.GET.is(method)) {
+            if (!HttpMethod.HEAD.is(method) && !HttpMethod.OPTIONS.is(method)) {
+                invalidate(request.getURI());
+            }
+            return request.sendEntity(entityType);
+        }
+
+        HttpFields requestHeaders = request.getHeaders();
+        if (Void.class.equals(entityType.getRawType()) || requestHeaders.containsKey(HttpHeader.IF_NONE_MATCH.asString())
+            || requestHeaders.containsKey(HttpHeader.IF_MODIFIED_SINCE.asString())
+            || hasDirective(requestHeaders.get(HttpHeader.CACHE_CONTROL), "no-store")) {
+            //not cacheable or validated by the caller itself
+            return request.sendEntity(entityType);
+        }
+
+        //the headers are taken before the client adds its own ones
+        HttpFields sentHeaders = new HttpFields(requestHeaders);
+        boolean authorized = requestHeaders.containsKey(HttpHeader.AUTHORIZATION.asString());
+        String cacheControl = requestHeaders.get(HttpHeader.CACHE_CONTROL);
+        boolean revalidate = hasDirective(cacheControl, "no-cache")
+            || "0".equals(getDirective(cacheControl, "max-age"));
+
+        Key base = new Key(request.getURI(), entityType, Collections.emptyMap());
+        Key key = getKey(base, sentHeaders);
+        Entry entry = get(key);
+        if (entry != null && authorized && !entry.isPublic()) {
+            //the entity may belong to another user
+            entry = null;
+        }
+
+        if (entry != null && !revalidate && entry.isFresh(System.nanoTime())) {
+            hits.increment();
+            return CompletableFuture.completedFuture(entry.toResponse(request, entityType));
+        }
+
+        if (entry != null) {
+            String etag = entry.headers.get(HttpHeader.ETAG);
+            if (etag != null) {
+                request.header(HttpHeader.IF_NONE_MATCH, etag);
+            }
+
+            String lastModified = entry.headers.get(HttpHeader.LAST_MODIFIED);
+            if (lastModified != null) {
+                request.header(HttpHeader.IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+
+        long requested = System.nanoTime();
+        Entry validated = entry;
+        return request.sendEntity(entityType).thenApply(response -> {
+            if (validated != null && response.getStatus() == HttpStatus.NOT_MODIFIED_304) {
+                revalidations.increment();
+                Entry updated = validated.update(response.getHeaders(), requested);
+                put(key, updated);
+                return updated.toResponse(request, entityType);
+            }
+
+            misses.increment();
+            store(base, sentHeaders, authorized, response, requested);
+            return response;
+        });
+    }
+
+    private void store(Key base, HttpFields requestHeaders, boolean authorized, EntityResponse<?> response,
+            long requested) {
+        HttpFields headers = response.getHeaders();
+        List<String> vary = new ArrayList<>();
+        for (String name : headers.getCSV(HttpHeader.VARY, false)) {
+            vary.add(name.toLowerCase(Locale.ENGLISH));
+        }
+        Collections.sort(vary);
+
+        String cacheControl = headers.get(HttpHeader.CACHE_CONTROL);
+        if (authorized && !hasDirective(cacheControl, "public")) {
+            //a private response neither replaces nor invalidates the shared entity
+            return;
+        }
+
+        Key key = base.withVariant(requestHeaders, vary);
+        if (response.getStatus() != HttpStatus.OK_200 || response.getEntity() == null
+            || hasDirective(cacheControl, "no-store") || vary.contains("*")) {
+            invalidate(key);
+            return;
+        }
+
+        synchronized (entries) {
+            if (vary.isEmpty()) {
+                variations.remove(base);
+            } else {
+                variations.put(base, vary);
+            }
+        }
+
+        Entry entry = new Entry(response.getVersion(), response.getStatus(), response.getReason(),
+            new HttpFields(headers), response.getEntity(), requested);
+        if (entry.expires - requested > 0 || entry.isValidatable()) {
+            put(key, entry);
+        } else {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Returns the key of the entity which the request headers select, according to the last response of the URI
+     */
+    private Key getKey(Key base, HttpFields requestHeaders) {
+        List<String> vary;
+        synchronized (entries) {
+            vary = variations.get(base);
+        }
+        return vary == null ? base : base.withVariant(requestHeaders, vary);
+    }
+
+    private Entry get(Key key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private void put(Key key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private void invalidate(Key key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Removes all entities of a URI
+     *
+     * @param uri The URI of the requests
+     */
+    public void invalidate(URI uri) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.uri.equals(uri));
+            variations.keySet().removeIf(key -> key.uri.equals(uri));
+        }
+    }
+
+    /**
+     * Removes all entities
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            variations.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * The number of requests which were answered by a fresh entity without a network round-trip
+     *
+     * @return The number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of requests which were answered by a stale entity after a <code>304 Not Modified</code>
+     *
+     * @return The number of revalidations
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * The number of GET requests which received a new entity from the server
+     *
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * The ratio of cacheable requests which were answered without a network round-trip
+     *
+     * @return The hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long hits = getHits();
+        long requests = hits + getRevalidations() + getMisses();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        return getDirective(cacheControl, directive) != null;
+    }
+
+    /**
+     * Returns the value of a <code>Cache-Control</code> directive
+     *
+     * @return The value, an empty string for directives without a value or <code>null</code> if it is missing
+     */
+    private static String getDirective(String cacheControl, String directive) {
+        if (cacheControl == null) {
+            return null;
+        }
+
+        for (String part : cacheControl.split(",")) {
+            String token = part.trim();
+            int index = token.indexOf('=');
+            String name = index < 0 ? token : token.substring(0, index).trim();
+            if (name.equalsIgnoreCase(directive)) {
+                return index < 0 ? "" : token.substring(index + 1).trim().replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    private static long getFreshnessLifetime(HttpFields headers) {
+        String cacheControl = headers.get(HttpHeader.CACHE_CONTROL);
+        String maxAge = getDirective(cacheControl, "max-age");
+        if (maxAge == null || hasDirective(cacheControl, "no-cache")) {
+            return 0;
+        }
+
+        try {
+            long age = headers.containsKey(HttpHeader.AGE.asString()) ? headers.getLongField(HttpHeader.AGE.asString()) : 0;
+            return Math.max(0, Long.parseLong(maxAge) - age);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static class Key {
+        private final URI uri;
+        private final EntityType<?> entityType;
+        private final Map<String, String> variant;
+
+        Key(URI uri, EntityType<?> entityType, Map<String, String> variant) {
+            this.uri = uri;
+            this.entityType = entityType;
+            this.variant = variant;
+        }
+
+        /**
+         * Creates the key of a variant of the entity
+         *
+         * @param requestHeaders The headers of the request
+         * @param vary The lower case names of the request headers which select the variant
+         * @return The key of the variant
+         */
+        Key withVariant(HttpFields requestHeaders, List<String> vary) {
+            Map<String, String> variant = new HashMap<>();
+            for (String name : vary) {
+                variant.put(name, String.join(",", requestHeaders.getValuesList(name)));
+            }
+            return new Key(uri, entityType, variant);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return uri.equals(key.uri) && entityType.equals(key.entityType) && variant.equals(key.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uri, entityType, variant);
+        }
+    }
+
+    private static class Entry {
+        private final HttpVersion version;
+        private final int status;
+        private final String reason;
+        private final HttpFields headers;
+        private final Object entity;
+        private final long expires;
+
+        Entry(HttpVersion version, int status, String reason, HttpFields headers, Object entity, long requested) {
+            this.version = version;
+            this.status = status;
+            this.reason = reason;
+            this.headers = headers;
+            this.entity = entity;
+            //the lifetime starts when the request was sent, like the age calculation of RFC 7234
+            this.expires = requested + TimeUnit.SECONDS.toNanos(getFreshnessLifetime(headers));
+        }
+
+        boolean isFresh(long now) {
+            return now - expires < 0;
+        }
+
+        boolean isPublic() {
+            return hasDirective(headers.get(HttpHeader.CACHE_CONTROL), "public");
+        }
+
+        boolean isValidatable() {
+            return headers.containsKey(HttpHeader.ETAG.asString())
+                || headers.containsKey(HttpHeader.LAST_MODIFIED.asString());
+        }
+
+        Entry update(HttpFields notModified, long requested) {
+            HttpFields updated = new HttpFields(headers);
+            for (String name : UPDATED_HEADERS) {
+                HttpField field = notModified.getField(name);
+                if (field != null) {
+                    updated.put(field);
+                }
+            }
+            return new Entry(version, status, reason, updated, entity, requested);
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> EntityResponse<T> toResponse(RestRequest request, EntityType<T> entityType) {
+            HttpResponse response = new HttpResponse(request, Collections.emptyList());
+            response.version(version).status(status).reason(reason);
+            response.getHeaders().addAll(headers);
+            return new EntityResponse<>(response, entityType, (T) entity);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package info.orestes.rest.client;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link InputStream} which is fed with the content chunks of a response and read by a consumer.
+ * <p>
+ * Received chunks are copied into pooled buffers as long as the retained content fits into the window. A chunk which
+ * exceeds the window is kept without copying and its {@link Callback} is only completed after the consumer has read
+ * it, so the client does not read further content from the network until the consumer catches up. The memory
+ * retained per response is therefore bounded by the window plus a single network chunk.
+ * <p>
+ * Small chunks are appended to the last copied buffer while it has space left, and new buffers grow geometrically up
+ * to {@link #MAX_BUFFER_SIZE}. The consumer reads the buffers one after another, the content is never copied into a
+ * single contiguous array.
+ */
+public class ContentInputStream extends InputStream {
+
+    /**
+     * The maximum capacity of a buffer which holds copied chunks
+     */
+    public static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBufferPool pool;
+    private final long window;
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    private long retained;
+    private int nextCapacity;
+    private boolean completed;
+    private boolean closed;
+    private Throwable failure;
+
+    /**
+     * Creates a new stream
+     *
+     * @param pool   The pool of the buffers which hold copied chunks
+     * @param window The maximum number of bytes which are copied before the network read is suspended
+     */
+    public ContentInputStream(ByteBufferPool pool, long window) {
+        this(pool, window, 0);
+    }
+
+    /**
+     * Creates a new stream
+     *
+     * @param pool            The pool of the buffers which hold copied chunks
+     * @param window          The maximum number of bytes which are copied before the network read is suspended
+     * @param initialCapacity The expected content length, which is used to size the first buffer
+     */
+    public ContentInputStream(ByteBufferPool pool, long window, int initialCapacity) {
+        this.pool = pool;
+        this.window = window;
+        this.nextCapacity = Math.min(initialCapacity, MAX_BUFFER_SIZE);
+    }
+
+    /**
+     * Adds a received content chunk
+     *
+     * @param content  The content chunk, which is only valid until the callback is completed
+     * @param callback The callback to complete when the content chunk is consumed
+     */
+    public void offer(ByteBuffer content, Callback callback) {
+        boolean consumed = true;
+
+        synchronized (this) {
+            int size = content.remaining();
+            if (!closed && size > 0) {
+                if (retained + size <= window) {
+                    copy(content);
+                } else {
+                    chunks.add(new Chunk(content, callback));
+                    consumed = false;
+                }
+
+                retained += size;
+                notifyAll();
+            }
+        }
+
+        if (consumed) {
+            callback.succeeded();
+        }
+    }
+
+    private void copy(ByteBuffer content) {
+        Chunk tail = chunks.peekLast();
+        if (tail != null && tail.callback == null) {
+            BufferUtil.append(tail.buffer, content);
+        }
+
+        if (content.hasRemaining()) {
+            int capacity = Math.max(content.remaining(), nextCapacity);
+            nextCapacity = Math.min(capacity * 2, MAX_BUFFER_SIZE);
+
+            ByteBuffer buffer = pool.acquire(capacity, false);
+            BufferUtil.clear(buffer);
+            BufferUtil.append(buffer, content);
+            chunks.add(new Chunk(buffer, null));
+        }
+    }
+
+    /**
+     * Signals that all content chunks were received
+     */
+    public synchronized void complete() {
+        completed = true;
+        notifyAll();
+    }
+
+    /**
+     * Signals that the response has failed, the consumer receives the failure after the received content
+     *
+     * @param failure The cause of the failure
+     */
+    public synchronized void fail(Throwable failure) {
+        this.failure = failure;
+        notifyAll();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        Callback consumed = null;
+        int read;
+
+        synchronized (this) {
+            Chunk chunk;
+            while ((chunk = chunks.peek()) == null) {
+                if (closed) {
+                    throw new IOException("The stream is closed");
+                } else if (failure != null) {
+                    throw new IOException(failure);
+                } else if (completed) {
+                    return -1;
+                }
+
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+
+            read = Math.min(len, chunk.buffer.remaining());
+            chunk.buffer.get(b, off, read);
+            retained -= read;
+
+            if (!chunk.buffer.hasRemaining()) {
+                chunks.poll();
+                consumed = chunk.release();
+            }
+        }
+
+        if (consumed != null) {
+            consumed.succeeded();
+        }
+
+        return read;
+    }
+
+    @Override
+    public synchronized int available() {
+        Chunk chunk = chunks.peek();
+        return chunk == null ? 0 : chunk.buffer.remaining();
+    }
+
+    /**
+     * Discards all retained content, content which is received afterwards is discarded immediately
+     */
+    @Override
+    public void close() {
+        List<Callback> consumed = new ArrayList<>();
+
+        synchronized (this) {
+            closed = true;
+            retained = 0;
+
+            Chunk chunk;
+            while ((chunk = chunks.poll()) != null) {
+                Callback callback = chunk.release();
+                if (callback != null) {
+                    consumed.add(callback);
+                }
+            }
+            notifyAll();
+        }
+
+        for (Callback callback : consumed) {
+            callback.succeeded();
+        }
+    }
+
+    private class Chunk {
+        private final ByteBuffer buffer;
+        private final Callback callback;
+
+        private Chunk(ByteBuffer buffer, Callback callback) {
+            this.buffer = buffer;
+            this.callback = callback;
+        }
+
+        /**
+         * Returns the copied buffer to the pool or the callback which must be completed to release the network buffer
+         */
+        private Callback release() {
+            if (callback == null) {
+                pool.release(buffer);
+            }
+            return callback;
+        }
+    }
+}
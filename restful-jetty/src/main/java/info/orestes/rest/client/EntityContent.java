@@ -1,14 +1,16 @@
 package info.orestes.rest.client;
 
-import info.orestes.rest.conversion.WritableContext;
+import info.orestes.rest.conversion.BinaryWritableContext;
 import info.orestes.rest.service.EntityType;
 import org.apache.tika.mime.MediaType;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -93,20 +95,24 @@ public void remove() {
         };
     }
 
-    public class EntityWriter implements WritableContext {
+    public class EntityWriter implements BinaryWritableContext {
+        private ContentOutputStream out;
         private Writer writer;
 
         public ByteBuffer write(EntityType<?> entityType, MediaType contentType, Object entity) {
-            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                writer = new OutputStreamWriter(out, getContentCharset());
+            try {
+                out = new ContentOutputStream();
                 getRequest().getClient().getConverterService().toRepresentation(this, entityType, entity);
-                writer.flush();
+                if (writer != null) {
+                    writer.flush();
+                }
 
-                return ByteBuffer.wrap(out.toByteArray());
+                return out.toByteBuffer();
             } catch (Exception e) {
                 getRequest().abort(e);
                 return null;
             } finally {
+                out = null;
                 writer = null;
             }
         }
@@ -122,14 +128,36 @@ public void setArgument(String name, Object value) {
             getRequest().attribute(name, value);
         }
 
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
         @Override
         public Writer getWriter() throws IOException {
+            if (writer == null && out != null) {
+                writer = new OutputStreamWriter(out, getContentCharset());
+            }
             return writer;
         }
 
+        @Override
+        public Charset getCharset() {
+            return getContentCharset();
+        }
+
         @Override
         public MediaType getMediaType() {
             return EntityContent.this.getMediaType();
         }
     }
+
+    /**
+     * Exposes the written bytes without copying them
+     */
+    private static class ContentOutputStream extends ByteArrayOutputStream {
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
 }
@@ -8,14 +8,16 @@
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
 
-import java.io.ByteArrayInputStream;
+import org.eclipse.jetty.util.Callback;
+
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 public abstract class EntityResponseListener<E> extends ResponseListener<E> {
 
-    private byte[] buffer = new byte[0];
-    private int bufferOffset = 0;
+    private ContentInputStream content;
+    private int contentLength = 0;
+    private long received = 0;
 
     public EntityResponseListener(Class<E> type) {
         super(type);
@@ -37,28 +39,41 @@ public void onHeaders(Response response) {
         HttpFields headers = response.getHeaders();
         long length = headers.getLongField(HttpHeader.CONTENT_LENGTH.asString());
         if (length > 0) {
-            buffer = new byte[(int) length];
+            contentLength = (int) Math.min(length, Integer.MAX_VALUE);
         }
     }
 
     @Override
-    public void onContent(Response response, ByteBuffer content) {
-        int newBufferOffset = bufferOffset + content.remaining();
-
-        if (newBufferOffset > buffer.length) {
-            byte[] newBuffer = new byte[newBufferOffset];
-            System.arraycopy(buffer, 0, newBuffer, 0, bufferOffset);
-            buffer = newBuffer;
+    public void onContent(Response response, ByteBuffer content, Callback callback) {
+        if (this.content == null) {
+            // the whole entity is read after the response is complete, so the window must not limit it
+            this.content = new ContentInputStream(getRequest().getClient().getByteBufferPool(), Long.MAX_VALUE,
+                contentLength);
         }
 
-        content.get(buffer, bufferOffset, content.remaining());
-        bufferOffset = newBufferOffset;
+        received += content.remaining();
+        this.content.offer(content, callback);
     }
 
     @Override
     public final void onComplete(Result result) {
-        InputStream data = buffer.length > 0 ? new ByteArrayInputStream(buffer, 0, bufferOffset) : null;
+        InputStream data = null;
+        if (content != null) {
+            content.complete();
+            data = received > 0 ? content : null;
+        }
+
+        try {
+            onComplete(result, data);
+        } finally {
+            if (content != null) {
+                // returns the unread buffers to the pool
+                content.close();
+            }
+        }
+    }
 
+    private void onComplete(Result result, InputStream data) {
         if (result.isSucceeded()) {
             try {
                 E entity = readEntity(result.getResponse(), data);
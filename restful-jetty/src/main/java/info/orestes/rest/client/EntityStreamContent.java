@@ -1,32 +1,44 @@
 package info.orestes.rest.client;
 
 import info.orestes.rest.conversion.ConverterFormat.EntityWriter;
-import info.orestes.rest.conversion.WritableContext;
+import info.orestes.rest.conversion.BinaryWritableContext;
 import info.orestes.rest.error.RestException;
 import info.orestes.rest.service.EntityType;
+import info.orestes.rest.util.ByteBufferOutputStream;
 import org.apache.tika.mime.MediaType;
 import org.eclipse.jetty.io.RuntimeIOException;
+import org.eclipse.jetty.util.Callback;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.NotActiveException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.stream.Stream;
 
 /**
  * convert an entity to a representation and provide the converted content
+ * <p>
+ * By default the entities are converted lazily while the request body is sent with chunked transfer encoding, so the
+ * stream can only be sent once. If a Content-Length is required, the converted entities are spooled to a temporary
+ * file first, see {@link #setContentLengthRequired(boolean)}.
  */
 public class EntityStreamContent<E> extends EntityContentProvider<E> {
 
     private Stream<E> objects;
     private int bufferSize = 4096;
-    private EntityWriteContext context = new EntityWriteContext();
+    private boolean contentLengthRequired;
+    private EntityWriteContext context;
 
     public EntityStreamContent(Class<E> type, Stream<E> objects) {
         this(new EntityType<>(type), objects);
@@ -42,20 +54,175 @@ public EntityStreamContent(EntityType<E> entityType, Stream<E> objects, MediaTyp
         this.objects = objects;
     }
 
+    /**
+     * Indicates if the entities are spooled to a temporary file to send the Content-Length of the request
+     *
+     * @return <code>true</code> if the Content-Length is sent, otherwise the content is sent in chunks
+     */
+    public boolean isContentLengthRequired() {
+        return contentLengthRequired;
+    }
+
+    /**
+     * Sets if the entities should be spooled to a temporary file to send the Content-Length of the request
+     *
+     * @param contentLengthRequired <code>true</code> to send the Content-Length, <code>false</code> to send the
+     *                              content in chunks while the entities are converted
+     */
+    public void setContentLengthRequired(boolean contentLengthRequired) {
+        this.contentLengthRequired = contentLengthRequired;
+    }
+
     @Override
     public long getLength() {
-        return context.getLength();
+        return contentLengthRequired ? getContext().getLength() : -1;
     }
 
     @Override
     public Iterator<ByteBuffer> iterator() {
-        context.getLength();
+        if (contentLengthRequired) {
+            getContext().getLength();
+            return getContext();
+        } else {
+            if (objects == null) {
+                throw new IllegalStateException("The entity stream was already sent");
+            }
+            return new ChunkedWriteContext();
+        }
+    }
+
+    private EntityWriteContext getContext() {
+        if (context == null) {
+            context = new EntityWriteContext();
+        }
         return context;
     }
 
-    class EntityWriteContext implements WritableContext, Iterator<ByteBuffer>, Closeable {
+    /**
+     * Converts the entities on demand, each chunk is converted after the previous one was consumed
+     */
+    class ChunkedWriteContext implements BinaryWritableContext, Iterator<ByteBuffer>, Callback, Closeable {
+
+        private final Iterator<E> iterator;
+        private final EntityWriter<E> entityWriter;
+        private final ByteBufferOutputStream out;
+        private PrintWriter writer;
+        private boolean sent;
+        private boolean completed;
+
+        private ChunkedWriteContext() {
+            iterator = objects.iterator();
+            objects = null;
+
+            //the entity writer may already write a prefix
+            out = new ByteBufferOutputStream(getRequest().getClient().getByteBufferPool(), bufferSize, false);
+            try {
+                entityWriter = getConverterService().newEntityWriter(this, getEntityType(), getMediaType());
+            } catch (RestException e) {
+                out.release();
+                throw new RuntimeIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !completed;
+        }
+
+        @Override
+        public ByteBuffer next() {
+            if (completed) {
+                throw new NoSuchElementException();
+            }
+
+            //the previous chunk is consumed before the next one is requested
+            if (sent) {
+                out.reset();
+            }
+            sent = true;
+
+            try {
+                while (out.size() < bufferSize && iterator.hasNext()) {
+                    entityWriter.writeNext(iterator.next());
+                    flush();
+                }
+
+                if (!iterator.hasNext()) {
+                    entityWriter.close();
+                    flush();
+                    completed = true;
+                }
+            } catch (RestException | IOException e) {
+                close();
+                throw new RuntimeIOException(e);
+            }
+
+            return out.getByteBuffer();
+        }
+
+        private void flush() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public void succeeded() {
+            if (completed) {
+                close();
+            }
+        }
+
+        @Override
+        public void failed(Throwable x) {
+            close();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(out, getContentCharset()));
+            }
+            return writer;
+        }
+
+        @Override
+        public Charset getCharset() {
+            return getContentCharset();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getArgument(String name) {
+            return (T) getRequest().getAttributes().get(name);
+        }
+
+        @Override
+        public void setArgument(String name, Object value) {
+            getRequest().attribute(name, value);
+        }
+
+        @Override
+        public MediaType getMediaType() {
+            return EntityStreamContent.this.getMediaType();
+        }
+
+        @Override
+        public void close() {
+            completed = true;
+            out.release();
+        }
+    }
+
+    class EntityWriteContext implements BinaryWritableContext, Iterator<ByteBuffer>, Closeable {
 
         private final Path tmpFile;
+        private OutputStream out;
         private PrintWriter writer;
         private ReadableByteChannel channel;
         private ByteBuffer byteBuffer = ByteBuffer.allocateDirect(bufferSize);
@@ -73,14 +240,18 @@ private EntityWriteContext() {
         private void fillBuffer() {
             if (fileSize == -1) {
                 try {
-                    writer = new PrintWriter(Files.newBufferedWriter(tmpFile, getContentCharset()));
+                    out = new BufferedOutputStream(Files.newOutputStream(tmpFile));
 
                     try (EntityWriter<E> entityWriter = getConverterService().newEntityWriter(context, getEntityType(), getMediaType())) {
                         for (Iterator<E> iterator = objects.iterator(); iterator.hasNext(); )
                             entityWriter.writeNext(iterator.next());
                     } finally {
-                        writer.flush();
-                        writer.close();
+                        if (writer != null) {
+                            writer.close();
+                        } else {
+                            out.close();
+                        }
+                        out = null;
                         writer = null;
                         objects = null;
                     }
@@ -134,11 +305,24 @@ public long getLength() {
             return fileSize;
         }
 
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
         @Override
         public PrintWriter getWriter() throws IOException {
+            if (writer == null && out != null) {
+                writer = new PrintWriter(new OutputStreamWriter(out, getContentCharset()));
+            }
             return writer;
         }
 
+        @Override
+        public Charset getCharset() {
+            return getContentCharset();
+        }
+
         @Override
         @SuppressWarnings("unchecked")
         public <T> T getArgument(String name) {
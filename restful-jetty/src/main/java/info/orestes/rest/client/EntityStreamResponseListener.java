@@ -9,14 +9,9 @@
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.util.Callback;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.WritableByteChannel;
 import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
@@ -25,7 +20,12 @@
 
 public abstract class EntityStreamResponseListener<E> extends ResponseListener<E> {
 
-    private WritableByteChannel channel;
+    /**
+     * The default number of received bytes which are buffered before the network read is suspended
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1024 * 1024;
+
+    private long windowSize = DEFAULT_WINDOW_SIZE;
 
     public EntityStreamResponseListener(Class<E> type) {
         super(type);
@@ -37,7 +37,26 @@ public EntityStreamResponseListener(EntityType<E> entityType) {
 
     private boolean hasError = false;
 
-    private InputStream inputStream;
+    private ContentInputStream inputStream;
+
+    /**
+     * Returns the number of received bytes which are buffered until the stream consumer reads them
+     *
+     * @return The window size in bytes
+     */
+    public long getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Sets the number of received bytes which are buffered until the stream consumer reads them. If the consumer falls
+     * behind, the content is not read from the network until the consumer has caught up.
+     *
+     * @param windowSize The window size in bytes
+     */
+    public void setWindowSize(long windowSize) {
+        this.windowSize = windowSize;
+    }
 
     @Override
     @SuppressWarnings("unchecked")
@@ -55,13 +74,9 @@ public void onHeaders(Response response) {
         boolean hasContent = length != 0 && status != 204 && status != 304 && status >= 200;
 
         if (hasContent) {
-            try {
-                PipedOutputStream pipeOutput = new PipedOutputStream();
-                inputStream = new PipedInputStream(pipeOutput, 1024 * 1024);
-                channel = Channels.newChannel(pipeOutput);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            // error bodies are read after the response is complete, so they can't be limited by the window
+            long window = status < 400 ? windowSize : Long.MAX_VALUE;
+            inputStream = new ContentInputStream(getRequest().getClient().getByteBufferPool(), window);
         } else {
             onComplete(new EntityResult<Stream<E>>(response.getRequest(), response, Stream.empty()));
         }
@@ -96,21 +111,21 @@ private Stream<E> generateStreamAsync(Response response) throws UnsupportedMedia
     }
 
     @Override
-    public void onContent(Response response, ByteBuffer content) {
-        try {
-            channel.write(content);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    public void onContent(Response response, ByteBuffer content, Callback callback) {
+        if (inputStream != null) {
+            inputStream.offer(content, callback);
+        } else {
+            callback.succeeded();
         }
     }
 
     @Override
     public final void onComplete(Result result) {
-        if (channel != null) {
-            try {
-                channel.close();
-            } catch (IOException e) {
-                onComplete(new EntityResult<>(result.getRequest(), result.getResponse(), e));
+        if (inputStream != null) {
+            if (result.isSucceeded()) {
+                inputStream.complete();
+            } else {
+                inputStream.fail(result.getFailure());
             }
         }
 
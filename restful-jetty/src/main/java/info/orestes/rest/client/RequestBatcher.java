@@ -0,0 +1,496 @@
+package info.orestes.rest.client;
+
+import info.orestes.rest.error.RestException;
+import info.orestes.rest.service.EntityType;
+import info.orestes.rest.util.MultipartParser;
+import info.orestes.rest.util.MultipartReader;
+import info.orestes.rest.util.MultipartWriter;
+import org.apache.tika.mime.MediaType;
+import org.eclipse.jetty.client.HttpResponse;
+import org.eclipse.jetty.client.api.ContentProvider;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BytesContentProvider;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpParser;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the requests which are sent with {@link RestRequest#send(EntityType)} within a short window into a single
+ * <code>multipart/mixed</code> request to the batch resource of the server, when it is set on the
+ * {@link RestClient}.
+ * <p>
+ * Each request is sent as an <code>application/http</code> part and is correlated with its response by the
+ * <code>Content-ID</code> of the part, so the responses are completed in the order the server finishes them. The
+ * requests are grouped by their origin, a window with a single request is sent on its own and a full batch is sent
+ * without waiting for the window to elapse. Requests with streamed content are never batched. The response is parsed
+ * while it arrives and each request keeps its own timeout.
+ */
+public class RequestBatcher {
+
+    public static final String DEFAULT_PATH = "/batch";
+    public static final long DEFAULT_WINDOW_MILLIS = 5;
+    public static final int DEFAULT_MAXIMUM_SIZE = 32;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+
+    private static final String APPLICATION_HTTP = "application/http";
+    private static final String CONTENT_ID = "Content-ID";
+
+    private final String path;
+    private final long window;
+    private final int maximumSize;
+    private final Map<String, Batch> batches = new HashMap<>();
+    private final LongAdder sentBatches = new LongAdder();
+    private final LongAdder batchedRequests = new LongAdder();
+    private volatile long timeout = DEFAULT_TIMEOUT_MILLIS;
+
+    public RequestBatcher() {
+        this(DEFAULT_PATH, DEFAULT_WINDOW_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a request batcher
+     *
+     * @param path The path of the batch resource on the server
+     * @param window The time to wait for further requests after the first request of a batch
+     * @param unit The unit of the window
+     * @param maximumSize The maximum number of requests in a batch
+     */
+    public RequestBatcher(String path, long window, TimeUnit unit, int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive.");
+        }
+
+        this.path = path;
+        this.window = unit.toMillis(window);
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Indicates if the request can be sent as a part of a batch
+     *
+     * @param request The request
+     * @return <code>true</code> if the request has no content or a buffered entity and does not target the batch
+     * resource
+     */
+    boolean isBatchable(RestRequest request) {
+        ContentProvider content = request.getContent();
+        return (content == null || content instanceof EntityContent) && !path.equals(request.getPath());
+    }
+
+    <T> CompletableFuture<EntityResponse<T>> send(RestRequest request, EntityType<T> entityType) {
+        Entry<T> entry = new Entry<>(request, entityType);
+        String origin = request.getScheme() + "://" + request.getHost() + ":" + request.getPort();
+
+        Batch full = null;
+        synchronized (batches) {
+            Batch batch = batches.computeIfAbsent(origin, key -> new Batch(request.getClient(), origin));
+            if (batch.entries.isEmpty()) {
+                batch.task = batch.client.getScheduler().schedule(() -> flush(batch), window, TimeUnit.MILLISECONDS);
+            }
+
+            batch.entries.add(entry);
+            if (batch.entries.size() >= maximumSize) {
+                batches.remove(origin);
+                batch.task.cancel();
+                full = batch;
+            }
+        }
+
+        if (full != null) {
+            send(full);
+        }
+
+        return entry.future;
+    }
+
+    private void flush(Batch batch) {
+        synchronized (batches) {
+            if (!batches.remove(batch.origin, batch)) {
+                return;
+            }
+        }
+
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        if (batch.entries.size() == 1) {
+            batch.entries.get(0).exchange();
+            return;
+        }
+
+        sentBatches.increment();
+        batchedRequests.add(batch.entries.size());
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        MultipartWriter writer = new MultipartWriter(body);
+        Map<String, Entry<?>> pending = new ConcurrentHashMap<>();
+        try {
+            for (Entry<?> entry : batch.entries) {
+                byte[] part = entry.toHttp();
+                if (part == null) {
+                    continue;
+                }
+
+                String id = String.valueOf(pending.size());
+                Map<String, String> headers = new LinkedHashMap<>();
+                headers.put(HttpHeader.CONTENT_TYPE.asString(), APPLICATION_HTTP);
+                headers.put(CONTENT_ID, id);
+                writer.writePart(headers, part, 0, part.length);
+                pending.put(id, entry);
+            }
+            writer.close();
+        } catch (IOException e) {
+            //the body is written to memory
+            throw new IllegalStateException(e);
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        RestRequest request = batch.client.newRequest(URI.create(batch.origin + path));
+        request.method(HttpMethod.POST);
+        request.header(HttpHeader.ACCEPT, "multipart/mixed");
+        request.content(new BytesContentProvider(writer.getContentType(), body.toByteArray()));
+
+        //each request times out on its own, the batch lasts as long as its longest request
+        long batchTimeout = 0;
+        for (Map.Entry<String, Entry<?>> entry : pending.entrySet()) {
+            long entryTimeout = entry.getValue().request.getTimeout();
+            if (entryTimeout > 0) {
+                String id = entry.getKey();
+                Scheduler.Task task = batch.client.getScheduler().schedule(() -> {
+                    Entry<?> timedOut = pending.remove(id);
+                    if (timedOut == null) {
+                        return;
+                    }
+
+                    timedOut.future.completeExceptionally(
+                        new TimeoutException("Total timeout " + entryTimeout + " ms elapsed"));
+                    if (pending.isEmpty()) {
+                        request.abort(new TimeoutException("All requests of the batch have timed out."));
+                    }
+                }, entryTimeout, TimeUnit.MILLISECONDS);
+                entry.getValue().future.whenComplete((response, error) -> task.cancel());
+            }
+            batchTimeout = Math.max(batchTimeout, entryTimeout > 0 ? entryTimeout : timeout);
+        }
+        request.timeout(batchTimeout, TimeUnit.MILLISECONDS);
+
+        request.send(new BatchListener(request, pending));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getWindow(TimeUnit unit) {
+        return unit.convert(window, TimeUnit.MILLISECONDS);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the timeout of the batched requests which have no timeout of their own, a request with a timeout fails
+     * after its own timeout even if the rest of its batch is still pending
+     *
+     * @param timeout The timeout in milliseconds
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the number of batch requests which have been sent
+     *
+     * @return The number of sent batches
+     */
+    public long getBatches() {
+        return sentBatches.sum();
+    }
+
+    /**
+     * Returns the number of requests which have been sent as a part of a batch
+     *
+     * @return The number of batched requests
+     */
+    public long getBatchedRequests() {
+        return batchedRequests.sum();
+    }
+
+    /**
+     * Receives the response of a batch request and completes each request as soon as its part has arrived
+     */
+    private static class BatchListener extends Response.Listener.Adapter {
+        private final RestRequest request;
+        private final Map<String, Entry<?>> pending;
+        private MultipartParser parser;
+        private ByteArrayOutputStream error;
+        private byte[] unread;
+
+        BatchListener(RestRequest request, Map<String, Entry<?>> pending) {
+            this.request = request;
+            this.pending = pending;
+        }
+
+        @Override
+        public void onHeaders(Response response) {
+            String contentType = response.getHeaders().get(HttpHeader.CONTENT_TYPE);
+            MediaType mediaType = contentType != null ? MediaType.parse(contentType) : null;
+            String boundary = mediaType != null ? mediaType.getParameters().get("boundary") : null;
+            if (response.getStatus() == 200 && boundary != null) {
+                parser = new MultipartParser(boundary, Integer.MAX_VALUE);
+            } else {
+                error = new ByteArrayOutputStream();
+            }
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer content) {
+            if (parser == null) {
+                byte[] bytes = BufferUtil.toArray(content);
+                error.write(bytes, 0, bytes.length);
+                return;
+            }
+
+            try {
+                for (MultipartReader.Part part : parser.parse(content)) {
+                    String id = part.getHeader(CONTENT_ID);
+                    if (id == null) {
+                        //the server could not read the remaining requests, they are answered by this part
+                        unread = part.getBody();
+                        continue;
+                    }
+
+                    Entry<?> entry = pending.remove(id);
+                    if (entry != null) {
+                        entry.complete(part.getBody());
+                    }
+                }
+            } catch (IOException e) {
+                response.abort(e);
+            }
+        }
+
+        @Override
+        public void onComplete(Result result) {
+            if (unread != null && !result.isFailed()) {
+                pending.values().forEach(entry -> entry.complete(unread));
+                return;
+            }
+
+            Throwable failure;
+            if (result.isFailed()) {
+                failure = result.getFailure();
+            } else if (parser == null) {
+                byte[] data = error.toByteArray();
+                failure = ResponseListener.handleError(request, result.getResponse(),
+                    data.length > 0 ? new ByteArrayInputStream(data) : null);
+            } else {
+                failure = new IOException("The batch response contains no response for the request.");
+            }
+            pending.values().forEach(entry -> entry.future.completeExceptionally(failure));
+        }
+    }
+
+    private static class Batch {
+        final RestClient client;
+        final String origin;
+        final List<Entry<?>> entries = new ArrayList<>();
+        Scheduler.Task task;
+
+        Batch(RestClient client, String origin) {
+            this.client = client;
+            this.origin = origin;
+        }
+    }
+
+    private static class Entry<T> {
+        final RestRequest request;
+        final EntityType<T> entityType;
+        final CompletableFuture<EntityResponse<T>> future = new CompletableFuture<>();
+
+        Entry(RestRequest request, EntityType<T> entityType) {
+            this.request = request;
+            this.entityType = entityType;
+        }
+
+        void exchange() {
+            request.exchange(entityType).whenComplete((response, error) -> {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(response);
+                }
+            });
+        }
+
+        /**
+         * Serializes the request as an <code>application/http</code> message
+         *
+         * @return The message or <code>null</code> if the entity could not be converted
+         */
+        byte[] toHttp() {
+            EntityContent<?> entity = (EntityContent<?>) request.getContent();
+            ByteBuffer content = null;
+            try {
+                request.accept(entityType);
+                if (entity != null) {
+                    content = entity.getBuffer();
+                    if (content == null) {
+                        throw new IllegalArgumentException("The request entity could not be converted.");
+                    }
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return null;
+            }
+
+            String query = request.getQuery();
+            StringBuilder head = new StringBuilder(request.getMethod()).append(' ').append(request.getPath());
+            if (query != null) {
+                head.append('?').append(query);
+            }
+            head.append(' ').append(HttpVersion.HTTP_1_1.asString()).append("\r\n");
+
+            for (HttpField field : request.getHeaders()) {
+                head.append(field.getName()).append(": ").append(field.getValue()).append("\r\n");
+            }
+
+            if (content != null) {
+                head.append(HttpHeader.CONTENT_TYPE.asString()).append(": ")
+                    .append(entity.getContentType()).append("\r\n");
+            }
+            head.append("\r\n");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] bytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+            out.write(bytes, 0, bytes.length);
+            if (content != null) {
+                bytes = BufferUtil.toArray(content);
+                out.write(bytes, 0, bytes.length);
+            }
+            return out.toByteArray();
+        }
+
+        /**
+         * Completes the request with its raw HTTP response
+         *
+         * @param raw The <code>application/http</code> body of the response part
+         */
+        void complete(byte[] raw) {
+            HttpResponse response = new HttpResponse(request, Collections.emptyList());
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            HttpParser parser = new HttpParser(new HttpParser.ResponseHandler() {
+                @Override
+                public boolean startResponse(HttpVersion version, int status, String reason) {
+                    response.version(version).status(status).reason(reason);
+                    return false;
+                }
+
+                @Override
+                public void parsedHeader(HttpField field) {
+                    response.getHeaders().add(field);
+                }
+
+                @Override
+                public boolean headerComplete() {
+                    return false;
+                }
+
+                @Override
+                public boolean content(ByteBuffer buffer) {
+                    byte[] bytes = BufferUtil.toArray(buffer);
+                    content.write(bytes, 0, bytes.length);
+                    return false;
+                }
+
+                @Override
+                public boolean contentComplete() {
+                    return false;
+                }
+
+                @Override
+                public boolean messageComplete() {
+                    return true;
+                }
+
+                @Override
+                public void earlyEOF() {
+                }
+
+                @Override
+                public int getHeaderCacheSize() {
+                    return 0;
+                }
+            });
+            parser.setHeadResponse(HttpMethod.HEAD.is(request.getMethod()));
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(raw);
+                while (!parser.isComplete() && !parser.parseNext(buffer) && buffer.hasRemaining()) {
+                    //parse the complete message
+                }
+
+                //responses without a length are delimited by the end of the part
+                if (!parser.isComplete()) {
+                    parser.atEOF();
+                    parser.parseNext(BufferUtil.EMPTY_BUFFER);
+                }
+
+                if (response.getStatus() == 0) {
+                    throw new IOException("The batch response contains an invalid response.");
+                }
+
+                byte[] data = content.toByteArray();
+                InputStream stream = data.length > 0 ? new ByteArrayInputStream(data) : null;
+                if (response.getStatus() >= 400) {
+                    throw ResponseListener.handleError(request, response, stream);
+                }
+
+                T entity = null;
+                String contentType = response.getHeaders().get(HttpHeader.CONTENT_TYPE);
+                if (stream != null && contentType != null && response.getStatus() < 300) {
+                    ResponseListener.EntityContext context =
+                        new ResponseListener.EntityContext(request, MediaType.parse(contentType), stream);
+                    entity = context.getEntityReader(entityType).read();
+                }
+
+                future.complete(new EntityResponse<>(response, entityType, entity));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -2,7 +2,7 @@
 
 import info.orestes.rest.conversion.ConverterFormat.EntityReader;
 import info.orestes.rest.conversion.ConverterService;
-import info.orestes.rest.conversion.ReadableContext;
+import info.orestes.rest.conversion.BinaryReadableContext;
 import info.orestes.rest.error.RestException;
 import info.orestes.rest.error.UnsupportedMediaType;
 import info.orestes.rest.service.EntityType;
@@ -16,8 +16,6 @@
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 
 public abstract class ResponseListener<E> extends Adapter {
     private static final EntityType<RestException> ERROR_TYPE = new EntityType<>(RestException.class);
@@ -65,15 +63,15 @@ public void onHeaders(Response response) {
         }
     }
 
-    public static class EntityContext implements ReadableContext {
+    public static class EntityContext implements BinaryReadableContext {
         private final RestRequest request;
         private final ConverterService converterService;
-        private final Reader reader;
+        private final InputStream stream;
         private final MediaType mediaType;
+        private Reader reader;
 
         public EntityContext(RestRequest request, MediaType mediaType, InputStream stream) {
-            String charset = mediaType.getParameters().get("charset");
-            this.reader = new InputStreamReader(stream, charset == null? StandardCharsets.UTF_8: Charset.forName(charset));
+            this.stream = stream;
             this.request = request;
             this.mediaType = mediaType;
             this.converterService = request.getClient().getConverterService();
@@ -95,8 +93,16 @@ public MediaType getMediaType() {
             return mediaType;
         }
 
+        @Override
+        public InputStream getInputStream() {
+            return stream;
+        }
+
         @Override
         public Reader getReader() throws IOException {
+            if (reader == null) {
+                reader = new InputStreamReader(stream, getCharset());
+            }
             return reader;
         }
 
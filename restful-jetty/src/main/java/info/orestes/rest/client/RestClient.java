@@ -5,15 +5,24 @@
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpClientTransport;
 import org.eclipse.jetty.client.HttpConversation;
+import org.eclipse.jetty.client.MultiplexConnectionPool;
 import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 
 import java.net.URI;
 
 public class RestClient extends HttpClient {
+
+	public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 128;
+	public static final int DEFAULT_SESSION_RECV_WINDOW = 16 * 1024 * 1024;
+	public static final int DEFAULT_STREAM_RECV_WINDOW = 8 * 1024 * 1024;
 	
 	private ConverterService converterService;
 	private final URI baseURI;
+	private volatile ClientCache cache;
+	private volatile RequestBatcher batcher;
 
 	@Inject
 	public RestClient(ConverterService converterService) {
@@ -28,9 +37,19 @@ public RestClient(String baseURI, ConverterService converterService, SslContextF
         this(baseURI, converterService, sslContextFactory, new HttpClientTransportOverHTTP());
     }
 
-	public RestClient(String baseURI, ConverterService converterService, SslContextFactory sslContextFactory, HttpClientTransport httpClientTransport) {
-		/*useHttp2? new HttpClientTransportOverHTTP2(new HTTP2Client()): new HttpClientTransportOverHTTP(), */
+	/**
+	 * Creates a client which sends the requests either over HTTP/1.1 or multiplexed over HTTP/2
+	 *
+	 * @param baseURI The base URI of the requests
+	 * @param converterService The converters of the entities
+	 * @param useHttp2 <code>true</code> to use the default {@link #newHttp2Transport()}
+	 */
+	public RestClient(String baseURI, ConverterService converterService, boolean useHttp2) {
+		this(baseURI, converterService, new SslContextFactory.Client(),
+			useHttp2 ? newHttp2Transport() : new HttpClientTransportOverHTTP());
+	}
 
+	public RestClient(String baseURI, ConverterService converterService, SslContextFactory sslContextFactory, HttpClientTransport httpClientTransport) {
 		super(
             httpClientTransport,
 			sslContextFactory
@@ -40,6 +59,44 @@ public RestClient(String baseURI, ConverterService converterService, SslContextF
 		this.converterService = converterService;
 	}
 
+	/**
+	 * Creates an HTTP/2 transport with the default limits
+	 *
+	 * @return The new transport
+	 * @see #newHttp2Transport(int, int, int)
+	 */
+	public static HttpClientTransport newHttp2Transport() {
+		return newHttp2Transport(DEFAULT_MAX_CONCURRENT_STREAMS, DEFAULT_SESSION_RECV_WINDOW, DEFAULT_STREAM_RECV_WINDOW);
+	}
+
+	/**
+	 * Creates an HTTP/2 transport, which multiplexes concurrent requests over a single connection per destination
+	 * instead of a pool of HTTP/1.1 connections. <code>http</code> URIs are requested with h2c by prior knowledge,
+	 * <code>https</code> URIs negotiate h2 via ALPN.
+	 *
+	 * @param maxConcurrentStreams The maximum number of concurrent requests per connection, a lower limit announced by
+	 *                             the server takes precedence
+	 * @param sessionRecvWindow The initial flow-control window of a connection in bytes
+	 * @param streamRecvWindow The initial flow-control window of a single response in bytes
+	 * @return The new transport
+	 */
+	public static HttpClientTransport newHttp2Transport(int maxConcurrentStreams, int sessionRecvWindow, int streamRecvWindow) {
+		HTTP2Client http2Client = new HTTP2Client();
+		http2Client.setInitialSessionRecvWindow(sessionRecvWindow);
+		http2Client.setInitialStreamRecvWindow(streamRecvWindow);
+
+		HttpClientTransportOverHTTP2 transport = new HttpClientTransportOverHTTP2(http2Client);
+		transport.setConnectionPoolFactory(destination -> new MultiplexConnectionPool(destination,
+			destination.getHttpClient().getMaxConnectionsPerDestination(), destination, maxConcurrentStreams) {
+			@Override
+			public void setMaxMultiplex(int maxMultiplex) {
+				//the server announces its limit in the settings, which must not raise the configured limit
+				super.setMaxMultiplex(Math.min(maxMultiplex, maxConcurrentStreams));
+			}
+		});
+		return transport;
+	}
+
     @Override
 	protected RestRequest newHttpRequest(HttpConversation conversation, URI uri) {
 		return new RestRequest(this, conversation, uri);
@@ -67,4 +124,30 @@ public void setConverterService(ConverterService converterService) {
 
         this.converterService = converterService;
     }
+
+	public ClientCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Sets the cache of decoded response entities, which is disabled by default
+	 *
+	 * @param cache The cache or <code>null</code> to disable caching
+	 */
+	public void setCache(ClientCache cache) {
+		this.cache = cache;
+	}
+
+	public RequestBatcher getBatcher() {
+		return batcher;
+	}
+
+	/**
+	 * Sets the batcher which collects concurrent requests into batch requests, which is disabled by default
+	 *
+	 * @param batcher The batcher or <code>null</code> to send each request on its own
+	 */
+	public void setBatcher(RequestBatcher batcher) {
+		this.batcher = batcher;
+	}
 }
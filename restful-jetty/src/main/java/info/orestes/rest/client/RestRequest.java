@@ -42,6 +42,24 @@ public <T> CompletableFuture<EntityResponse<T>> send(Class<T> cls) {
     }
 
     public <T> CompletableFuture<EntityResponse<T>> send(EntityType<T> entityType) {
+        ClientCache cache = client.getCache();
+        if (cache != null) {
+            return cache.send(this, entityType);
+        }
+
+        return sendEntity(entityType);
+    }
+
+    <T> CompletableFuture<EntityResponse<T>> sendEntity(EntityType<T> entityType) {
+        RequestBatcher batcher = client.getBatcher();
+        if (batcher != null && batcher.isBatchable(this)) {
+            return batcher.send(this, entityType);
+        }
+
+        return exchange(entityType);
+    }
+
+    <T> CompletableFuture<EntityResponse<T>> exchange(EntityType<T> entityType) {
         CompletableFuture<EntityResponse<T>> future = new CompletableFuture<>();
 
         send(new EntityResponseListener<T>(entityType) {
@@ -96,26 +114,33 @@ public void send(CompleteListener listener) {
             ResponseListener<?> responseListener = ((ResponseListener<?>) listener);
 
             responseListener.setRequest(this);
-            EntityType<?> entityType = responseListener.getEntityType();
-
-            // if no response entity type is expected use preferred exception
-            // media type
-            if (entityType.getRawType().equals(Void.class)) {
-                entityType = EntityType.of(RestException.class);
-            }
+            accept(responseListener.getEntityType());
+        }
+        super.send(listener);
+    }
 
-            StringBuilder accepted = new StringBuilder();
-            for (org.apache.tika.mime.MediaType mediaType : getClient().getConverterService().getAcceptableMediaTypes(entityType)) {
-                if (accepted.length() > 0) {
-                    accepted.append(",");
-                }
+    /**
+     * Sets the Accept header to the media types of the expected response entity
+     *
+     * @param entityType The type of the response entity
+     */
+    void accept(EntityType<?> entityType) {
+        // if no response entity type is expected use preferred exception
+        // media type
+        if (entityType.getRawType().equals(Void.class)) {
+            entityType = EntityType.of(RestException.class);
+        }
 
-                accepted.append(mediaType.toString());
+        StringBuilder accepted = new StringBuilder();
+        for (org.apache.tika.mime.MediaType mediaType : getClient().getConverterService().getAcceptableMediaTypes(entityType)) {
+            if (accepted.length() > 0) {
+                accepted.append(",");
             }
 
-            header(HttpHeader.ACCEPT.asString(), accepted.toString());
+            accepted.append(mediaType.toString());
         }
-        super.send(listener);
+
+        header(HttpHeader.ACCEPT.asString(), accepted.toString());
     }
 
     protected RestClient getClient() {
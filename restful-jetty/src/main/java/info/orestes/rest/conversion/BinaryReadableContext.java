@@ -0,0 +1,38 @@
+package info.orestes.rest.conversion;
+
+import org.apache.tika.mime.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link ReadableContext} which additionally exposes the raw bytes of the content. A {@link ConverterFormat} which
+ * can decode its format directly from bytes should check for this context and use {@link #getInputStream()} to skip
+ * the char decoding of the {@link #getReader()}.
+ * <p>
+ * A format must either use the reader or the input stream of a context, but never both.
+ */
+public interface BinaryReadableContext extends ReadableContext {
+
+	/**
+	 * Returns the input stream where the raw content can be read from
+	 *
+	 * @return An input stream which contains the content
+	 * @throws IOException
+	 *             if an I/O error occurred
+	 */
+	public InputStream getInputStream() throws IOException;
+
+	/**
+	 * Returns the charset of the content, which is used by the reader of this context
+	 *
+	 * @return The declared charset of the media type or UTF-8 if no charset is declared
+	 */
+	public default Charset getCharset() {
+		MediaType mediaType = getMediaType();
+		String charset = mediaType == null ? null : mediaType.getParameters().get("charset");
+		return charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset);
+	}
+}
@@ -0,0 +1,38 @@
+package info.orestes.rest.conversion;
+
+import org.apache.tika.mime.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link WritableContext} which additionally accepts the raw bytes of the content. A {@link ConverterFormat} which
+ * can encode its format directly to bytes should check for this context and use {@link #getOutputStream()} to skip
+ * the char encoding of the {@link #getWriter()}.
+ * <p>
+ * A format must either use the writer or the output stream of a context, but never both.
+ */
+public interface BinaryWritableContext extends WritableContext {
+
+	/**
+	 * Returns the output stream where the raw content can be written to
+	 *
+	 * @return An output stream which writes the content
+	 * @throws IOException
+	 *             if an I/O error occurred
+	 */
+	public OutputStream getOutputStream() throws IOException;
+
+	/**
+	 * Returns the charset the content must be encoded with, which is used by the writer of this context
+	 *
+	 * @return The declared charset of the media type or UTF-8 if no charset is declared
+	 */
+	public default Charset getCharset() {
+		MediaType mediaType = getMediaType();
+		String charset = mediaType == null ? null : mediaType.getParameters().get("charset");
+		return charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset);
+	}
+}
@@ -7,8 +7,10 @@
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * A {@link ConverterFormat} is used to read a format from a {@link ReadableContext} and write a format to a {@link
@@ -18,6 +20,11 @@
  * <br>
  * In addition a {@link ConverterFormat} keeps a collection of all compatible {@link Converter}s that can process the
  * {@link ConverterFormat}
+ * <br>
+ * <br>
+ * Formats which can encode or decode bytes directly should check if the passed context is a {@link
+ * BinaryWritableContext} or a {@link BinaryReadableContext} and use its raw stream instead of the char based writer or
+ * reader. All contexts provided by the server and the client are binary contexts.
  *
  * @param <F> the format that this {@link ConverterFormat} can produces and consume
  */
@@ -27,7 +34,7 @@
 
     private final Class<F> formatType;
     private final String converterPackageName;
-    private final HashMap<Class<?>, Converter<?, F>> converters = new HashMap<>();
+    private volatile Map<Class<?>, Converter<?, F>> converters = Collections.emptyMap();
     private ConverterService converterService;
 
     /**
@@ -85,20 +92,26 @@ public String getConverterPackageName() {
     /**
      * Get a map of all registered convertible types with the associated converter
      *
-     * @return The mapping between converter and type
+     * @return An immutable snapshot of the mapping between converter and type
      */
-    protected HashMap<Class<?>, Converter<?, F>> getConverters() {
+    protected Map<Class<?>, Converter<?, F>> getConverters() {
         return converters;
     }
 
     /**
-     * Add a compatible {@link Converter} as a helper for other {@link Converter}s
+     * Add a compatible {@link Converter} as a helper for other {@link Converter}s. The converters are replaced by a
+     * new immutable map, so converters can be added while other threads look them up without locking.
      *
      * @param converter The helper {@link Converter} to add
      */
     public void add(Converter<?, F> converter) {
-        converters.put(converter.getTargetClass(), converter);
         converter.init(this);
+
+        synchronized (this) {
+            Map<Class<?>, Converter<?, F>> converters = new HashMap<>(this.converters);
+            converters.put(converter.getTargetClass(), converter);
+            this.converters = Collections.unmodifiableMap(converters);
+        }
     }
 
     /**
@@ -0,0 +1,155 @@
+package info.orestes.rest.conversion;
+
+import org.apache.tika.mime.MediaType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the formats and the accepted media types of the converters of a {@link ConverterService}.
+ * <p>
+ * Registering a format or a converter creates a new snapshot, which is published by the {@link ConverterService}
+ * through a single volatile field. Readers never lock and always see a fully indexed snapshot.
+ */
+final class ConverterRegistry {
+
+    static final ConverterRegistry EMPTY = new ConverterRegistry(Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<Class<?>, ConverterFormat<?>> formats;
+    private final Map<Class<?>, AcceptedTypes> accept;
+
+    private ConverterRegistry(Map<Class<?>, ConverterFormat<?>> formats, Map<Class<?>, AcceptedTypes> accept) {
+        this.formats = formats;
+        this.accept = accept;
+    }
+
+    /**
+     * Creates a new snapshot which contains the given format in addition
+     *
+     * @param format The format to register
+     * @return The new snapshot
+     */
+    ConverterRegistry withFormat(ConverterFormat<?> format) {
+        Map<Class<?>, ConverterFormat<?>> formats = new HashMap<>(this.formats);
+        formats.put(format.getFormatType(), format);
+        return new ConverterRegistry(formats, accept);
+    }
+
+    /**
+     * Creates a new snapshot in which the converter is accepted for the given media types of its target class
+     *
+     * @param converter The converter to register
+     * @param mediaTypes The media types which are handled by the converter
+     * @return The new snapshot
+     */
+    ConverterRegistry withConverter(Converter<?, ?> converter, List<MediaType> mediaTypes) {
+        Map<MediaType, Converter<?, ?>> acceptTypes = new LinkedHashMap<>();
+        AcceptedTypes accepted = accept.get(converter.getTargetClass());
+        if (accepted != null) {
+            for (int i = 0; i < accepted.mediaTypes.length; ++i) {
+                acceptTypes.put(accepted.mediaTypes[i], accepted.converters[i]);
+            }
+        }
+
+        for (MediaType mediaType : mediaTypes) {
+            acceptTypes.put(mediaType, converter);
+        }
+
+        List<Entry<MediaType, Converter<?, ?>>> entries = new ArrayList<>(acceptTypes.entrySet());
+        entries.sort(MediaTypeNegotiation.acceptableComparator());
+
+        Map<Class<?>, AcceptedTypes> accept = new HashMap<>(this.accept);
+        accept.put(converter.getTargetClass(), new AcceptedTypes(entries));
+        return new ConverterRegistry(formats, accept);
+    }
+
+    /**
+     * Returns the format of the given format type
+     *
+     * @param formatType The format type
+     * @return The registered format or <code>null</code> if the format type is not supported
+     */
+    ConverterFormat<?> getFormat(Class<?> formatType) {
+        return formats.get(formatType);
+    }
+
+    /**
+     * Returns the converter which handles the given media type for the java type. A converter which was registered for
+     * the base type of the media type is preferred, otherwise the first converter in the order of the media type
+     * precedence which is compatible to the media type is returned.
+     *
+     * @param mediaType The media type
+     * @param type The java type
+     * @return The compatible converter or <code>null</code> if no converter can handle the media type
+     */
+    Converter<?, ?> getConverter(MediaType mediaType, Class<?> type) {
+        AcceptedTypes accepted = accept.get(type);
+        if (accepted == null) {
+            return null;
+        }
+
+        Converter<?, ?> converter = accepted.byMediaType.get(mediaType.getBaseType());
+        if (converter != null) {
+            return converter;
+        }
+
+        MediaType[] mediaTypes = accepted.mediaTypes;
+        for (int i = 0; i < mediaTypes.length; ++i) {
+            if (MediaTypeNegotiation.isSubtypeOf(mediaType, mediaTypes[i])) {
+                return accepted.converters[i];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the accepted media types of the java type in the order of their precedence
+     *
+     * @param type The java type
+     * @return The unmodifiable set of the media types, which is empty if the type is not supported
+     */
+    Set<MediaType> getMediaTypes(Class<?> type) {
+        AcceptedTypes accepted = accept.get(type);
+        return accepted == null ? Collections.emptySet() : accepted.mediaTypeSet;
+    }
+
+    /**
+     * Returns all java types which are accepted by any converter
+     *
+     * @return The accepted java types
+     */
+    Set<Class<?>> getTypes() {
+        return Collections.unmodifiableSet(accept.keySet());
+    }
+
+    private static final class AcceptedTypes {
+        private final MediaType[] mediaTypes;
+        private final Converter<?, ?>[] converters;
+        private final Map<MediaType, Converter<?, ?>> byMediaType;
+        private final Set<MediaType> mediaTypeSet;
+
+        private AcceptedTypes(List<Entry<MediaType, Converter<?, ?>>> entries) {
+            mediaTypes = new MediaType[entries.size()];
+            converters = new Converter<?, ?>[entries.size()];
+            byMediaType = new HashMap<>();
+
+            Set<MediaType> mediaTypeSet = new LinkedHashSet<>();
+            for (int i = 0; i < mediaTypes.length; ++i) {
+                Entry<MediaType, Converter<?, ?>> entry = entries.get(i);
+                mediaTypes[i] = entry.getKey();
+                converters[i] = entry.getValue();
+                byMediaType.put(entry.getKey(), entry.getValue());
+                mediaTypeSet.add(entry.getKey());
+            }
+            this.mediaTypeSet = Collections.unmodifiableSet(mediaTypeSet);
+        }
+    }
+}
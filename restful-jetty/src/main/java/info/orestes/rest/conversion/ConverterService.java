@@ -15,7 +15,6 @@
 import java.io.StringWriter;
 import java.lang.reflect.Modifier;
 import java.util.*;
-import java.util.Map.Entry;
 
 /**
  * <p> This ConverterService is used to transform request arguments and request entities between java types and
@@ -37,8 +36,8 @@ public class ConverterService {
     private static final MediaType ARGUMENT_MEDIA_TYPE = MediaType.text("plain");
 
     private final Module module;
-    private final Map<Class<?>, Map<MediaType, Converter<?, ?>>> accept = new HashMap<>();
-    private final Map<Class<?>, ConverterFormat<?>> formats = new HashMap<>();
+    private volatile ConverterRegistry registry = ConverterRegistry.EMPTY;
+    private final NegotiationCache negotiationCache = new NegotiationCache();
     private boolean debugEnabled = false;
 
     /**
@@ -99,10 +98,11 @@ public ConverterService(Module module, boolean loadConverters) {
 
     /**
      * Load all {@link ConverterFormat}s form the {@value #FORMAT_PACKAGE_NAME} package and add them to the {@link
-     * ConverterService}
+     * ConverterService}. The formats are taken from the compile time class index, see {@link
+     * ClassUtil#getIndexedClasses(String)}
      */
     public void loadConverters() {
-        for (Class<?> cls : ClassUtil.getPackageClasses(FORMAT_PACKAGE_NAME)) {
+        for (Class<?> cls : ClassUtil.getIndexedClasses(FORMAT_PACKAGE_NAME)) {
             try {
                 if (!Modifier.isAbstract(cls.getModifiers()) && ConverterFormat.class.isAssignableFrom(cls)) {
                     addFormat(cls.asSubclass(ConverterFormat.class).getDeclaredConstructor().newInstance());
@@ -143,7 +143,9 @@ public void addFormat(ConverterFormat<?> format) {
     }
 
     public void addFormat(ConverterFormat<?> format, boolean loadConverters) {
-        formats.put(format.getFormatType(), format);
+        synchronized (this) {
+            registry = registry.withFormat(format);
+        }
 
         if (loadConverters) {
             String pkgName = format.getConverterPackageName();
@@ -163,7 +165,7 @@ public void addFormat(ConverterFormat<?> format, boolean loadConverters) {
      */
     @SuppressWarnings("unchecked")
     public <F> ConverterFormat<F> getFormat(Class<F> formatType) {
-        ConverterFormat<F> format = (ConverterFormat<F>) formats.get(formatType);
+        ConverterFormat<F> format = (ConverterFormat<F>) registry.getFormat(formatType);
 
         if (format == null) {
             throw new UnsupportedOperationException("The format " + formatType + " is not supported.");
@@ -176,47 +178,38 @@ public <F> ConverterFormat<F> getFormat(Class<F> formatType) {
      * Register a {@link Converter} to the {@link ConverterService}. If the {@link Converter} have a {@link Accept}
      * annotation, it will be used to convert values between the declared {@link Accept#value()} media types and the
      * {@link Converter}s java type.
+     * <p>
+     * Converters can be added while requests are processed, the registered converters are published as an immutable
+     * snapshot, which is read without locking.
      *
      * @param converter The converter which will be registered
      * @param <F>       The base class of the format
      */
     public <F> void add(Converter<?, F> converter) {
-        @SuppressWarnings("unchecked") ConverterFormat<F> format = (ConverterFormat<F>) formats.get(
+        @SuppressWarnings("unchecked") ConverterFormat<F> format = (ConverterFormat<F>) registry.getFormat(
             converter.getFormatType());
         if (format == null) {
             throw new IllegalArgumentException(
                 "There is no format converter available for the converter " + converter.getClass().getName());
         }
 
+        //the converter must be usable through its format, before it is accepted for a media type
+        format.add(converter);
+
         if (converter.getClass().isAnnotationPresent(Accept.class)) {
             Accept accepted = converter.getClass().getAnnotation(Accept.class);
+            List<MediaType> mediaTypes = new ArrayList<>(accepted.value().length);
             for (String mediaTypeString : accepted.value()) {
-                MediaType mediaType = MediaType.parse(mediaTypeString);
-
-                Map<MediaType, Converter<?, ?>> acceptTypes = accept.get(converter.getTargetClass());
-                if (acceptTypes == null) {
-                    acceptTypes = new LinkedHashMap<>();
-                }
-
-                acceptTypes.put(mediaType, converter);
-
-                if (acceptTypes.size() > 1) {
-                    List<Entry<MediaType, Converter<?,?>>> entries = new ArrayList<>(acceptTypes.entrySet());
-                    entries.sort(MediaTypeNegotiation.acceptableComparator());
-
-                    Map<MediaType, Converter<?, ?>> sortedAcceptTypes = new LinkedHashMap<>(entries.size());
-                    for (Entry<MediaType, Converter<?,?>> entry : entries) {
-                        sortedAcceptTypes.put(entry.getKey(), entry.getValue());
-                    }
-
-                    acceptTypes = sortedAcceptTypes;
-                }
+                mediaTypes.add(MediaType.parse(mediaTypeString));
+            }
 
-                accept.put(converter.getTargetClass(), acceptTypes);
+            synchronized (this) {
+                registry = registry.withConverter(converter, mediaTypes);
             }
-        }
 
-        format.add(converter);
+            //the supported media types have changed
+            negotiationCache.clear();
+        }
     }
 
     /**
@@ -244,21 +237,7 @@ private <T, F> Converter<T, F> getConverter(MediaType mimeType, Class<?> type, C
 
     @SuppressWarnings("unchecked")
     private <T, F> Converter<T, F> getCompatibleConverter(MediaType mimeType, Class<?> type) {
-        Map<MediaType, Converter<?, ?>> acceptTypes = accept.get(type);
-        if (acceptTypes != null) {
-            Converter<?, ?> converter = acceptTypes.get(mimeType.getBaseType());
-            if (converter != null) {
-                return (Converter<T, F>) converter;
-            }
-
-            for (Map.Entry<MediaType, Converter<?, ?>> entry : acceptTypes.entrySet()) {
-                if (MediaTypeNegotiation.isSubtypeOf(mimeType, entry.getKey())) {
-                    return (Converter<T, F>) entry.getValue();
-                }
-            }
-        }
-
-        return null;
+        return (Converter<T, F>) registry.getConverter(mimeType, type);
     }
 
     /**
@@ -567,13 +546,14 @@ public <T> String toString(EntityType<T> source, MediaType targetType, Object en
     }
 
     /**
-     * Load all none abstract {@link Converter}s form the specified package
+     * Load all none abstract {@link Converter}s form the specified package, which are taken from the compile time
+     * class index if the package is indexed
      *
      * @param pkgName The package name which will be scanned for {@link Converter}s
      * @return A list of all found {@link Converter} classes
      */
     private void loadConverterPackage(String pkgName) {
-        List<Class<?>> classes = ClassUtil.getPackageClasses(pkgName);
+        List<Class<?>> classes = ClassUtil.getIndexedClasses(pkgName);
 
         for (Class<?> cls : classes) {
             if (!Modifier.isAbstract(cls.getModifiers()) && Converter.class.isAssignableFrom(cls)) {
@@ -595,12 +575,16 @@ private void loadConverterPackage(String pkgName) {
      * @return All supported {@link MediaType}s
      */
     public Set<MediaType> getAcceptableMediaTypes(EntityType<?> type) {
-        Set<MediaType> acceptableTypes = getAcceptableMediaTypes(type.getRawType());
+        return getAcceptableMediaTypes(registry, type);
+    }
+
+    private static Set<MediaType> getAcceptableMediaTypes(ConverterRegistry registry, EntityType<?> type) {
+        Set<MediaType> acceptableTypes = registry.getMediaTypes(type.getRawType());
 
         if (type.getActualTypeArguments().length > 0) {
             acceptableTypes = new HashSet<>(acceptableTypes);
             for (Class<?> genericParams: type.getActualTypeArguments()) {
-                acceptableTypes.retainAll(getAcceptableMediaTypes(genericParams));
+                acceptableTypes.retainAll(registry.getMediaTypes(genericParams));
             }
             acceptableTypes = Collections.unmodifiableSet(acceptableTypes);
         }
@@ -608,16 +592,6 @@ public Set<MediaType> getAcceptableMediaTypes(EntityType<?> type) {
         return acceptableTypes;
     }
 
-    private Set<MediaType> getAcceptableMediaTypes(Class<?> type) {
-        Map<MediaType, Converter<?, ?>> map = accept.get(type);
-
-        if (map == null) {
-            return Collections.emptySet();
-        } else {
-            return Collections.unmodifiableSet(map.keySet());
-        }
-    }
-
     /**
      * Gets the best {@link MediaType} form the list of prioritized media types which is supported for the given type by
      * this {@link ConverterService} instance
@@ -627,9 +601,14 @@ private Set<MediaType> getAcceptableMediaTypes(Class<?> type) {
      * @return The best matched media type or <code>null</code> if none of the acceptable media types is supported
      */
     public MediaType getPreferredMediaType(List<MediaType> acceptedMediaTypes, EntityType<?> type) {
+        return getPreferredMediaType(registry, acceptedMediaTypes, type);
+    }
+
+    private static MediaType getPreferredMediaType(ConverterRegistry registry, List<MediaType> acceptedMediaTypes,
+        EntityType<?> type) {
         Collections.sort(acceptedMediaTypes, MediaTypeNegotiation.qualityComparator());
 
-        Set<MediaType> supportedMediaTypes = getAcceptableMediaTypes(type);
+        Set<MediaType> supportedMediaTypes = getAcceptableMediaTypes(registry, type);
 
         for (MediaType acceptType : acceptedMediaTypes) {
             for (MediaType supportedType : supportedMediaTypes) {
@@ -642,6 +621,40 @@ public MediaType getPreferredMediaType(List<MediaType> acceptedMediaTypes, Entit
         return null;
     }
 
+    /**
+     * Gets the best {@link MediaType} for the given Accept header which is supported for the given type by this {@link
+     * ConverterService} instance. The results are cached by the raw header value, see {@link #getNegotiationCache()}.
+     *
+     * @param acceptHeader The raw Accept header, <code>null</code> accepts any media type
+     * @param type         The type for which the media type is selected
+     * @return The best matched media type or <code>null</code> if none of the acceptable media types is supported
+     */
+    public MediaType getPreferredMediaType(String acceptHeader, EntityType<?> type) {
+        Optional<MediaType> cached = negotiationCache.get(acceptHeader, type);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+
+        ConverterRegistry registry = this.registry;
+        MediaType mediaType = getPreferredMediaType(registry, MediaTypeNegotiation.parseAccept(acceptHeader), type);
+        negotiationCache.put(acceptHeader, type, mediaType);
+
+        //a converter was added concurrently, the result may be cached after the cache was cleared by the writer
+        if (registry != this.registry) {
+            negotiationCache.clear();
+        }
+        return mediaType;
+    }
+
+    /**
+     * Returns the cache of the Accept header negotiations, which exposes the hit and miss counters
+     *
+     * @return The negotiation cache of this {@link ConverterService}
+     */
+    public NegotiationCache getNegotiationCache() {
+        return negotiationCache;
+    }
+
     /**
      * Returns a snapshot of all currently registered types which can be used in the service document for entities and
      * method arguments
@@ -658,12 +671,11 @@ public class Types implements ServiceDocumentTypes {
         private final Map<String, Class<?>> argumentTypes = new HashMap<>();
 
         private Types() {
-            for (Entry<Class<?>, Map<MediaType, Converter<?, ?>>> entry : accept.entrySet()) {
-                Class<?> type = entry.getKey();
-
+            ConverterRegistry registry = ConverterService.this.registry;
+            for (Class<?> type : registry.getTypes()) {
                 entityTypes.put(type.getSimpleName(), type);
 
-                if (entry.getValue().containsKey(ARGUMENT_MEDIA_TYPE)) {
+                if (registry.getMediaTypes(type).contains(ARGUMENT_MEDIA_TYPE)) {
                     argumentTypes.put(type.getSimpleName(), type);
                 }
             }
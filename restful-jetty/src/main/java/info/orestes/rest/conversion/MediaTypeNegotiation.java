@@ -3,6 +3,7 @@
 import org.apache.tika.mime.MediaType;
 import org.apache.tika.mime.MediaTypeRegistry;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
@@ -82,6 +83,28 @@ public static Comparator<Entry<MediaType, Converter<?,?>>> acceptableComparator(
         return ACCEPT_COMPARATOR;
     }
 
+    /**
+     * Parse the Accept header and extract the contained list of media types
+     *
+     * @param acceptHeader the value of the Accept header
+     * @return a list of all declared media types as they occurred or {@link #ANY} if no media type is declared
+     */
+    public static List<MediaType> parseAccept(String acceptHeader) {
+        if (acceptHeader != null) {
+            List<MediaType> mediaTypes = new ArrayList<>();
+            for (String part : acceptHeader.split(",")) {
+                MediaType mediaType = MediaType.parse(part);
+                if (mediaType != null)
+                    mediaTypes.add(mediaType);
+            }
+
+            if (!mediaTypes.isEmpty())
+                return mediaTypes;
+        }
+
+        return ANY;
+    }
+
     public static float getQuality(MediaType mediaType) {
         String quality = mediaType.getParameters().get("q");
 
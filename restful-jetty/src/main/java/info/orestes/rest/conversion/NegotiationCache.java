@@ -0,0 +1,155 @@
+package info.orestes.rest.conversion;
+
+import info.orestes.rest.service.EntityType;
+import org.apache.tika.mime.MediaType;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of content negotiation results, keyed by the raw Accept header and the negotiated
+ * {@link EntityType}.
+ * <p>
+ * Clients usually send only a few distinct Accept headers, so the parsing and matching of the accepted media types
+ * against the supported ones can be skipped for almost all requests. Negotiations without an acceptable media type are
+ * cached as well. The cache is cleared completely when it reaches its maximum size, which keeps it bounded even if
+ * clients send arbitrary headers.
+ */
+public class NegotiationCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private final ConcurrentMap<Key, Optional<MediaType>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int maximumSize;
+
+    /**
+     * Creates a new cache which holds up to {@link #DEFAULT_MAXIMUM_SIZE} entries
+     */
+    public NegotiationCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a new cache
+     *
+     * @param maximumSize The maximum number of cached negotiations
+     */
+    public NegotiationCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be positive, but was " + maximumSize);
+        }
+
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the cached negotiation result and counts the lookup as a hit or a miss
+     *
+     * @param acceptHeader The raw Accept header, may be <code>null</code>
+     * @param type         The negotiated entity type
+     * @return The cached result, which is empty if no media type was acceptable, or <code>null</code> if the
+     * negotiation is not cached
+     */
+    public Optional<MediaType> get(String acceptHeader, EntityType<?> type) {
+        Optional<MediaType> result = entries.get(new Key(acceptHeader, type));
+        if (result == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Caches the result of a negotiation
+     *
+     * @param acceptHeader The raw Accept header, may be <code>null</code>
+     * @param type         The negotiated entity type
+     * @param mediaType    The negotiated media type or <code>null</code> if no media type was acceptable
+     */
+    public void put(String acceptHeader, EntityType<?> type, MediaType mediaType) {
+        if (entries.size() >= maximumSize) {
+            entries.clear();
+        }
+
+        entries.put(new Key(acceptHeader, type), Optional.ofNullable(mediaType));
+    }
+
+    /**
+     * Removes all cached negotiations, the hit and miss counters are kept
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of cached negotiations
+     *
+     * @return The number of cached negotiations
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the maximum number of cached negotiations
+     *
+     * @return The maximum size of the cache
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the number of lookups which were answered by the cache
+     *
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups which required a negotiation
+     *
+     * @return The number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static class Key {
+        private final String acceptHeader;
+        private final EntityType<?> type;
+        private final int hash;
+
+        private Key(String acceptHeader, EntityType<?> type) {
+            this.acceptHeader = acceptHeader;
+            this.type = type;
+            this.hash = 31 * Objects.hashCode(acceptHeader) + type.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+            return hash == other.hash && Objects.equals(acceptHeader, other.acceptHeader) && type.equals(other.type);
+        }
+    }
+}
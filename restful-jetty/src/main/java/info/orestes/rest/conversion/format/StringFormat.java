@@ -1,5 +1,7 @@
 package info.orestes.rest.conversion.format;
 
+import info.orestes.rest.conversion.BinaryReadableContext;
+import info.orestes.rest.conversion.BinaryWritableContext;
 import info.orestes.rest.conversion.Converter;
 import info.orestes.rest.conversion.ConverterFormat;
 import info.orestes.rest.conversion.ReadableContext;
@@ -23,7 +25,13 @@ public <T> EntityWriter<T> newEntityWriter(WritableContext context, EntityType<T
         return new EntityWriter<T>() {
             @Override
             public void write(T entity) throws IOException, RestException {
-                context.getWriter().append(converter.toFormat(context, entity, entityType.getActualTypeArguments()));
+                String value = converter.toFormat(context, entity, entityType.getActualTypeArguments());
+                if (context instanceof BinaryWritableContext) {
+                    BinaryWritableContext binaryContext = (BinaryWritableContext) context;
+                    binaryContext.getOutputStream().write(value.getBytes(binaryContext.getCharset()));
+                } else {
+                    context.getWriter().append(value);
+                }
             }
 
             @Override
@@ -42,6 +50,12 @@ public <T> EntityReader<T> newEntityReader(ReadableContext context, EntityType<T
         return new EntityReader<T>() {
             @Override
             public T read() throws IOException, RestException {
+                if (context instanceof BinaryReadableContext) {
+                    BinaryReadableContext binaryContext = (BinaryReadableContext) context;
+                    String value = new String(binaryContext.getInputStream().readAllBytes(), binaryContext.getCharset());
+                    return converter.toObject(context, value, entityType.getActualTypeArguments());
+                }
+
                 StringBuilder builder = new StringBuilder();
 
                 int read;
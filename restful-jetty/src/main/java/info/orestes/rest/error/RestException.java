@@ -13,6 +13,18 @@ public class RestException extends Exception {
 	public static final String ERROR_PACKAGE = "info.orestes.rest.error";
 	
 	private static final Map<Object, Class<? extends RestException>> errorMap = new HashMap<>();
+
+	/**
+	 * The status code, reason and factory of each exception class, which are resolved once per class
+	 */
+	private static final ClassValue<ExceptionType> types = new ClassValue<ExceptionType>() {
+		@Override
+		protected ExceptionType computeValue(Class<?> type) {
+			return new ExceptionType(type.asSubclass(RestException.class));
+		}
+	};
+
+	private static volatile boolean lightweightClientErrors = false;
 	
 	private int statusCode;
 	private String reason;
@@ -23,7 +35,7 @@ public class RestException extends Exception {
 	}
 	
 	public static void load(String packageName) {
-		for (Class<?> cls : ClassUtil.getPackageClasses(packageName)) {
+		for (Class<?> cls : ClassUtil.getIndexedClasses(packageName)) {
 			if (RestException.class.isAssignableFrom(cls)) {
 				Class<? extends RestException> exception = cls.asSubclass(RestException.class);
 				errorMap.put(exception.getName(), exception);
@@ -35,9 +47,34 @@ public static void load(String packageName) {
 				if (error != null && exception.getSuperclass().equals(RestException.class)) {
 					errorMap.put(error.status(), exception);
 				}
+
+				//resolves the constructor and reason ahead of the first error
+				types.get(exception);
 			}
 		}
 	}
+
+	/**
+	 * Indicates if client errors are created without a stack trace
+	 * @return <code>true</code> if the stack trace of 4xx exceptions is not filled in
+	 */
+	public static boolean isLightweightClientErrors() {
+		return lightweightClientErrors;
+	}
+
+	/**
+	 * Enables the lightweight mode for client errors. Exceptions with a 4xx status code are expected and thrown
+	 * frequently, filling in their stack trace is usually the most expensive part of handling such a request.
+	 * The mode is disabled by default.
+	 * @param lightweightClientErrors <code>true</code> to create 4xx exceptions without a stack trace
+	 */
+	public static void setLightweightClientErrors(boolean lightweightClientErrors) {
+		RestException.lightweightClientErrors = lightweightClientErrors;
+	}
+
+	private static boolean isStackless(int statusCode) {
+		return lightweightClientErrors && statusCode >= 400 && statusCode < 500;
+	}
 	
 	public static Class<? extends RestException> getExceptionClass(int statusCode) {
 		return errorMap.get(statusCode);
@@ -82,10 +119,7 @@ private static RestException create(Class<? extends RestException> exClass, int
 		RestException ex = null;
 		if (exClass != null) {
 			try {
-				Constructor<? extends RestException> constr = exClass.getDeclaredConstructor(String.class,
-					Throwable.class);
-				constr.setAccessible(true);
-				ex = constr.newInstance(message, throwable);
+				ex = types.get(exClass).newInstance(message, throwable);
 			} catch (InstantiationException | IllegalAccessException | InvocationTargetException
 					| NoSuchMethodException e) {
 				suppressed = e;
@@ -136,19 +170,28 @@ protected RestException(String message, Throwable rootCause) {
 	}
 	
 	private RestException(int statusCode, String message, Throwable throwable) {
-		super(message, throwable);
+		super(message, throwable, true, !isStackless(statusCode));
 		
 		this.statusCode = statusCode;
 		reason = "Unknown Error";
 	}
 
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		if (isStackless(types.get(getClass()).statusCode)) {
+			return this;
+		}
+
+		return super.fillInStackTrace();
+	}
+
     /**
      * The status code of the error. Maps to the HTTP status code
      * @return The status code of the error
      */
 	public int getStatusCode() {
 		if (statusCode == 0) {
-			statusCode = getClass().getAnnotation(HttpError.class).status();
+			statusCode = types.get(getClass()).statusCode;
 		}
 		
 		return statusCode;
@@ -160,7 +203,7 @@ public int getStatusCode() {
      */
 	public String getReason() {
 		if (reason == null) {
-			reason = getClass().getSimpleName().replaceAll("([a-z])([A-Z])", "$1 $2");
+			reason = types.get(getClass()).reason;
 		}
 		
 		return reason;
@@ -188,4 +231,38 @@ public String toString() {
         String message = getMessage();
         return (message != null ? (s + ": " + message) : s);
     }
+
+	private static class ExceptionType {
+		private final Class<? extends RestException> type;
+		private final int statusCode;
+		private final String reason;
+		private final Constructor<? extends RestException> constructor;
+
+		private ExceptionType(Class<? extends RestException> type) {
+			this.type = type;
+
+			HttpError error = type.getAnnotation(HttpError.class);
+			statusCode = error != null ? error.status() : 0;
+			reason = type.getSimpleName().replaceAll("([a-z])([A-Z])", "$1 $2");
+
+			Constructor<? extends RestException> constructor;
+			try {
+				constructor = type.getDeclaredConstructor(String.class, Throwable.class);
+				constructor.setAccessible(true);
+			} catch (NoSuchMethodException | RuntimeException e) {
+				constructor = null;
+			}
+
+			this.constructor = constructor;
+		}
+
+		private RestException newInstance(String message, Throwable throwable) throws InstantiationException,
+				IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+			if (constructor == null) {
+				throw new NoSuchMethodException(type.getName() + " does not declare a (String, Throwable) constructor");
+			}
+
+			return constructor.newInstance(message, throwable);
+		}
+	}
 }
@@ -0,0 +1,112 @@
+package info.orestes.rest.util;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link OutputStream} which collects the written bytes in a {@link ByteBuffer} acquired from a
+ * {@link ByteBufferPool}. The buffer grows geometrically by exchanging it with a larger pooled buffer.
+ * <p>
+ * The collected bytes can be handed out with {@link #getByteBuffer()} without copying them. The stream must be
+ * {@link #release() released} to return the buffer to the pool.
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+    private final ByteBufferPool pool;
+    private final boolean direct;
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a new stream
+     *
+     * @param pool            The pool to acquire the buffers from
+     * @param initialCapacity The initial capacity of the buffer
+     * @param direct          <code>true</code> to use direct buffers
+     */
+    public ByteBufferOutputStream(ByteBufferPool pool, int initialCapacity, boolean direct) {
+        this.pool = pool;
+        this.direct = direct;
+        this.buffer = acquire(initialCapacity);
+    }
+
+    private ByteBuffer acquire(int capacity) {
+        ByteBuffer buffer = pool.acquire(capacity, direct);
+        //pooled buffers are handed out in flush mode
+        buffer.clear();
+        return buffer;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (buffer.remaining() < additional) {
+            int required = buffer.position() + additional;
+            ByteBuffer larger = acquire(Math.max(required, buffer.capacity() * 2));
+
+            buffer.flip();
+            larger.put(buffer);
+            pool.release(buffer);
+            buffer = larger;
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        buffer.put(b, off, len);
+    }
+
+    /**
+     * Writes the remaining bytes of the given buffer
+     *
+     * @param src The buffer to copy from
+     */
+    public void write(ByteBuffer src) {
+        ensureCapacity(src.remaining());
+        buffer.put(src);
+    }
+
+    /**
+     * Returns the number of collected bytes
+     *
+     * @return The number of bytes written since the last reset
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * Returns a view of the collected bytes. The view shares the content of this stream, it must not be used after the
+     * stream is written again, reset or released.
+     *
+     * @return A buffer in flush mode which contains the collected bytes
+     */
+    public ByteBuffer getByteBuffer() {
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view;
+    }
+
+    /**
+     * Discards all collected bytes, the buffer is kept for further writes
+     */
+    public void reset() {
+        buffer.clear();
+    }
+
+    /**
+     * Returns the buffer to the pool, the stream can't be used afterwards
+     */
+    public void release() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -1,15 +1,34 @@
 package info.orestes.rest.util;
 
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 
 public class ClassUtil {
+	/**
+	 * The resource path of the class index of a package, the package name is appended
+	 */
+	public static final String INDEX_PATH = "META-INF/orestes/index/";
+
+	/**
+	 * The system property which disables the class indexes, all classpath entries are scanned if it is
+	 * <code>true</code>, e.g. to work around indexes which miss recently added classes
+	 */
+	public static final String SCAN_PROPERTY = "info.orestes.rest.scanClasses";
+
+	private static final Logger LOG = Log.getLogger(ClassUtil.class);
+
 	private static final Class<?>[] EMPTY_CLASSES = new Class<?>[0];
 	
 	/**
@@ -121,38 +140,9 @@ public static List<Class<?>> getPackageClasses(String pkgName) {
 			ClassLoader classLoader = ClassUtil.class.getClassLoader();
 			String pkgPath = pkgName.replace('.', '/');
 
-            List<Class<?>> classes = new LinkedList<>();
-            for (Enumeration<URL> iter = classLoader.getResources(pkgPath); iter.hasMoreElements();) {
-				URI uri = iter.nextElement().toURI();
-
-                Path path;
-                String spec = uri.getRawSchemeSpecificPart();
-                int sep = spec.indexOf("!/");
-                String file = spec;
-                //TODO: May be removed in Java 8
-				//http://bugs.java.com/bugdatabase/view_bug.do?bug_id=7156873
-                //handle classes in jar file
-
-                FileSystem fileSystem = null;
-                if (sep != -1) {
-                    file = file.substring(0, sep);
-					URI fileUri = new URI(file);
-                    fileSystem = FileSystems.newFileSystem(Paths.get(fileUri).toAbsolutePath(), classLoader);
-                    path = fileSystem.getPath(spec.substring(sep + 1));
-                } else {
-                    path = Paths.get(uri);
-                }
-//
-                for (Path filePath: Files.newDirectoryStream(path, "*.class")) {
-                    if (Files.isRegularFile(filePath)) {
-                        String fileName = filePath.getFileName().toString();
-                        String className = pkgName + '.' + fileName.substring(0, fileName.length() - 6);
-                        classes.add(classLoader.loadClass(className));
-                    }
-                }
-
-                if (fileSystem != null)
-                    fileSystem.close();
+			List<Class<?>> classes = new LinkedList<>();
+			for (Enumeration<URL> iter = classLoader.getResources(pkgPath); iter.hasMoreElements();) {
+				scanPackage(iter.nextElement(), pkgName, classLoader, classes);
 			}
 
 			return classes;
@@ -160,4 +150,125 @@ public static List<Class<?>> getPackageClasses(String pkgName) {
 			throw new RuntimeException("The package " + pkgName + " can't be loaded.", e);
 		}
 	}
+
+	/**
+	 * Gets the indexed {@link Class} objects of the package. The index is generated at compile time by the
+	 * <code>ClassIndexProcessor</code> and contains the {@link info.orestes.rest.conversion.Converter}s, {@link
+	 * info.orestes.rest.conversion.ConverterFormat}s and {@link info.orestes.rest.error.RestException}s of the package.
+	 * Classpath entries which contain the package but no index are scanned like {@link #getPackageClasses(String)}.
+	 * A stale index, which names a class that can't be loaded, is ignored with a warning and its classpath entry is
+	 * scanned as well. The indexes are ignored completely if the {@link #SCAN_PROPERTY} is set.
+	 *
+	 * @param pkgName
+	 *            The package name of the classes
+	 * @return The indexed {@link Class}es of the package and all classes of the not indexed classpath entries
+	 */
+	public static List<Class<?>> getIndexedClasses(String pkgName) {
+		return getIndexedClasses(pkgName, ClassUtil.class.getClassLoader());
+	}
+
+	/**
+	 * Gets the indexed {@link Class} objects of the package, see {@link #getIndexedClasses(String)}
+	 *
+	 * @param pkgName
+	 *            The package name of the classes
+	 * @param classLoader
+	 *            The class loader of the index and the classes
+	 * @return The indexed {@link Class}es of the package and all classes of the not indexed classpath entries
+	 */
+	public static List<Class<?>> getIndexedClasses(String pkgName, ClassLoader classLoader) {
+		try {
+			String indexPath = INDEX_PATH + pkgName;
+			String pkgPath = pkgName.replace('.', '/');
+
+			List<Class<?>> classes = new LinkedList<>();
+			Set<String> indexedRoots = new HashSet<>();
+			Enumeration<URL> indexes = Boolean.getBoolean(SCAN_PROPERTY) ? Collections.emptyEnumeration()
+					: classLoader.getResources(indexPath);
+			while (indexes.hasMoreElements()) {
+				URL index = indexes.nextElement();
+				List<Class<?>> indexed = loadIndex(index, classLoader);
+				if (indexed != null) {
+					indexedRoots.add(getRoot(index, indexPath));
+					classes.addAll(indexed);
+				}
+			}
+
+			//classpath entries without a valid index, e.g. classes which are compiled without the processor
+			for (Enumeration<URL> iter = classLoader.getResources(pkgPath); iter.hasMoreElements();) {
+				URL url = iter.nextElement();
+				if (!indexedRoots.contains(getRoot(url, pkgPath))) {
+					scanPackage(url, pkgName, classLoader, classes);
+				}
+			}
+
+			return classes;
+		} catch (Exception e) {
+			throw new RuntimeException("The package " + pkgName + " can't be loaded.", e);
+		}
+	}
+
+	/**
+	 * Loads the classes of an index
+	 *
+	 * @return The classes or <code>null</code> if the index is stale
+	 */
+	private static List<Class<?>> loadIndex(URL index, ClassLoader classLoader) throws Exception {
+		List<Class<?>> classes = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(),
+				StandardCharsets.UTF_8))) {
+			String className;
+			while ((className = reader.readLine()) != null) {
+				className = className.trim();
+				if (!className.isEmpty()) {
+					try {
+						classes.add(classLoader.loadClass(className));
+					} catch (ClassNotFoundException | LinkageError e) {
+						LOG.warn("The class index {} is stale, {} can't be loaded. The classpath entry is scanned "
+								+ "instead, rebuild it to update the index.", index, className);
+						return null;
+					}
+				}
+			}
+		}
+		return classes;
+	}
+
+	private static String getRoot(URL url, String path) {
+		String root = url.toString();
+		if (root.endsWith("/")) {
+			root = root.substring(0, root.length() - 1);
+		}
+		return root.endsWith(path) ? root.substring(0, root.length() - path.length()) : root;
+	}
+
+	private static void scanPackage(URL url, String pkgName, ClassLoader classLoader, List<Class<?>> classes)
+			throws Exception {
+		URI uri = url.toURI();
+		String spec = uri.getRawSchemeSpecificPart();
+		int sep = spec.indexOf("!/");
+
+		//handle classes in jar file
+		if (sep != -1) {
+			URI fileUri = new URI(spec.substring(0, sep));
+			try (FileSystem fileSystem = FileSystems.newFileSystem(Paths.get(fileUri).toAbsolutePath(), classLoader)) {
+				scanPackage(fileSystem.getPath(spec.substring(sep + 1)), pkgName, classLoader, classes);
+			}
+		} else {
+			scanPackage(Paths.get(uri), pkgName, classLoader, classes);
+		}
+	}
+
+	private static void scanPackage(Path path, String pkgName, ClassLoader classLoader, List<Class<?>> classes)
+			throws Exception {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*.class")) {
+			for (Path filePath : files) {
+				if (Files.isRegularFile(filePath)) {
+					String fileName = filePath.getFileName().toString();
+					String className = pkgName + '.' + fileName.substring(0, fileName.length() - 6);
+					classes.add(classLoader.loadClass(className));
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,182 @@
+package info.orestes.rest.util;
+
+import info.orestes.rest.util.MultipartReader.Part;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Parses a <code>multipart/mixed</code> body which arrives in chunks, the non-blocking counterpart of the
+ * {@link MultipartReader}
+ */
+public class MultipartParser {
+
+    private enum State {
+        PREAMBLE, DELIMITER, PART, DONE
+    }
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private final byte[] delimiter;
+    private final int maxPartSize;
+    //the preamble is preceded by a virtual line break, so the first delimiter may directly start the body
+    private byte[] buffer = CRLF.clone();
+    private int length = CRLF.length;
+    private int searched;
+    private State state = State.PREAMBLE;
+
+    /**
+     * Creates a parser of a multipart body
+     *
+     * @param boundary The boundary parameter of the content type
+     * @param maxPartSize The maximum size of the headers and the body of a single part
+     */
+    public MultipartParser(String boundary, int maxPartSize) {
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.maxPartSize = maxPartSize;
+    }
+
+    /**
+     * Parses the next chunk of the body
+     *
+     * @param chunk The chunk, which is consumed completely
+     * @return The parts which have been completed by the chunk
+     * @throws IOException If the body is not a valid multipart body
+     */
+    public List<Part> parse(ByteBuffer chunk) throws IOException {
+        if (state == State.DONE) {
+            //the epilogue is ignored
+            chunk.position(chunk.limit());
+            return new ArrayList<>();
+        }
+
+        int size = chunk.remaining();
+        if (length + size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + size));
+        }
+        chunk.get(buffer, length, size);
+        length += size;
+
+        List<Part> parts = new ArrayList<>();
+        int start = 0;
+        while (state != State.DONE) {
+            if (state == State.DELIMITER) {
+                int end = indexOf(CRLF, start);
+                if (end < 0) {
+                    break;
+                }
+
+                if (end - start >= 2 && buffer[start] == '-' && buffer[start + 1] == '-') {
+                    state = State.DONE;
+                    break;
+                }
+
+                //only transport padding may follow the delimiter
+                for (int i = start; i < end; ++i) {
+                    if (buffer[i] != ' ' && buffer[i] != '\t') {
+                        throw new IOException("Invalid multipart delimiter.");
+                    }
+                }
+                start = end + CRLF.length;
+                state = State.PART;
+                continue;
+            }
+
+            int end = indexOf(delimiter, start);
+            if (end < 0) {
+                //the buffered data may end with the beginning of the delimiter
+                if (state == State.PART && length - start - delimiter.length > maxPartSize) {
+                    throw new PartTooLargeException();
+                }
+                break;
+            }
+
+            if (state == State.PART) {
+                if (end - start > maxPartSize) {
+                    throw new PartTooLargeException();
+                }
+                parts.add(toPart(start, end));
+            }
+            start = end + delimiter.length;
+            state = State.DELIMITER;
+        }
+
+        if (state == State.PREAMBLE) {
+            //the preamble is dropped up to a possible beginning of the delimiter
+            start = Math.max(start, length - delimiter.length + 1);
+        }
+        consume(start);
+        return parts;
+    }
+
+    /**
+     * Indicates if the closing delimiter has been parsed
+     *
+     * @return <code>true</code> if the body is complete
+     */
+    public boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    private Part toPart(int start, int end) throws IOException {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int bodyStart;
+        if (end - start >= CRLF.length && buffer[start] == '\r' && buffer[start + 1] == '\n') {
+            //a part without headers
+            bodyStart = start + CRLF.length;
+        } else {
+            int headerEnd = indexOf(HEADER_END, start, end);
+            if (headerEnd < 0) {
+                throw new IOException("Invalid multipart part without a header end.");
+            }
+
+            String head = new String(buffer, start, headerEnd - start, StandardCharsets.ISO_8859_1);
+            for (String line : head.split("\r\n")) {
+                int index = line.indexOf(':');
+                if (index <= 0) {
+                    throw new IOException("Invalid multipart header " + line + ".");
+                }
+                headers.put(line.substring(0, index).trim(), line.substring(index + 1).trim());
+            }
+            bodyStart = headerEnd + HEADER_END.length;
+        }
+
+        return new Part(headers, Arrays.copyOfRange(buffer, bodyStart, end));
+    }
+
+    private void consume(int start) {
+        System.arraycopy(buffer, start, buffer, 0, length - start);
+        length -= start;
+        searched = Math.max(0, searched - start);
+    }
+
+    /**
+     * Finds the pattern in the buffered data, the data before the last search is not searched again
+     */
+    private int indexOf(byte[] pattern, int start) {
+        int from = Math.max(start, searched);
+        int index = indexOf(pattern, from, length);
+        searched = index < 0 ? Math.max(from, length - pattern.length + 1) : 0;
+        return index;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        outer:
+        for (int i = from; i <= to - pattern.length; ++i) {
+            for (int j = 0; j < pattern.length; ++j) {
+                if (buffer[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
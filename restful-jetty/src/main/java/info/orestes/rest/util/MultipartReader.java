@@ -0,0 +1,179 @@
+package info.orestes.rest.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the parts of a <code>multipart/mixed</code> body one by one, so each part can be processed as soon as it has
+ * been received. The bodies of the parts are kept as binary data.
+ */
+public class MultipartReader {
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final int maxPartSize;
+    private boolean started;
+    private boolean done;
+
+    /**
+     * Creates a reader of a multipart body
+     *
+     * @param in The body, which should be buffered
+     * @param boundary The boundary parameter of the content type
+     * @param maxPartSize The maximum size of the headers and the body of a single part
+     */
+    public MultipartReader(InputStream in, String boundary, int maxPartSize) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.maxPartSize = maxPartSize;
+    }
+
+    /**
+     * Reads the next part of the body
+     *
+     * @return The next part or <code>null</code> if the closing delimiter has been read
+     * @throws IOException If the body could not be read or is not a valid multipart body
+     * @throws PartTooLargeException If a part exceeds the maximum size
+     */
+    public Part next() throws IOException {
+        if (done) {
+            return null;
+        }
+
+        if (!started) {
+            //the preamble is skipped, the first delimiter may directly start the body
+            started = true;
+            readUntilDelimiter(null, 2);
+        }
+
+        int first = read();
+        int second = read();
+        if (first == '-' && second == '-') {
+            done = true;
+            return null;
+        }
+
+        //transport padding after the delimiter
+        while (first == ' ' || first == '\t') {
+            first = second;
+            second = read();
+        }
+
+        if (first != '\r' || second != '\n') {
+            throw new IOException("Invalid multipart delimiter.");
+        }
+
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int size = 0;
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            size += line.length();
+            if (size > maxPartSize) {
+                throw new PartTooLargeException();
+            }
+
+            int index = line.indexOf(':');
+            if (index <= 0) {
+                throw new IOException("Invalid multipart header " + line + ".");
+            }
+            headers.put(line.substring(0, index).trim(), line.substring(index + 1).trim());
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        readUntilDelimiter(body, 0);
+        return new Part(headers, body.toByteArray());
+    }
+
+    /**
+     * Reads the data up to the next delimiter
+     *
+     * @param out The stream the data is written to or <code>null</code> to skip it
+     * @param matched The number of delimiter bytes which have already been matched
+     */
+    private void readUntilDelimiter(ByteArrayOutputStream out, int matched) throws IOException {
+        int size = 0;
+        while (matched < delimiter.length) {
+            int b = read();
+            if (b == delimiter[matched]) {
+                matched++;
+                continue;
+            }
+
+            //a partial match is part of the data, the delimiter starts with the only \r of the delimiter
+            if (out != null && matched > 0) {
+                out.write(delimiter, 0, matched);
+            }
+            size += matched;
+            matched = b == delimiter[0] ? 1 : 0;
+
+            if (matched == 0) {
+                if (out != null) {
+                    out.write(b);
+                }
+                size++;
+            }
+
+            if (out != null && size > maxPartSize) {
+                throw new PartTooLargeException();
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int b = read(); b != '\n'; b = read()) {
+            if (line.length() > maxPartSize) {
+                throw new PartTooLargeException();
+            }
+            line.append((char) b);
+        }
+
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+
+    private int read() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new IOException("Unexpected end of the multipart body.");
+        }
+        return b;
+    }
+
+    /**
+     * A part of a multipart body
+     */
+    public static class Part {
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+        public Part(Map<String, String> headers, byte[] body) {
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * Returns a header of the part
+         *
+         * @param name The case-insensitive name of the header
+         * @return The value or <code>null</code> if the header is missing
+         */
+        public String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package info.orestes.rest.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes the parts of a <code>multipart/mixed</code> body, the counterpart of the {@link MultipartReader}
+ * <p>
+ * Each part is followed by its closing delimiter, so a reader can take a part as soon as it has been written.
+ */
+public class MultipartWriter {
+
+    private final OutputStream out;
+    private final String boundary;
+    private boolean started;
+
+    /**
+     * Creates a writer with a random boundary
+     *
+     * @param out The stream the body is written to
+     */
+    public MultipartWriter(OutputStream out) {
+        this(out, UUID.randomUUID().toString());
+    }
+
+    public MultipartWriter(OutputStream out, String boundary) {
+        this.out = out;
+        this.boundary = boundary;
+    }
+
+    public String getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Returns the content type of the written body
+     *
+     * @return The <code>multipart/mixed</code> media type with the boundary parameter
+     */
+    public String getContentType() {
+        return "multipart/mixed; boundary=" + boundary;
+    }
+
+    /**
+     * Writes a part
+     *
+     * @param headers The headers of the part
+     * @param body The body of the part
+     * @param offset The offset of the body
+     * @param length The length of the body
+     * @throws IOException If the stream could not be written
+     */
+    public void writePart(Map<String, String> headers, byte[] body, int offset, int length) throws IOException {
+        StringBuilder head = new StringBuilder(started ? "" : "--" + boundary).append("\r\n");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        head.append("\r\n");
+
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        out.write(body, offset, length);
+        out.write(("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1));
+        started = true;
+    }
+
+    /**
+     * Writes the closing delimiter
+     *
+     * @throws IOException If the stream could not be written
+     */
+    public void close() throws IOException {
+        out.write(((started ? "" : "--" + boundary) + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,13 @@
+package info.orestes.rest.util;
+
+import java.io.IOException;
+
+/**
+ * Signals that a part of a multipart body exceeds the maximum size of the {@link MultipartReader}
+ */
+@SuppressWarnings("serial")
+public class PartTooLargeException extends IOException {
+    public PartTooLargeException() {
+        super("The multipart part exceeds the maximum size.");
+    }
+}
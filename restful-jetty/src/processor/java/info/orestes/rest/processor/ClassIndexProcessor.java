@@ -0,0 +1,126 @@
+package info.orestes.rest.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates a class index of the converters, formats and exceptions at compile time, which is read by
+ * <code>ClassUtil.getIndexedClasses</code> instead of scanning the classpath.
+ * <p>
+ * For each package which contains <code>Converter</code>, <code>ConverterFormat</code> or
+ * <code>RestException</code> classes, their binary names are written line by line to the resource
+ * {@value #INDEX_PATH}&lt;package name&gt;. The processor resolves the base classes by name, so it has no compile
+ * time dependency on the library.
+ */
+@SupportedAnnotationTypes("*")
+public class ClassIndexProcessor extends AbstractProcessor {
+
+    /**
+     * The resource path of the class index of a package, which must match <code>ClassUtil.INDEX_PATH</code>
+     */
+    public static final String INDEX_PATH = "META-INF/orestes/index/";
+
+    private static final String[] INDEXED_TYPES = {
+        "info.orestes.rest.conversion.Converter",
+        "info.orestes.rest.conversion.ConverterFormat",
+        "info.orestes.rest.error.RestException"
+    };
+
+    private final Map<String, Set<String>> index = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+
+        List<TypeMirror> indexedTypes = new ArrayList<>();
+        for (String name : INDEXED_TYPES) {
+            TypeElement type = elements.getTypeElement(name);
+            if (type != null) {
+                indexedTypes.add(types.erasure(type.asType()));
+            }
+        }
+
+        if (!indexedTypes.isEmpty()) {
+            for (Element element : roundEnv.getRootElements()) {
+                collect(element, indexedTypes, elements, types);
+            }
+        }
+
+        return false;
+    }
+
+    private void collect(Element element, List<TypeMirror> indexedTypes, Elements elements, Types types) {
+        if (element.getKind() != ElementKind.CLASS) {
+            return;
+        }
+
+        TypeElement type = (TypeElement) element;
+        TypeMirror erasure = types.erasure(type.asType());
+        for (TypeMirror indexedType : indexedTypes) {
+            if (types.isSubtype(erasure, indexedType)) {
+                PackageElement pkg = elements.getPackageOf(type);
+                index.computeIfAbsent(pkg.getQualifiedName().toString(), name -> new TreeSet<>())
+                    .add(elements.getBinaryName(type).toString());
+                break;
+            }
+        }
+
+        //nested classes are listed as classes of the package, too
+        for (Element enclosed : type.getEnclosedElements()) {
+            collect(enclosed, indexedTypes, elements, types);
+        }
+    }
+
+    private void writeIndex() {
+        for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+            try {
+                FileObject resource = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_PATH + entry.getKey());
+
+                try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8)) {
+                    for (String className : entry.getValue()) {
+                        writer.write(className);
+                        writer.write('\n');
+                    }
+                }
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "The class index of " + entry.getKey() + " can't be written: " + e.getMessage());
+            }
+        }
+        index.clear();
+    }
+}
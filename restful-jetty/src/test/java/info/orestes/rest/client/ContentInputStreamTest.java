@@ -0,0 +1,158 @@
+package info.orestes.rest.client;
+
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.Callback;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ContentInputStreamTest {
+
+    private final MappedByteBufferPool pool = new MappedByteBufferPool();
+
+    @Test
+    public final void testCopyWithinWindow() throws IOException {
+        ContentInputStream in = new ContentInputStream(pool, 16);
+        CountingCallback callback = new CountingCallback();
+
+        ByteBuffer content = ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8));
+        in.offer(content, callback);
+        // the content is copied, so the network buffer is released immediately
+        assertEquals(1, callback.succeeded.get());
+        assertFalse(content.hasRemaining());
+
+        in.offer(ByteBuffer.wrap(" world".getBytes(StandardCharsets.UTF_8)), callback);
+        in.complete();
+
+        assertEquals("hello world", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(2, callback.succeeded.get());
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public final void testCompositeOfManyChunks() throws IOException {
+        CountingPool countingPool = new CountingPool();
+        ContentInputStream in = new ContentInputStream(countingPool, Long.MAX_VALUE);
+
+        int chunks = 10000;
+        for (int i = 0; i < chunks; ++i) {
+            in.offer(ByteBuffer.wrap(new byte[] {(byte) i, (byte) (i >> 8)}), Callback.NOOP);
+        }
+        in.complete();
+
+        // small chunks are appended to geometrically growing buffers instead of one buffer per chunk
+        assertTrue(countingPool.acquired < 20);
+
+        for (int i = 0; i < chunks; ++i) {
+            assertEquals(i & 0xFF, in.read());
+            assertEquals((i >> 8) & 0xFF, in.read());
+        }
+        assertEquals(-1, in.read());
+        assertEquals(0, countingPool.outstanding);
+    }
+
+    @Test
+    public final void testDemandBeyondWindow() throws IOException {
+        ContentInputStream in = new ContentInputStream(pool, 4);
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+
+        in.offer(ByteBuffer.wrap(new byte[] {1, 2, 3}), first);
+        in.offer(ByteBuffer.wrap(new byte[] {4, 5, 6}), second);
+        assertEquals(1, first.succeeded.get());
+        // the second chunk exceeds the window and is held until it is consumed
+        assertEquals(0, second.succeeded.get());
+
+        byte[] b = new byte[4];
+        assertEquals(3, in.read(b));
+        assertEquals(0, second.succeeded.get());
+        assertEquals(2, in.read(b, 0, 2));
+        assertEquals(0, second.succeeded.get());
+        assertEquals(6, in.read());
+        assertEquals(1, second.succeeded.get());
+    }
+
+    @Test
+    public final void testBlockingRead() throws Exception {
+        ContentInputStream in = new ContentInputStream(pool, 1024);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 100; ++i) {
+                in.offer(ByteBuffer.wrap(new byte[] {(byte) i}), Callback.NOOP);
+            }
+            in.complete();
+        });
+        producer.start();
+
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(i, in.read());
+        }
+        assertEquals(-1, in.read());
+        producer.join();
+    }
+
+    @Test
+    public final void testFailure() throws IOException {
+        ContentInputStream in = new ContentInputStream(pool, 1024);
+        in.offer(ByteBuffer.wrap(new byte[] {1}), Callback.NOOP);
+        in.fail(new IllegalStateException("aborted"));
+
+        assertEquals(1, in.read());
+        try {
+            in.read();
+            fail("The failure is not propagated");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public final void testClose() throws IOException {
+        ContentInputStream in = new ContentInputStream(pool, 0);
+        CountingCallback held = new CountingCallback();
+
+        in.offer(ByteBuffer.wrap(new byte[] {1}), held);
+        assertEquals(0, held.succeeded.get());
+
+        in.close();
+        assertEquals(1, held.succeeded.get());
+
+        // content received after closing is discarded
+        CountingCallback discarded = new CountingCallback();
+        in.offer(ByteBuffer.wrap(new byte[] {2}), discarded);
+        assertEquals(1, discarded.succeeded.get());
+        assertEquals(0, in.available());
+    }
+
+    private static class CountingPool extends MappedByteBufferPool {
+        private int acquired;
+        private int outstanding;
+
+        @Override
+        public ByteBuffer acquire(int size, boolean direct) {
+            acquired++;
+            outstanding++;
+            return super.acquire(size, direct);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer) {
+            outstanding--;
+            super.release(buffer);
+        }
+    }
+
+    private static class CountingCallback implements Callback {
+        private final AtomicInteger succeeded = new AtomicInteger();
+
+        @Override
+        public void succeeded() {
+            succeeded.incrementAndGet();
+        }
+    }
+}
@@ -12,6 +12,7 @@
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 
 public class ContentNegotiationTest {
@@ -24,6 +25,9 @@ private static class JSONConverter extends LongConverter {}
 	
 	@Accept(value = "text/xml")
 	private static class XMLConverter extends LongConverter {}
+
+	@Accept(value = "image/png")
+	private static class PNGConverter extends LongConverter {}
 	
 	ConverterService cs = new ConverterService(new Module(), false);
 	
@@ -43,6 +47,44 @@ public void testIncompatibleType() {
 		assertNull(cs.getPreferredMediaType(Arrays.asList(MediaType.parse("text/html")), EntityType.of(String.class)));
 	}
 	
+	@Test
+	public void testNegotiationCache() {
+		NegotiationCache cache = cs.getNegotiationCache();
+		EntityType<Long> type = EntityType.of(Long.class);
+
+		assertEquals(MediaType.parse("text/xml"), cs.getPreferredMediaType("text/html; q=0.8, text/xml; q=0.9", type));
+		assertEquals(MediaType.parse("text/xml"), cs.getPreferredMediaType("text/html; q=0.8, text/xml; q=0.9", type));
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+
+		assertNull(cs.getPreferredMediaType("image/png", type));
+		assertNull(cs.getPreferredMediaType("image/png", type));
+		assertNull(cs.getPreferredMediaType("text/html", EntityType.of(String.class)));
+		assertEquals(3, cache.getMisses());
+		assertEquals(2, cache.getHits());
+		assertEquals(3, cache.size());
+
+		cs.add(new PNGConverter());
+		assertEquals(0, cache.size());
+		assertEquals(MediaType.parse("image/png"), cs.getPreferredMediaType("image/png", type));
+	}
+
+	@Test
+	public void testNegotiationCacheIsBounded() {
+		NegotiationCache cache = new NegotiationCache(2);
+		EntityType<Long> type = EntityType.of(Long.class);
+
+		cache.put("text/html", type, MediaType.parse("text/html"));
+		cache.put("text/xml", type, null);
+		assertEquals(MediaType.parse("text/html"), cache.get("text/html", type).get());
+		assertFalse(cache.get("text/xml", type).isPresent());
+
+		cache.put(null, type, MediaType.parse("text/html"));
+		assertEquals(1, cache.size());
+		assertNull(cache.get("text/html", type));
+		assertEquals(MediaType.parse("text/html"), cache.get(null, type).get());
+	}
+
 	@Test
 	public void testCompatible() {
 		assertPrefered(MediaType.parse("text/html"), MediaType.parse("text/uri-list"), MediaType.parse("text/html"));
@@ -18,6 +18,9 @@
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
@@ -73,6 +76,65 @@ public void testAdd() {
         assertEquals(TEST_MEDIA_TYPE, cs.getPreferredMediaType(asList(TEST_MEDIA_TYPE), longType));
     }
 
+    @Test
+    public void testSnapshot() {
+        cs.addFormat(newEmptyFormat());
+        cs.add(new Q1Converter());
+        Set<MediaType> before = cs.getAcceptableMediaTypes(longType);
+
+        cs.add(new LongConverter());
+
+        // published snapshots are never modified
+        assertFalse(before.contains(TEST_MEDIA_TYPE));
+        assertTrue(cs.getAcceptableMediaTypes(longType).contains(TEST_MEDIA_TYPE));
+        assertTrue(cs.getAcceptableMediaTypes(longType).containsAll(before));
+    }
+
+    @Test
+    public void testHotAdd() throws Exception {
+        cs.addFormat(newEmptyFormat());
+        assertNull(cs.getPreferredMediaType(TEST_TYPE, longType));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; ++i) {
+            readers[i] = new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        cs.getPreferredMediaType(TEST_TYPE, longType);
+                        cs.getAcceptableMediaTypes(longType);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            readers[i].start();
+        }
+
+        Thread.sleep(10);
+        cs.add(new LongConverter());
+        Thread.sleep(10);
+
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        // no negotiation of the old snapshot remains cached
+        assertEquals(TEST_MEDIA_TYPE, cs.getPreferredMediaType(TEST_TYPE, longType));
+    }
+
+    private static TestFormat newEmptyFormat() {
+        return new TestFormat() {
+            @Override
+            public String getConverterPackageName() {
+                return null;
+            }
+        };
+    }
+
     @Test
     public void testAddSubClass() {
         cs.addFormat(new TestFormat());
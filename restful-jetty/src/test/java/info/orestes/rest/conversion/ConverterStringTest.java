@@ -2,9 +2,17 @@
 
 import info.orestes.rest.error.InternalServerError;
 import info.orestes.rest.error.RestException;
+import org.apache.tika.mime.MediaType;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
 public class ConverterStringTest extends ConverterTestHelper {
 
 	private String TEXT_ALL = "text/*";
@@ -103,4 +111,52 @@ public final void testString() throws RestException {
 	public final void testNullAsString() throws RestException {
 		assertConvertEquals(String.class, TEXT_ALL, null);
 	}
+
+	@Test
+	public final void testBinaryString() throws Exception {
+		MediaType mediaType = MediaType.parse("text/plain; charset=UTF-8");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		cs.toRepresentation(new BinaryContext(mediaType, bytes, null), String.class, "A binary Str\u00efng");
+		assertArrayEquals("A binary Str\u00efng".getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+
+		ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+		assertEquals("A binary Str\u00efng", cs.toObject(new BinaryContext(mediaType, null, in), String.class));
+	}
+
+	private static class BinaryContext extends SimpleContext implements BinaryWritableContext, BinaryReadableContext {
+		private final OutputStream out;
+		private final InputStream in;
+
+		private BinaryContext(MediaType mediaType, OutputStream out, InputStream in) {
+			super(mediaType);
+			this.out = out;
+			this.in = in;
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return out;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return in;
+		}
+
+		@Override
+		public Writer getWriter() {
+			throw new AssertionError("The binary stream must be used");
+		}
+
+		@Override
+		public Reader getReader() {
+			throw new AssertionError("The binary stream must be used");
+		}
+
+		@Override
+		public Charset getCharset() {
+			return BinaryWritableContext.super.getCharset();
+		}
+	}
 }
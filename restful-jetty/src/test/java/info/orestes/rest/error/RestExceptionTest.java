@@ -0,0 +1,62 @@
+package info.orestes.rest.error;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RestExceptionTest {
+
+    @After
+    public void tearDown() {
+        RestException.setLightweightClientErrors(false);
+    }
+
+    @Test
+    public void testCreate() {
+        Throwable cause = new IllegalStateException();
+        RestException e = RestException.create(404, "missing", cause);
+
+        assertSame(NotFound.class, e.getClass());
+        assertEquals(404, e.getStatusCode());
+        assertEquals("Not Found", e.getReason());
+        assertEquals("missing", e.getMessage());
+        assertSame(cause, e.getCause());
+
+        e = RestException.create("PreconditionFailed", 412, "changed", null);
+        assertSame(PreconditionFailed.class, e.getClass());
+        assertEquals("Precondition Failed", e.getReason());
+    }
+
+    @Test
+    public void testCreateUnknownStatus() {
+        RestException e = RestException.create(499, "unknown", null);
+
+        assertSame(RestException.class, e.getClass());
+        assertEquals(499, e.getStatusCode());
+        assertEquals("Unknown Error", e.getReason());
+        assertTrue(e.getStackTrace().length > 0);
+    }
+
+    @Test
+    public void testStackTraceByDefault() {
+        assertFalse(RestException.isLightweightClientErrors());
+
+        assertTrue(new NotFound("missing").getStackTrace().length > 0);
+        assertTrue(RestException.create(400, "invalid", null).getStackTrace().length > 0);
+    }
+
+    @Test
+    public void testLightweightClientErrors() {
+        RestException.setLightweightClientErrors(true);
+
+        assertEquals(0, new NotFound("missing").getStackTrace().length);
+        assertEquals(0, new BadRequest("invalid").getStackTrace().length);
+        assertEquals(0, RestException.create(412, "changed", null).getStackTrace().length);
+        assertEquals(0, RestException.create(499, "unknown", null).getStackTrace().length);
+
+        // server errors keep their stack trace
+        assertTrue(new InternalServerError("failed").getStackTrace().length > 0);
+        assertTrue(RestException.create(503, "unavailable", null).getStackTrace().length > 0);
+    }
+}
@@ -0,0 +1,102 @@
+package info.orestes.rest.processor;
+
+import info.orestes.rest.util.ClassUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ClassIndexProcessorTest {
+
+    private Path output;
+
+    @Before
+    public void setUp() throws IOException {
+        output = Files.createTempDirectory("classes");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(output)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        compile(
+            source("test.conv.TestConverter", "package test.conv;\n"
+                + "@info.orestes.rest.conversion.Accept(\"text/plain\")\n"
+                + "public class TestConverter extends info.orestes.rest.conversion.string.StringIntegerConverter {\n"
+                + "    public static class Nested extends info.orestes.rest.error.NotFound {\n"
+                + "        public Nested(String message) { super(message); }\n"
+                + "    }\n"
+                + "}\n"),
+            source("test.conv.Helper", "package test.conv;\npublic class Helper {}\n"),
+            source("test.error.TestError", "package test.error;\n"
+                + "@info.orestes.rest.error.HttpError(status = 499)\n"
+                + "public class TestError extends info.orestes.rest.error.RestException {\n"
+                + "    public TestError(String message) { super(message); }\n"
+                + "}\n"));
+
+        assertEquals(Arrays.asList("test.conv.TestConverter", "test.conv.TestConverter$Nested"),
+            read("test.conv"));
+        assertEquals(Collections.singletonList("test.error.TestError"), read("test.error"));
+    }
+
+    @Test
+    public void testNoIndex() throws IOException {
+        compile(source("test.plain.Plain", "package test.plain;\npublic class Plain {}\n"));
+
+        assertFalse(Files.exists(output.resolve(ClassIndexProcessor.INDEX_PATH)));
+    }
+
+    @Test
+    public void testIndexPath() {
+        assertEquals(ClassUtil.INDEX_PATH, ClassIndexProcessor.INDEX_PATH);
+    }
+
+    private void compile(JavaFileObject... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            List<String> options = Arrays.asList("-proc:only", "-d", output.toString(),
+                "-cp", System.getProperty("java.class.path"));
+
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+                Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new ClassIndexProcessor()));
+            assertTrue(task.call());
+        }
+    }
+
+    private List<String> read(String pkgName) throws IOException {
+        return Files.readAllLines(output.resolve(ClassIndexProcessor.INDEX_PATH + pkgName), StandardCharsets.UTF_8);
+    }
+
+    private static JavaFileObject source(String className, String code) {
+        URI uri = URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package info.orestes.rest.util;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ByteBufferOutputStreamTest {
+
+    private final CountingPool pool = new CountingPool();
+
+    @Test
+    public final void testWriteAndGrow() {
+        ByteBufferOutputStream out = new ByteBufferOutputStream(pool, 16, true);
+
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+
+        out.write(data, 0, 10);
+        out.write(10);
+        out.write(data, 11, 89);
+        assertEquals(100, out.size());
+
+        ByteBuffer buffer = out.getByteBuffer();
+        assertEquals(100, buffer.remaining());
+        for (int i = 0; i < data.length; ++i) {
+            assertEquals(data[i], buffer.get());
+        }
+
+        out.release();
+        assertEquals(0, pool.acquired);
+    }
+
+    @Test
+    public final void testReset() {
+        ByteBufferOutputStream out = new ByteBufferOutputStream(pool, 16, false);
+
+        out.write("first".getBytes(StandardCharsets.UTF_8), 0, 5);
+        out.reset();
+        out.write(ByteBuffer.wrap("second".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("second", StandardCharsets.UTF_8.decode(out.getByteBuffer()).toString());
+
+        out.release();
+        out.release();
+        assertEquals(0, pool.acquired);
+    }
+
+    private static class CountingPool implements ByteBufferPool {
+        private final ByteBufferPool delegate = new MappedByteBufferPool();
+        private int acquired;
+
+        @Override
+        public ByteBuffer acquire(int size, boolean direct) {
+            acquired++;
+            return delegate.acquire(size, direct);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer) {
+            acquired--;
+            delegate.release(buffer);
+        }
+    }
+}
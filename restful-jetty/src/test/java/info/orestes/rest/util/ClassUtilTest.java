@@ -0,0 +1,116 @@
+package info.orestes.rest.util;
+
+import info.orestes.rest.conversion.testing.LongConverter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ClassUtilTest {
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("index");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        // the package only exists in the index, it can't be found by scanning
+        Path index = root.resolve(ClassUtil.INDEX_PATH + "info.orestes.rest.indexed");
+        Files.createDirectories(index.getParent());
+        Files.write(index, ("\n" + LongConverter.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {root.toUri().toURL()},
+            getClass().getClassLoader())) {
+            List<Class<?>> classes = ClassUtil.getIndexedClasses("info.orestes.rest.indexed", classLoader);
+            assertEquals(1, classes.size());
+            assertSame(LongConverter.class, classes.get(0));
+        }
+    }
+
+    @Test
+    public void testNotIndexedRoot() throws IOException {
+        // an index of another classpath entry doesn't hide the classes of the test classes
+        Path index = root.resolve(ClassUtil.INDEX_PATH + "info.orestes.rest.conversion.testing");
+        Files.createDirectories(index.getParent());
+        Files.write(index, new byte[0]);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {root.toUri().toURL()},
+            getClass().getClassLoader())) {
+            List<Class<?>> classes = ClassUtil.getIndexedClasses("info.orestes.rest.conversion.testing", classLoader);
+            assertTrue(classes.contains(LongConverter.class));
+        }
+    }
+
+    @Test
+    public void testStaleIndex() throws IOException {
+        // the index names a removed class, the classes of its classpath entry are scanned instead
+        String pkgName = LongConverter.class.getPackage().getName();
+        Path index = root.resolve(ClassUtil.INDEX_PATH + pkgName);
+        Files.createDirectories(index.getParent());
+        Files.write(index, (pkgName + ".RemovedConverter\n").getBytes(StandardCharsets.UTF_8));
+
+        Path classFile = root.resolve(pkgName.replace('.', '/')).resolve("LongConverter.class");
+        Files.createDirectories(classFile.getParent());
+        try (InputStream in = LongConverter.class.getResourceAsStream("LongConverter.class")) {
+            Files.copy(in, classFile);
+        }
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {root.toUri().toURL()},
+            getClass().getClassLoader())) {
+            List<Class<?>> classes = ClassUtil.getIndexedClasses(pkgName, classLoader);
+            // found in the stale root and in the test classes
+            assertEquals(2, Collections.frequency(classes, LongConverter.class));
+        }
+    }
+
+    @Test
+    public void testScanProperty() {
+        System.setProperty(ClassUtil.SCAN_PROPERTY, "true");
+        try {
+            String pkgName = "info.orestes.rest.error";
+            assertEquals(new HashSet<>(ClassUtil.getPackageClasses(pkgName)),
+                new HashSet<>(ClassUtil.getIndexedClasses(pkgName)));
+        } finally {
+            System.clearProperty(ClassUtil.SCAN_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testIndexedLibraryPackages() {
+        for (String pkgName : new String[] {"info.orestes.rest.error", "info.orestes.rest.conversion.string"}) {
+            // the index is generated by the processor, otherwise the packages would be scanned
+            assertNotNull(ClassUtil.class.getClassLoader().getResource(ClassUtil.INDEX_PATH + pkgName));
+
+            List<Class<?>> indexed = ClassUtil.getIndexedClasses(pkgName);
+            List<Class<?>> scanned = ClassUtil.getPackageClasses(pkgName);
+
+            // the scan contains the helper classes of the package, too
+            assertTrue(new HashSet<>(scanned).containsAll(indexed));
+            assertFalse(indexed.isEmpty());
+        }
+    }
+}
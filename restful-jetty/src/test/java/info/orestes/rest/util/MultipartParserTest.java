@@ -0,0 +1,80 @@
+package info.orestes.rest.util;
+
+import info.orestes.rest.util.MultipartReader.Part;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MultipartParserTest {
+
+    @Test
+    public final void testParse() throws IOException {
+        byte[] body = body();
+        MultipartParser parser = new MultipartParser("b", 1024);
+        List<Part> parts = parser.parse(ByteBuffer.wrap(body));
+        assertTrue(parser.isComplete());
+        assertParts(parts);
+    }
+
+    @Test
+    public final void testParseChunks() throws IOException {
+        byte[] body = ("preamble\r\n" + new String(body(), StandardCharsets.ISO_8859_1) + "epilogue")
+            .getBytes(StandardCharsets.ISO_8859_1);
+        MultipartParser parser = new MultipartParser("b", 1024);
+
+        List<Part> parts = new ArrayList<>();
+        for (int i = 0; i < body.length; ++i) {
+            parts.addAll(parser.parse(ByteBuffer.wrap(body, i, 1)));
+            //the body is complete with the closing delimiter, before the epilogue
+            if (i < body.length - 20) {
+                assertFalse(parser.isComplete());
+            }
+        }
+        assertTrue(parser.isComplete());
+        assertParts(parts);
+    }
+
+    @Test(expected = PartTooLargeException.class)
+    public final void testPartTooLarge() throws IOException {
+        MultipartParser parser = new MultipartParser("b", 8);
+        parser.parse(ByteBuffer.wrap("--b\r\n\r\n0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test(expected = IOException.class)
+    public final void testInvalidDelimiter() throws IOException {
+        MultipartParser parser = new MultipartParser("b", 1024);
+        parser.parse(ByteBuffer.wrap("--b invalid\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    private byte[] body() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MultipartWriter writer = new MultipartWriter(out, "b");
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "text/plain");
+        headers.put("Content-ID", "1");
+
+        byte[] data = "a\r\n--c\r\n".getBytes(StandardCharsets.ISO_8859_1);
+        writer.writePart(headers, data, 0, data.length);
+        writer.writePart(new LinkedHashMap<>(), new byte[0], 0, 0);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private void assertParts(List<Part> parts) {
+        assertEquals(2, parts.size());
+        assertEquals("text/plain", parts.get(0).getHeader("content-type"));
+        assertEquals("1", parts.get(0).getHeader("Content-ID"));
+        assertEquals("a\r\n--c\r\n", new String(parts.get(0).getBody(), StandardCharsets.ISO_8859_1));
+        assertTrue(parts.get(1).getHeaders().isEmpty());
+        assertEquals(0, parts.get(1).getBody().length);
+    }
+}